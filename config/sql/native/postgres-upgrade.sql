@@ -461,6 +461,228 @@ BEGIN
 END;
 $$;
 $aa$);
+-- Org closure maintained incrementally instead of the materialized view refreshed on demand.
+call apply_change(26, $aa$
+DROP MATERIALIZED VIEW m_org_closure;
+DROP TRIGGER m_ref_object_parent_mark_refresh_tr ON m_ref_object_parent_org;
+DROP TRIGGER m_ref_object_parent_mark_refresh_trunc_tr ON m_ref_object_parent_org;
+DROP TRIGGER m_org_mark_refresh_tr ON m_org;
+DROP TRIGGER m_org_mark_refresh_trunc_tr ON m_org;
+DROP FUNCTION mark_org_closure_for_refresh();
+DROP FUNCTION mark_org_closure_for_refresh_org();
+DELETE FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded';
+
+/*
+Org closure is a table maintained incrementally by triggers on m_ref_object_parent_org and m_org.
+Only parent-org references owned by orgs form the hierarchy, refs of other objects are not
+in the closure, they are joined with it in the queries (see OrgFilterProcessor).
+
+Closure contains also identity (org = org) entries for each org because:
+* It actually makes some query easier and requires AND instead of OR conditions.
+* While the table shows that o => o (=> means "is parent of"), this is not the semantics
+of isParent/ChildOf searches and they never return parameter OID as a result.
+
+Column paths contains the number of different paths from ancestor to descendant.
+This allows to remove the pairs properly when one of more parents is removed (DAG is supported).
+Identity entries always have paths = 1 and they are not considered by the incremental update.
+Cycles in the hierarchy are not supported, they do not break the closure, but paths numbers
+may not be exact. Full rebuild can be done by calling m_refresh_org_closure(true).
+*/
+CREATE TABLE m_org_closure (
+    ancestor_oid UUID NOT NULL,
+    descendant_oid UUID NOT NULL,
+    paths INTEGER NOT NULL,
+
+    PRIMARY KEY (ancestor_oid, descendant_oid)
+);
+
+CREATE INDEX m_org_closure_desc_asc_idx
+    ON m_org_closure (descendant_oid, ancestor_oid);
+
+-- Returns all pairs (ancestor => descendant) that go over the edge parent => child,
+-- together with the number of such paths.
+-- This covers parent itself (and its ancestors) and child itself (and its descendants).
+CREATE OR REPLACE FUNCTION m_org_closure_edge_paths(parentOid UUID, childOid UUID)
+    RETURNS TABLE (ancestor_oid UUID, descendant_oid UUID, paths INTEGER)
+    LANGUAGE sql
+    STABLE
+AS $$
+    SELECT a.oid, d.oid, a.paths * d.paths
+        FROM (
+            SELECT c.ancestor_oid AS oid, c.paths FROM m_org_closure c
+                WHERE c.descendant_oid = parentOid AND c.ancestor_oid <> parentOid
+            UNION ALL
+            SELECT parentOid, 1) a,
+            (
+            SELECT c.descendant_oid AS oid, c.paths FROM m_org_closure c
+                WHERE c.ancestor_oid = childOid AND c.descendant_oid <> childOid
+            UNION ALL
+            SELECT childOid, 1) d
+        -- identity rows are managed separately, this also protects us against cycles
+        WHERE a.oid <> d.oid
+$$;
+
+CREATE OR REPLACE PROCEDURE m_org_closure_add_edge(parentOid UUID, childOid UUID)
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        SELECT e.ancestor_oid, e.descendant_oid, e.paths
+            FROM m_org_closure_edge_paths(parentOid, childOid) e
+        ON CONFLICT (ancestor_oid, descendant_oid)
+            DO UPDATE SET paths = m_org_closure.paths + EXCLUDED.paths;
+END $$;
+
+CREATE OR REPLACE PROCEDURE m_org_closure_remove_edge(parentOid UUID, childOid UUID)
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    UPDATE m_org_closure oc SET paths = oc.paths - e.paths
+        FROM m_org_closure_edge_paths(parentOid, childOid) e
+        WHERE oc.ancestor_oid = e.ancestor_oid AND oc.descendant_oid = e.descendant_oid;
+    -- Removed edge does not change ancestors of the parent or descendants of the child,
+    -- so the same pairs are checked for rows without any path left.
+    DELETE FROM m_org_closure oc
+        USING m_org_closure_edge_paths(parentOid, childOid) e
+        WHERE oc.ancestor_oid = e.ancestor_oid AND oc.descendant_oid = e.descendant_oid
+            AND oc.paths <= 0;
+END $$;
+
+-- The trigger for m_ref_object_parent_org that updates the closure.
+CREATE OR REPLACE FUNCTION update_org_closure()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_advisory_xact_lock(47);
+        DELETE FROM m_org_closure WHERE ancestor_oid <> descendant_oid;
+        RETURN NULL;
+    END IF;
+
+    -- Transaction lock serializes concurrent hierarchy changes, otherwise two transactions
+    -- could miss each other's edges (each statement sees the data committed before it).
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.ownerType = 'ORG' THEN
+        PERFORM pg_advisory_xact_lock(47);
+        CALL m_org_closure_remove_edge(OLD.targetOid, OLD.ownerOid);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') AND NEW.ownerType = 'ORG' THEN
+        PERFORM pg_advisory_xact_lock(47);
+        CALL m_org_closure_add_edge(NEW.targetOid, NEW.ownerOid);
+    END IF;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER m_ref_object_parent_org_closure_tr
+    AFTER INSERT OR UPDATE OR DELETE ON m_ref_object_parent_org
+    FOR EACH ROW EXECUTE FUNCTION update_org_closure();
+CREATE TRIGGER m_ref_object_parent_org_closure_trunc_tr
+    AFTER TRUNCATE ON m_ref_object_parent_org
+    FOR EACH STATEMENT EXECUTE FUNCTION update_org_closure();
+
+-- The trigger that maintains identity rows in the closure after m_org changes.
+CREATE OR REPLACE FUNCTION update_org_closure_org()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        DELETE FROM m_org_closure WHERE ancestor_oid = descendant_oid;
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO m_org_closure VALUES (NEW.oid, NEW.oid, 1)
+            ON CONFLICT (ancestor_oid, descendant_oid) DO NOTHING;
+    ELSE -- DELETE, parent-org refs of the org are deleted by cascade and handled by their trigger
+        DELETE FROM m_org_closure WHERE ancestor_oid = OLD.oid AND descendant_oid = OLD.oid;
+    END IF;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+-- Update is not necessary, it does not change relations between orgs.
+-- If it does, it is handled by trigger on m_ref_object_parent_org.
+CREATE TRIGGER m_org_closure_tr
+    AFTER INSERT OR DELETE ON m_org
+    FOR EACH ROW EXECUTE FUNCTION update_org_closure_org();
+CREATE TRIGGER m_org_closure_trunc_tr
+    AFTER TRUNCATE ON m_org
+    FOR EACH STATEMENT EXECUTE FUNCTION update_org_closure_org();
+
+-- This procedure rebuilds the whole closure from m_org and m_ref_object_parent_org.
+-- It is not needed for normal operation, because the closure is maintained by the triggers,
+-- but it can be used after many changes with triggers off (or just to be sure).
+-- Without force it does nothing, parameter is kept for compatibility with older callers.
+CREATE OR REPLACE PROCEDURE m_refresh_org_closure(force boolean = false)
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NOT force THEN
+        RETURN;
+    END IF;
+
+    PERFORM pg_advisory_xact_lock(47);
+    DELETE FROM m_org_closure;
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        WITH RECURSIVE org_h (
+            ancestor_oid, -- ref.targetoid
+            descendant_oid, --ref.ownerOid
+            path -- visited oids, this prevents infinite loops for cycles
+        ) AS (
+            -- non-recursive term: all the parent-org edges between orgs
+            SELECT r.targetOid, r.ownerOid, ARRAY[r.ownerOid, r.targetOid]
+                FROM m_ref_object_parent_org r
+                WHERE r.ownerType = 'ORG' AND r.ownerOid <> r.targetOid
+            UNION ALL
+            -- recursive (iterative) term:
+            -- Generate their parents (anc => desc, that is target => owner), => means "is parent of".
+            SELECT par.targetOid, chi.descendant_oid, chi.path || par.targetOid
+                FROM m_ref_object_parent_org as par, org_h as chi
+                WHERE par.ownerOid = chi.ancestor_oid AND par.ownerType = 'ORG'
+                    AND NOT par.targetOid = ANY(chi.path)
+        )
+        SELECT ancestor_oid, descendant_oid, count(*) FROM org_h
+            GROUP BY ancestor_oid, descendant_oid
+        UNION ALL
+        SELECT o.oid, o.oid, 1 FROM m_org o;
+END $$;
+
+-- initial fill of the closure table
+CALL m_refresh_org_closure(true);
+$aa$);
+
+-- Work buckets stored in their own table (row-level allocation) instead of the coordinator task.
+call apply_change(27, $aa$
+CREATE TYPE WorkBucketStateType AS ENUM ('READY', 'DELEGATED', 'COMPLETE');
+
+CREATE TABLE m_task_bucket (
+    ownerOid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    activityPath TEXT NOT NULL, -- identifiers separated by '/', empty for the root activity
+    sequentialNumber INTEGER NOT NULL,
+    state WorkBucketStateType NOT NULL,
+    workerOid UUID,
+    bucket BYTEA NOT NULL,
+
+    PRIMARY KEY (ownerOid, activityPath, sequentialNumber)
+);
+
+CREATE INDEX m_task_bucket_ready_idx ON m_task_bucket (ownerOid, activityPath, sequentialNumber)
+    WHERE state = 'READY';
+$aa$);
+
+-- Task statistics and progress stored as replace deltas outside the task full object.
+call apply_change(28, $aa$
+CREATE TABLE m_task_statistics (
+    ownerOid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    itemPath TEXT NOT NULL,
+    delta BYTEA NOT NULL,
+    -- order of storing, so that an older child item value does not overwrite a newer parent one
+    seq BIGSERIAL NOT NULL,
+
+    PRIMARY KEY (ownerOid, itemPath)
+);
+$aa$);
 ---
 -- WRITE CHANGES ABOVE ^^
 -- IMPORTANT: update apply_change number at the end of postgres-new.sql
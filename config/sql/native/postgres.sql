@@ -166,6 +166,8 @@ CREATE TYPE TaskWaitingReasonType AS ENUM ('OTHER_TASKS', 'OTHER');
 CREATE TYPE ThreadStopActionType AS ENUM ('RESTART', 'RESCHEDULE', 'SUSPEND', 'CLOSE');
 
 CREATE TYPE TimeIntervalStatusType AS ENUM ('BEFORE', 'IN', 'AFTER');
+
+CREATE TYPE WorkBucketStateType AS ENUM ('READY', 'DELEGATED', 'COMPLETE');
 -- endregion
 
 -- region OID-pool table
@@ -809,72 +811,129 @@ CREATE INDEX m_ref_object_parent_org_targetOidRelationId_idx
 
 -- region org-closure
 /*
-Trigger on m_ref_object_parent_org marks this view for refresh in one m_global_metadata row.
-Closure contains also identity (org = org) entries because:
-* It's easier to do optimized matrix-multiplication based refresh with them later.
+Org closure is a table maintained incrementally by triggers on m_ref_object_parent_org and m_org.
+Only parent-org references owned by orgs form the hierarchy, refs of other objects are not
+in the closure, they are joined with it in the queries (see OrgFilterProcessor).
+
+Closure contains also identity (org = org) entries for each org because:
 * It actually makes some query easier and requires AND instead of OR conditions.
 * While the table shows that o => o (=> means "is parent of"), this is not the semantics
 of isParent/ChildOf searches and they never return parameter OID as a result.
+
+Column paths contains the number of different paths from ancestor to descendant.
+This allows to remove the pairs properly when one of more parents is removed (DAG is supported).
+Identity entries always have paths = 1 and they are not considered by the incremental update.
+Cycles in the hierarchy are not supported, they do not break the closure, but paths numbers
+may not be exact. Full rebuild can be done by calling m_refresh_org_closure(true).
 */
-CREATE MATERIALIZED VIEW m_org_closure AS
-WITH RECURSIVE org_h (
-    ancestor_oid, -- ref.targetoid
-    descendant_oid --ref.ownerOid
-    -- paths -- number of different paths, not used for materialized view version
-    -- depth -- possible later, but cycle detected must be added to the recursive term
-) AS (
-    -- non-recursive term:
-    -- Gather all organization oids from parent-org refs and initialize identity lines (o => o).
-    -- We don't want the orgs not in org hierarchy, that would require org triggers too.
-    SELECT o.oid, o.oid FROM m_org o
-        WHERE EXISTS(
-            SELECT 1 FROM m_ref_object_parent_org r
-                WHERE r.targetOid = o.oid OR r.ownerOid = o.oid)
-    UNION
-    -- recursive (iterative) term:
-    -- Generate their parents (anc => desc, that is target => owner), => means "is parent of".
-    SELECT par.targetoid, chi.descendant_oid -- leaving original child there generates closure
-        FROM m_ref_object_parent_org as par, org_h as chi
-        WHERE par.ownerOid = chi.ancestor_oid
-)
-SELECT * FROM org_h;
+CREATE TABLE m_org_closure (
+    ancestor_oid UUID NOT NULL,
+    descendant_oid UUID NOT NULL,
+    paths INTEGER NOT NULL,
+
+    PRIMARY KEY (ancestor_oid, descendant_oid)
+);
 
--- unique index is like PK if it was table
-CREATE UNIQUE INDEX m_org_closure_asc_desc_idx
-    ON m_org_closure (ancestor_oid, descendant_oid);
 CREATE INDEX m_org_closure_desc_asc_idx
     ON m_org_closure (descendant_oid, ancestor_oid);
 
--- The trigger for m_ref_object_parent_org that flags the view for refresh.
-CREATE OR REPLACE FUNCTION mark_org_closure_for_refresh()
+-- Returns all pairs (ancestor => descendant) that go over the edge parent => child,
+-- together with the number of such paths.
+-- This covers parent itself (and its ancestors) and child itself (and its descendants).
+CREATE OR REPLACE FUNCTION m_org_closure_edge_paths(parentOid UUID, childOid UUID)
+    RETURNS TABLE (ancestor_oid UUID, descendant_oid UUID, paths INTEGER)
+    LANGUAGE sql
+    STABLE
+AS $$
+    SELECT a.oid, d.oid, a.paths * d.paths
+        FROM (
+            SELECT c.ancestor_oid AS oid, c.paths FROM m_org_closure c
+                WHERE c.descendant_oid = parentOid AND c.ancestor_oid <> parentOid
+            UNION ALL
+            SELECT parentOid, 1) a,
+            (
+            SELECT c.descendant_oid AS oid, c.paths FROM m_org_closure c
+                WHERE c.ancestor_oid = childOid AND c.descendant_oid <> childOid
+            UNION ALL
+            SELECT childOid, 1) d
+        -- identity rows are managed separately, this also protects us against cycles
+        WHERE a.oid <> d.oid
+$$;
+
+CREATE OR REPLACE PROCEDURE m_org_closure_add_edge(parentOid UUID, childOid UUID)
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        SELECT e.ancestor_oid, e.descendant_oid, e.paths
+            FROM m_org_closure_edge_paths(parentOid, childOid) e
+        ON CONFLICT (ancestor_oid, descendant_oid)
+            DO UPDATE SET paths = m_org_closure.paths + EXCLUDED.paths;
+END $$;
+
+CREATE OR REPLACE PROCEDURE m_org_closure_remove_edge(parentOid UUID, childOid UUID)
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    UPDATE m_org_closure oc SET paths = oc.paths - e.paths
+        FROM m_org_closure_edge_paths(parentOid, childOid) e
+        WHERE oc.ancestor_oid = e.ancestor_oid AND oc.descendant_oid = e.descendant_oid;
+    -- Removed edge does not change ancestors of the parent or descendants of the child,
+    -- so the same pairs are checked for rows without any path left.
+    DELETE FROM m_org_closure oc
+        USING m_org_closure_edge_paths(parentOid, childOid) e
+        WHERE oc.ancestor_oid = e.ancestor_oid AND oc.descendant_oid = e.descendant_oid
+            AND oc.paths <= 0;
+END $$;
+
+-- The trigger for m_ref_object_parent_org that updates the closure.
+CREATE OR REPLACE FUNCTION update_org_closure()
     RETURNS trigger
     LANGUAGE plpgsql
 AS $$
 BEGIN
-    IF TG_OP = 'TRUNCATE' OR OLD.ownerType = 'ORG' OR NEW.ownerType = 'ORG' THEN
-        INSERT INTO m_global_metadata VALUES ('orgClosureRefreshNeeded', 'true')
-            ON CONFLICT (name) DO UPDATE SET value = 'true';
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_advisory_xact_lock(47);
+        DELETE FROM m_org_closure WHERE ancestor_oid <> descendant_oid;
+        RETURN NULL;
+    END IF;
+
+    -- Transaction lock serializes concurrent hierarchy changes, otherwise two transactions
+    -- could miss each other's edges (each statement sees the data committed before it).
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.ownerType = 'ORG' THEN
+        PERFORM pg_advisory_xact_lock(47);
+        CALL m_org_closure_remove_edge(OLD.targetOid, OLD.ownerOid);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') AND NEW.ownerType = 'ORG' THEN
+        PERFORM pg_advisory_xact_lock(47);
+        CALL m_org_closure_add_edge(NEW.targetOid, NEW.ownerOid);
     END IF;
 
     -- after trigger returns null
     RETURN NULL;
 END $$;
 
-CREATE TRIGGER m_ref_object_parent_mark_refresh_tr
+CREATE TRIGGER m_ref_object_parent_org_closure_tr
     AFTER INSERT OR UPDATE OR DELETE ON m_ref_object_parent_org
-    FOR EACH ROW EXECUTE FUNCTION mark_org_closure_for_refresh();
-CREATE TRIGGER m_ref_object_parent_mark_refresh_trunc_tr
+    FOR EACH ROW EXECUTE FUNCTION update_org_closure();
+CREATE TRIGGER m_ref_object_parent_org_closure_trunc_tr
     AFTER TRUNCATE ON m_ref_object_parent_org
-    FOR EACH STATEMENT EXECUTE FUNCTION mark_org_closure_for_refresh();
+    FOR EACH STATEMENT EXECUTE FUNCTION update_org_closure();
 
--- The trigger that flags the view for refresh after m_org changes.
-CREATE OR REPLACE FUNCTION mark_org_closure_for_refresh_org()
+-- The trigger that maintains identity rows in the closure after m_org changes.
+CREATE OR REPLACE FUNCTION update_org_closure_org()
     RETURNS trigger
     LANGUAGE plpgsql
 AS $$
 BEGIN
-    INSERT INTO m_global_metadata VALUES ('orgClosureRefreshNeeded', 'true')
-        ON CONFLICT (name) DO UPDATE SET value = 'true';
+    IF TG_OP = 'TRUNCATE' THEN
+        DELETE FROM m_org_closure WHERE ancestor_oid = descendant_oid;
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO m_org_closure VALUES (NEW.oid, NEW.oid, 1)
+            ON CONFLICT (ancestor_oid, descendant_oid) DO NOTHING;
+    ELSE -- DELETE, parent-org refs of the org are deleted by cascade and handled by their trigger
+        DELETE FROM m_org_closure WHERE ancestor_oid = OLD.oid AND descendant_oid = OLD.oid;
+    END IF;
 
     -- after trigger returns null
     RETURN NULL;
@@ -882,39 +941,50 @@ END $$;
 
 -- Update is not necessary, it does not change relations between orgs.
 -- If it does, it is handled by trigger on m_ref_object_parent_org.
-CREATE TRIGGER m_org_mark_refresh_tr
+CREATE TRIGGER m_org_closure_tr
     AFTER INSERT OR DELETE ON m_org
-    FOR EACH ROW EXECUTE FUNCTION mark_org_closure_for_refresh_org();
-CREATE TRIGGER m_org_mark_refresh_trunc_tr
+    FOR EACH ROW EXECUTE FUNCTION update_org_closure_org();
+CREATE TRIGGER m_org_closure_trunc_tr
     AFTER TRUNCATE ON m_org
-    FOR EACH STATEMENT EXECUTE FUNCTION mark_org_closure_for_refresh_org();
+    FOR EACH STATEMENT EXECUTE FUNCTION update_org_closure_org();
 
--- This procedure for conditional refresh when needed is called from the application code.
--- The refresh can be forced, e.g. after many changes with triggers off (or just to be sure).
+-- This procedure rebuilds the whole closure from m_org and m_ref_object_parent_org.
+-- It is not needed for normal operation, because the closure is maintained by the triggers,
+-- but it can be used after many changes with triggers off (or just to be sure).
+-- Without force it does nothing, parameter is kept for compatibility with older callers.
 CREATE OR REPLACE PROCEDURE m_refresh_org_closure(force boolean = false)
     LANGUAGE plpgsql
 AS $$
-DECLARE
-    flag_val text;
 BEGIN
-    -- We use advisory session lock only for the check + refresh, then release it immediately.
-    -- This can still dead-lock two transactions in a single thread on the select/delete combo,
-    -- (I mean, who would do that?!) but works fine for parallel transactions.
-    PERFORM pg_advisory_lock(47);
-    BEGIN
-        SELECT value INTO flag_val FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded';
-        IF flag_val = 'true' OR force THEN
-            REFRESH MATERIALIZED VIEW m_org_closure;
-            DELETE FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded';
-        END IF;
-        PERFORM pg_advisory_unlock(47);
-    EXCEPTION WHEN OTHERS THEN
-        -- Whatever happens we definitely want to release the lock.
-        PERFORM pg_advisory_unlock(47);
-        RAISE;
-    END;
-END;
-$$;
+    IF NOT force THEN
+        RETURN;
+    END IF;
+
+    PERFORM pg_advisory_xact_lock(47);
+    DELETE FROM m_org_closure;
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        WITH RECURSIVE org_h (
+            ancestor_oid, -- ref.targetoid
+            descendant_oid, --ref.ownerOid
+            path -- visited oids, this prevents infinite loops for cycles
+        ) AS (
+            -- non-recursive term: all the parent-org edges between orgs
+            SELECT r.targetOid, r.ownerOid, ARRAY[r.ownerOid, r.targetOid]
+                FROM m_ref_object_parent_org r
+                WHERE r.ownerType = 'ORG' AND r.ownerOid <> r.targetOid
+            UNION ALL
+            -- recursive (iterative) term:
+            -- Generate their parents (anc => desc, that is target => owner), => means "is parent of".
+            SELECT par.targetOid, chi.descendant_oid, chi.path || par.targetOid
+                FROM m_ref_object_parent_org as par, org_h as chi
+                WHERE par.ownerOid = chi.ancestor_oid AND par.ownerType = 'ORG'
+                    AND NOT par.targetOid = ANY(chi.path)
+        )
+        SELECT ancestor_oid, descendant_oid, count(*) FROM org_h
+            GROUP BY ancestor_oid, descendant_oid
+        UNION ALL
+        SELECT o.oid, o.oid, 1 FROM m_org o;
+END $$;
 -- endregion
 
 -- region OTHER object tables
@@ -1436,6 +1506,42 @@ CREATE TABLE m_task_affected_objects (
     PRIMARY KEY (ownerOid, cid)
 ) INHERITS(m_container);
 
+/*
+Work buckets of bucketed activities, used only if row-level allocation is enabled for the activity
+(see workAllocation/rowLevelAllocation). Otherwise, the buckets are stored in the coordinator task.
+Buckets are allocated by locking a single READY row (FOR UPDATE SKIP LOCKED), so concurrent workers
+do not conflict on the coordinator task. Bucket is the serialized form of WorkBucketType.
+*/
+CREATE TABLE m_task_bucket (
+    ownerOid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    activityPath TEXT NOT NULL, -- identifiers separated by '/', empty for the root activity
+    sequentialNumber INTEGER NOT NULL,
+    state WorkBucketStateType NOT NULL,
+    workerOid UUID,
+    bucket BYTEA NOT NULL,
+
+    PRIMARY KEY (ownerOid, activityPath, sequentialNumber)
+);
+
+CREATE INDEX m_task_bucket_ready_idx ON m_task_bucket (ownerOid, activityPath, sequentialNumber)
+    WHERE state = 'READY';
+
+/*
+Statistics and progress of tasks, stored outside the task full object (in the native repository only).
+Each row holds the last replace delta (serialized ItemDeltaType) for the item path; these are applied
+to the task when it is read, in the order they were stored (seq is renewed on each update of the row).
+Rows are folded into the full object (and deleted) on any other task modification, so only the statistics
+written after the last regular modification are kept here.
+*/
+CREATE TABLE m_task_statistics (
+    ownerOid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    itemPath TEXT NOT NULL,
+    delta BYTEA NOT NULL,
+    seq BIGSERIAL NOT NULL,
+
+    PRIMARY KEY (ownerOid, itemPath)
+);
+
 -- endregion
 
 -- region cases
@@ -2218,4 +2324,4 @@ END $$;
 -- This is important to avoid applying any change more than once.
 -- Also update SqaleUtils.CURRENT_SCHEMA_CHANGE_NUMBER
 -- repo/repo-sqale/src/main/java/com/evolveum/midpoint/repo/sqale/SqaleUtils.java
-call apply_change(25, $$ SELECT 1 $$, true);
+call apply_change(28, $$ SELECT 1 $$, true);
@@ -10,6 +10,7 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import com.evolveum.midpoint.model.api.authentication.CompiledObjectCollectionView;
 
@@ -40,6 +41,12 @@ public abstract class BaseSearchDataProvider<C extends Serializable, T extends S
     private CompiledObjectCollectionView objectCollectionView;
     private Collection<SelectorOptions<GetOperationOptions>> options;
 
+    private boolean sizeEstimated;
+
+    // query for which the user requested the exact count, estimates are used again when the query changes
+    private boolean exactCountRequested;
+    private ObjectQuery exactCountQuery;
+
     public BaseSearchDataProvider(Component component, IModel<Search<C>> search) {
         this(component, search, false, true);
     }
@@ -92,6 +99,62 @@ public abstract class BaseSearchDataProvider<C extends Serializable, T extends S
         return super.size();
     }
 
+    /**
+     * Estimated count is used if configured for the collection view (`estimateCount`) and supported by the repository,
+     * unless the user requested the exact count for the current query.
+     */
+    protected boolean isEstimatedCountRequested() {
+        CompiledObjectCollectionView view = getCompiledObjectCollectionView();
+        if (view == null || !Boolean.TRUE.equals(view.isEstimateCount()) || !getPageBase().isNativeRepo()) {
+            return false;
+        }
+        return !exactCountRequested || !Objects.equals(exactCountQuery, getQuery());
+    }
+
+    /**
+     * Keyset paging is used if configured for the collection view (`keysetPaging`) and supported by the repository.
+     * See {@link com.evolveum.midpoint.schema.query.KeysetPaging} for the cases when the offset is still used.
+     */
+    protected boolean isKeysetPagingEnabled() {
+        CompiledObjectCollectionView view = getCompiledObjectCollectionView();
+        return view != null && Boolean.TRUE.equals(view.isKeysetPaging()) && getPageBase().isNativeRepo();
+    }
+
+    /**
+     * Returns count options with estimated count added, if requested; see {@link #isEstimatedCountRequested()}.
+     * Provided options are not modified.
+     */
+    protected Collection<SelectorOptions<GetOperationOptions>> getCountOptions(
+            Collection<SelectorOptions<GetOperationOptions>> options) {
+        if (!isEstimatedCountRequested()) {
+            return options;
+        }
+        return GetOperationOptions.merge(options, SelectorOptions.createCollection(GetOperationOptions.createEstimatedCount()));
+    }
+
+    /**
+     * Records whether the count obtained with options from {@link #getCountOptions} may be estimated.
+     * Repository returns estimates only above the threshold, lower numbers are always exact.
+     */
+    protected void setCountResult(Collection<SelectorOptions<GetOperationOptions>> countOptions, int count) {
+        sizeEstimated = GetOperationOptions.isEstimatedCount(SelectorOptions.findRootOptions(countOptions))
+                && count >= GetOperationOptions.ESTIMATED_COUNT_THRESHOLD
+                && count != Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isSizeEstimated() {
+        return sizeEstimated && isEstimatedCountRequested();
+    }
+
+    @Override
+    public void countExactly() {
+        exactCountRequested = true;
+        exactCountQuery = getQuery();
+        sizeEstimated = false;
+        clearCache();
+    }
+
     public void addQueryVariables(String name, Object value) {
         this.variables.put(name, value);
     }
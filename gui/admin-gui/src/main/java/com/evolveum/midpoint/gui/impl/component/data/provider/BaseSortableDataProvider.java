@@ -174,6 +174,21 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
         return () -> true;
     }
 
+    /**
+     * True if the last computed size is only an estimate (e.g. from database statistics), not an exact count.
+     * The exact count can be requested by {@link #countExactly()}.
+     */
+    public boolean isSizeEstimated() {
+        return false;
+    }
+
+    /**
+     * Requests the exact count for the current query, if the size is only estimated.
+     * Nothing to do by default, the size is always exact.
+     */
+    public void countExactly() {
+    }
+
     protected boolean checkOrderingSettings() {
         return false;
     }
@@ -25,6 +25,7 @@ import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.query.KeysetPaging;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.task.api.Task;
@@ -52,6 +53,8 @@ public class ObjectDataProvider<W extends Serializable, O extends ObjectType>
 
     private Collection<SelectorOptions<GetOperationOptions>> options;
 
+    private final KeysetPaging keysetPaging = new KeysetPaging();
+
     public ObjectDataProvider(Component component, IModel<Search<O>> search) {
         super(component, search, true);
     }
@@ -112,7 +115,10 @@ public class ObjectDataProvider<W extends Serializable, O extends ObjectType>
                 LOGGER.trace("Query {} with {}", getType().getSimpleName(), query.debugDump());
             }
 
-            List<PrismObject<O>> list = getModelService().searchObjects(getType(), query, getOptionsToUse(), task, result);
+            Collection<SelectorOptions<GetOperationOptions>> searchOptions = getOptionsToUse();
+            ObjectQuery queryToUse = keysetPaging.prepareQuery(getType(), query, searchOptions, isKeysetPagingEnabled());
+            List<PrismObject<O>> list = keysetPaging.pageLoaded(
+                    getModelService().searchObjects(getType(), queryToUse, searchOptions, task, result));
 
             if (LOGGER.isTraceEnabled()) {
                 LOGGER.trace("Query {} resulted in {} objects", getType().getSimpleName(), list.size());
@@ -161,7 +167,9 @@ public class ObjectDataProvider<W extends Serializable, O extends ObjectType>
         OperationResult result = new OperationResult(OPERATION_COUNT_OBJECTS);
         try {
             Task task = getPageBase().createSimpleTask(OPERATION_COUNT_OBJECTS);
-            count = getModelService().countObjects(getType(), getQuery(), getOptionsToUse(), task, result);
+            Collection<SelectorOptions<GetOperationOptions>> countOptions = getCountOptions(getOptionsToUse());
+            count = getModelService().countObjects(getType(), getQuery(), countOptions, task, result);
+            setCountResult(countOptions, count);
         } catch (Exception ex) {
             result.recordFatalError(getPageBase().createStringResource("ObjectDataProvider.message.countObjects.fatalError").getString(), ex);
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't count objects", ex);
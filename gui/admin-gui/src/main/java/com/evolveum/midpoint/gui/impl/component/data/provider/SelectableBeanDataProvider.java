@@ -230,9 +230,11 @@ public abstract class SelectableBeanDataProvider<T extends Serializable> extends
         Task task = getPageBase().createSimpleTask(OPERATION_COUNT_OBJECTS);
         OperationResult result = task.getResult();
         try {
-            Collection<SelectorOptions<GetOperationOptions>> currentOptions = GetOperationOptions.merge( getSearchOptions(), null);
+            Collection<SelectorOptions<GetOperationOptions>> currentOptions =
+                    getCountOptions(GetOperationOptions.merge( getSearchOptions(), null));
             Integer counted = countObjects(getType(), getQuery(), currentOptions, task, result);
             count = defaultIfNull(counted, defaultCountIfNull);
+            setCountResult(currentOptions, count);
         } catch (Exception ex) {
             result.recordFatalError(getPageBase().createStringResource("ObjectDataProvider.message.countObjects.fatalError").getString(), ex);
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't count objects", ex);
@@ -10,6 +10,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.apache.wicket.Component;
 import org.apache.wicket.model.IModel;
@@ -23,6 +24,7 @@ import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.query.KeysetPaging;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.CommonException;
@@ -45,6 +47,8 @@ public class SelectableBeanObjectDataProvider<O extends ObjectType> extends Sele
 
     private Consumer<Task> taskConsumer;
 
+    private final KeysetPaging keysetPaging = new KeysetPaging();
+
     public SelectableBeanObjectDataProvider(Component component, IModel<Search<O>> search, Set<O> selected) {
         super(component, search, selected, true);
     }
@@ -103,8 +107,11 @@ public class SelectableBeanObjectDataProvider<O extends ObjectType> extends Sele
         if (taskConsumer != null) {
             taskConsumer.accept(task);
         }
-        return getModelService().searchObjects(type, query, options, task, result)
-                .map(prismObject -> prismObject.asObjectable());
+        ObjectQuery queryToUse = keysetPaging.prepareQuery(type, query, options, isKeysetPagingEnabled());
+        return keysetPaging.pageLoaded(getModelService().searchObjects(type, queryToUse, options, task, result))
+                .stream()
+                .map(prismObject -> prismObject.asObjectable())
+                .collect(Collectors.toList());
     }
 
     @Override
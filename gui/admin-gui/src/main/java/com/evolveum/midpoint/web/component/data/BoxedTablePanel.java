@@ -9,9 +9,11 @@ package com.evolveum.midpoint.web.component.data;
 
 import java.util.List;
 
+import com.evolveum.midpoint.gui.impl.component.data.provider.BaseSortableDataProvider;
 import com.evolveum.midpoint.gui.impl.component.data.provider.SelectableBeanContainerDataProvider;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
 import org.apache.wicket.behavior.AttributeAppender;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.DataTable;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.IColumn;
@@ -26,6 +28,7 @@ import org.apache.wicket.markup.repeater.Item;
 import org.apache.wicket.model.IModel;
 
 import com.evolveum.midpoint.gui.api.component.BasePanel;
+import com.evolveum.midpoint.gui.api.page.PageBase;
 import com.evolveum.midpoint.gui.api.util.WebComponentUtil;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.web.component.data.paging.NavigatorPanel;
@@ -49,6 +52,7 @@ public class BoxedTablePanel<T> extends BasePanel<T> implements Table {
     private static final String ID_PAGING_FOOTER = "pagingFooter";
     private static final String ID_PAGING = "paging";
     private static final String ID_COUNT = "count";
+    private static final String ID_COUNT_EXACTLY = "countExactly";
     private static final String ID_PAGE_SIZE = "pageSize";
     private static final String ID_FOOTER_CONTAINER = "footerContainer";
     private static final String ID_BUTTON_TOOLBAR = "buttonToolbar";
@@ -319,6 +323,22 @@ public class BoxedTablePanel<T> extends BasePanel<T> implements Table {
             count.setOutputMarkupId(true);
             footerContainer.add(count);
 
+            AjaxLink<Void> countExactly = new AjaxLink<>(ID_COUNT_EXACTLY) {
+
+                @Override
+                public void onClick(AjaxRequestTarget target) {
+                    if (dataTable.getDataProvider() instanceof BaseSortableDataProvider<?> provider) {
+                        provider.countExactly();
+                    }
+                    target.add(PagingFooter.this);
+                    target.add((Component) table);
+                }
+            };
+            countExactly.setBody(PageBase.createStringResourceStatic("BoxedTablePanel.countExactly", "Count exactly"));
+            countExactly.add(new VisibleBehaviour(() -> dataTable.getDataProvider() instanceof BaseSortableDataProvider<?> provider
+                    && provider.isSizeEstimated()));
+            footerContainer.add(countExactly);
+
             NavigatorPanel nb2 = new NavigatorPanel(ID_PAGING, dataTable, true) {
 
                 @Override
@@ -22,6 +22,7 @@ import org.apache.wicket.model.IModel;
 
 import com.evolveum.midpoint.gui.api.model.LoadableModel;
 import com.evolveum.midpoint.gui.api.page.PageBase;
+import com.evolveum.midpoint.gui.impl.component.data.provider.BaseSortableDataProvider;
 import com.evolveum.midpoint.web.component.util.VisibleBehaviour;
 
 /**
@@ -79,6 +80,7 @@ public class CountToolbar extends AbstractToolbar {
         long from = 0;
         long to = 0;
         long count = 0;
+        boolean estimated = false;
 
         if (pageable instanceof DataViewBase) {
             DataViewBase view = (DataViewBase) pageable;
@@ -100,6 +102,8 @@ public class CountToolbar extends AbstractToolbar {
                 to = itemCount;
             }
             count = itemCount;
+            estimated = table.getDataProvider() instanceof BaseSortableDataProvider<?> provider
+                    && provider.isSizeEstimated();
         }
 
         if (count > 0) {
@@ -108,6 +112,11 @@ public class CountToolbar extends AbstractToolbar {
                         new Object[] { from, to }).getString();
             }
 
+            if (estimated) {
+                return PageBase.createStringResourceStatic("CountToolbar.label.estimatedCount",
+                        "{0} to {1} of about {2}", from, to, count).getString();
+            }
+
             return PageBase.createStringResourceStatic("CountToolbar.label", new Object[] { from, to, count }).getString();
         }
 
@@ -15,6 +15,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
@@ -304,6 +305,55 @@ public class LegacyValidator<T extends Containerable> {
 
     }
 
+    /**
+     * Splits the input into individual objects without validating or parsing them. Each object is passed to the consumer
+     * as a stand-alone DOM element, i.e. with the namespace declarations of the root element copied to it.
+     * The consumer returns `false` to stop the reading.
+     *
+     * This allows the (relatively expensive) validation and parsing of the elements to be done in multiple threads
+     * by {@link #validateObject(Element, OperationResult)}, each thread using its own validator instance.
+     */
+    public static void readObjectElements(InputStream inputStream, Predicate<Element> consumer) throws XMLStreamException {
+        DOMConverter domConverter = new DOMConverter();
+        Map<String, String> rootNamespaceDeclarations = new HashMap<>();
+
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        XMLStreamReader stream = xmlInputFactory.createXMLStreamReader(inputStream);
+
+        int eventType = stream.nextTag();
+        if (eventType == XMLStreamConstants.DTD || eventType == XMLStreamConstants.ENTITY_DECLARATION
+                || eventType == XMLStreamConstants.ENTITY_REFERENCE || eventType == XMLStreamConstants.NOTATION_DECLARATION) {
+            // We do not want those, e.g. we want to void XXE vulnerabilities. Make this check explicit.
+            throw new SystemException("Use of " + eventType + " in XML is prohibited");
+        }
+        if (eventType != XMLStreamConstants.START_ELEMENT) {
+            throw new SystemException("StAX Malfunction?");
+        }
+        if (!QNameUtil.match(stream.getName(), SchemaConstants.C_OBJECTS)) {
+            // a file with a single object
+            consumer.test(readObjectElement(stream, rootNamespaceDeclarations, domConverter));
+            return;
+        }
+        for (int i = 0; i < stream.getNamespaceCount(); i++) {
+            rootNamespaceDeclarations.put(stream.getNamespacePrefix(i), stream.getNamespaceURI(i));
+        }
+
+        while (stream.hasNext()) {
+            if (stream.next() == XMLStreamConstants.START_ELEMENT
+                    && !consumer.test(readObjectElement(stream, rootNamespaceDeclarations, domConverter))) {
+                return;
+            }
+        }
+    }
+
+    private static Element readObjectElement(XMLStreamReader stream, Map<String, String> rootNamespaceDeclarations,
+            DOMConverter domConverter) throws XMLStreamException {
+        Document objectDoc = domConverter.buildDocument(stream);
+        Element objectElement = DOMUtil.getFirstChildElement(objectDoc);
+        DOMUtil.setNamespaceDeclarations(objectElement, rootNamespaceDeclarations);
+        return objectElement;
+    }
+
     private EventResult readFromStreamAndValidate(XMLStreamReader stream, OperationResult objectResult,
             Map<String, String> rootNamespaceDeclarations, OperationResult validatorResult,
             DOMConverter domConverter) {
@@ -46,6 +46,12 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
 
     public static final GetOperationOptions EMPTY = new GetOperationOptions();
 
+    /**
+     * Counts below this value are always exact, even if {@link #estimatedCount} is requested.
+     * Counting such a number of rows is cheap, and the estimates are least reliable for small numbers.
+     */
+    public static final int ESTIMATED_COUNT_THRESHOLD = 10_000;
+
     /**
      * Specifies whether to return specific items. It is used for optimizations.
      * Some requests only needs a subset of items therefore fetching them all is a waste
@@ -205,6 +211,18 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
     @Experimental
     private Boolean distinct;
 
+    /**
+     * Whether the count operations may return an estimated number of objects instead of the exact one.
+     * The estimate is used only if the repository can get it cheaply (e.g. from the database statistics),
+     * and only if it is at least {@link #ESTIMATED_COUNT_THRESHOLD}; otherwise, the exact count is returned.
+     * The estimate can be quite imprecise, especially for complex queries; it is meant for GUI lists
+     * of large collections of objects, where the exact count would be too expensive.
+     * <p>
+     * Ignored by other than count operations.
+     */
+    @Experimental
+    private Boolean estimatedCount;
+
     /**
      * Whether to attach diagnostics data to the returned object(s).
      */
@@ -878,6 +896,36 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         return opts;
     }
 
+    public Boolean getEstimatedCount() {
+        return estimatedCount;
+    }
+
+    public void setEstimatedCount(Boolean estimatedCount) {
+        this.estimatedCount = estimatedCount;
+    }
+
+    public GetOperationOptions estimatedCount(Boolean estimatedCount) {
+        this.estimatedCount = estimatedCount;
+        return this;
+    }
+
+    public static boolean isEstimatedCount(GetOperationOptions options) {
+        if (options == null) {
+            return false;
+        }
+        if (options.estimatedCount == null) {
+            return false;
+        }
+        return options.estimatedCount;
+    }
+
+    @Experimental
+    public static GetOperationOptions createEstimatedCount() {
+        GetOperationOptions opts = new GetOperationOptions();
+        opts.setEstimatedCount(true);
+        return opts;
+    }
+
     public Boolean getAttachDiagData() {
         return attachDiagData;
     }
@@ -1061,6 +1109,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
                 Objects.equals(forceRefresh, that.forceRefresh) &&
                 Objects.equals(forceRetry, that.forceRetry) &&
                 Objects.equals(distinct, that.distinct) &&
+                Objects.equals(estimatedCount, that.estimatedCount) &&
                 Objects.equals(attachDiagData, that.attachDiagData) &&
                 Objects.equals(definitionProcessing, that.definitionProcessing) &&
                 Objects.equals(iterationMethod, that.iterationMethod) &&
@@ -1072,7 +1121,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
     public int hashCode() {
         return Objects
                 .hash(retrieve, resolve, resolveNames, noFetch, raw, tolerateRawData, doNotDiscovery,
-                        allowNotFound, readOnly, staleness, distinct, definitionProcessing, attachDiagData, executionPhase);
+                        allowNotFound, readOnly, staleness, distinct, estimatedCount, definitionProcessing, attachDiagData, executionPhase);
     }
 
     public GetOperationOptions clone() {
@@ -1094,6 +1143,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         clone.forceRefresh = this.forceRefresh;
         clone.forceRetry = this.forceRetry;
         clone.distinct = this.distinct;
+        clone.estimatedCount = this.estimatedCount;
         clone.attachDiagData = this.attachDiagData;
         clone.definitionProcessing = this.definitionProcessing;
         clone.iterationMethod = this.iterationMethod;
@@ -1129,6 +1179,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         appendFlag(sb, "forceRefresh", forceRefresh);
         appendFlag(sb, "forceRetry", forceRetry);
         appendVal(sb, "distinct", distinct);
+        appendFlag(sb, "estimatedCount", estimatedCount);
         appendFlag(sb, "attachDiagData", attachDiagData);
         appendVal(sb, "definitionProcessing", definitionProcessing);
         appendVal(sb, "iterationMethod", iterationMethod);
@@ -1291,6 +1342,9 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         if (increment.distinct != null) {
             this.distinct = increment.distinct;
         }
+        if (increment.estimatedCount != null) {
+            this.estimatedCount = increment.estimatedCount;
+        }
         if (increment.attachDiagData != null) {
             this.attachDiagData = increment.attachDiagData;
         }
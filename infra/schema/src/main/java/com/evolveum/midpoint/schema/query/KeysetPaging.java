@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.schema.query;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismObjectDefinition;
+import com.evolveum.midpoint.prism.PrismPropertyDefinition;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectOrdering;
+import com.evolveum.midpoint.prism.query.ObjectPaging;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.prism.query.QueryFactory;
+import com.evolveum.midpoint.prism.query.builder.S_FilterEntry;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Keyset (seek) pagination of object lists, e.g. in GUI data providers.
+ *
+ * Lists page with OFFSET by default, which forces the database to read and throw away all the preceding rows.
+ * This is cheap for the first pages, but jumping far and then navigating there costs a lot on big tables.
+ * If the requested page directly follows (or precedes) the previously loaded one, this class replaces the offset
+ * with a condition on the sort value and OID of the last (or first) row of the previous page, e.g.:
+ *
+ * ----
+ * name > 'last' or (name = 'last' and oid > 'last-oid')
+ * ----
+ *
+ * Backward navigation uses the opposite conditions and ordering, the page is reversed after it is loaded.
+ * OID is always added as a secondary ordering, so that the page boundaries are well-defined.
+ *
+ * Any other navigation (the first page, jumps, changed query or ordering) uses the offset as before.
+ * The same goes for the cases where the sort value can't be compared in the repository (multi-value items,
+ * unsupported types) and shadows fetched from the resource.
+ * The caller decides whether keyset paging is enabled at all; it is supported only by the native repository.
+ *
+ * Usage: call {@link #prepareQuery} for the query with the provider paging, execute the returned query
+ * and pass the result to {@link #pageLoaded}.
+ */
+public class KeysetPaging implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Query (without paging) of the last loaded page; null if the last page was not loaded with keyset support. */
+    private ObjectQuery query;
+    private ItemPath orderBy;
+    private boolean ascending;
+    private int offset;
+    private int pageSize;
+
+    /** Loaded page was obtained in reversed order, see {@link #pageLoaded}. */
+    private boolean reversed;
+
+    /** Boundary values of the last loaded page, set only after the page is actually loaded. */
+    private Object firstValue;
+    private String firstOid;
+    private Object lastValue;
+    private String lastOid;
+
+    /**
+     * Returns the query to execute instead of the provided one.
+     * The provided query (with provider paging) is not changed, the returned one is a modified clone if necessary.
+     * Query without paging (or null query) is returned as is, as well as any query if keyset paging is not enabled.
+     */
+    public ObjectQuery prepareQuery(
+            @NotNull Class<? extends ObjectType> type,
+            @Nullable ObjectQuery query,
+            @Nullable Collection<SelectorOptions<GetOperationOptions>> options,
+            boolean enabled) {
+        ObjectPaging paging = query != null ? query.getPaging() : null;
+        ItemPath newOrderBy = enabled ? getSupportedOrderBy(type, paging, options) : null;
+        if (newOrderBy == null) {
+            reset();
+            return query;
+        }
+
+        ObjectQuery newQuery = query.clone();
+        newQuery.setPaging(null);
+        boolean newAscending = paging.getOrderingInstructions().get(0).getDirection() != OrderDirection.DESCENDING;
+        int newOffset = paging.getOffset();
+        int newPageSize = paging.getMaxSize();
+
+        Boolean forward = null;
+        if (this.query != null && this.query.equals(newQuery) && orderBy.equivalent(newOrderBy)
+                && ascending == newAscending && pageSize == newPageSize) {
+            if (newOffset == offset + pageSize && lastOid != null) {
+                forward = true;
+            } else if (newOffset == offset - pageSize && firstOid != null) {
+                forward = false;
+            }
+        }
+
+        ObjectQuery queryToUse = query.clone();
+        if (forward == null) {
+            queryToUse.setPaging(createPaging(newOffset, newPageSize, newOrderBy, newAscending));
+        } else {
+            // The query goes from the boundary row in the direction of the navigation.
+            boolean queryAscending = newAscending == forward;
+            ObjectFilter keysetFilter = forward
+                    ? createKeysetFilter(type, newOrderBy, lastValue, lastOid, queryAscending)
+                    : createKeysetFilter(type, newOrderBy, firstValue, firstOid, queryAscending);
+            // Cloned filter is extended, the provided query must not be changed (AND filter would be modified in place).
+            queryToUse.setFilter(ObjectQueryUtil.filterAnd(queryToUse.getFilter(), keysetFilter));
+            queryToUse.setPaging(createPaging(null, newPageSize, newOrderBy, queryAscending));
+        }
+
+        this.query = newQuery;
+        orderBy = newOrderBy;
+        ascending = newAscending;
+        offset = newOffset;
+        pageSize = newPageSize;
+        reversed = Boolean.FALSE.equals(forward);
+        clearBoundaries();
+        return queryToUse;
+    }
+
+    /**
+     * Records the boundaries of the loaded page and returns the objects in the order of the provider ordering.
+     * Must be called with the result of the query returned by {@link #prepareQuery}.
+     */
+    public <O extends ObjectType> @NotNull List<PrismObject<O>> pageLoaded(@NotNull List<PrismObject<O>> objects) {
+        if (query == null) {
+            return objects;
+        }
+
+        List<PrismObject<O>> page = objects;
+        if (reversed) {
+            page = new ArrayList<>(objects);
+            Collections.reverse(page);
+        }
+        if (!page.isEmpty()) {
+            PrismObject<O> first = page.get(0);
+            PrismObject<O> last = page.get(page.size() - 1);
+            firstValue = first.getPropertyRealValue(orderBy, Object.class);
+            lastValue = last.getPropertyRealValue(orderBy, Object.class);
+            // Rows with null sort value can't be used as a boundary, next navigation will use the offset.
+            firstOid = firstValue != null ? first.getOid() : null;
+            lastOid = lastValue != null ? last.getOid() : null;
+        }
+        return page;
+    }
+
+    public void reset() {
+        query = null;
+        orderBy = null;
+        reversed = false;
+        clearBoundaries();
+    }
+
+    private void clearBoundaries() {
+        firstValue = null;
+        firstOid = null;
+        lastValue = null;
+        lastOid = null;
+    }
+
+    private @Nullable ItemPath getSupportedOrderBy(
+            Class<? extends ObjectType> type, ObjectPaging paging,
+            Collection<SelectorOptions<GetOperationOptions>> options) {
+        if (paging == null || paging.getOffset() == null || paging.getMaxSize() == null) {
+            return null;
+        }
+        if (ShadowType.class.equals(type)) {
+            // Shadows are searched on the resource unless told otherwise, we can't seek there.
+            GetOperationOptions rootOptions = SelectorOptions.findRootOptions(options);
+            if (!GetOperationOptions.isNoFetch(rootOptions) && !GetOperationOptions.isRaw(rootOptions)) {
+                return null;
+            }
+        }
+        List<? extends ObjectOrdering> orderings = paging.getOrderingInstructions();
+        if (orderings == null || orderings.size() != 1) {
+            return null;
+        }
+        ItemPath orderBy = orderings.get(0).getOrderBy();
+        if (orderBy == null || orderBy.isEmpty()) {
+            return null;
+        }
+        PrismObjectDefinition<?> objectDefinition =
+                PrismContext.get().getSchemaRegistry().findObjectDefinitionByCompileTimeClass(type);
+        PrismPropertyDefinition<?> propertyDefinition =
+                objectDefinition != null ? objectDefinition.findPropertyDefinition(orderBy) : null;
+        if (propertyDefinition == null || !propertyDefinition.isSingleValue()
+                || !isSupportedValueType(propertyDefinition.getTypeClass())) {
+            return null;
+        }
+        return orderBy;
+    }
+
+    private static boolean isSupportedValueType(Class<?> typeClass) {
+        return typeClass != null
+                && (String.class.equals(typeClass)
+                || PolyString.class.equals(typeClass)
+                || Number.class.isAssignableFrom(typeClass)
+                || XMLGregorianCalendar.class.isAssignableFrom(typeClass));
+    }
+
+    private ObjectPaging createPaging(Integer offset, int pageSize, ItemPath orderBy, boolean ascending) {
+        QueryFactory queryFactory = PrismContext.get().queryFactory();
+        OrderDirection direction = ascending ? OrderDirection.ASCENDING : OrderDirection.DESCENDING;
+        return queryFactory.createPaging(offset, pageSize, List.of(
+                queryFactory.createOrdering(orderBy, direction),
+                queryFactory.createOrdering(PrismConstants.T_ID, direction)));
+    }
+
+    /**
+     * Creates filter for rows after the boundary row in the direction of the query ordering.
+     * PostgreSQL sorts nulls as the highest values, so these are added for ascending ordering.
+     * PolyStrings are ordered by their original value, so they must be compared the same way.
+     */
+    private ObjectFilter createKeysetFilter(
+            Class<? extends ObjectType> type, ItemPath orderBy, Object value, String oid, boolean ascending) {
+        boolean polyString = value instanceof PolyString;
+        S_FilterEntry entry = PrismContext.get().queryFor(type);
+        var afterValue = ascending ? entry.item(orderBy).gt(value) : entry.item(orderBy).lt(value);
+        var sameValue = (polyString ? afterValue.matchingOrig() : afterValue)
+                .or().block()
+                .item(orderBy).eq(value);
+        var afterOid = (polyString ? sameValue.matchingOrig() : sameValue)
+                .and()
+                .item(PrismConstants.T_ID);
+        var keyset = (ascending ? afterOid.gt(oid) : afterOid.lt(oid))
+                .endBlock();
+        return ascending
+                ? keyset.or().item(orderBy).isNull().buildFilter()
+                : keyset.buildFilter();
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetPaging{" +
+                "orderBy=" + orderBy +
+                ", ascending=" + ascending +
+                ", offset=" + offset +
+                ", pageSize=" + pageSize +
+                ", reversed=" + reversed +
+                ", lastOid=" + lastOid +
+                '}';
+    }
+}
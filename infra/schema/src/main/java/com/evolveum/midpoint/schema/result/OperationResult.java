@@ -143,6 +143,16 @@ import org.jetbrains.annotations.VisibleForTesting;
  *
  * NOTE: This mechanism is *experimental*.
  *
+ * === Note: Lightweight Minor Results
+ *
+ * For bulk tasks, the operation result handling strategy can switch on the lightweight mode
+ * (see {@link OperationResultHandlingStrategyType#isLightweight()}). Minor subresults (and their subresults) are then created
+ * without parameters, context and performance measurement, and consecutive successful ones of the same operation are collapsed into one
+ * (with {@link #count} incremented). Failed ones, along with their subresults, are kept as usual. The mode is not applied
+ * when tracing or when the result is to be preserved.
+ *
+ * NOTE: This mechanism is *experimental* as well.
+ *
  * === Suggested Use
  *
  * Stemming from the above, the following can be seen as a suggested way how to use the operation result:
@@ -270,6 +280,13 @@ public class OperationResult
     /** Whether we should preserve the content of the result e.g. for the sake of reporting. */
     private boolean preserve;
 
+    /**
+     * Whether this is a lightweight result: without parameters, context and performance measurement.
+     * These are minor results and all their subresults. Successful ones are collapsed by the parent.
+     * See {@link OperationResultHandlingStrategyType#isLightweight()}.
+     */
+    private boolean lightweight;
+
     /**
      * True if we collect log entries.
      * Maybe it could be replaced by checking {@link #logRecorder} being not null and open?
@@ -407,7 +424,12 @@ public class OperationResult
         if (!building) {
             throw new IllegalStateException("Not being built");
         }
-        recordStart(operation, createArguments());
+        if ((importance == MINOR || futureParent != null && futureParent.lightweight) && isLightweightApplicable()) {
+            lightweight = true;
+            params = null;
+            context = null;
+        }
+        recordStart(operation, lightweight ? null : createArguments());
         building = false;
         if (futureParent != null) {
             futureParent.addSubresult(this);
@@ -428,10 +450,13 @@ public class OperationResult
             startLoggingIfRequested();
             startOperationMonitoring();
         }
-        // TODO for very minor operation results (e.g. those dealing with mapping and script execution)
-        //  we should consider skipping creation of invocationRecord. It includes some string manipulation(s)
-        //  and a call to System.nanoTime that could unnecessarily slow down midPoint operation.
-        //  But beware, it would disable measurements of these operations e.g. in task internal performance info panel.
+        if (lightweight) {
+            // Creation of invocationRecord includes some string manipulation(s) and a call to System.nanoTime
+            // that could unnecessarily slow down midPoint operation. So we skip it, losing the measurements of these
+            // operations e.g. in task internal performance info panel. This is the price for the lightweight mode.
+            start = System.currentTimeMillis();
+            return;
+        }
         boolean measureCpuTime = tracingProfile != null && tracingProfile.isMeasureCpuTime();
         invocationRecord = OperationInvocationRecord.create(operation, arguments, measureCpuTime);
         invocationId = invocationRecord.getInvocationId();
@@ -487,10 +512,64 @@ public class OperationResult
         addSubresult(subresult);
         subresult.parentLogRecorder = logRecorder;
         subresult.importance = minor ? MINOR : NORMAL;
+        subresult.lightweight = (minor || lightweight) && subresult.isLightweightApplicable();
         subresult.recordStart(operation, arguments);
         return subresult;
     }
 
+    /** Lightweight results are not used when tracing or preserving the result; see {@link #lightweight}. */
+    private boolean isLightweightApplicable() {
+        return tracingProfile == null
+                && !preserve
+                && Boolean.TRUE.equals(getCurrentHandlingStrategy().isLightweight());
+    }
+
+    public boolean isLightweight() {
+        return lightweight;
+    }
+
+    /**
+     * If the last two subresults are closed lightweight results of the same operation that were successful
+     * (or not applicable) - including their own subresults -, the last one is removed and counted in the previous one.
+     * This does not change the status computed from the subresults.
+     *
+     * Called when a new subresult is added and when this result is closed, so at most one such result is kept
+     * for each series of the same minor operations, e.g. mapping evaluations.
+     */
+    private void collapseLastLightweightSubresult() {
+        int size = subresults != null ? subresults.size() : 0;
+        if (size < 2) {
+            return;
+        }
+        OperationResult last = subresults.get(size - 1);
+        OperationResult previous = subresults.get(size - 2);
+        if (last != null && previous != null
+                && last.status == previous.status
+                && last.operation.equals(previous.operation)
+                && last.isCollapsible()
+                && previous.isCollapsible()) {
+            subresults.remove(size - 1);
+            previous.count += last.count;
+        }
+    }
+
+    private boolean isCollapsible() {
+        if (!lightweight || end == null) {
+            return false; // not lightweight or not closed yet
+        }
+        if (status != OperationResultStatus.SUCCESS && status != OperationResultStatus.NOT_APPLICABLE) {
+            return false;
+        }
+        if (subresults != null) {
+            for (OperationResult subresult : subresults) {
+                if (subresult != null && !subresult.isCollapsible()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     // todo determine appropriate places where recordEnd() should be called
     public void recordEnd() {
         if (invocationRecord != null) {
@@ -514,6 +593,7 @@ public class OperationResult
         if (executedMonitoredOperationsAtStart != null) {
             stopOperationMonitoring();
         }
+        collapseLastLightweightSubresult();
     }
 
     /**
@@ -695,6 +775,7 @@ public class OperationResult
     }
 
     public void addSubresult(OperationResult subresult) {
+        collapseLastLightweightSubresult();
         getSubresults().add(subresult);
         if (subresult.tracingProfile == null) {
             subresult.tracingProfile = tracingProfile;
@@ -1339,91 +1420,72 @@ public class OperationResult
 
     @Override
     public OperationResult addParam(String name, String value) {
-        getParams().put(name, collectionize(value));
-        return this;
+        return addParamValue(name, value, OperationResult::collectionize);
     }
 
     @Override
     public OperationResult addParam(String name, PrismObject<? extends ObjectType> value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, ObjectType value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, boolean value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, long value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, int value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public OperationResult addParam(String name, Class<?> value) {
-        if (value != null && ObjectType.class.isAssignableFrom(value)) {
-            getParams().put(name, collectionize(ObjectTypes.getObjectType((Class<? extends ObjectType>) value).getObjectTypeUri()));
-        } else {
-            getParams().put(name, collectionize(stringify(value)));
-        }
-        return this;
+        return addParamValue(name, value, OperationResult::classToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, QName value) {
-        getParams().put(name, collectionize(value == null ? null : QNameUtil.qNameToUri(value)));
-        return this;
+        return addParamValue(name, value, v -> collectionize(v == null ? null : QNameUtil.qNameToUri(v)));
     }
 
     @Override
     public OperationResult addParam(String name, PolyString value) {
-        getParams().put(name, collectionize(value == null ? null : value.getOrig()));
-        return this;
+        return addParamValue(name, value, v -> collectionize(v == null ? null : v.getOrig()));
     }
 
     @Override
     public OperationResult addParam(String name, ObjectQuery value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, ObjectDelta<?> value) {
-        getParams().put(name, collectionize(stringify(value)));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addParam(String name, String... values) {
-        getParams().put(name, collectionize(values));
-        return this;
+        return addParamValue(name, values, OperationResult::collectionize);
     }
 
     @Override
     public OperationResult addArbitraryObjectAsParam(String paramName, Object paramValue) {
-        getParams().put(paramName, collectionize(stringify(paramValue)));
-        return this;
+        return addParamValue(paramName, paramValue, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addArbitraryObjectCollectionAsParam(String name, Collection<?> value) {
-        getParams().put(name, stringifyCol(value));
-        return this;
+        return addParamValue(name, value, OperationResult::stringifyCol);
     }
 
     public @NotNull Map<String, Collection<String>> getContext() {
@@ -1439,90 +1501,92 @@ public class OperationResult
 
     @Override
     public OperationResult addContext(String name, String value) {
-        getContext().put(name, collectionize(value));
-        return this;
+        return addContextValue(name, value, OperationResult::collectionize);
     }
 
     @Override
     public OperationResult addContext(String name, PrismObject<? extends ObjectType> value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, ObjectType value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, boolean value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, long value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, int value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public OperationResult addContext(String name, Class<?> value) {
-        if (value != null && ObjectType.class.isAssignableFrom(value)) {
-            getContext().put(name, collectionize(ObjectTypes.getObjectType((Class<? extends ObjectType>) value).getObjectTypeUri()));
-        } else {
-            getContext().put(name, collectionize(stringify(value)));
-        }
-        return this;
+        return addContextValue(name, value, OperationResult::classToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, QName value) {
-        getContext().put(name, collectionize(value == null ? null : QNameUtil.qNameToUri(value)));
-        return this;
+        return addContextValue(name, value, v -> collectionize(v == null ? null : QNameUtil.qNameToUri(v)));
     }
 
     @Override
     public OperationResult addContext(String name, PolyString value) {
-        getContext().put(name, collectionize(value == null ? null : value.getOrig()));
-        return this;
+        return addContextValue(name, value, v -> collectionize(v == null ? null : v.getOrig()));
     }
 
     @Override
     public OperationResult addContext(String name, ObjectQuery value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, ObjectDelta<?> value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addContext(String name, String... values) {
-        getContext().put(name, collectionize(values));
-        return this;
+        return addContextValue(name, values, OperationResult::collectionize);
     }
 
     @Override
     public OperationResult addArbitraryObjectAsContext(String name, Object value) {
-        getContext().put(name, collectionize(stringify(value)));
-        return this;
+        return addContextValue(name, value, OperationResult::stringifyToCollection);
     }
 
     @Override
     public OperationResult addArbitraryObjectCollectionAsContext(String paramName, Collection<?> paramValue) {
-        getContext().put(paramName, stringifyCol(paramValue));
+        return addContextValue(paramName, paramValue, OperationResult::stringifyCol);
+    }
+
+    private <V> OperationResult addParamValue(String name, V value, Function<V, Collection<String>> converter) {
+        return addValue(false, name, value, converter);
+    }
+
+    private <V> OperationResult addContextValue(String name, V value, Function<V, Collection<String>> converter) {
+        return addValue(true, name, value, converter);
+    }
+
+    /**
+     * Converts and stores the parameter or context value. Lightweight results keep neither of them,
+     * so the value is not converted (stringified) at all in that case.
+     */
+    private <V> OperationResult addValue(
+            boolean toContext, String name, V value, Function<V, Collection<String>> converter) {
+        if (lightweight) {
+            return this;
+        }
+        (toContext ? getContext() : getParams()).put(name, converter.apply(value));
         return this;
     }
 
@@ -1617,7 +1681,7 @@ public class OperationResult
         getReturns().put(paramName, stringifyCol(paramValue));
     }
 
-    private String stringify(Object value) {
+    private static String stringify(Object value) {
         if (value == null) {
             return null;
         } else {
@@ -1625,17 +1689,30 @@ public class OperationResult
         }
     }
 
-    private Collection<String> collectionize(String value) {
+    private static Collection<String> collectionize(String value) {
         Collection<String> out = new ArrayList<>(1);
         out.add(value);
         return out;
     }
 
-    private Collection<String> collectionize(String... values) {
+    private static Collection<String> collectionize(String... values) {
         return Arrays.asList(values);
     }
 
-    private Collection<String> stringifyCol(Collection<?> values) {
+    private static Collection<String> stringifyToCollection(Object value) {
+        return collectionize(stringify(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> classToCollection(Class<?> value) {
+        if (value != null && ObjectType.class.isAssignableFrom(value)) {
+            return collectionize(ObjectTypes.getObjectType((Class<? extends ObjectType>) value).getObjectTypeUri());
+        } else {
+            return collectionize(stringify(value));
+        }
+    }
+
+    private static Collection<String> stringifyCol(Collection<?> values) {
         if (values == null) {
             return null;
         }
@@ -2679,6 +2756,7 @@ public class OperationResult
 
         clone.building = building;
         clone.futureParent = futureParent;
+        clone.lightweight = lightweight;
 
         // todo invocationRecord?
 
@@ -2761,6 +2839,17 @@ public class OperationResult
         LOCAL_HANDLING_STRATEGY.set(selected);
     }
 
+    /** Removes the thread-local handling strategy, so the global one is used again. */
+    public static void unsetThreadLocalHandlingStrategy() {
+        LOCAL_HANDLING_STRATEGY.remove();
+    }
+
+    /** Name of the thread-local handling strategy, to be propagated to other threads; null if the global one is used. */
+    public static @Nullable String getThreadLocalHandlingStrategyName() {
+        OperationResultHandlingStrategyType strategy = LOCAL_HANDLING_STRATEGY.get();
+        return strategy != null ? strategy.getName() : null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -44,6 +44,24 @@ public class SystemConfigurationTypeUtil {
         return sysconfigObject.asObjectable().getInternals().getMaxModelClicks();
     }
 
+    /** Returns the number of threads for projection changes execution; 1 (or less) means sequential execution. */
+    public static int getProjectionExecutionThreads(SystemConfigurationType sysconfig) {
+        if (sysconfig == null || sysconfig.getInternals() == null) {
+            return 1;
+        }
+        Integer threads = sysconfig.getInternals().getProjectionExecutionThreads();
+        return threads != null ? threads : 1;
+    }
+
+    /** Returns the number of threads for fetching projection resource objects; 1 (or less) means sequential fetching. */
+    public static int getProjectionLoadThreads(SystemConfigurationType sysconfig) {
+        if (sysconfig == null || sysconfig.getInternals() == null) {
+            return 1;
+        }
+        Integer threads = sysconfig.getInternals().getProjectionLoadThreads();
+        return threads != null ? threads : 1;
+    }
+
     private static String getDefaultHostname(SystemConfigurationType sysconfig) {
         if (sysconfig != null && sysconfig.getInfrastructure() != null) {
             return sysconfig.getInfrastructure().getDefaultHostname();
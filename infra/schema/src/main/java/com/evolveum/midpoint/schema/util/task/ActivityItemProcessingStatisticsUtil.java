@@ -281,6 +281,7 @@ public class ActivityItemProcessingStatisticsUtil {
         addProcessed(sum.getProcessed(), delta.getProcessed());
         addCurrent(sum.getCurrent(), delta.getCurrent());
         addRunRecords(sum, delta);
+        addWorkerThreads(sum, delta);
     }
 
     private static void addRunRecords(@NotNull ActivityItemProcessingStatisticsType sum,
@@ -293,6 +294,25 @@ public class ActivityItemProcessingStatisticsUtil {
         sum.getRun().addAll(CloneUtil.cloneCollectionMembersWithoutIds(nonOverlappingRecords));
     }
 
+    /** Adds `workerThreads` information: sums the counters, except for `maxQueueDepth` that is the maximum of the two. */
+    private static void addWorkerThreads(@NotNull ActivityItemProcessingStatisticsType sum,
+            @NotNull ActivityItemProcessingStatisticsType delta) {
+        ActivityWorkerThreadsStatisticsType deltaThreads = delta.getWorkerThreads();
+        if (deltaThreads == null) {
+            return;
+        }
+        ActivityWorkerThreadsStatisticsType sumThreads = sum.getWorkerThreads();
+        if (sumThreads == null) {
+            sum.setWorkerThreads(deltaThreads.cloneWithoutId());
+            return;
+        }
+        sumThreads.setSubmitted(or0(sumThreads.getSubmitted()) + or0(deltaThreads.getSubmitted()));
+        sumThreads.setReserved(or0(sumThreads.getReserved()) + or0(deltaThreads.getReserved()));
+        sumThreads.setStolen(or0(sumThreads.getStolen()) + or0(deltaThreads.getStolen()));
+        sumThreads.setQueueDepth(or0(sumThreads.getQueueDepth()) + or0(deltaThreads.getQueueDepth()));
+        sumThreads.setMaxQueueDepth(Math.max(or0(sumThreads.getMaxQueueDepth()), or0(deltaThreads.getMaxQueueDepth())));
+    }
+
     /** Adds `processed` items information */
     private static void addProcessed(@NotNull List<ProcessedItemSetType> sumSets, @NotNull List<ProcessedItemSetType> deltaSets) {
         for (ProcessedItemSetType deltaSet : deltaSets) {
@@ -53,6 +53,7 @@ public class BucketingUtil {
                     buckets.getOidSegmentation(),
                     buckets.getExplicitSegmentation(),
                     buckets.getImplicitSegmentation(),
+                    buckets.getBalancedSegmentation(),
                     buckets.getSegmentation());
         } else {
             return null;
@@ -149,6 +150,11 @@ public class BucketingUtil {
         return bucketing != null ? bucketing.getNumberOfBuckets() : null;
     }
 
+    public static Integer getBucketSize(@NotNull ActivityStateType state) {
+        ActivityBucketingStateType bucketing = state.getBucketing();
+        return bucketing != null ? bucketing.getBucketSize() : null;
+    }
+
     /** A little guesswork for now. */
     @SuppressWarnings("unused") // Expected to be used later.
     public static boolean hasNonTrivialBuckets(@NotNull ActivityStateType state) {
@@ -7,6 +7,8 @@
 package com.evolveum.midpoint.schema;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultImportanceType.MAJOR;
@@ -27,6 +29,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultType;
 public class TestOperationResult extends AbstractSchemaTest {
 
     private static final String LOCAL_1 = "local1";
+    private static final String LIGHTWEIGHT = "lightweight";
 
     @Test
     public void testCleanup() throws Exception {
@@ -208,6 +211,63 @@ public class TestOperationResult extends AbstractSchemaTest {
         checkResultConversion(root, true);
     }
 
+    @Test
+    public void testLightweightMinorSubresults() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        OperationResult.applyOperationResultHandlingStrategy(
+                Arrays.asList(
+                        new OperationResultHandlingStrategyType(prismContext)
+                                .global(true),
+                        new OperationResultHandlingStrategyType(prismContext)
+                                .name(LIGHTWEIGHT)
+                                .lightweight(true)
+                ));
+        OperationResult.setThreadLocalHandlingStrategy(LIGHTWEIGHT);
+        try {
+            when("30 successes, a warning and 5 successes of the same minor operation are recorded");
+            OperationResult root = new OperationResult("dummy");
+            for (int i = 1; i <= 36; i++) {
+                OperationResult minor = root.createMinorSubresult("minor");
+                minor.addParam("value", i);
+                OperationResult inner = minor.createSubresult("inner");
+                inner.recordSuccess();
+                if (i == 31) {
+                    minor.recordWarning("Warning");
+                } else {
+                    minor.computeStatus();
+                }
+            }
+            root.computeStatus();
+            System.out.println("Lightweight result:\n" + root.debugDump());
+
+            then("successes are collapsed, the warning is kept");
+            assertEquals("Wrong overall status", OperationResultStatus.WARNING, root.getStatus());
+            List<OperationResult> subresults = root.getSubresults();
+            assertEquals("Wrong # of subresults", 3, subresults.size());
+            assertEquals("Wrong status of the first one", OperationResultStatus.SUCCESS, subresults.get(0).getStatus());
+            assertEquals("Wrong count of the first one", 30, subresults.get(0).getCount());
+            assertEquals("Wrong status of the second one", OperationResultStatus.WARNING, subresults.get(1).getStatus());
+            assertEquals("Wrong count of the second one", 1, subresults.get(1).getCount());
+            assertEquals("Wrong # of subresults of the second one", 1, subresults.get(1).getSubresults().size());
+            assertEquals("Wrong count of the third one", 5, subresults.get(2).getCount());
+            assertTrue("Minor result is not lightweight", subresults.get(0).isLightweight());
+            assertTrue("Parameters were recorded", subresults.get(0).getParams().isEmpty());
+
+            when("the same is done with result that is to be preserved");
+            OperationResult preserved = new OperationResult("dummy");
+            preserved.preserve();
+            OperationResult preservedMinor = preserved.createMinorSubresult("minor");
+            preservedMinor.recordSuccess();
+
+            then("the minor result is not lightweight");
+            assertFalse("Preserved minor result is lightweight", preservedMinor.isLightweight());
+        } finally {
+            OperationResult.applyOperationResultHandlingStrategy(List.of());
+            OperationResult.setThreadLocalHandlingStrategy(null);
+        }
+    }
+
     private void checkResultConversion(OperationResult result, boolean assertEquals) throws SchemaException {
         when();
         OperationResultType resultType = result.createOperationResultType();
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.schema.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.*;
+import com.evolveum.midpoint.prism.query.builder.S_FilterExit;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.schema.AbstractSchemaTest;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests query preparation of {@link KeysetPaging} without the repository.
+ * The results of the prepared queries are compared with OFFSET paging in the native repository tests.
+ */
+public class TestKeysetPaging extends AbstractSchemaTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Test
+    public void test100QueryWithoutPagingIsNotChanged() {
+        given("keyset paging and a query without paging");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        ObjectQuery query = usersWithCostCenter().build();
+
+        expect("the query is returned as is");
+        assertThat(keysetPaging.prepareQuery(UserType.class, query, null, true)).isSameAs(query);
+        assertThat(keysetPaging.prepareQuery(UserType.class, null, null, true)).isNull();
+    }
+
+    @Test
+    public void test110DisabledKeysetPagingDoesNotChangeQuery() {
+        given("keyset paging after a loaded page");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.pageLoaded(
+                List.of(user("1", "a"), user("2", "b")));
+
+        expect("the query for the next page is returned as is if keyset paging is not enabled");
+        ObjectQuery query = pageQuery(PAGE_SIZE, OrderDirection.ASCENDING);
+        assertThat(keysetPaging.prepareQuery(UserType.class, query, null, false)).isSameAs(query);
+    }
+
+    @Test
+    public void test120FirstPageUsesOffset() {
+        given("keyset paging and a query for the first page");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        ObjectQuery query = pageQuery(0, OrderDirection.ASCENDING);
+
+        when("the query is prepared");
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+
+        then("the offset is used with OID added as a secondary ordering");
+        assertThat(preparedQuery).isNotSameAs(query);
+        assertThat(preparedQuery.getFilter()).isEqualTo(query.getFilter());
+        assertPaging(preparedQuery, 0, OrderDirection.ASCENDING);
+        and("the original query is not changed");
+        assertThat(query.getPaging().getOrderingInstructions()).hasSize(1);
+    }
+
+    @Test
+    public void test130NextPageUsesKeyset() {
+        given("keyset paging after the first page is loaded");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, pageQuery(0, OrderDirection.ASCENDING), null, true);
+        keysetPaging.pageLoaded(List.of(user("1", "a"), user("2", "b")));
+
+        when("the query for the next page is prepared");
+        ObjectQuery query = pageQuery(PAGE_SIZE, OrderDirection.ASCENDING);
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+
+        then("the offset is replaced by the keyset condition added to the original filter");
+        assertPaging(preparedQuery, null, OrderDirection.ASCENDING);
+        assertKeysetFilter(preparedQuery, query);
+    }
+
+    @Test
+    public void test135NextPageDoesNotChangeProvidedAndFilter() {
+        given("keyset paging after the first page of a query with AND filter is loaded");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, andPageQuery(0), null, true);
+        keysetPaging.pageLoaded(List.of(user("1", "a"), user("2", "b")));
+
+        when("the query for the next page is prepared");
+        ObjectQuery query = andPageQuery(PAGE_SIZE);
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+
+        then("the keyset condition is added to the prepared query only");
+        assertPaging(preparedQuery, null, OrderDirection.ASCENDING);
+        assertThat(((AndFilter) preparedQuery.getFilter()).getConditions()).hasSize(3);
+        assertThat(query.getFilter()).isEqualTo(andPageQuery(PAGE_SIZE).getFilter());
+    }
+
+    @Test
+    public void test140PreviousPageUsesReversedKeyset() {
+        given("keyset paging after the second page is loaded");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, pageQuery(PAGE_SIZE, OrderDirection.ASCENDING), null, true);
+        keysetPaging.pageLoaded(List.of(user("3", "c"), user("4", "d")));
+
+        when("the query for the previous page is prepared");
+        ObjectQuery query = pageQuery(0, OrderDirection.ASCENDING);
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+
+        then("the keyset condition is used with the reversed ordering");
+        assertPaging(preparedQuery, null, OrderDirection.DESCENDING);
+        assertKeysetFilter(preparedQuery, query);
+
+        when("the page is loaded (in the reversed order)");
+        List<PrismObject<UserType>> page = keysetPaging.pageLoaded(List.of(user("2", "b"), user("1", "a")));
+
+        then("the page is returned in the original order");
+        assertThat(page).extracting(PrismObject::getOid).containsExactly("1", "2");
+    }
+
+    @Test
+    public void test150DescendingNextPageUsesKeyset() {
+        given("keyset paging after the first descending page is loaded");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, pageQuery(0, OrderDirection.DESCENDING), null, true);
+        keysetPaging.pageLoaded(List.of(user("4", "d"), user("3", "c")));
+
+        when("the query for the next page is prepared");
+        ObjectQuery query = pageQuery(PAGE_SIZE, OrderDirection.DESCENDING);
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+
+        then("the keyset condition is used with the descending ordering");
+        assertPaging(preparedQuery, null, OrderDirection.DESCENDING);
+        assertKeysetFilter(preparedQuery, query);
+    }
+
+    @Test
+    public void test160JumpUsesOffset() {
+        given("keyset paging after the first page is loaded");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, pageQuery(0, OrderDirection.ASCENDING), null, true);
+        keysetPaging.pageLoaded(List.of(user("1", "a"), user("2", "b")));
+
+        when("the query for the third page is prepared");
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(
+                UserType.class, pageQuery(2 * PAGE_SIZE, OrderDirection.ASCENDING), null, true);
+
+        then("the offset is used");
+        assertPaging(preparedQuery, 2 * PAGE_SIZE, OrderDirection.ASCENDING);
+    }
+
+    @Test
+    public void test170ChangedQueryUsesOffset() {
+        given("keyset paging after the first page is loaded");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, pageQuery(0, OrderDirection.ASCENDING), null, true);
+        keysetPaging.pageLoaded(List.of(user("1", "a"), user("2", "b")));
+
+        when("the query for the next page with a different filter is prepared");
+        ObjectQuery query = PrismTestUtil.getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_COST_CENTER).eq("other")
+                .asc(UserType.F_NAME)
+                .offset(PAGE_SIZE)
+                .maxSize(PAGE_SIZE)
+                .build();
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+
+        then("the offset is used");
+        assertPaging(preparedQuery, PAGE_SIZE, OrderDirection.ASCENDING);
+        assertThat(preparedQuery.getFilter()).isEqualTo(query.getFilter());
+    }
+
+    @Test
+    public void test180NullBoundaryValueUsesOffset() {
+        given("keyset paging after a page ending with a user without the sort value");
+        KeysetPaging keysetPaging = new KeysetPaging();
+        keysetPaging.prepareQuery(UserType.class, pageQuery(0, OrderDirection.ASCENDING), null, true);
+        keysetPaging.pageLoaded(List.of(user("1", "a"), user("2", null)));
+
+        when("the query for the next page is prepared");
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(
+                UserType.class, pageQuery(PAGE_SIZE, OrderDirection.ASCENDING), null, true);
+
+        then("the offset is used");
+        assertPaging(preparedQuery, PAGE_SIZE, OrderDirection.ASCENDING);
+    }
+
+    @Test
+    public void test190UnsupportedOrderingIsNotChanged() {
+        given("keyset paging");
+        KeysetPaging keysetPaging = new KeysetPaging();
+
+        expect("query ordered by multi-value item is returned as is");
+        ObjectQuery multiValueQuery = PrismTestUtil.getPrismContext().queryFor(UserType.class)
+                .asc(UserType.F_ORGANIZATION)
+                .offset(0)
+                .maxSize(PAGE_SIZE)
+                .build();
+        assertThat(keysetPaging.prepareQuery(UserType.class, multiValueQuery, null, true))
+                .isSameAs(multiValueQuery);
+
+        and("shadow query without noFetch is returned as is");
+        ObjectQuery shadowQuery = PrismTestUtil.getPrismContext().queryFor(ShadowType.class)
+                .asc(ShadowType.F_NAME)
+                .offset(0)
+                .maxSize(PAGE_SIZE)
+                .build();
+        assertThat(keysetPaging.prepareQuery(ShadowType.class, shadowQuery, null, true))
+                .isSameAs(shadowQuery);
+        assertThat(keysetPaging.prepareQuery(ShadowType.class, shadowQuery,
+                SelectorOptions.createCollection(GetOperationOptions.createNoFetch()), true))
+                .isNotSameAs(shadowQuery);
+    }
+
+    private S_FilterExit usersWithCostCenter() {
+        return PrismTestUtil.getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_COST_CENTER).eq("cc");
+    }
+
+    private ObjectQuery pageQuery(int offset, OrderDirection direction) {
+        S_FilterExit query = usersWithCostCenter();
+        return (direction == OrderDirection.ASCENDING ? query.asc(UserType.F_NAME) : query.desc(UserType.F_NAME))
+                .offset(offset)
+                .maxSize(PAGE_SIZE)
+                .build();
+    }
+
+    private ObjectQuery andPageQuery(int offset) {
+        return usersWithCostCenter()
+                .and().item(UserType.F_LOCALITY).eqPoly("here")
+                .asc(UserType.F_NAME)
+                .offset(offset)
+                .maxSize(PAGE_SIZE)
+                .build();
+    }
+
+    private PrismObject<UserType> user(String oid, String name) {
+        UserType user = new UserType().oid(oid);
+        if (name != null) {
+            user.name(name);
+        }
+        return user.asPrismObject();
+    }
+
+    private void assertPaging(ObjectQuery query, Integer offset, OrderDirection direction) {
+        ObjectPaging paging = query.getPaging();
+        assertThat(paging.getOffset()).isEqualTo(offset);
+        assertThat(paging.getMaxSize()).isEqualTo(PAGE_SIZE);
+        assertThat(paging.getOrderingInstructions())
+                .extracting(ObjectOrdering::getOrderBy)
+                .satisfiesExactly(
+                        p -> assertThat(p.equivalent(UserType.F_NAME)).isTrue(),
+                        p -> assertThat(p.equivalent(ItemPath.create(PrismConstants.T_ID))).isTrue());
+        assertThat(paging.getOrderingInstructions())
+                .extracting(ObjectOrdering::getDirection)
+                .containsOnly(direction);
+    }
+
+    private void assertKeysetFilter(ObjectQuery preparedQuery, ObjectQuery originalQuery) {
+        assertThat(preparedQuery.getFilter()).isInstanceOf(AndFilter.class);
+        List<ObjectFilter> conditions = ((AndFilter) preparedQuery.getFilter()).getConditions();
+        assertThat(conditions).hasSize(2);
+        assertThat(conditions.get(0)).isEqualTo(originalQuery.getFilter());
+        assertThat(conditions.get(1)).isInstanceOf(OrFilter.class);
+    }
+}
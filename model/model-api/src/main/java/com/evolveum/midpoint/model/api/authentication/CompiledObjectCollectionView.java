@@ -56,6 +56,8 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
     private DistinctSearchOptionType distinct;
     private Boolean disableSorting;
     private Boolean disableCounting;
+    private Boolean estimateCount;
+    private Boolean keysetPaging;
     private SearchBoxConfigurationType searchBoxConfiguration;
     private ObjectFilter filter;
     private ObjectFilter domainFilter;
@@ -165,6 +167,22 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         this.disableCounting = disableCounting;
     }
 
+    public Boolean isEstimateCount() {
+        return estimateCount;
+    }
+
+    public void setEstimateCount(Boolean estimateCount) {
+        this.estimateCount = estimateCount;
+    }
+
+    public Boolean isKeysetPaging() {
+        return keysetPaging;
+    }
+
+    public void setKeysetPaging(Boolean keysetPaging) {
+        this.keysetPaging = keysetPaging;
+    }
+
     public SearchBoxConfigurationType getSearchBoxConfiguration() {
         return searchBoxConfiguration;
     }
@@ -297,6 +315,8 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         DebugUtil.debugDumpWithLabelToStringLn(sb, "distinct", distinct, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "disableSorting", disableSorting, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "disableCounting", disableCounting, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "estimateCount", estimateCount, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "keysetPaging", keysetPaging, indent + 1);
         DebugUtil.debugDumpWithLabelToStringLn(sb, "searchBoxConfiguration", searchBoxConfiguration, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "filter", filter, indent + 1);
         DebugUtil.debugDumpWithLabel(sb, "domainFilter", domainFilter, indent + 1);
@@ -323,6 +343,8 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         viewType.setDistinct(getDistinct());
         viewType.setDisableSorting(isDisableSorting());
         viewType.setDisableCounting(isDisableCounting());
+        viewType.setEstimateCount(isEstimateCount());
+        viewType.setKeysetPaging(isKeysetPaging());
         viewType.setSearchBoxConfiguration(getSearchBoxConfiguration() != null ? getSearchBoxConfiguration().clone() : null);
         viewType.setDisplayOrder(getDisplayOrder());
         viewType.setRefreshInterval(getRefreshInterval());
@@ -57,6 +57,8 @@ public class CompiledShadowCollectionView extends CompiledObjectCollectionView {
         viewType.setDistinct(getDistinct());
         viewType.setDisableSorting(isDisableSorting());
         viewType.setDisableCounting(isDisableCounting());
+        viewType.setEstimateCount(isEstimateCount());
+        viewType.setKeysetPaging(isKeysetPaging());
         viewType.setSearchBoxConfiguration(getSearchBoxConfiguration());
         viewType.setDisplayOrder(getDisplayOrder());
         viewType.setRefreshInterval(getRefreshInterval());
@@ -6,21 +6,26 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
+import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel.PER_OBJECT_TYPE;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.common.LocalizationService;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 import com.evolveum.midpoint.util.exception.ExpressionEvaluationException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
 
-import org.jetbrains.annotations.Nullable;
-
 /**
  * Script evaluator that caches compiled scripts in {@link #scriptCache}.
  *
+ * Cache hits and misses are reported to {@link CachePerformanceCollector} under {@link ScriptCache}
+ * and the evaluator class, per-profile numbers are available from {@link ScriptCache#getStatistics()}.
+ *
  * @param <I> script interpreter/compiler
  * @param <C> compiled code
  *
@@ -36,7 +41,7 @@ public abstract class AbstractCachingScriptEvaluator<I, C> extends AbstractScrip
         this.scriptCache = new ScriptCache<>();
     }
 
-    protected @NotNull ScriptCache<I, C> getScriptCache() {
+    public @NotNull ScriptCache<I, C> getScriptCache() {
         return scriptCache;
     }
 
@@ -55,8 +60,10 @@ public abstract class AbstractCachingScriptEvaluator<I, C> extends AbstractScrip
             throws ExpressionEvaluationException, SecurityViolationException {
         C cachedCompiledScript = scriptCache.getCode(context.getExpressionProfile(), codeString);
         if (cachedCompiledScript != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(ScriptCache.class, getClass(), PER_OBJECT_TYPE);
             return cachedCompiledScript;
         }
+        CachePerformanceCollector.INSTANCE.registerMiss(ScriptCache.class, getClass(), PER_OBJECT_TYPE);
         InternalMonitor.recordCount(InternalCounters.SCRIPT_COMPILE_COUNT);
         C compiledScript;
         try {
@@ -70,6 +77,15 @@ public abstract class AbstractCachingScriptEvaluator<I, C> extends AbstractScrip
         return compiledScript;
     }
 
+    /**
+     * Compiles the script and stores it in the cache, unless it is already there.
+     * Used to warm up the cache, the script is not evaluated.
+     */
+    public void precompile(@NotNull String codeString, @NotNull ScriptExpressionEvaluationContext context)
+            throws ExpressionEvaluationException, SecurityViolationException {
+        getCompiledScript(codeString, context);
+    }
+
     protected abstract C compileScript(String codeString, ScriptExpressionEvaluationContext context) throws Exception;
 
     protected abstract Object evaluateScript(C compiledScript, ScriptExpressionEvaluationContext context)
@@ -6,55 +6,186 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.util.DebugDumpable;
+import com.evolveum.midpoint.util.DebugUtil;
 
 /**
  * Cache for compiled scripts and interpreters, aware of expression profiles.
  *
+ * Reading is lock-free, the code cache for each profile is bounded by {@link #getMaxSize()}.
+ * When the limit is exceeded, the least recently used scripts are evicted (approximately, the eviction
+ * is executed by a single thread while the others continue using the cache).
+ *
+ * Hits and misses are counted per profile, see {@link #getStatistics()}.
+ *
  * @param <C> compiled code
  * @author Radovan Semancik
  */
-public class ScriptCache<I,C> {
+public class ScriptCache<I,C> implements DebugDumpable {
+
+    /** Default maximal number of compiled scripts per expression profile. */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    /** Concurrent maps do not support null keys, so this is used for null (default) profile. */
+    private static final String NO_PROFILE_KEY = "";
 
-    private final Map<String, I> interpreterCache = new HashMap<>();
+    /** When evicting, we remove a bit more than necessary, so the eviction does not run after each put. */
+    private static final double EVICTION_FACTOR = 0.9;
+
+    private final Map<String, I> interpreterCache = new ConcurrentHashMap<>();
 
     /**
-     * Profile ID (key; nullable) -> Source code (key) -> Compiled code (value)
+     * Profile ID (key; empty string for no profile) -> cache of compiled code for the profile.
      */
-    private final Map<String, Map<String, C>> codeCache = new HashMap<>();
+    private final Map<String, ProfileCodeCache<C>> codeCache = new ConcurrentHashMap<>();
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
 
-    public synchronized I getInterpreter(ExpressionProfile profile) {
+    public I getInterpreter(ExpressionProfile profile) {
         return interpreterCache.get(getProfileKey(profile));
     }
 
-    public synchronized void putInterpreter(ExpressionProfile profile, I interpreter) {
+    public void putInterpreter(ExpressionProfile profile, I interpreter) {
         interpreterCache.put(getProfileKey(profile), interpreter);
     }
 
-    synchronized C getCode(ExpressionProfile profile, String sourceCodeKey) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        return profileCache != null ? profileCache.get(sourceCodeKey) : null;
+    C getCode(ExpressionProfile profile, String sourceCodeKey) {
+        return codeCache.computeIfAbsent(getProfileKey(profile), k -> new ProfileCodeCache<>())
+                .get(sourceCodeKey);
     }
 
-    synchronized void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.computeIfAbsent(profileKey, k -> new HashMap<>());
-        profileCache.put(sourceCodeKey, compiledCode);
+    void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
+        codeCache.computeIfAbsent(getProfileKey(profile), k -> new ProfileCodeCache<>())
+                .put(sourceCodeKey, compiledCode, maxSize);
     }
 
     private String getProfileKey(ExpressionProfile profile) {
         if (profile == null) {
-            return null;
+            return NO_PROFILE_KEY;
         } else {
             return profile.getIdentifier();
         }
     }
 
-    public synchronized void clear() {
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Sets the maximal number of compiled scripts per profile, the limit is applied on the next put. */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Script cache max size must be positive, got: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /** Returns statistics for each profile; the key is profile identifier, or `null` for no profile. */
+    public @NotNull Map<String, Statistics> getStatistics() {
+        Map<String, Statistics> statistics = new HashMap<>();
+        codeCache.forEach((key, cache) ->
+                statistics.put(NO_PROFILE_KEY.equals(key) ? null : key, cache.getStatistics()));
+        return statistics;
+    }
+
+    public void clear() {
         codeCache.clear();
     }
+
+    @Override
+    public String debugDump(int indent) {
+        StringBuilder sb = DebugUtil.createTitleStringBuilderLn(ScriptCache.class, indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "maxSize", maxSize, indent + 1);
+        DebugUtil.debugDumpWithLabel(sb, "interpreters", interpreterCache.size(), indent + 1);
+        for (var entry : new TreeMap<>(codeCache).entrySet()) {
+            sb.append('\n');
+            DebugUtil.debugDumpWithLabel(sb,
+                    NO_PROFILE_KEY.equals(entry.getKey()) ? "(no profile)" : entry.getKey(),
+                    entry.getValue().getStatistics().toString(), indent + 1);
+        }
+        return sb.toString();
+    }
+
+    /** Code cache for a single profile. */
+    private static class ProfileCodeCache<C> {
+
+        private final Map<String, Entry<C>> entries = new ConcurrentHashMap<>();
+        private final ReentrantLock evictionLock = new ReentrantLock();
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        C get(String sourceCodeKey) {
+            Entry<C> entry = entries.get(sourceCodeKey);
+            if (entry != null) {
+                entry.lastUsed = System.nanoTime();
+                hits.incrementAndGet();
+                return entry.code;
+            } else {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        void put(String sourceCodeKey, C compiledCode, int maxSize) {
+            entries.put(sourceCodeKey, new Entry<>(compiledCode));
+            if (entries.size() > maxSize && evictionLock.tryLock()) {
+                try {
+                    evict((int) (maxSize * EVICTION_FACTOR));
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+        }
+
+        /** Removes the least recently used entries, so only `targetSize` entries remain. */
+        private void evict(int targetSize) {
+            int toRemove = entries.size() - targetSize;
+            if (toRemove <= 0) {
+                return;
+            }
+            List<Map.Entry<String, Entry<C>>> snapshot = new ArrayList<>(entries.entrySet());
+            snapshot.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+            for (int i = 0; i < toRemove && i < snapshot.size(); i++) {
+                var e = snapshot.get(i);
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+
+        Statistics getStatistics() {
+            return new Statistics(entries.size(), hits.get(), misses.get(), evictions.get());
+        }
+    }
+
+    private static class Entry<C> {
+
+        private final C code;
+
+        /** Not exact (no synchronization), but good enough for the LRU-like eviction. */
+        private volatile long lastUsed;
+
+        Entry(C code) {
+            this.code = code;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    /** Statistics of the code cache for a single profile. */
+    public record Statistics(int size, long hits, long misses, long evictions) {
+
+        @Override
+        public String toString() {
+            return "size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions;
+        }
+    }
 }
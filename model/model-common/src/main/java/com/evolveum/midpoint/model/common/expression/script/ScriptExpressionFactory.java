@@ -30,6 +30,7 @@ import com.evolveum.midpoint.schema.expression.ScriptLanguageExpressionProfile;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.ExpressionEvaluationException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ScriptExpressionEvaluatorType;
 
@@ -147,6 +148,49 @@ public class ScriptExpressionFactory {
         return expression;
     }
 
+    /**
+     * Compiles the script and puts it into the cache of the language evaluator, without evaluating it.
+     *
+     * The expression profile must be the one the script will be evaluated with, e.g. the one determined
+     * for the object containing the script; compiled scripts are cached per profile, so a script precompiled
+     * for a different profile is never used.
+     *
+     * @return false if the script has no code or the language evaluator does not cache compiled scripts
+     */
+    public boolean precompileScript(
+            @NotNull ScriptExpressionEvaluatorType scriptExpressionBean,
+            @NotNull ExpressionProfile expressionProfile,
+            String shortDesc)
+            throws ExpressionSyntaxException, ExpressionEvaluationException, SecurityViolationException {
+        String code = scriptExpressionBean.getCode();
+        ScriptEvaluator evaluator = getEvaluator(getLanguage(scriptExpressionBean), shortDesc);
+        if (code == null || !(evaluator instanceof AbstractCachingScriptEvaluator<?, ?> cachingEvaluator)) {
+            return false;
+        }
+        ScriptExpressionEvaluationContext context = new ScriptExpressionEvaluationContext();
+        context.setScriptBean(scriptExpressionBean);
+        context.setContextDescription(shortDesc);
+        // the same as in createScriptExpression, the script must be compiled exactly as for the evaluation
+        context.setExpressionProfile(expressionProfile);
+        context.setScriptExpressionProfile(
+                getScriptLanguageExpressionProfileOrFail(expressionProfile, evaluator.getLanguageUrl(), shortDesc));
+        cachingEvaluator.precompile(code, context);
+        return true;
+    }
+
+    /** Sets the maximal size of compiled script caches (per profile) for all caching evaluators. */
+    public void setScriptCacheMaxSize(int maxSize) {
+        for (ScriptEvaluator evaluator : evaluatorMap.values()) {
+            if (evaluator instanceof AbstractCachingScriptEvaluator<?, ?> cachingEvaluator) {
+                cachingEvaluator.getScriptCache().setMaxSize(maxSize);
+            }
+        }
+    }
+
+    public @NotNull Collection<ScriptEvaluator> getEvaluators() {
+        return Collections.unmodifiableCollection(evaluatorMap.values());
+    }
+
     private ScriptLanguageExpressionProfile getScriptLanguageExpressionProfileOrFail(
             ExpressionProfile expressionProfile, @NotNull String language, String shortDesc) throws SecurityViolationException {
         if (expressionProfile == null) {
@@ -38,6 +38,7 @@ import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.repo.common.DirectoryFileObjectResolver;
 import com.evolveum.midpoint.repo.common.ObjectResolver;
+import com.evolveum.midpoint.schema.expression.ExpressionProfile;
 import com.evolveum.midpoint.schema.expression.VariablesMap;
 import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
 import com.evolveum.midpoint.schema.constants.MidPointConstants;
@@ -119,6 +120,50 @@ public class TestScriptCaching extends AbstractUnitTest
         assertTrue("Even Horatio was wrong! " + horatio1Time + " -> " + horatio2Time, horatio2Time <= horatio1Time);
     }
 
+    @Test
+    public void testPrecompileScript() throws Exception {
+        given("script cache is empty");
+        ((AbstractCachingScriptEvaluator<?, ?>) evaluator).getScriptCache().clear();
+        InternalMonitor.reset();
+
+        when("script is precompiled for the profile used at runtime");
+        boolean compiled = scriptExpressionfactory.precompileScript(
+                parseScriptType("expression-string-variables.xml"), ExpressionProfile.full(), "precompile");
+
+        then("script is compiled, but not executed");
+        assertTrue("Script was not precompiled", compiled);
+        assertScriptMonitor(1, 0, "precompile");
+
+        when("precompiled script is executed through the factory, as the expression evaluator does it");
+        executeScriptFromFactory("expression-string-variables.xml", ExpressionProfile.full(), "FOOBAR", "after precompile");
+
+        then("script is not compiled again");
+        assertScriptMonitor(1, 1, "after precompile");
+    }
+
+    @Test
+    public void testScriptCacheEviction() {
+        given("script cache with small limit");
+        ScriptCache<Object, String> cache = new ScriptCache<>();
+        cache.setMaxSize(10);
+
+        when("more scripts are put into the cache than the limit");
+        for (int i = 0; i < 15; i++) {
+            cache.putCode(null, "code" + i, "compiled" + i);
+            // reading the first one keeps it recently used
+            cache.getCode(null, "code0");
+        }
+
+        then("cache is bounded and the recently used script is kept");
+        ScriptCache.Statistics statistics = cache.getStatistics().get(null);
+        displayValue("statistics", statistics);
+        assertTrue("Cache is too big: " + statistics.size(), statistics.size() <= 10);
+        assertTrue("No eviction happened", statistics.evictions() > 0);
+        assertEquals("compiled0", cache.getCode(null, "code0"));
+        assertEquals(15, statistics.hits());
+        assertEquals(0, statistics.misses());
+    }
+
     private void assertScriptMonitor(int expCompilations, int expExecutions, String desc) {
         assertEquals("Unexpected number of script compilations after " + desc, expCompilations, InternalMonitor.getCount(InternalCounters.SCRIPT_COMPILE_COUNT));
         assertEquals("Unexpected number of script executions after " + desc, expExecutions, InternalMonitor.getCount(InternalCounters.SCRIPT_EXECUTION_COUNT));
@@ -164,6 +209,29 @@ public class TestScriptCaching extends AbstractUnitTest
         return (endTime - startTime);
     }
 
+    /** Creates the script expression by {@link ScriptExpressionFactory}, which sets the expression profile. */
+    private void executeScriptFromFactory(
+            String fileName, ExpressionProfile expressionProfile, String expectedResult, String desc)
+            throws CommonException, IOException {
+        OperationResult result = createOperationResult(desc);
+        ItemDefinition<?> outputDefinition =
+                getPrismContext().definitionFactory().createPropertyDefinition(PROPERTY_NAME, DOMUtil.XSD_STRING);
+        ScriptExpression scriptExpression = scriptExpressionfactory.createScriptExpression(
+                parseScriptType(fileName), outputDefinition, expressionProfile, desc, result);
+
+        ScriptExpressionEvaluationContext context = new ScriptExpressionEvaluationContext();
+        context.setVariables(VariablesMap.create(getPrismContext(),
+                "foo", "FOO", PrimitiveType.STRING,
+                "bar", "BAR", PrimitiveType.STRING));
+        context.setEvaluateNew(false);
+        context.setScriptExpression(scriptExpression);
+        context.setContextDescription(desc);
+        context.setResult(result);
+
+        List<PrismPropertyValue<String>> scriptResults = scriptExpression.evaluate(context);
+        assertEquals("Wrong script " + desc + " result", expectedResult, asScalarString(scriptResults));
+    }
+
     private ScriptExpression createScriptExpression(
             ScriptExpressionEvaluatorType expressionType, ItemDefinition<?> outputDefinition) {
         ScriptExpression expression = new ScriptExpression(
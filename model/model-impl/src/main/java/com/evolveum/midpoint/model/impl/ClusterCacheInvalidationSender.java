@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ws.rs.core.Response;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.model.api.util.ClusterServiceConsts;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.ClusterExecutionHelper;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.util.DebugDumpable;
+import com.evolveum.midpoint.util.DebugUtil;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventListType;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ComponentSizeInformationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.NodeType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Sends cache invalidation events to other cluster nodes asynchronously, in batches.
+ *
+ * Events are collected for {@link #FLUSH_INTERVAL_MS} and deduplicated: an object is invalidated at most once per batch,
+ * invalidation of a whole type subsumes invalidations of its objects, and global invalidation subsumes everything.
+ * If there are too many objects of the same type in the batch, the whole type is invalidated instead.
+ *
+ * The batch is sent to each node by a single REST call ({@link ClusterServiceConsts#EVENT_INVALIDATION_BATCH}).
+ * Nodes that do not support it (older versions) get the events one by one, using {@link ClusterServiceConsts#EVENT_INVALIDATION}.
+ * Such nodes are asked again after {@link #BATCH_SUPPORT_RECHECK_INTERVAL_MS}, as they may have been upgraded in the meanwhile.
+ *
+ * Note that the other nodes get the invalidation a little later than before, when the events were sent synchronously
+ * by the thread that made the change. The delay is shown as the "lag" in the {@link #debugDump(int)} output.
+ *
+ * The sender is not a cache, but it is registered in {@link CacheRegistry}, so that its queue depth and lag are shown
+ * among the caches state information (and in the {@link #dumpContent()} output). It ignores the invalidations coming
+ * from the registry, as these are passed to it by {@link ClusterCacheListener}.
+ */
+@Component
+public class ClusterCacheInvalidationSender implements Cache, DebugDumpable {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ClusterCacheInvalidationSender.class);
+
+    private static final String SENDER_THREAD_NAME = "midpoint-cluster-cache-invalidation";
+
+    /** How long are the events collected before being sent. */
+    private static final long FLUSH_INTERVAL_MS = 100L;
+
+    /** If there are more OIDs of a given type in the batch, the whole type is invalidated instead. */
+    private static final int MAX_OIDS_PER_TYPE = 1000;
+
+    /** How long do we wait for the pending events to be sent on shutdown. */
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+    /** After this time, a node that did not support the batch invalidation call is asked again. */
+    @VisibleForTesting
+    static final long BATCH_SUPPORT_RECHECK_INTERVAL_MS = 600_000L;
+
+    @Autowired private TaskManager taskManager;
+    @Autowired private ClusterExecutionHelper clusterExecutionHelper;
+    @Autowired private CacheRegistry cacheRegistry;
+
+    // Pending events. Guarded by this.
+    private boolean globalInvalidationPending;
+    @NotNull private final Map<Class<? extends ObjectType>, PendingTypeInvalidation> pendingByType = new LinkedHashMap<>();
+    private long oldestPendingTimestamp;
+
+    /** Nodes (identifiers) that did not support the batch invalidation call, with the time when that was found out. */
+    @NotNull private final Map<String, Long> nodesWithoutBatchSupport = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong eventsCoalesced = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private volatile long lastLagMs;
+    private final AtomicLong maxLagMs = new AtomicLong();
+
+    private Thread senderThread;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void start() {
+        cacheRegistry.registerCache(this);
+        senderThread = new Thread(this::sendLoop, SENDER_THREAD_NAME);
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        cacheRegistry.unregisterCache(this);
+        stopping = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            senderThread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Schedules the invalidation to be sent to other nodes. See {@link ClusterCacheListener} for the meaning of parameters. */
+    public synchronized void enqueue(@Nullable Class<? extends ObjectType> type, @Nullable String oid) {
+        eventsReceived.incrementAndGet();
+        if (isEmpty()) {
+            oldestPendingTimestamp = System.currentTimeMillis();
+            notifyAll();
+        }
+        if (globalInvalidationPending) {
+            eventsCoalesced.incrementAndGet();
+        } else if (type == null) {
+            globalInvalidationPending = true;
+            eventsCoalesced.addAndGet(getPendingEventsCount());
+            pendingByType.clear();
+        } else {
+            PendingTypeInvalidation pending = pendingByType.computeIfAbsent(type, k -> new PendingTypeInvalidation());
+            if (!pending.add(oid)) {
+                eventsCoalesced.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        return !globalInvalidationPending && pendingByType.isEmpty();
+    }
+
+    private int getPendingEventsCount() {
+        if (globalInvalidationPending) {
+            return 1;
+        }
+        int count = 0;
+        for (PendingTypeInvalidation pending : pendingByType.values()) {
+            count += pending.wholeType ? 1 : pending.oids.size();
+        }
+        return count;
+    }
+
+    /** Number of (deduplicated) events waiting to be sent. */
+    public synchronized int getQueueDepth() {
+        return getPendingEventsCount();
+    }
+
+    /** Time between the oldest event of the last batch was enqueued and the batch was delivered to all nodes. */
+    public long getLastLagMs() {
+        return lastLagMs;
+    }
+
+    public long getMaxLagMs() {
+        return maxLagMs.get();
+    }
+
+    private void sendLoop() {
+        while (true) {
+            CacheInvalidationEventListType batch;
+            long batchTimestamp;
+            synchronized (this) {
+                try {
+                    while (isEmpty() && !stopping) {
+                        wait();
+                    }
+                    long remaining;
+                    while (!stopping && (remaining = oldestPendingTimestamp + FLUSH_INTERVAL_MS - System.currentTimeMillis()) > 0) {
+                        wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    LOGGER.debug("Cache invalidation sender interrupted, exiting");
+                    return;
+                }
+                if (isEmpty()) {
+                    return; // stopping and nothing to send
+                }
+                batchTimestamp = oldestPendingTimestamp;
+                batch = drainPending();
+            }
+            send(batch, batchTimestamp);
+        }
+    }
+
+    /** Converts pending events to a batch and clears them. Must be called under the lock (or in tests). */
+    @VisibleForTesting
+    CacheInvalidationEventListType drainPending() {
+        CacheInvalidationEventListType batch = new CacheInvalidationEventListType();
+        if (globalInvalidationPending) {
+            batch.getEvent().add(new CacheInvalidationEventType());
+        } else {
+            for (var entry : pendingByType.entrySet()) {
+                var typeName = ObjectTypes.getObjectType(entry.getKey()).getTypeQName();
+                PendingTypeInvalidation pending = entry.getValue();
+                if (pending.wholeType) {
+                    batch.getEvent().add(new CacheInvalidationEventType().type(typeName));
+                } else {
+                    for (String oid : pending.oids) {
+                        batch.getEvent().add(new CacheInvalidationEventType().type(typeName).oid(oid));
+                    }
+                }
+            }
+        }
+        globalInvalidationPending = false;
+        pendingByType.clear();
+        return batch;
+    }
+
+    private void send(CacheInvalidationEventListType batch, long batchTimestamp) {
+        try {
+            Task task = taskManager.createTaskInstance("invalidate");
+            OperationResult result = task.getResult();
+
+            LOGGER.trace("Sending {} cache invalidation event(s) to other nodes", batch.getEvent().size());
+
+            // Regular cache invalidation can be skipped for nodes not checking in. Cache entries will expire on such nodes
+            // eventually. (We can revisit this design decision if needed.)
+            clusterExecutionHelper.execute(
+                    (client, node, result1) -> sendToNode(client, node, batch),
+                    null, "cache invalidation", result);
+
+            eventsSent.addAndGet(batch.getEvent().size());
+            batchesSent.incrementAndGet();
+        } catch (RuntimeException e) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't send cache invalidation events to other nodes", e);
+        } finally {
+            long lag = System.currentTimeMillis() - batchTimestamp;
+            lastLagMs = lag;
+            maxLagMs.accumulateAndGet(lag, Math::max);
+            LOGGER.debug("Cache invalidation batch of {} event(s) processed, lag {} ms, queue depth {}",
+                    batch.getEvent().size(), lag, getQueueDepth());
+        }
+    }
+
+    private void sendToNode(WebClient client, NodeType node, CacheInvalidationEventListType batch) {
+        String nodeIdentifier = node.getNodeIdentifier();
+        if (isBatchSupportExpected(nodeIdentifier, System.currentTimeMillis())) {
+            client.path(ClusterServiceConsts.EVENT_INVALIDATION_BATCH);
+            Response response = client.post(batch);
+            Response.StatusType statusInfo = response.getStatusInfo();
+            response.close();
+            if (statusInfo.getStatusCode() != Response.Status.NOT_FOUND.getStatusCode()) {
+                logResponse(node, statusInfo, batch.getEvent().size());
+                return;
+            }
+            LOGGER.debug("Node {} does not support batch cache invalidation, sending the events one by one", nodeIdentifier);
+            nodesWithoutBatchSupport.put(nodeIdentifier, System.currentTimeMillis());
+        }
+        for (CacheInvalidationEventType event : batch.getEvent()) {
+            client.back(true);
+            client.path(getInvalidationRestPath(event));
+            Response response = client.post(null);
+            logResponse(node, response.getStatusInfo(), 1);
+            response.close();
+        }
+    }
+
+    /**
+     * Returns false if the node did not support the batch call recently. Forgets the nodes that did not support it
+     * long ago; these are asked again (and the nodes that left the cluster do not stay here forever).
+     */
+    @VisibleForTesting
+    boolean isBatchSupportExpected(@NotNull String nodeIdentifier, long now) {
+        nodesWithoutBatchSupport.values().removeIf(
+                timestamp -> timestamp + BATCH_SUPPORT_RECHECK_INTERVAL_MS <= now);
+        return !nodesWithoutBatchSupport.containsKey(nodeIdentifier);
+    }
+
+    @VisibleForTesting
+    void markWithoutBatchSupport(@NotNull String nodeIdentifier, long now) {
+        nodesWithoutBatchSupport.put(nodeIdentifier, now);
+    }
+
+    private void logResponse(NodeType node, Response.StatusType statusInfo, int events) {
+        if (statusInfo.getFamily() != Response.Status.Family.SUCCESSFUL) {
+            LOGGER.warn("Cluster-wide cache clearance ({} events) finished on {} with status {}, {}", events,
+                    node.getNodeIdentifier(), statusInfo.getStatusCode(), statusInfo.getReasonPhrase());
+        } else {
+            LOGGER.debug("Cluster-wide cache clearance ({} events) finished on {} with status {}, {}", events,
+                    node.getNodeIdentifier(), statusInfo.getStatusCode(), statusInfo.getReasonPhrase());
+        }
+    }
+
+    @NotNull
+    private String getInvalidationRestPath(CacheInvalidationEventType event) {
+        StringBuilder sb = new StringBuilder(ClusterServiceConsts.EVENT_INVALIDATION);
+        if (event.getType() != null) {
+            sb.append(ObjectTypes.getRestTypeFromClass(ObjectTypes.getObjectTypeClass(event.getType())));
+            if (event.getOid() != null) {
+                sb.append("/").append(event.getOid());
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String debugDump(int indent) {
+        StringBuilder sb = DebugUtil.createTitleStringBuilderLn(getClass(), indent);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Queue depth", getQueueDepth(), indent + 1);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Events received", eventsReceived.get(), indent + 1);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Events coalesced", eventsCoalesced.get(), indent + 1);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Events sent", eventsSent.get(), indent + 1);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Batches sent", batchesSent.get(), indent + 1);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Last lag (ms)", lastLagMs, indent + 1);
+        DebugUtil.debugDumpWithLabelToStringLn(sb, "Max lag (ms)", maxLagMs.get(), indent + 1);
+        DebugUtil.debugDumpWithLabelToString(sb, "Nodes without batch support", nodesWithoutBatchSupport.keySet(), indent + 1);
+        return sb.toString();
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        // Nothing to invalidate here, see the class javadoc.
+    }
+
+    /** Size is the queue depth; the components show the traffic and the lag. */
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        SingleCacheStateInformationType info = new SingleCacheStateInformationType()
+                .name(ClusterCacheInvalidationSender.class.getName())
+                .size(getQueueDepth());
+        info.getComponent().add(component("eventsReceived", eventsReceived.get()));
+        info.getComponent().add(component("eventsCoalesced", eventsCoalesced.get()));
+        info.getComponent().add(component("eventsSent", eventsSent.get()));
+        info.getComponent().add(component("batchesSent", batchesSent.get()));
+        info.getComponent().add(component("lastLagMs", lastLagMs));
+        info.getComponent().add(component("maxLagMs", maxLagMs.get()));
+        info.getComponent().add(component("nodesWithoutBatchSupport", nodesWithoutBatchSupport.size()));
+        return List.of(info);
+    }
+
+    private static ComponentSizeInformationType component(String name, long value) {
+        return new ComponentSizeInformationType()
+                .name(name)
+                .size((int) Math.min(value, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("{}", debugDump());
+        }
+    }
+
+    /** Pending invalidations for a single object type. */
+    private static class PendingTypeInvalidation {
+
+        private boolean wholeType;
+        @NotNull private final Set<String> oids = new LinkedHashSet<>();
+
+        /** @return false if the invalidation is already covered by the pending ones */
+        private boolean add(@Nullable String oid) {
+            if (wholeType) {
+                return false;
+            } else if (oid == null) {
+                wholeType = true;
+                oids.clear();
+                return true;
+            } else if (!oids.add(oid)) {
+                return false;
+            } else {
+                if (oids.size() > MAX_OIDS_PER_TYPE) {
+                    wholeType = true;
+                    oids.clear();
+                }
+                return true;
+            }
+        }
+    }
+}
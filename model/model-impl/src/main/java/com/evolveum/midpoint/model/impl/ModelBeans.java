@@ -47,6 +47,7 @@ import com.evolveum.midpoint.model.impl.lens.projector.focus.AutoAssignMappingCo
 import com.evolveum.midpoint.model.impl.lens.projector.focus.ProjectionMappingSetEvaluator;
 import com.evolveum.midpoint.model.impl.lens.projector.focus.ProjectionValueMetadataCreator;
 import com.evolveum.midpoint.model.impl.lens.projector.loader.ContextLoader;
+import com.evolveum.midpoint.model.impl.lens.projector.loader.ProjectionFetchExecutor;
 import com.evolveum.midpoint.model.impl.lens.projector.mappings.MappingEvaluator;
 import com.evolveum.midpoint.model.impl.lens.projector.policy.scriptExecutor.PolicyRuleScriptExecutor;
 import com.evolveum.midpoint.model.impl.migrator.Migrator;
@@ -105,6 +106,7 @@ public class ModelBeans {
     @Autowired public MappingFactory mappingFactory;
     @Autowired public ModelCommonBeans commonBeans;
     @Autowired public ContextLoader contextLoader;
+    @Autowired public ProjectionFetchExecutor projectionFetchExecutor;
     @Autowired public CredentialsProcessor credentialsProcessor;
     @Autowired public Protector protector;
     @Autowired public ClockworkMedic medic;
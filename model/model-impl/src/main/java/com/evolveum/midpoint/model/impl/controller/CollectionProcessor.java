@@ -650,6 +650,14 @@ public class CollectionProcessor {
         if (newDisableCounting != null && (existingView.isDisableCounting() == null || replaceIfExist)) {
             existingView.setDisableCounting(newDisableCounting);
         }
+        Boolean newEstimateCount = objectListViewType.isEstimateCount();
+        if (newEstimateCount != null && (existingView.isEstimateCount() == null || replaceIfExist)) {
+            existingView.setEstimateCount(newEstimateCount);
+        }
+        Boolean newKeysetPaging = objectListViewType.isKeysetPaging();
+        if (newKeysetPaging != null && (existingView.isKeysetPaging() == null || replaceIfExist)) {
+            existingView.setKeysetPaging(newKeysetPaging);
+        }
     }
 
     private void compileDisplayOrder(CompiledObjectCollectionView existingView, GuiObjectListViewType objectListViewType, boolean replaceIfExist) {
@@ -45,6 +45,7 @@ import com.evolveum.midpoint.model.api.hooks.HookRegistry;
 import com.evolveum.midpoint.model.api.hooks.ReadHook;
 import com.evolveum.midpoint.repo.common.AuditHelper;
 import com.evolveum.midpoint.model.impl.ModelObjectResolver;
+import com.evolveum.midpoint.model.impl.expr.ScriptCacheInitializer;
 import com.evolveum.midpoint.model.impl.importer.ObjectImporter;
 import com.evolveum.midpoint.model.impl.lens.*;
 import com.evolveum.midpoint.model.impl.scripting.ExecutionContext;
@@ -154,6 +155,7 @@ public class ModelController implements ModelService, TaskService, CaseService,
     @Autowired private SystemObjectCache systemObjectCache;
     @Autowired private ClockworkMedic clockworkMedic;
     @Autowired private EventDispatcher dispatcher;
+    @Autowired private ScriptCacheInitializer scriptCacheInitializer;
     @Autowired
     @Qualifier("cacheRepositoryService")
     private RepositoryService cacheRepositoryService;
@@ -1661,6 +1663,8 @@ public class ModelController implements ModelService, TaskService, CaseService,
 
             provisioning.postInit(result);
 
+            scriptCacheInitializer.postInit(result);
+
         } catch (SchemaException e) {
             result.recordFatalError(e);
             throw new SystemException(e.getMessage(), e);
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.expr;
+
+import static com.evolveum.midpoint.schema.GetOperationOptions.createReadOnlyCollection;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.xml.bind.JAXBElement;
+
+import org.apache.commons.configuration2.Configuration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.common.configuration.api.MidpointConfiguration;
+import com.evolveum.midpoint.model.common.expression.ExpressionProfileManager;
+import com.evolveum.midpoint.model.common.expression.script.AbstractCachingScriptEvaluator;
+import com.evolveum.midpoint.model.common.expression.script.ScriptCache;
+import com.evolveum.midpoint.model.common.expression.script.ScriptEvaluator;
+import com.evolveum.midpoint.model.common.expression.script.ScriptExpressionFactory;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractRoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ExpressionType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ScriptExpressionEvaluatorType;
+
+/**
+ * Configures compiled script caches (see {@link ScriptCache}) and optionally warms them up
+ * by compiling all the scripts found in resources and roles.
+ *
+ * Configuration is taken from `midpoint.expressions` section of `config.xml`:
+ *
+ * - `scriptCacheMaxSize`: maximal number of compiled scripts per expression profile and language,
+ * default is {@link ScriptCache#DEFAULT_MAX_SIZE};
+ * - `precompileScripts`: if `true`, scripts are compiled in {@link #postInit(OperationResult)}, default is `false`.
+ *
+ * Scripts are precompiled for the expression profile determined for the containing object (by its archetype
+ * or object policy), i.e. the same profile that is used when they are evaluated; otherwise the cache would not be hit.
+ * Scripts that fail to compile are only logged. They will fail again - with proper error reporting - when evaluated.
+ */
+@Component
+public class ScriptCacheInitializer {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ScriptCacheInitializer.class);
+
+    private static final String OP_PRECOMPILE_SCRIPTS = ScriptCacheInitializer.class.getName() + ".precompileScripts";
+
+    public static final String CONF_SCRIPT_CACHE_MAX_SIZE = "scriptCacheMaxSize";
+    public static final String CONF_PRECOMPILE_SCRIPTS = "precompileScripts";
+
+    @Autowired private MidpointConfiguration midpointConfiguration;
+    @Autowired private ScriptExpressionFactory scriptExpressionFactory;
+    @Autowired private ExpressionProfileManager expressionProfileManager;
+
+    @Autowired
+    @Qualifier("cacheRepositoryService")
+    private RepositoryService cacheRepositoryService;
+
+    @PostConstruct
+    public void init() {
+        int maxSize = getConfiguration().getInt(CONF_SCRIPT_CACHE_MAX_SIZE, ScriptCache.DEFAULT_MAX_SIZE);
+        scriptExpressionFactory.setScriptCacheMaxSize(maxSize);
+    }
+
+    /** Precompiles the scripts from resources and roles, if configured so. */
+    public void postInit(OperationResult parentResult) {
+        if (!getConfiguration().getBoolean(CONF_PRECOMPILE_SCRIPTS, false)) {
+            return;
+        }
+
+        OperationResult result = parentResult.createSubresult(OP_PRECOMPILE_SCRIPTS);
+        try {
+            long start = System.currentTimeMillis();
+            Counters counters = new Counters();
+            precompileScripts(ResourceType.class, counters, result);
+            precompileScripts(AbstractRoleType.class, counters, result);
+            LOGGER.info("Precompiled {} scripts ({} failed) in {} ms",
+                    counters.compiled, counters.failed, System.currentTimeMillis() - start);
+            result.addReturn("compiled", counters.compiled);
+            result.addReturn("failed", counters.failed);
+            for (ScriptEvaluator evaluator : scriptExpressionFactory.getEvaluators()) {
+                if (evaluator instanceof AbstractCachingScriptEvaluator<?, ?> cachingEvaluator) {
+                    LOGGER.debug("Script cache after warm-up for {}:\n{}",
+                            evaluator.getLanguageName(), cachingEvaluator.getScriptCache().debugDumpLazily(1));
+                }
+            }
+        } catch (RuntimeException e) {
+            result.recordFatalError(e);
+            throw e;
+        } finally {
+            result.close();
+        }
+    }
+
+    private <O extends ObjectType> void precompileScripts(
+            Class<O> type, Counters counters, OperationResult result) {
+        ResultHandler<O> handler = (object, objectResult) -> {
+            precompileScripts(object, counters, objectResult);
+            return true;
+        };
+        try {
+            cacheRepositoryService.searchObjectsIterative(
+                    type, null, handler, createReadOnlyCollection(), true, result);
+        } catch (SchemaException e) {
+            LOGGER.warn("Couldn't search for {} objects to precompile scripts: {}", type.getSimpleName(), e.getMessage(), e);
+        }
+    }
+
+    private void precompileScripts(
+            PrismObject<? extends ObjectType> object, Counters counters, OperationResult result) {
+        ExpressionProfile expressionProfile;
+        try {
+            expressionProfile = expressionProfileManager.determineExpressionProfile(object, result);
+        } catch (CommonException | RuntimeException e) {
+            LOGGER.debug("Couldn't determine expression profile for {}, skipping its scripts: {}", object, e.getMessage(), e);
+            return;
+        }
+        object.accept(visitable -> {
+            if (visitable instanceof PrismPropertyValue<?> value
+                    && value.getRealValue() instanceof ExpressionType expression) {
+                for (JAXBElement<?> evaluator : expression.getExpressionEvaluator()) {
+                    if (evaluator.getValue() instanceof ScriptExpressionEvaluatorType script) {
+                        precompileScript(script, expressionProfile, object, counters);
+                    }
+                }
+            }
+        });
+    }
+
+    private void precompileScript(ScriptExpressionEvaluatorType script, ExpressionProfile expressionProfile,
+            PrismObject<? extends ObjectType> object, Counters counters) {
+        try {
+            if (scriptExpressionFactory.precompileScript(script, expressionProfile, "script in " + object)) {
+                counters.compiled++;
+            }
+        } catch (CommonException | RuntimeException e) {
+            counters.failed++;
+            LOGGER.debug("Couldn't precompile script in {}: {}", object, e.getMessage(), e);
+        }
+    }
+
+    private Configuration getConfiguration() {
+        return midpointConfiguration.getConfiguration(MidpointConfiguration.EXPRESSIONS_CONFIGURATION);
+    }
+
+    private static class Counters {
+        private int compiled;
+        private int failed;
+    }
+}
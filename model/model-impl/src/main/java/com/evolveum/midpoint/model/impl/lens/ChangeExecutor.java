@@ -10,8 +10,10 @@ package com.evolveum.midpoint.model.impl.lens;
 import org.springframework.stereotype.Component;
 
 import com.evolveum.midpoint.model.impl.lens.executor.FocusChangeExecution;
+import com.evolveum.midpoint.model.impl.lens.executor.ParallelProjectionsExecution;
 import com.evolveum.midpoint.model.impl.lens.executor.ProjectionChangeExecution;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.SystemConfigurationTypeUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -25,6 +27,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
  *
  * - {@link FocusChangeExecution}
  * - {@link ProjectionChangeExecution}
+ * - {@link ParallelProjectionsExecution} (if enabled)
  *
  * TODO Move to `executor` package. But this is incompatible change regarding loggers and operation names.
  *
@@ -38,6 +41,7 @@ public class ChangeExecutor {
     private static final String OPERATION_EXECUTE = ChangeExecutor.class.getName() + ".execute";
     public static final String OPERATION_EXECUTE_FOCUS = OPERATION_EXECUTE + ".focus";
     public static final String OPERATION_EXECUTE_PROJECTION = OPERATION_EXECUTE + ".projection";
+    public static final String OPERATION_EXECUTE_PROJECTIONS_ON_RESOURCE = OPERATION_EXECUTE + ".projectionsOnResource";
     public static final String OPERATION_EXECUTE_DELTA = ChangeExecutor.class.getName() + ".executeDelta";
 
     public <O extends ObjectType> void executeChanges(LensContext<O> context, Task task,
@@ -76,6 +80,13 @@ public class ChangeExecutor {
             throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException,
             SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
 
+        int threads = SystemConfigurationTypeUtil.getProjectionExecutionThreads(context.getSystemConfigurationBean());
+        if (threads > 1) {
+            new ParallelProjectionsExecution<>(context, task, threads)
+                    .execute(result);
+            return;
+        }
+
         for (LensProjectionContext projCtx : context.getProjectionContexts()) {
             context.checkAbortRequested();
             new ProjectionChangeExecution<O>(projCtx, task)
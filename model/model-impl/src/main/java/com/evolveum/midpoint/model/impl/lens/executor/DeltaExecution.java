@@ -62,6 +62,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 import static com.evolveum.midpoint.model.impl.lens.ChangeExecutor.OPERATION_EXECUTE_DELTA;
 import static com.evolveum.midpoint.prism.PrismObject.asObjectable;
@@ -137,12 +138,28 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
     /** The same object as is put into {@link LensElementContext#lastChangeExecutionResult} */
     private final ChangeExecutionResult<E> changeExecutionResult;
 
+    /**
+     * Lock guarding the task state when projections are executed in parallel, see {@link ParallelProjectionsExecution}.
+     * Null for sequential execution.
+     */
+    @Nullable private final Lock sharedStateLock;
+
     DeltaExecution(
             @NotNull LensElementContext<E> elementContext,
             ObjectDelta<E> delta,
             ConflictResolutionType conflictResolution,
             @NotNull Task task,
             @NotNull ChangeExecutionResult<E> changeExecutionResult) {
+        this(elementContext, delta, conflictResolution, task, changeExecutionResult, null);
+    }
+
+    DeltaExecution(
+            @NotNull LensElementContext<E> elementContext,
+            ObjectDelta<E> delta,
+            ConflictResolutionType conflictResolution,
+            @NotNull Task task,
+            @NotNull ChangeExecutionResult<E> changeExecutionResult,
+            @Nullable Lock sharedStateLock) {
 
         //noinspection unchecked
         this.context = (LensContext<O>) elementContext.getLensContext();
@@ -153,6 +170,7 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
                 ((LensProjectionContext) elementContext).getResource() : null;
         this.task = task;
         this.changeExecutionResult = changeExecutionResult;
+        this.sharedStateLock = sharedStateLock;
     }
 
     //region Main
@@ -483,12 +501,10 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
             objectToAdd.setOid(oid);
             LensUtil.setContextOid(context, elementContext, oid);
 
-            task.recordObjectActionExecuted(
-                    objectToAdd, objectToAdd.getCompileTimeClass(), oid, ChangeType.ADD, context.getChannel(), null);
+            recordObjectActionExecuted(objectToAdd, objectToAdd.getCompileTimeClass(), oid, ChangeType.ADD, null);
             objectAfterModification = objectToAdd;
         } catch (Throwable t) {
-            task.recordObjectActionExecuted(
-                    objectToAdd, objectToAdd.getCompileTimeClass(), null, ChangeType.ADD, context.getChannel(), t);
+            recordObjectActionExecuted(objectToAdd, objectToAdd.getCompileTimeClass(), null, ChangeType.ADD, t);
             if (objectBeanToAdd instanceof ShadowType) {
                 handleProvisioningError(resource, t, result);
                 assert elementContext instanceof LensProjectionContext;
@@ -562,14 +578,14 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
             scripts = null;
         }
 
-        ModelImplUtils.setRequestee(task, context);
+        setRequestee();
         try {
             ProvisioningOperationOptions options = getProvisioningOptions();
             ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
 
             return b.provisioningService.addObject(object, scripts, options, ctx, task, result);
         } finally {
-            ModelImplUtils.clearRequestee(task);
+            clearRequestee();
         }
     }
 
@@ -634,11 +650,9 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
             } else {
                 elementContext.simulateDeltaExecution(deltaForExecution);
             }
-            task.recordObjectActionExecuted(
-                    baseObject, objectClass, delta.getOid(), ChangeType.MODIFY, context.getChannel(), null);
+            recordObjectActionExecuted(baseObject, objectClass, delta.getOid(), ChangeType.MODIFY, null);
         } catch (Throwable t) {
-            task.recordObjectActionExecuted(
-                    baseObject, objectClass, delta.getOid(), ChangeType.MODIFY, context.getChannel(), t);
+            recordObjectActionExecuted(baseObject, objectClass, delta.getOid(), ChangeType.MODIFY, t);
             throw t;
         }
     }
@@ -731,7 +745,7 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
         } else {
             scripts = null;
         }
-        ModelImplUtils.setRequestee(task, context);
+        setRequestee();
         try {
             ProvisioningOperationOptions options = getProvisioningOptions();
             ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
@@ -747,7 +761,7 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
             }
             throw e;
         } finally {
-            ModelImplUtils.clearRequestee(task);
+            clearRequestee();
         }
     }
 
@@ -818,9 +832,9 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
                 objectAfterModification = null;
             }
             deleted = true;
-            task.recordObjectActionExecuted(objectOld, objectTypeClass, oid, ChangeType.DELETE, context.getChannel(), null);
+            recordObjectActionExecuted(objectOld, objectTypeClass, oid, ChangeType.DELETE, null);
         } catch (Throwable t) {
-            task.recordObjectActionExecuted(objectOld, objectTypeClass, oid, ChangeType.DELETE, context.getChannel(), t);
+            recordObjectActionExecuted(objectOld, objectTypeClass, oid, ChangeType.DELETE, t);
 
             if (ShadowType.class.isAssignableFrom(objectTypeClass)) {
                 handleProvisioningError(resource, t, result);
@@ -900,13 +914,43 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
         } else {
             scripts = null;
         }
-        ModelImplUtils.setRequestee(task, context);
+        setRequestee();
         try {
             return b.provisioningService.deleteObject(type, oid, options, scripts, ctx, task, result);
         } finally {
+            clearRequestee();
+        }
+    }
+    //endregion
+
+    //region Task state
+    /** In parallel execution, the requestee is set by the caller for the whole execution. */
+    private void setRequestee() {
+        if (sharedStateLock == null) {
+            ModelImplUtils.setRequestee(task, context);
+        }
+    }
+
+    private void clearRequestee() {
+        if (sharedStateLock == null) {
             ModelImplUtils.clearRequestee(task);
         }
     }
+
+    /** Task statistics are not thread-safe, so they are updated under the lock in parallel execution. */
+    private <T extends ObjectType> void recordObjectActionExecuted(
+            PrismObject<T> object, Class<T> objectTypeClass, String oid, ChangeType changeType, Throwable t) {
+        if (sharedStateLock != null) {
+            sharedStateLock.lock();
+        }
+        try {
+            task.recordObjectActionExecuted(object, objectTypeClass, oid, changeType, context.getChannel(), t);
+        } finally {
+            if (sharedStateLock != null) {
+                sharedStateLock.unlock();
+            }
+        }
+    }
     //endregion
 
     //region Provisioning options
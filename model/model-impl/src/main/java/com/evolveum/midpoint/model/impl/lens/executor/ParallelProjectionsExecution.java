@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.executor;
+
+import static com.evolveum.midpoint.model.impl.lens.ChangeExecutor.OPERATION_EXECUTE_PROJECTIONS_ON_RESOURCE;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.model.impl.lens.ChangeExecutor;
+import com.evolveum.midpoint.model.impl.lens.LensContext;
+import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
+import com.evolveum.midpoint.model.impl.util.CallerThreadState;
+import com.evolveum.midpoint.model.impl.util.ModelImplUtils;
+import com.evolveum.midpoint.schema.result.CompiledTracingProfile;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Executes changes of projections in the current wave concurrently: projections on different resources are processed
+ * in parallel, projections on the same resource (including higher-order ones) one after another, in the original order.
+ *
+ * Used when `internals/projectionExecutionThreads` in the system configuration is greater than 1.
+ *
+ * Notes:
+ *
+ * 1. The threads are created for each execution, and stopped when it's done.
+ * 2. Each resource gets its own (minor) operation result, created and closed in the worker thread, so that the operation
+ * monitoring and logging (if requested by the tracing profile) are done in the thread that does the work. These results
+ * are attached to the parent result by the caller thread after all the workers finish, in the order of resources.
+ * Hence the result tree is never modified by more threads at once.
+ * 3. Parts of the execution that modify the lens context or the task (progress reporting, link updates,
+ * task statistics) are serialized by {@link #sharedStateLock}. The resource operations themselves are not.
+ * 4. The task requestee is set for the whole execution, not for the individual provisioning operations.
+ * 5. The thread-local state is propagated to the worker threads, see {@link CallerThreadState}.
+ * 6. If the execution fails on one resource, the others are finished, and then the first exception
+ * (in the order of resources) is re-thrown.
+ */
+public class ParallelProjectionsExecution<O extends ObjectType> {
+
+    /** For the time being we keep the parent logger name. */
+    private static final Trace LOGGER = TraceManager.getTrace(ChangeExecutor.class);
+
+    private static final String THREAD_NAME_PREFIX = "midpoint-projection-execution-";
+
+    /** Resource OID used for projections without a resource (should be rare). */
+    private static final String NO_RESOURCE = "";
+
+    @NotNull private final LensContext<O> context;
+    @NotNull private final Task task;
+    private final int threads;
+
+    @NotNull private final Lock sharedStateLock = new ReentrantLock();
+    @NotNull private final AtomicInteger threadCounter = new AtomicInteger();
+
+    public ParallelProjectionsExecution(@NotNull LensContext<O> context, @NotNull Task task, int threads) {
+        this.context = context;
+        this.task = task;
+        this.threads = threads;
+    }
+
+    public void execute(OperationResult result) throws ObjectNotFoundException, SchemaException, CommunicationException,
+            ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException {
+
+        Map<String, List<LensProjectionContext>> groups = groupByResource();
+        if (groups.size() <= 1) {
+            LOGGER.trace("Projections of wave {} are on {} resource(s), executing them sequentially",
+                    context.getExecutionWave(), groups.size());
+            for (LensProjectionContext projCtx : context.getProjectionContexts()) {
+                context.checkAbortRequested();
+                new ProjectionChangeExecution<O>(projCtx, task)
+                        .execute(result);
+            }
+            return;
+        }
+
+        int poolSize = Math.min(threads, groups.size());
+        LOGGER.trace("Executing projections of wave {} on {} resources using {} threads",
+                context.getExecutionWave(), groups.size(), poolSize);
+
+        CallerThreadState callerThreadState = CallerThreadState.capture(task);
+        CompiledTracingProfile tracingProfile = result.getTracingProfile();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, this::newThread);
+        ModelImplUtils.setRequestee(task, context);
+        try {
+            List<Future<GroupOutcome>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<LensProjectionContext>> group : groups.entrySet()) {
+                futures.add(executor.submit(
+                        () -> executeGroup(group.getKey(), group.getValue(), callerThreadState, tracingProfile)));
+            }
+            Throwable firstException = null;
+            for (Future<GroupOutcome> future : futures) {
+                GroupOutcome outcome;
+                try {
+                    outcome = future.get();
+                } catch (ExecutionException e) {
+                    // Should not occur, as executeGroup catches everything.
+                    if (firstException == null) {
+                        firstException = e.getCause();
+                    }
+                    continue;
+                }
+                result.addSubresult(outcome.result());
+                if (firstException == null) {
+                    firstException = outcome.exception();
+                }
+            }
+            if (firstException != null) {
+                rethrow(firstException);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for projections to be executed", e);
+        } finally {
+            executor.shutdownNow();
+            ModelImplUtils.clearRequestee(task);
+        }
+    }
+
+    /** Projections of the current wave, grouped by resource OID. The original order is kept. */
+    private Map<String, List<LensProjectionContext>> groupByResource() {
+        Map<String, List<LensProjectionContext>> groups = new LinkedHashMap<>();
+        for (LensProjectionContext projCtx : context.getProjectionContexts()) {
+            // Other projections would be skipped by ProjectionChangeExecution anyway.
+            if (projCtx.getWave() == context.getExecutionWave() && !projCtx.isCompleted()) {
+                String resourceOid = Objects.requireNonNullElse(projCtx.getResourceOid(), NO_RESOURCE);
+                groups.computeIfAbsent(resourceOid, k -> new ArrayList<>())
+                        .add(projCtx);
+            }
+        }
+        return groups;
+    }
+
+    /** Executed in the worker thread. Never throws an exception; it is returned along with the result instead. */
+    private @NotNull GroupOutcome executeGroup(
+            String resourceOid,
+            List<LensProjectionContext> projectionContexts,
+            CallerThreadState callerThreadState,
+            CompiledTracingProfile tracingProfile) {
+        OperationResult result = OperationResult.createFor(OPERATION_EXECUTE_PROJECTIONS_ON_RESOURCE)
+                .tracingProfile(tracingProfile)
+                .setMinor()
+                .addParam("resourceOid", resourceOid)
+                .build();
+        callerThreadState.setUp(result);
+        try {
+            for (LensProjectionContext projCtx : projectionContexts) {
+                context.checkAbortRequested();
+                new ProjectionChangeExecution<O>(projCtx, task, sharedStateLock)
+                        .execute(result);
+            }
+            return new GroupOutcome(result, null);
+        } catch (Throwable t) {
+            result.recordThrowableIfNeeded(t);
+            return new GroupOutcome(result, t);
+        } finally {
+            result.close();
+            callerThreadState.cleanUp();
+        }
+    }
+
+    private Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** Result of the execution of projections on a single resource; with the exception thrown, if any. */
+    private record GroupOutcome(@NotNull OperationResult result, @Nullable Throwable exception) {
+    }
+
+    private static void rethrow(Throwable t) throws ObjectNotFoundException, SchemaException, CommunicationException,
+            ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException {
+        if (t instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (t instanceof Error error) {
+            throw error;
+        } else if (t instanceof ObjectNotFoundException e) {
+            throw e;
+        } else if (t instanceof SchemaException e) {
+            throw e;
+        } else if (t instanceof CommunicationException e) {
+            throw e;
+        } else if (t instanceof ConfigurationException e) {
+            throw e;
+        } else if (t instanceof SecurityViolationException e) {
+            throw e;
+        } else if (t instanceof PolicyViolationException e) {
+            throw e;
+        } else if (t instanceof ExpressionEvaluationException e) {
+            throw e;
+        } else if (t instanceof ObjectAlreadyExistsException e) {
+            throw e;
+        } else {
+            throw new SystemException(t.getMessage(), t);
+        }
+    }
+}
@@ -13,10 +13,12 @@ import static com.evolveum.midpoint.model.impl.lens.ChangeExecutor.OPERATION_EXE
 import static com.evolveum.midpoint.prism.delta.ItemDeltaCollectionsUtil.findItemDeltasSubPath;
 
 import java.util.Collection;
+import java.util.concurrent.locks.Lock;
 
 import com.evolveum.midpoint.schema.util.ShadowUtil;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.model.api.ProgressInformation;
 import com.evolveum.midpoint.model.api.context.SynchronizationIntent;
@@ -64,9 +66,20 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
     /** What is the current state of the shadow. */
     private ShadowLivenessState shadowLivenessState;
 
+    /**
+     * Lock guarding the lens context and task state when projections are executed in parallel,
+     * see {@link ParallelProjectionsExecution}. Null for sequential execution.
+     */
+    @Nullable private final Lock sharedStateLock;
+
     public ProjectionChangeExecution(@NotNull LensProjectionContext projCtx, @NotNull Task task) {
+        this(projCtx, task, null);
+    }
+
+    ProjectionChangeExecution(@NotNull LensProjectionContext projCtx, @NotNull Task task, @Nullable Lock sharedStateLock) {
         super(projCtx, task);
         this.projCtx = projCtx;
+        this.sharedStateLock = sharedStateLock;
     }
 
     public void execute(OperationResult parentResult) throws SchemaException, ObjectNotFoundException, CommunicationException,
@@ -91,7 +104,7 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
         try {
             LOGGER.trace("Executing projection context {}", projCtx.toHumanReadableString());
 
-            context.reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION, projCtx.getKey(), ENTERING));
+            reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION, projCtx.getKey(), ENTERING));
 
             ScriptExecutor<O> scriptExecutor = new ScriptExecutor<>(context, projCtx, task, b);
             scriptExecutor.executeReconciliationScripts(BeforeAfterType.BEFORE, result);
@@ -130,7 +143,7 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
 
             if (!skipDeltaExecution) {
                 DeltaExecution<O, ShadowType> deltaExecution =
-                        new DeltaExecution<>(projCtx, projectionDelta, null, task, changeExecutionResult);
+                        new DeltaExecution<>(projCtx, projectionDelta, null, task, changeExecutionResult, sharedStateLock);
                 try {
                     deltaExecution.execute(result);
                 } catch (ConflictDetectedException e) {
@@ -205,8 +218,7 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
 
         } finally {
             result.computeStatusIfUnknown(); // just to be sure the result is closed
-            context.reportProgress(
-                    new ProgressInformation(RESOURCE_OBJECT_OPERATION, projCtx.getKey(), result));
+            reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION, projCtx.getKey(), result));
 
             LOGGER.trace("Setting completed flag for {} to {}", projCtx.toHumanReadableString(), completed);
             projCtx.setCompleted(completed);
@@ -339,8 +351,35 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
             return;
         }
 
-        //noinspection unchecked
-        new LinkUpdater<>(context, (LensFocusContext<? extends FocusType>) focusContext, projCtx, shadowLivenessState, task, b)
-                .updateLinks(result);
+        // The focus context is shared by all projections, so the links are updated one projection at a time.
+        lockSharedState();
+        try {
+            //noinspection unchecked
+            new LinkUpdater<>(context, (LensFocusContext<? extends FocusType>) focusContext, projCtx, shadowLivenessState, task, b)
+                    .updateLinks(result);
+        } finally {
+            unlockSharedState();
+        }
+    }
+
+    private void reportProgress(ProgressInformation progressInformation) {
+        lockSharedState();
+        try {
+            context.reportProgress(progressInformation);
+        } finally {
+            unlockSharedState();
+        }
+    }
+
+    private void lockSharedState() {
+        if (sharedStateLock != null) {
+            sharedStateLock.lock();
+        }
+    }
+
+    private void unlockSharedState() {
+        if (sharedStateLock != null) {
+            sharedStateLock.unlock();
+        }
     }
 }
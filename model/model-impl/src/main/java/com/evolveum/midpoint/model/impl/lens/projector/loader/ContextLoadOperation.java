@@ -11,6 +11,7 @@ import com.evolveum.midpoint.model.impl.ModelBeans;
 import com.evolveum.midpoint.model.impl.lens.*;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.SystemConfigurationTypeUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -20,13 +21,15 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Iterator;
+import java.util.Map;
 
 import static com.evolveum.midpoint.model.impl.lens.LensUtil.getExportType;
 
 /**
  * Represents the loading of the lens context: both focus and projections.
  *
- * Delegates much to {@link FocusLoadOperation}, {@link ProjectionsLoadOperation}, and {@link ProjectionUpdateOperation}.
+ * Delegates much to {@link FocusLoadOperation}, {@link ProjectionsLoadOperation}, {@link ProjectionsFetchOperation},
+ * and {@link ProjectionUpdateOperation}.
  *
  * Intentionally package-private.
  *
@@ -50,6 +53,9 @@ class ContextLoadOperation<F extends ObjectType> {
     /** Trace that is used during the context load operation (if any). */
     private ProjectorComponentTraceType trace;
 
+    /** Resource objects fetched in advance, see {@link ProjectionsFetchOperation}. */
+    @NotNull private Map<LensProjectionContext, ProjectionsFetchOperation.FetchedShadow> fetchedShadows = Map.of();
+
     ContextLoadOperation(@NotNull LensContext<F> context, @NotNull String activityDescription, @NotNull Task task) {
         this.context = context;
         this.activityDescription = activityDescription;
@@ -104,9 +110,10 @@ class ContextLoadOperation<F extends ObjectType> {
 
             context.checkConsistenceIfNeeded();
 
+            fetchedShadows = fetchProjectionsInAdvance();
             for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
                 context.checkAbortRequested();
-                updateProjection(projectionContext, result);
+                updateProjection(projectionContext, fetchedShadows.get(projectionContext), result);
             }
 
             context.checkConsistenceIfNeeded();
@@ -123,6 +130,10 @@ class ContextLoadOperation<F extends ObjectType> {
             result.computeStatusComposite();
 
         } catch (Throwable e) {
+            // Projections that were not updated; their fetch results would be lost otherwise.
+            for (ProjectionsFetchOperation.FetchedShadow fetchedShadow : fetchedShadows.values()) {
+                fetchedShadow.attachResultIfNotUsed(result);
+            }
             result.recordFatalError(e);
             throw e;
         } finally {
@@ -130,10 +141,24 @@ class ContextLoadOperation<F extends ObjectType> {
         }
     }
 
-    private void updateProjection(LensProjectionContext projectionContext, OperationResult result)
+    /** Fetches the resource objects concurrently, if configured so. See {@link ProjectionsFetchOperation}. */
+    private Map<LensProjectionContext, ProjectionsFetchOperation.FetchedShadow> fetchProjectionsInAdvance()
+            throws SchemaException, ConfigurationException {
+        int threads = SystemConfigurationTypeUtil.getProjectionLoadThreads(context.getSystemConfigurationBean());
+        if (threads <= 1) {
+            return Map.of();
+        }
+        return new ProjectionsFetchOperation<>(context, threads, task)
+                .fetch();
+    }
+
+    private void updateProjection(
+            LensProjectionContext projectionContext,
+            ProjectionsFetchOperation.FetchedShadow fetchedShadow,
+            OperationResult result)
             throws SchemaException, ExpressionEvaluationException, CommunicationException, SecurityViolationException,
             ConfigurationException, ObjectNotFoundException {
-        new ProjectionUpdateOperation<>(context, projectionContext, task)
+        new ProjectionUpdateOperation<>(context, projectionContext, fetchedShadow, task)
                 .update(result);
     }
 
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.projector.loader;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Threads used by {@link ProjectionsFetchOperation}, shared by all clockwork executions on this node,
+ * so that the threads are not created and destroyed for each of them.
+ *
+ * The number of threads is not limited here: each fetch operation submits at most `projectionLoadThreads` tasks,
+ * and waits for them. (A fixed-size pool could deadlock when a fetch leads to a nested clockwork execution,
+ * e.g. via discovery, that wants to fetch its own projections in advance.) Idle threads are stopped after a while.
+ */
+@Component
+public class ProjectionFetchExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "midpoint-projection-load-";
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    @NotNull private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @NotNull private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), this::newThread);
+
+    <T> @NotNull Future<T> submit(@NotNull Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /** Number of threads currently in the pool (busy or idle). */
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
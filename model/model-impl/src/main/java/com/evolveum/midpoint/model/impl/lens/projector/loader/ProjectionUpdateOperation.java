@@ -32,6 +32,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
 import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.List;
@@ -51,7 +52,8 @@ import static com.evolveum.midpoint.schema.GetOperationOptions.isNoFetch;
  *
  * See {@link #updateInternal(OperationResult)}.
  *
- * Note that full object can be loaded also in {@link ProjectionFullLoadOperation}.
+ * Note that full object can be loaded also in {@link ProjectionFullLoadOperation}. It can be also fetched in advance
+ * by {@link ProjectionsFetchOperation}.
  */
 class ProjectionUpdateOperation<F extends ObjectType> {
 
@@ -74,13 +76,25 @@ class ProjectionUpdateOperation<F extends ObjectType> {
      */
     private ShadowType projectionObject;
 
+    /** Resource object fetched in advance by {@link ProjectionsFetchOperation}, if any. */
+    @Nullable private final ProjectionsFetchOperation.FetchedShadow fetchedShadow;
+
+    ProjectionUpdateOperation(
+            @NotNull LensContext<F> context,
+            @NotNull LensProjectionContext projectionContext,
+            @NotNull Task task) {
+        this(context, projectionContext, null, task);
+    }
+
     ProjectionUpdateOperation(
             @NotNull LensContext<F> context,
             @NotNull LensProjectionContext projectionContext,
+            @Nullable ProjectionsFetchOperation.FetchedShadow fetchedShadow,
             @NotNull Task task) {
         this.context = context;
         this.projectionContext = projectionContext;
         this.projectionObjectOid = projectionContext.getOid();
+        this.fetchedShadow = fetchedShadow;
         this.task = task;
         this.beans = ModelBeans.get();
     }
@@ -101,6 +115,9 @@ class ProjectionUpdateOperation<F extends ObjectType> {
             result.recordFatalError(e);
             throw e;
         } finally {
+            if (fetchedShadow != null) {
+                fetchedShadow.attachResultIfNotUsed(result);
+            }
             result.close();
         }
     }
@@ -158,12 +175,19 @@ class ProjectionUpdateOperation<F extends ObjectType> {
     /**
      * Should the object be loaded or reloaded?
      *
-     * Coupled with {@link #createProjectionLoadingOptions()} regarding whether `noFetch` option should be used.
+     * Coupled with {@link #createProjectionLoadingOptions(LensContext, LensProjectionContext)} regarding whether
+     * `noFetch` option should be used.
      *
      * There is an interesting side effect of "no fetch" loading of already-loaded object: the "full shadow" flag is discarded
      * in such cases. This may ensure the consistency at the cost of resource object re-loading.
      */
     private boolean shouldLoadCurrentObject() throws SchemaException, ConfigurationException {
+        return shouldLoadCurrentObject(projectionContext);
+    }
+
+    /** See {@link #shouldLoadCurrentObject()}. */
+    private static boolean shouldLoadCurrentObject(@NotNull LensProjectionContext projectionContext)
+            throws SchemaException, ConfigurationException {
         if (projectionContext.getObjectCurrent() == null) {
             LOGGER.trace("Will load current object, as there is none loaded");
             return true;
@@ -291,15 +315,20 @@ class ProjectionUpdateOperation<F extends ObjectType> {
             return false;
         }
 
-        Collection<SelectorOptions<GetOperationOptions>> options = createProjectionLoadingOptions();
+        Collection<SelectorOptions<GetOperationOptions>> options = createProjectionLoadingOptions(context, projectionContext);
 
         try {
             LOGGER.trace("Loading shadow {} for projection {}, options={}",
                     projectionObjectOid, projectionContext.getHumanReadableName(), options);
 
-            PrismObject<ShadowType> object =
-                    beans.provisioningService.getObject(
-                            ShadowType.class, projectionObjectOid, options, task, result);
+            PrismObject<ShadowType> object;
+            if (fetchedShadow != null && !isNoFetch(options)) {
+                LOGGER.trace("Using the shadow fetched in advance");
+                object = fetchedShadow.get(result);
+            } else {
+                object = beans.provisioningService.getObject(
+                        ShadowType.class, projectionObjectOid, options, task, result);
+            }
 
             logLoadedShadow(object, options);
             checkLoadedShadowConsistency(object);
@@ -412,8 +441,26 @@ class ProjectionUpdateOperation<F extends ObjectType> {
         }
     }
 
-    private Collection<SelectorOptions<GetOperationOptions>> createProjectionLoadingOptions() {
-        GetOperationOptionsBuilder builder = beans.schemaService.getOperationOptionsBuilder()
+    /**
+     * Will the {@link #update(OperationResult)} fetch the resource object for given projection? Used to fetch
+     * the objects in advance, see {@link ProjectionsFetchOperation}. Uses the same conditions as {@link #updateInternal(
+     * OperationResult)}, {@link #shouldLoadCurrentObject()} and {@link #loadCurrentObject(OperationResult)}; except that
+     * the resource must be already known, and the volatility-induced reconciliation is not taken into account yet.
+     * Such projections are simply loaded in the usual way.
+     */
+    static boolean willFetchCurrentObject(@NotNull LensContext<?> context, @NotNull LensProjectionContext projectionContext)
+            throws SchemaException, ConfigurationException {
+        return projectionContext.getSynchronizationPolicyDecision() != SynchronizationPolicyDecision.BROKEN
+                && projectionContext.getResource() != null
+                && projectionContext.getOid() != null
+                && !(projectionContext.isAdd() && !projectionContext.isCompleted())
+                && shouldLoadCurrentObject(projectionContext)
+                && !isNoFetch(createProjectionLoadingOptions(context, projectionContext));
+    }
+
+    static Collection<SelectorOptions<GetOperationOptions>> createProjectionLoadingOptions(
+            @NotNull LensContext<?> context, @NotNull LensProjectionContext projectionContext) {
+        GetOperationOptionsBuilder builder = ModelBeans.get().schemaService.getOperationOptionsBuilder()
                 //.readOnly() [not yet]
                 .futurePointInTime()
                 .allowNotFound();
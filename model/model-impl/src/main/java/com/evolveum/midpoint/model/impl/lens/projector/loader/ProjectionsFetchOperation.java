@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.projector.loader;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.model.impl.ModelBeans;
+import com.evolveum.midpoint.model.impl.lens.LensContext;
+import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
+import com.evolveum.midpoint.model.impl.util.CallerThreadState;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Fetches resource objects for projections that will need them in {@link ProjectionUpdateOperation} (typically
+ * when reconciling), concurrently for all such projections. The projections are then updated one after another
+ * as usual, using the objects fetched here instead of fetching them from the resources one by one.
+ *
+ * Used when `internals/projectionLoadThreads` in the system configuration is greater than 1. At most that many
+ * threads of the shared {@link ProjectionFetchExecutor} are used for a single operation.
+ *
+ * Only the fetching itself is done in the worker threads; the lens context is not touched there. Each fetch has its own
+ * operation result, which is attached to the result of the respective projection update; also when the object is not used
+ * in the end. The thread-local state (including the expression environment) is propagated to the workers,
+ * see {@link CallerThreadState}.
+ */
+class ProjectionsFetchOperation<F extends ObjectType> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ProjectionsFetchOperation.class);
+
+    private static final String OP_FETCH = ProjectionsFetchOperation.class.getName() + "." + "fetch";
+
+    @NotNull private final LensContext<F> context;
+    @NotNull private final Task task;
+    private final int threads;
+    @NotNull private final ModelBeans beans = ModelBeans.get();
+
+    ProjectionsFetchOperation(@NotNull LensContext<F> context, int threads, @NotNull Task task) {
+        this.context = context;
+        this.threads = threads;
+        this.task = task;
+    }
+
+    /** Returns the objects fetched (or exceptions that occurred), indexed by projection context. */
+    @NotNull Map<LensProjectionContext, FetchedShadow> fetch() throws SchemaException, ConfigurationException {
+        List<FetchRequest> requests = new ArrayList<>();
+        for (LensProjectionContext projCtx : context.getProjectionContexts()) {
+            if (ProjectionUpdateOperation.willFetchCurrentObject(context, projCtx)) {
+                requests.add(new FetchRequest(
+                        projCtx, projCtx.getOid(), ProjectionUpdateOperation.createProjectionLoadingOptions(context, projCtx)));
+            }
+        }
+        if (requests.size() < 2) {
+            LOGGER.trace("{} projection(s) to be fetched, no need to fetch them in advance", requests.size());
+            return Map.of();
+        }
+
+        int workers = Math.min(threads, requests.size());
+        LOGGER.trace("Fetching {} projections in advance using {} threads", requests.size(), workers);
+
+        CallerThreadState callerThreadState = CallerThreadState.capture(task);
+        Queue<FetchRequest> queue = new ConcurrentLinkedQueue<>(requests);
+        Map<LensProjectionContext, FetchedShadow> fetched = Collections.synchronizedMap(new IdentityHashMap<>());
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                futures.add(beans.projectionFetchExecutor.submit(() -> {
+                    FetchRequest request;
+                    while ((request = queue.poll()) != null) {
+                        fetched.put(request.projectionContext(), fetchShadow(request, callerThreadState));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Should not occur, as all the exceptions are caught; the projections will be loaded in the usual way.
+                    LOGGER.warn("Couldn't fetch projections in advance: {}", e.getMessage(), e);
+                }
+            }
+            return fetched;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new SystemException("Interrupted while fetching projections", e);
+        }
+    }
+
+    /** Executed in the worker thread. */
+    private @NotNull FetchedShadow fetchShadow(@NotNull FetchRequest request, @NotNull CallerThreadState callerThreadState) {
+        OperationResult result = new OperationResult(OP_FETCH);
+        callerThreadState.setUp(result);
+        try {
+            PrismObject<ShadowType> object =
+                    beans.provisioningService.getObject(ShadowType.class, request.oid(), request.options(), task, result);
+            return new FetchedShadow(object, null, result);
+        } catch (Throwable t) {
+            // Recorded in the provisioning subresult; treated when the projection is updated.
+            return new FetchedShadow(null, t, result);
+        } finally {
+            result.computeStatusIfUnknown();
+            callerThreadState.cleanUp();
+        }
+    }
+
+    private record FetchRequest(
+            @NotNull LensProjectionContext projectionContext,
+            @NotNull String oid,
+            Collection<SelectorOptions<GetOperationOptions>> options) {
+    }
+
+    /**
+     * Outcome of the fetching of a single projection: either the object or an exception; with the operation result.
+     * The result is attached to the parent result when the object is used, or when it's clear it won't be used.
+     */
+    static class FetchedShadow {
+
+        @Nullable private final PrismObject<ShadowType> object;
+        @Nullable private final Throwable exception;
+        @NotNull private final OperationResult result;
+
+        /** Was the result attached to a parent result? Accessed only by the thread that runs the clockwork. */
+        private boolean attached;
+
+        FetchedShadow(@Nullable PrismObject<ShadowType> object, @Nullable Throwable exception, @NotNull OperationResult result) {
+            this.object = object;
+            this.exception = exception;
+            this.result = result;
+        }
+
+        /**
+         * Returns the object (or throws the exception), just as `getObject` would do.
+         * The result of the fetching becomes the last subresult of the parent result.
+         */
+        @NotNull PrismObject<ShadowType> get(@NotNull OperationResult parentResult)
+                throws ObjectNotFoundException, CommunicationException, SchemaException, ConfigurationException,
+                SecurityViolationException, ExpressionEvaluationException {
+            attachResult(parentResult);
+            if (exception == null) {
+                assert object != null;
+                return object;
+            } else if (exception instanceof ObjectNotFoundException e) {
+                throw e;
+            } else if (exception instanceof CommunicationException e) {
+                throw e;
+            } else if (exception instanceof SchemaException e) {
+                throw e;
+            } else if (exception instanceof ConfigurationException e) {
+                throw e;
+            } else if (exception instanceof SecurityViolationException e) {
+                throw e;
+            } else if (exception instanceof ExpressionEvaluationException e) {
+                throw e;
+            } else if (exception instanceof RuntimeException e) {
+                throw e;
+            } else if (exception instanceof Error e) {
+                throw e;
+            } else {
+                throw new SystemException(exception.getMessage(), exception);
+            }
+        }
+
+        /**
+         * Attaches the result of the fetching to the parent result, if it was not used. So the resource operation
+         * (with its errors, if any) is still visible in the result tree, even if the object was eventually loaded
+         * in the usual way - or not needed at all.
+         */
+        void attachResultIfNotUsed(@NotNull OperationResult parentResult) {
+            if (!attached) {
+                LOGGER.trace("Shadow fetched in advance was not used: {}", object);
+                attachResult(parentResult);
+            }
+        }
+
+        private void attachResult(@NotNull OperationResult parentResult) {
+            if (!attached) {
+                parentResult.addSubresult(result);
+                attached = true;
+            }
+        }
+    }
+}
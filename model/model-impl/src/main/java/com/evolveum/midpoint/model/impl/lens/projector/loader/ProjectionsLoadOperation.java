@@ -14,7 +14,9 @@ import static com.evolveum.midpoint.util.MiscUtil.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.evolveum.midpoint.model.api.context.ProjectionContextFilter;
 import com.evolveum.midpoint.model.api.context.ProjectionContextKey;
@@ -23,6 +25,8 @@ import com.evolveum.midpoint.model.impl.lens.*;
 import com.evolveum.midpoint.model.impl.lens.LensContext.GetOrCreateProjectionContextResult;
 import com.evolveum.midpoint.prism.*;
 
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.provisioning.api.ProvisioningOperationContext;
 import com.evolveum.midpoint.provisioning.api.ProvisioningService;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
@@ -76,6 +80,12 @@ public class ProjectionsLoadOperation<F extends FocusType> {
     @NotNull private final ModelBeans beans;
     @NotNull private final ProvisioningService provisioningService;
 
+    /**
+     * Repository shadows for linkRefs, read by a single query. They are taken out (one by one) when the respective
+     * linkRef is processed. See {@link #prefetchLinkedShadows(List, OperationResult)}.
+     */
+    @NotNull private final Map<String, ShadowType> prefetchedShadows = new HashMap<>();
+
     ProjectionsLoadOperation(@NotNull LensContext<F> context, @NotNull Task task) {
         this.context = context;
         this.focusContext = context.getFocusContext();
@@ -124,6 +134,8 @@ public class ProjectionsLoadOperation<F extends FocusType> {
         PrismObject<F> focus = focusContext.getObjectCurrent();
         List<ObjectReferenceType> linkRefs = focus != null ? focus.asObjectable().getLinkRef() : List.of();
 
+        prefetchLinkedShadows(linkRefs, result);
+
         for (ObjectReferenceType linkRef : linkRefs) {
             new LinkLevelLoadOperation(linkRef)
                     .getOrCreateFromExistingValue(result);
@@ -134,6 +146,33 @@ public class ProjectionsLoadOperation<F extends FocusType> {
         LOGGER.trace("Loading projection contexts from focus linkRefs done ({} linkRefs considered)", linkRefs.size());
     }
 
+    /**
+     * Reads the repository shadows for active linkRefs that will be loaded (i.e. no context and no embedded shadow)
+     * using a single repository query, instead of one query per shadow. The shadows are then passed to the provisioning
+     * in {@link LinkLevelLoadOperation#getShadow(OperationResult)}. Shadows that are not found are not prefetched;
+     * they are treated when loaded individually.
+     */
+    private void prefetchLinkedShadows(List<ObjectReferenceType> linkRefs, OperationResult result) throws SchemaException {
+        String[] oids = linkRefs.stream()
+                .filter(linkRef -> !isInactive(linkRef)
+                        && StringUtils.isNotBlank(linkRef.getOid())
+                        && linkRef.asReferenceValue().getObject() == null
+                        && context.findProjectionContextByOid(linkRef.getOid()) == null)
+                .map(ObjectReferenceType::getOid)
+                .distinct()
+                .toArray(String[]::new);
+        if (oids.length < 2) {
+            return; // Nothing to be gained.
+        }
+        ObjectQuery query = beans.prismContext.queryFor(ShadowType.class)
+                .id(oids)
+                .build();
+        for (PrismObject<ShadowType> shadow : beans.cacheRepositoryService.searchObjects(ShadowType.class, query, null, result)) {
+            prefetchedShadows.put(shadow.getOid(), shadow.asObjectable());
+        }
+        LOGGER.trace("Prefetched {} of {} linked shadows", prefetchedShadows.size(), oids.length);
+    }
+
     private void getOrCreateProjectionContextsFromFocusPrimaryDelta(OperationResult result) throws SchemaException,
             ObjectNotFoundException, CommunicationException, ConfigurationException,
             SecurityViolationException, PolicyViolationException, ExpressionEvaluationException {
@@ -488,8 +527,13 @@ public class ProjectionsLoadOperation<F extends FocusType> {
                     //.readOnly() [not yet]
                     .build();
             LOGGER.trace("Loading shadow {} from linkRef, options={}", oid, options);
+            ProvisioningOperationContext provisioningContext = new ProvisioningOperationContext();
+            ShadowType prefetchedShadow = prefetchedShadows.remove(oid);
+            if (prefetchedShadow != null) {
+                provisioningContext.repositoryShadows(Map.of(oid, prefetchedShadow));
+            }
             try {
-                return provisioningService.getObject(ShadowType.class, oid, options, task, result);
+                return provisioningService.getObject(ShadowType.class, oid, options, provisioningContext, task, result);
             } catch (ObjectNotFoundException e) {
                 getOrCreateEmptyGoneProjectionContext(oid);
                 result.getLastSubresult()
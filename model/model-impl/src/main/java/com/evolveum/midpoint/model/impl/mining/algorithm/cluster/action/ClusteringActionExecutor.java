@@ -39,7 +39,7 @@ public class ClusteringActionExecutor extends BaseAction {
     private Clusterable clusterable;
 
     private final RoleAnalysisProgressIncrement handler = new RoleAnalysisProgressIncrement("Density Clustering",
-            7, this::incrementProgress);
+            8, this::incrementProgress);
 
     public ClusteringActionExecutor(@NotNull AbstractActivityRun<?, ?, ?> activityRun) {
         super(activityRun);
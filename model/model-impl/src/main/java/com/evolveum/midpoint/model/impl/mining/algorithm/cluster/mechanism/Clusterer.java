@@ -18,6 +18,10 @@ public abstract class Clusterer<T extends Clusterable> {
 
     public abstract List<? extends Cluster<T>> cluster(Collection<T> var1, RoleAnalysisProgressIncrement handler);
 
+    protected DistanceMeasure getMeasure() {
+        return measure;
+    }
+
     protected double distance(Clusterable p1, Clusterable p2) {
         return this.measure.compute(p1.getPoint(), p2.getPoint());
     }
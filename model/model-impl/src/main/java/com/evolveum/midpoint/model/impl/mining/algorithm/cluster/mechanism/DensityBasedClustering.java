@@ -1,6 +1,8 @@
 package com.evolveum.midpoint.model.impl.mining.algorithm.cluster.mechanism;
 
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 import com.evolveum.midpoint.common.mining.objects.handler.RoleAnalysisProgressIncrement;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -17,6 +19,12 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
 
     private static final Trace LOGGER = TraceManager.getTrace(DensityBasedClustering.class);
 
+    /**
+     * Maximum number of points whose neighbors are searched for (in parallel) ahead of their use.
+     * This bounds the memory needed for the neighbor lists, see {@link NeighborSearch}.
+     */
+    private static final int NEIGHBOR_SEARCH_BATCH_SIZE = 1000;
+
     /**
      * Constructs a DensityBasedClustering instance with the specified parameters.
      *
@@ -48,93 +56,160 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
     /**
      * Performs density-based clustering on the provided collection of data points.
      *
+     * Neighbors of a point are searched for when they are needed (at most once per point), see {@link NeighborSearch}.
+     *
      * @param points   The collection of data points to cluster.
      * @param handler  The progress increment handler for tracking the execution progress.
      * @return A list of clusters containing the clustered data points.
      */
     public List<Cluster<T>> cluster(Collection<T> points, RoleAnalysisProgressIncrement handler) {
+        List<T> pointList = new ArrayList<>(points);
         List<Cluster<T>> clusters = new ArrayList<>();
-        Map<Clusterable, PointStatus> visited = new HashMap<>();
 
         handler.setActive(true);
+        NeighborSearch neighborSearch = new NeighborSearch(pointList);
+
+        PointStatus[] visited = new PointStatus[pointList.size()];
+
         handler.enterNewStep("Clustering");
-        handler.setOperationCountToProcess(points.size());
-        for (T point : points) {
+        handler.setOperationCountToProcess(pointList.size());
+        for (int i = 0; i < pointList.size(); i++) {
             handler.iterateActualStatus();
 
-            if (visited.get(point) == null) {
-                List<T> neighbors = this.getNeighbors(point, points);
-                int neighborsSize = getNeightborsSize(neighbors);
+            if (visited[i] == null) {
+                T point = pointList.get(i);
+                int[] neighbors = neighborSearch.getNeighbors(i, IntStream.range(i, pointList.size()), visited);
+                int neighborsSize = getNeighborsSize(pointList, neighbors);
 
                 if (neighborsSize >= this.minPts || (point.getMembersCount() >= this.minPts && point.getPoint().size() >= minPropertiesOverlap)) {
                     Cluster<T> cluster = new Cluster<>();
-                    clusters.add(this.expandCluster(cluster, point, neighbors, points, visited));
+                    clusters.add(this.expandCluster(cluster, i, neighbors, pointList, neighborSearch, visited));
                 } else {
-                    visited.put(point, PointStatus.NOISE);
+                    visited[i] = PointStatus.NOISE;
                 }
             }
         }
+        LOGGER.debug("Clustered {} points (indexed neighbor search: {})", pointList.size(), neighborSearch.indexed);
 
         return clusters;
     }
 
-    private Cluster<T> expandCluster(Cluster<T> cluster, T point, List<T> neighbors, Collection<T> points,
-            Map<Clusterable, PointStatus> visited) {
-        cluster.addPoint(point);
-        visited.put(point, PointStatus.PART_OF_CLUSTER);
-        List<T> seeds = new ArrayList<>(neighbors);
+    private Cluster<T> expandCluster(Cluster<T> cluster, int pointIndex, int[] pointNeighbors, List<T> points,
+            NeighborSearch neighborSearch, PointStatus[] visited) {
+        cluster.addPoint(points.get(pointIndex));
+        visited[pointIndex] = PointStatus.PART_OF_CLUSTER;
 
-        for (int index = 0; index < seeds.size(); ++index) {
-            T current = (T) ((List) seeds).get(index);
-            PointStatus pStatus = visited.get(current);
+        int[] seeds = Arrays.copyOf(pointNeighbors, Math.max(16, pointNeighbors.length));
+        int seedsCount = pointNeighbors.length;
+        boolean[] inSeeds = new boolean[points.size()];
+        for (int i = 0; i < seedsCount; i++) {
+            inSeeds[seeds[i]] = true;
+        }
+
+        for (int index = 0; index < seedsCount; ++index) {
+            int current = seeds[index];
+            PointStatus pStatus = visited[current];
             if (pStatus == null) {
-                List<T> currentNeighbors = this.getNeighbors(current, points);
-                int currentNeighborsCount = getNeightborsSize(currentNeighbors);
+                int[] currentSeeds = seeds;
+                int[] currentNeighbors = neighborSearch.getNeighbors(
+                        current, IntStream.range(index, seedsCount).map(k -> currentSeeds[k]), visited);
+                int currentNeighborsCount = getNeighborsSize(points, currentNeighbors);
                 if (currentNeighborsCount >= this.minPts) {
-                    this.merge(seeds, currentNeighbors);
+                    // merge, keeping the order of the seeds
+                    for (int neighbor : currentNeighbors) {
+                        if (!inSeeds[neighbor]) {
+                            inSeeds[neighbor] = true;
+                            if (seedsCount == seeds.length) {
+                                seeds = Arrays.copyOf(seeds, seeds.length * 2);
+                            }
+                            seeds[seedsCount++] = neighbor;
+                        }
+                    }
                 }
             }
 
             if (pStatus != PointStatus.PART_OF_CLUSTER) {
-                visited.put(current, PointStatus.PART_OF_CLUSTER);
-                cluster.addPoint(current);
+                visited[current] = PointStatus.PART_OF_CLUSTER;
+                cluster.addPoint(points.get(current));
             }
         }
 
         return cluster;
     }
 
-    private List<T> getNeighbors(T point, Collection<T> points) {
-        List<T> neighbors = new ArrayList<>();
+    /**
+     * Searches for neighbors (as indices to the list of points, ascending) of points when they are needed.
+     *
+     * For Jaccard distance the {@link JaccardNeighborIndex} is used, so only the points sharing some properties
+     * are compared; otherwise all pairs are compared using the distance measure.
+     *
+     * Neighbors of each point are needed at most once: the point is marked as visited right after that.
+     * To use more CPUs, when neighbors of a point are needed, they are searched for in parallel also for the points
+     * that are going to be needed next (unvisited points following in the outer loop or in the seeds of a cluster).
+     * These are kept only until used and there are at most {@link #NEIGHBOR_SEARCH_BATCH_SIZE} of them,
+     * so the memory is not quadratic even for dense data.
+     */
+    private class NeighborSearch {
+
+        private final IntFunction<int[]> search;
+        private final boolean indexed;
+
+        /** Neighbors searched for ahead of their use, removed when used. */
+        private final Map<Integer, int[]> prefetched = new HashMap<>();
+
+        private NeighborSearch(List<T> points) {
+            indexed = JaccardNeighborIndex.isApplicable(getMeasure(), eps);
+            if (indexed) {
+                JaccardNeighborIndex index = new JaccardNeighborIndex(
+                        points, ((JaccardDistancesMeasure) getMeasure()).getMinIntersection(), eps);
+                search = index::findNeighbors;
+            } else {
+                search = pointIndex -> DensityBasedClustering.this.getNeighbors(pointIndex, points);
+            }
+        }
 
-        for (T neighbor : points) {
-            if (point != neighbor && this.distance(neighbor, point) <= this.eps) {
-                neighbors.add(neighbor);
+        /**
+         * Returns neighbors of the point. If they were not searched for yet, they are searched for together
+         * with the neighbors of unvisited points from `upcoming` (starting with the point itself).
+         */
+        private int[] getNeighbors(int pointIndex, IntStream upcoming, PointStatus[] visited) {
+            int[] neighbors = prefetched.remove(pointIndex);
+            if (neighbors != null) {
+                return neighbors;
+            }
+            int[] batch = upcoming
+                    .filter(i -> visited[i] == null && !prefetched.containsKey(i))
+                    .limit(Math.max(1, NEIGHBOR_SEARCH_BATCH_SIZE - prefetched.size()))
+                    .toArray();
+            if (batch.length <= 1) {
+                return search.apply(pointIndex);
             }
+            int[][] results = new int[batch.length][];
+            IntStream.range(0, batch.length)
+                    .parallel()
+                    .forEach(k -> results[k] = search.apply(batch[k]));
+            for (int k = 0; k < batch.length; k++) {
+                prefetched.put(batch[k], results[k]);
+            }
+            return prefetched.remove(pointIndex);
         }
+    }
 
-        return neighbors;
+    private int[] getNeighbors(int pointIndex, List<T> points) {
+        T point = points.get(pointIndex);
+        return IntStream.range(0, points.size())
+                .filter(i -> i != pointIndex && this.distance(points.get(i), point) <= this.eps)
+                .toArray();
     }
 
-    private int getNeightborsSize(List<T> neighbors) {
+    private int getNeighborsSize(List<T> points, int[] neighbors) {
         int count = 0;
-        for (T neighbor : neighbors) {
-            count += neighbor.getMembersCount();
+        for (int neighbor : neighbors) {
+            count += points.get(neighbor).getMembersCount();
         }
         return count;
     }
 
-    private void merge(List<T> one, List<T> two) {
-        Set<T> oneSet = new HashSet<>(one);
-
-        for (T item : two) {
-            if (!oneSet.contains(item)) {
-                one.add(item);
-            }
-        }
-
-    }
-
     private enum PointStatus {
         NOISE,
         PART_OF_CLUSTER;
@@ -26,6 +26,10 @@ public class JaccardDistancesMeasure implements DistanceMeasure {
         this.minIntersection = minIntersection;
     }
 
+    public int getMinIntersection() {
+        return minIntersection;
+    }
+
     /**
      * Computes the Jaccard distance between two sets of values.
      *
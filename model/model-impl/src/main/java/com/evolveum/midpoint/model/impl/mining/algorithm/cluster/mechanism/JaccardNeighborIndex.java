@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.mining.algorithm.cluster.mechanism;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Inverted index for the neighbor search based on {@link JaccardDistancesMeasure}.
+ *
+ * Properties (role or user OIDs) are dictionary-encoded to ints, each point is represented by its property IDs
+ * and each property ID points to the (ascending) indices of the points having it. Neighbor candidates of a point
+ * are only the points sharing at least one property with it; the intersection size is counted while scanning
+ * the posting lists, so no set operations on strings are needed.
+ *
+ * This is exact only if the points without common properties can't be neighbors, i.e. for `eps < 1`
+ * (see {@link #isApplicable(DistanceMeasure, double)}). The computed distance is the same as the one
+ * computed by {@link JaccardDistancesMeasure#compute(Set, Set)}.
+ *
+ * The {@link #findNeighbors(int)} method is thread-safe, each thread uses its own counters.
+ */
+class JaccardNeighborIndex {
+
+    /** Property IDs of each point. */
+    private final int[][] pointProperties;
+
+    /** Property ID -> indices of points having the property (ascending). */
+    private final int[][] postings;
+
+    private final int minIntersection;
+    private final double eps;
+
+    /** Intersection counters (indexed by point) and the list of points touched during the scan. */
+    private final ThreadLocal<Scratch> scratch;
+
+    JaccardNeighborIndex(@NotNull List<? extends Clusterable> points, int minIntersection, double eps) {
+        this.minIntersection = minIntersection;
+        this.eps = eps;
+
+        int pointsCount = points.size();
+        Map<String, Integer> dictionary = new HashMap<>();
+        int[] frequencies = new int[16];
+        pointProperties = new int[pointsCount][];
+        for (int i = 0; i < pointsCount; i++) {
+            Set<String> properties = points.get(i).getPoint();
+            int[] ids = new int[properties.size()];
+            int j = 0;
+            for (String property : properties) {
+                int id = dictionary.computeIfAbsent(property, k -> dictionary.size());
+                if (id >= frequencies.length) {
+                    frequencies = Arrays.copyOf(frequencies, frequencies.length * 2);
+                }
+                frequencies[id]++;
+                ids[j++] = id;
+            }
+            pointProperties[i] = ids;
+        }
+
+        postings = new int[dictionary.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = new int[frequencies[id]];
+        }
+        int[] filled = new int[postings.length];
+        for (int i = 0; i < pointsCount; i++) {
+            for (int id : pointProperties[i]) {
+                postings[id][filled[id]++] = i;
+            }
+        }
+
+        scratch = ThreadLocal.withInitial(() -> new Scratch(pointsCount));
+    }
+
+    /** Can the index be used for given measure and eps, yielding the same results as the full scan? */
+    static boolean isApplicable(DistanceMeasure measure, double eps) {
+        return measure != null && measure.getClass() == JaccardDistancesMeasure.class && eps < 1.0;
+    }
+
+    /** Returns indices (ascending) of the points whose distance to the given point is at most `eps`. */
+    int[] findNeighbors(int pointIndex) {
+        Scratch s = scratch.get();
+        int[] counts = s.counts;
+        int[] touched = s.touched;
+
+        int touchedCount = 0;
+        for (int id : pointProperties[pointIndex]) {
+            for (int other : postings[id]) {
+                if (other != pointIndex && counts[other]++ == 0) {
+                    touched[touchedCount++] = other;
+                }
+            }
+        }
+
+        int size = pointProperties[pointIndex].length;
+        int[] neighbors = new int[touchedCount];
+        int neighborsCount = 0;
+        for (int k = 0; k < touchedCount; k++) {
+            int other = touched[k];
+            int intersection = counts[other];
+            counts[other] = 0;
+            if (distance(size, pointProperties[other].length, intersection) <= eps) {
+                neighbors[neighborsCount++] = other;
+            }
+        }
+        Arrays.sort(neighbors, 0, neighborsCount);
+        return Arrays.copyOf(neighbors, neighborsCount);
+    }
+
+    /** The same arithmetic as in {@link JaccardDistancesMeasure#compute(Set, Set)}. */
+    private double distance(int sizeA, int sizeB, int intersection) {
+        if (intersection < minIntersection) {
+            return 1;
+        }
+        return 1 - (double) intersection / (sizeA + sizeB - intersection);
+    }
+
+    private static class Scratch {
+        private final int[] counts;
+        private final int[] touched;
+
+        private Scratch(int pointsCount) {
+            counts = new int[pointsCount];
+            touched = new int[pointsCount];
+        }
+    }
+}
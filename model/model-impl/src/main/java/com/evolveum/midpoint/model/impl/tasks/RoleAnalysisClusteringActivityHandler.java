@@ -87,9 +87,9 @@ public class RoleAnalysisClusteringActivityHandler
             RunningTask runningTask = getRunningTask();
             runningTask.setExecutionSupport(this);
 
-            // There are 7 steps; currently, we simply increase the progress value by 1 on each step.
+            // There are 8 steps; currently, we simply increase the progress value by 1 on each step.
             // Later, we will provide more elaborate progress reporting.
-            activityState.getLiveProgress().setExpectedTotal(7);
+            activityState.getLiveProgress().setExpectedTotal(8);
             activityState.updateProgressNoCommit();
             activityState.flushPendingTaskModifications(parentResult);
 
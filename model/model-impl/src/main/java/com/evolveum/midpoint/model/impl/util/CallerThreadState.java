@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.util;
+
+import java.util.Collection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.security.core.Authentication;
+
+import com.evolveum.midpoint.model.common.expression.ModelExpressionEnvironment;
+import com.evolveum.midpoint.model.impl.ModelBeans;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.repo.common.expression.ExpressionEnvironmentThreadLocalHolder;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.ExpressionEnvironment;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Thread-local state of a thread that hands over parts of its work to worker threads (e.g. when executing or loading
+ * projections in parallel): the security context, caching profiles, operation result handling strategy,
+ * and the expression environment.
+ *
+ * It is captured in the calling thread, set up in the worker thread before the work starts, and cleaned up after
+ * the work is done. Thread-local repository caches are not propagated; the workers go to the repository directly.
+ *
+ * The expression environment is propagated with the operation result of the worker, as the result of the caller
+ * must not be touched by other threads.
+ */
+public class CallerThreadState {
+
+    @Nullable private final Authentication authentication;
+    @NotNull private final Collection<String> cachingProfiles;
+    @Nullable private final String handlingStrategy;
+    @Nullable private final ExpressionEnvironment expressionEnvironment;
+
+    private CallerThreadState(
+            @Nullable Authentication authentication,
+            @NotNull Collection<String> cachingProfiles,
+            @Nullable String handlingStrategy,
+            @Nullable ExpressionEnvironment expressionEnvironment) {
+        this.authentication = authentication;
+        this.cachingProfiles = cachingProfiles;
+        this.handlingStrategy = handlingStrategy;
+        this.expressionEnvironment = expressionEnvironment;
+    }
+
+    /** To be called in the calling thread. */
+    public static @NotNull CallerThreadState capture(@NotNull Task task) {
+        return new CallerThreadState(
+                ModelBeans.get().securityContextManager.getAuthentication(),
+                task.getCachingProfiles(),
+                OperationResult.getThreadLocalHandlingStrategyName(),
+                ExpressionEnvironmentThreadLocalHolder.getExpressionEnvironment());
+    }
+
+    /** To be called in the worker thread before the work starts. The result is the one the worker uses. */
+    public void setUp(@NotNull OperationResult workerResult) {
+        ModelBeans b = ModelBeans.get();
+        b.securityContextManager.setupPreAuthenticatedSecurityContext(authentication);
+        b.cacheConfigurationManager.setThreadLocalProfiles(cachingProfiles);
+        OperationResult.setThreadLocalHandlingStrategy(handlingStrategy);
+        if (expressionEnvironment != null) {
+            ExpressionEnvironmentThreadLocalHolder.pushExpressionEnvironment(
+                    createWorkerExpressionEnvironment(workerResult));
+        }
+    }
+
+    private @NotNull ExpressionEnvironment createWorkerExpressionEnvironment(@NotNull OperationResult workerResult) {
+        assert expressionEnvironment != null;
+        if (expressionEnvironment instanceof ModelExpressionEnvironment<?, ?, ?> modelEnvironment) {
+            return copyWithResult(modelEnvironment, workerResult);
+        } else {
+            return new ExpressionEnvironment(expressionEnvironment.getCurrentTask(), workerResult);
+        }
+    }
+
+    private static <F extends ObjectType, V extends PrismValue, D extends ItemDefinition<?>>
+    @NotNull ModelExpressionEnvironment<F, V, D> copyWithResult(
+            @NotNull ModelExpressionEnvironment<F, V, D> environment, @NotNull OperationResult result) {
+        return new ModelExpressionEnvironment.ExpressionEnvironmentBuilder<F, V, D>()
+                .lensContext(environment.getLensContext())
+                .projectionContext(environment.getProjectionContext())
+                .mapping(environment.getMapping())
+                .currentTask(environment.getCurrentTask())
+                .currentResult(result)
+                .build();
+    }
+
+    /** To be called in the worker thread after the work is done, as the threads may be reused. */
+    public void cleanUp() {
+        ModelBeans b = ModelBeans.get();
+        if (expressionEnvironment != null) {
+            ExpressionEnvironmentThreadLocalHolder.popExpressionEnvironment();
+        }
+        OperationResult.unsetThreadLocalHandlingStrategy();
+        b.cacheConfigurationManager.unsetThreadLocalProfiles();
+        b.securityContextManager.setupPreAuthenticatedSecurityContext((Authentication) null);
+    }
+}
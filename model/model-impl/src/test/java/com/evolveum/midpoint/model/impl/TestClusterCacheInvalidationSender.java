@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ComponentSizeInformationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests coalescing of the cache invalidation events in {@link ClusterCacheInvalidationSender},
+ * its state information, and forgetting the nodes without batch support.
+ * The sending itself is not tested here, as it requires a cluster.
+ */
+public class TestClusterCacheInvalidationSender extends AbstractUnitTest {
+
+    @Test
+    public void test100DuplicateObjectsAreSentOnce() {
+        given("sender without a running thread");
+        ClusterCacheInvalidationSender sender = new ClusterCacheInvalidationSender();
+
+        when("the same objects are invalidated repeatedly");
+        sender.enqueue(UserType.class, "oid1");
+        sender.enqueue(UserType.class, "oid2");
+        sender.enqueue(UserType.class, "oid1");
+        sender.enqueue(RoleType.class, "oid3");
+
+        then("each object is sent once");
+        assertThat(sender.getQueueDepth()).isEqualTo(3);
+        List<CacheInvalidationEventType> events = sender.drainPending().getEvent();
+        assertThat(events)
+                .extracting(CacheInvalidationEventType::getOid)
+                .containsExactly("oid1", "oid2", "oid3");
+        assertThat(events.get(0).getType()).isEqualTo(UserType.COMPLEX_TYPE);
+        assertThat(events.get(2).getType()).isEqualTo(RoleType.COMPLEX_TYPE);
+        assertThat(sender.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void test110TypeInvalidationSubsumesObjects() {
+        given("sender without a running thread");
+        ClusterCacheInvalidationSender sender = new ClusterCacheInvalidationSender();
+
+        when("objects and their whole type are invalidated");
+        sender.enqueue(UserType.class, "oid1");
+        sender.enqueue(UserType.class, null);
+        sender.enqueue(UserType.class, "oid2");
+        sender.enqueue(RoleType.class, "oid3");
+
+        then("a single type-wide event is sent for the type");
+        List<CacheInvalidationEventType> events = sender.drainPending().getEvent();
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getType()).isEqualTo(UserType.COMPLEX_TYPE);
+        assertThat(events.get(0).getOid()).isNull();
+        assertThat(events.get(1).getOid()).isEqualTo("oid3");
+    }
+
+    @Test
+    public void test120GlobalInvalidationSubsumesEverything() {
+        given("sender without a running thread");
+        ClusterCacheInvalidationSender sender = new ClusterCacheInvalidationSender();
+
+        when("some objects are invalidated, and then everything");
+        sender.enqueue(UserType.class, "oid1");
+        sender.enqueue(null, null);
+        sender.enqueue(RoleType.class, "oid3");
+
+        then("a single global event is sent");
+        List<CacheInvalidationEventType> events = sender.drainPending().getEvent();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isNull();
+        assertThat(events.get(0).getOid()).isNull();
+    }
+
+    @Test
+    public void test200StateInformationShowsQueueDepth() {
+        given("sender with some pending events");
+        ClusterCacheInvalidationSender sender = new ClusterCacheInvalidationSender();
+        sender.enqueue(UserType.class, "oid1");
+        sender.enqueue(UserType.class, "oid1");
+        sender.enqueue(RoleType.class, "oid3");
+
+        when("state information is obtained");
+        List<SingleCacheStateInformationType> information = List.copyOf(sender.getStateInformation());
+
+        then("queue depth is the size, and the counters are among the components");
+        assertThat(information).hasSize(1);
+        SingleCacheStateInformationType info = information.get(0);
+        assertThat(info.getName()).isEqualTo(ClusterCacheInvalidationSender.class.getName());
+        assertThat(info.getSize()).isEqualTo(2);
+        assertThat(info.getComponent())
+                .extracting(ComponentSizeInformationType::getName, ComponentSizeInformationType::getSize)
+                .contains(
+                        tuple("eventsReceived", 3),
+                        tuple("eventsCoalesced", 1),
+                        tuple("eventsSent", 0),
+                        tuple("lastLagMs", 0),
+                        tuple("maxLagMs", 0),
+                        tuple("nodesWithoutBatchSupport", 0));
+    }
+
+    @Test
+    public void test210NodeWithoutBatchSupportIsAskedAgainLater() {
+        given("sender that found a node without batch support");
+        ClusterCacheInvalidationSender sender = new ClusterCacheInvalidationSender();
+        long now = 1_000_000L;
+        sender.markWithoutBatchSupport("node1", now);
+
+        expect("the batch call is not used for that node for a while");
+        assertThat(sender.isBatchSupportExpected("node1", now + 1000)).isFalse();
+        assertThat(sender.isBatchSupportExpected("node2", now + 1000)).isTrue();
+
+        and("it is used again after the recheck interval");
+        long later = now + ClusterCacheInvalidationSender.BATCH_SUPPORT_RECHECK_INTERVAL_MS;
+        assertThat(sender.isBatchSupportExpected("node1", later)).isTrue();
+        assertThat(sender.getStateInformation().iterator().next().getComponent())
+                .filteredOn(component -> "nodesWithoutBatchSupport".equals(component.getName()))
+                .extracting(ComponentSizeInformationType::getSize)
+                .containsExactly(0);
+    }
+}
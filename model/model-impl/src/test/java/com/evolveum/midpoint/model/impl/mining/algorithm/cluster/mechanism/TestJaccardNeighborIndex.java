@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.mining.algorithm.cluster.mechanism;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.common.mining.objects.handler.RoleAnalysisProgressIncrement;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Checks that {@link JaccardNeighborIndex} (and the clustering using it) gives the same results
+ * as the full scan using {@link JaccardDistancesMeasure}, on randomized (but reproducible) data sets.
+ */
+public class TestJaccardNeighborIndex extends AbstractUnitTest {
+
+    private static final long SEED = 4242;
+
+    private static final int POINTS = 300;
+    private static final int PROPERTIES = 60;
+    private static final int MAX_POINT_SIZE = 10;
+
+    @Test
+    public void test100NeighborsAreTheSameAsFullScan() {
+        given("random points, some of them duplicate");
+        List<DataPoint> points = createPoints(new Random(SEED));
+
+        for (int minIntersection : new int[] { 1, 2, 3 }) {
+            for (double eps : new double[] { 0.0, 0.2, 0.5, 0.8, 0.99 }) {
+                when("neighbors are searched by the index, minIntersection=" + minIntersection + ", eps=" + eps);
+                JaccardDistancesMeasure measure = new JaccardDistancesMeasure(minIntersection);
+                assertThat(JaccardNeighborIndex.isApplicable(measure, eps)).isTrue();
+                JaccardNeighborIndex index = new JaccardNeighborIndex(points, minIntersection, eps);
+
+                then("they are the same as the points within eps distance found by the full scan");
+                for (int i = 0; i < points.size(); i++) {
+                    int pointIndex = i;
+                    int[] expected = IntStream.range(0, points.size())
+                            .filter(j -> j != pointIndex
+                                    && measure.compute(points.get(j).getPoint(), points.get(pointIndex).getPoint()) <= eps)
+                            .toArray();
+                    assertThat(index.findNeighbors(i))
+                            .as("neighbors of point %d (minIntersection=%d, eps=%s)", i, minIntersection, eps)
+                            .containsExactly(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test200IndexIsNotUsedWhenNotExact() {
+        expect("index is not used for eps = 1 and for other measures");
+        assertThat(JaccardNeighborIndex.isApplicable(new JaccardDistancesMeasure(1), 1.0)).isFalse();
+        assertThat(JaccardNeighborIndex.isApplicable(fullScanMeasure(1), 0.5)).isFalse();
+        assertThat(JaccardNeighborIndex.isApplicable(null, 0.5)).isFalse();
+    }
+
+    @Test
+    public void test300ClustersAreTheSameAsWithFullScan() {
+        given("random points");
+        List<DataPoint> points = createPoints(new Random(SEED + 1));
+
+        for (double eps : new double[] { 0.3, 0.6 }) {
+            when("points are clustered using the index and using the full scan, eps=" + eps);
+            List<Cluster<DataPoint>> indexed = new DensityBasedClustering<DataPoint>(
+                    eps, 3, new JaccardDistancesMeasure(2), 2)
+                    .cluster(points, createHandler());
+            List<Cluster<DataPoint>> fullScan = new DensityBasedClustering<DataPoint>(
+                    eps, 3, fullScanMeasure(2), 2)
+                    .cluster(points, createHandler());
+
+            then("clusters are the same, including the order of the points");
+            assertThat(indexed).as("clusters for eps=" + eps).isNotEmpty();
+            assertThat(indexed.stream().map(Cluster::getPoints).toList())
+                    .as("clusters for eps=" + eps)
+                    .isEqualTo(fullScan.stream().map(Cluster::getPoints).toList());
+        }
+    }
+
+    private List<DataPoint> createPoints(Random random) {
+        List<DataPoint> points = new ArrayList<>();
+        for (int i = 0; i < POINTS; i++) {
+            if (i > 0 && random.nextInt(10) == 0) {
+                // duplicate of an existing point (different members), the distance is 0
+                DataPoint original = points.get(random.nextInt(points.size()));
+                points.add(new DataPoint(Set.of("member-" + i), original.getPoint()));
+                continue;
+            }
+            Set<String> properties = new HashSet<>();
+            int size = 1 + random.nextInt(MAX_POINT_SIZE);
+            // a skewed distribution, so that some properties are shared by many points
+            while (properties.size() < size) {
+                int property = (int) (PROPERTIES * Math.pow(random.nextDouble(), 2));
+                properties.add("property-" + property);
+            }
+            Set<String> members = new HashSet<>();
+            int membersCount = 1 + random.nextInt(3);
+            for (int m = 0; m < membersCount; m++) {
+                members.add("member-" + i + "-" + m);
+            }
+            points.add(new DataPoint(members, properties));
+        }
+        return points;
+    }
+
+    /** Subclass of the measure, so that {@link JaccardNeighborIndex} is not applicable and the full scan is used. */
+    private JaccardDistancesMeasure fullScanMeasure(int minIntersection) {
+        return new JaccardDistancesMeasure(minIntersection) {
+        };
+    }
+
+    private RoleAnalysisProgressIncrement createHandler() {
+        return new RoleAnalysisProgressIncrement("test", 2);
+    }
+}
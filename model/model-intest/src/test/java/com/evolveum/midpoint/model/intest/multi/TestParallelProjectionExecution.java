@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.intest.multi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.icf.dummy.resource.BreakMode;
+import com.evolveum.midpoint.model.api.ProgressInformation;
+import com.evolveum.midpoint.model.api.ProgressListener;
+import com.evolveum.midpoint.model.api.context.ModelContext;
+import com.evolveum.midpoint.model.impl.lens.ChangeExecutor;
+import com.evolveum.midpoint.model.intest.AbstractInitializedModelIntegrationTest;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.schema.ObjectDeltaOperation;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests the parallel execution of projection changes (`internals/projectionExecutionThreads`).
+ *
+ * The user has accounts on default, red and blue dummy resources (executed in wave 0, in parallel),
+ * and on lavender resource, which has a strict dependency on the default one (wave 1).
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-intest-test-main.xml" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestParallelProjectionExecution extends AbstractInitializedModelIntegrationTest {
+
+    // LAVENDER dummy resource has a STRICT dependency on default dummy resource
+    private static final File RESOURCE_DUMMY_LAVENDER_FILE = new File(TestMultiResource.TEST_DIR, "resource-dummy-lavender.xml");
+    private static final String RESOURCE_DUMMY_LAVENDER_OID = "10000000-0000-0000-0000-000000000504";
+    private static final String RESOURCE_DUMMY_LAVENDER_NAME = "lavender";
+
+    private static final int PROJECTION_EXECUTION_THREADS = 4;
+
+    /** Resource operations are slowed down, so that the parallel execution is observable. */
+    private static final int OPERATION_DELAY = 300;
+
+    private static final String PARALLEL_PROJECTION_EXECUTION_THREAD_PREFIX = "midpoint-projection-execution-";
+
+    private static final String USER_NAME = "parallel";
+    private static final String USER_FULL_NAME = "Parallel Pete";
+    private static final String USER_FULL_NAME_MODIFIED = "Parallel Peter";
+
+    private static final List<String> WAVE_0_RESOURCES =
+            List.of(RESOURCE_DUMMY_OID, RESOURCE_DUMMY_RED_OID, RESOURCE_DUMMY_BLUE_OID);
+
+    private String userOid;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+
+        initDummyResourcePirate(RESOURCE_DUMMY_LAVENDER_NAME,
+                RESOURCE_DUMMY_LAVENDER_FILE, RESOURCE_DUMMY_LAVENDER_OID, initTask, initResult);
+
+        modifyObjectReplaceProperty(SystemConfigurationType.class, SystemObjectsType.SYSTEM_CONFIGURATION.value(),
+                ItemPath.create(SystemConfigurationType.F_INTERNALS, InternalsConfigurationType.F_PROJECTION_EXECUTION_THREADS),
+                initTask, initResult, PROJECTION_EXECUTION_THREADS);
+    }
+
+    /**
+     * Accounts on wave 0 resources are created concurrently, in the worker threads.
+     * The lavender account is created after the default one, in the caller thread (it is the only resource in wave 1).
+     */
+    @Test
+    public void test100AddUserWithSeveralAccounts() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("user with accounts on four resources");
+        UserType user = new UserType()
+                .name(USER_NAME)
+                .fullName(USER_FULL_NAME)
+                .assignment(accountAssignment(RESOURCE_DUMMY_OID))
+                .assignment(accountAssignment(RESOURCE_DUMMY_RED_OID))
+                .assignment(accountAssignment(RESOURCE_DUMMY_BLUE_OID))
+                .assignment(accountAssignment(RESOURCE_DUMMY_LAVENDER_OID));
+        RecordingProgressListener listener = new RecordingProgressListener();
+
+        when("user is added");
+        setOperationDelay(OPERATION_DELAY);
+        try {
+            var executedDeltas = modelService.executeChanges(
+                    List.of(user.asPrismObject().createAddDelta()), null, task, List.of(listener), result);
+            userOid = ObjectDeltaOperation.findAddDeltaOid(executedDeltas, user.asPrismObject());
+        } finally {
+            setOperationDelay(0);
+        }
+
+        then("all accounts are created and linked");
+        assertSuccess(result);
+        assertUserAfter(userOid)
+                .assertLiveLinks(4);
+        assertDummyAccount(null, USER_NAME, USER_FULL_NAME, true);
+        assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_NAME, USER_FULL_NAME, true);
+        assertDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_NAME, USER_FULL_NAME, true);
+        assertDummyAccount(RESOURCE_DUMMY_LAVENDER_NAME, USER_NAME, USER_FULL_NAME, true);
+
+        and("wave 0 accounts were created concurrently, in the worker threads");
+        displayValue("progress events", listener.events);
+        for (String resourceOid : WAVE_0_RESOURCES) {
+            assertThat(listener.getThreads(resourceOid))
+                    .as("threads processing " + resourceOid)
+                    .isNotEmpty()
+                    .allMatch(thread -> thread.startsWith(PARALLEL_PROJECTION_EXECUTION_THREAD_PREFIX));
+        }
+        assertThat(listener.maxRunning)
+                .as("max number of concurrently processed projections")
+                .isGreaterThan(1);
+
+        and("lavender account was created in the caller thread, after the default one");
+        assertThat(listener.getThreads(RESOURCE_DUMMY_LAVENDER_OID))
+                .isNotEmpty()
+                .noneMatch(thread -> thread.startsWith(PARALLEL_PROJECTION_EXECUTION_THREAD_PREFIX));
+        assertThat(listener.getFirstIndex(RESOURCE_DUMMY_LAVENDER_OID, ProgressInformation.StateType.ENTERING))
+                .isGreaterThan(listener.getLastIndex(RESOURCE_DUMMY_OID, ProgressInformation.StateType.EXITING));
+    }
+
+    /** All accounts are updated when the user is modified. */
+    @Test
+    public void test110ModifyUserWithSeveralAccounts() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        when("user full name is modified");
+        setOperationDelay(OPERATION_DELAY);
+        try {
+            modifyUserReplace(userOid, UserType.F_FULL_NAME, task, result, PolyString.fromOrig(USER_FULL_NAME_MODIFIED));
+        } finally {
+            setOperationDelay(0);
+        }
+
+        then("accounts with strong (or normal) full name mappings are updated");
+        assertSuccess(result);
+        assertUserAfter(userOid)
+                .assertLiveLinks(4);
+        assertDummyAccount(null, USER_NAME, USER_FULL_NAME_MODIFIED, true);
+        assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_NAME, USER_FULL_NAME_MODIFIED, true);
+        assertDummyAccount(RESOURCE_DUMMY_LAVENDER_NAME, USER_NAME, USER_FULL_NAME_MODIFIED, true);
+    }
+
+    /**
+     * Red resource is not available. The other projections are executed nevertheless, and the red one
+     * gets its own result in the result tree.
+     */
+    @Test
+    public void test120ModifyUserWithOneResourceDown() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("red resource is down");
+        getDummyResource(RESOURCE_DUMMY_RED_NAME).setModifyBreakMode(BreakMode.NETWORK);
+
+        when("user full name is modified");
+        try {
+            modifyUserReplace(userOid, UserType.F_FULL_NAME, task, result, PolyString.fromOrig(USER_FULL_NAME));
+        } finally {
+            getDummyResource(RESOURCE_DUMMY_RED_NAME).resetBreakMode();
+        }
+
+        then("the operation is in progress, as the red account is not updated yet");
+        result.computeStatus();
+        assertThat(result.getStatus()).isEqualTo(OperationResultStatus.IN_PROGRESS);
+        assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_NAME, USER_FULL_NAME_MODIFIED, true);
+
+        and("other accounts are updated");
+        assertDummyAccount(null, USER_NAME, USER_FULL_NAME, true);
+        assertDummyAccount(RESOURCE_DUMMY_LAVENDER_NAME, USER_NAME, USER_FULL_NAME, true);
+
+        and("the red projection result is in its own resource-level result");
+        List<OperationResult> inProgress = result.findSubresultsDeeply(ChangeExecutor.OPERATION_EXECUTE_PROJECTIONS_ON_RESOURCE)
+                .stream()
+                .filter(r -> r.getStatus() == OperationResultStatus.IN_PROGRESS)
+                .toList();
+        assertThat(inProgress).hasSize(1);
+        assertThat(inProgress.get(0).findSubresult(ChangeExecutor.OPERATION_EXECUTE_PROJECTION))
+                .as("projection result")
+                .isNotNull();
+    }
+
+    /** Accounts are deleted along with the user. */
+    @Test
+    public void test190DeleteUser() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        when("user is deleted");
+        deleteObject(UserType.class, userOid, task, result);
+
+        then("all accounts are deleted");
+        assertSuccess(result);
+        assertNoDummyAccount(null, USER_NAME);
+        assertNoDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_NAME);
+        assertNoDummyAccount(RESOURCE_DUMMY_LAVENDER_NAME, USER_NAME);
+    }
+
+    private AssignmentType accountAssignment(String resourceOid) {
+        return new AssignmentType()
+                .construction(new ConstructionType()
+                        .resourceRef(resourceOid, ResourceType.COMPLEX_TYPE));
+    }
+
+    private void setOperationDelay(int delay) {
+        getDummyResource().setOperationDelayOffset(delay);
+        getDummyResource(RESOURCE_DUMMY_RED_NAME).setOperationDelayOffset(delay);
+        getDummyResource(RESOURCE_DUMMY_BLUE_NAME).setOperationDelayOffset(delay);
+        getDummyResource(RESOURCE_DUMMY_LAVENDER_NAME).setOperationDelayOffset(delay);
+    }
+
+    /**
+     * Records the resource object operations as they are reported, with the threads that report them.
+     * Progress is reported under a lock in the parallel execution, so the recording itself is serialized.
+     */
+    private static class RecordingProgressListener implements ProgressListener {
+
+        private final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+        private int running;
+        private int maxRunning;
+
+        @Override
+        public synchronized void onProgressAchieved(ModelContext<?> modelContext, ProgressInformation progressInformation) {
+            if (progressInformation.getActivityType() != ProgressInformation.ActivityType.RESOURCE_OBJECT_OPERATION
+                    || progressInformation.getProjectionContextKey() == null) {
+                return;
+            }
+            ProgressInformation.StateType state = progressInformation.getStateType();
+            events.add(new Event(
+                    progressInformation.getProjectionContextKey().getResourceOid(),
+                    state,
+                    Thread.currentThread().getName()));
+            if (state == ProgressInformation.StateType.ENTERING) {
+                maxRunning = Math.max(maxRunning, ++running);
+            } else {
+                running--;
+            }
+        }
+
+        @Override
+        public boolean isAbortRequested() {
+            return false;
+        }
+
+        List<String> getThreads(String resourceOid) {
+            return events.stream()
+                    .filter(event -> resourceOid.equals(event.resourceOid()))
+                    .map(Event::thread)
+                    .toList();
+        }
+
+        int getFirstIndex(String resourceOid, ProgressInformation.StateType state) {
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i).matches(resourceOid, state)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int getLastIndex(String resourceOid, ProgressInformation.StateType state) {
+            for (int i = events.size() - 1; i >= 0; i--) {
+                if (events.get(i).matches(resourceOid, state)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private record Event(String resourceOid, ProgressInformation.StateType state, String thread) {
+
+            boolean matches(String resourceOid, ProgressInformation.StateType state) {
+                return resourceOid.equals(this.resourceOid) && state == this.state;
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.intest.multi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.icf.dummy.resource.BreakMode;
+import com.evolveum.midpoint.model.impl.lens.projector.loader.ProjectionFetchExecutor;
+import com.evolveum.midpoint.model.intest.AbstractInitializedModelIntegrationTest;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.schema.ObjectDeltaOperation;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.DummyResourceContoller;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests the fetching of projections in advance (`internals/projectionLoadThreads`), used when reconciling.
+ *
+ * The user has accounts on default, red and blue dummy resources.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-intest-test-main.xml" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestParallelProjectionLoad extends AbstractInitializedModelIntegrationTest {
+
+    private static final int PROJECTION_LOAD_THREADS = 4;
+
+    /** Resource operations are slowed down, so that the fetches run concurrently. */
+    private static final int OPERATION_DELAY = 300;
+
+    /** The operation is not visible outside its package. */
+    private static final String OP_FETCH =
+            "com.evolveum.midpoint.model.impl.lens.projector.loader.ProjectionsFetchOperation.fetch";
+
+    private static final String USER_NAME = "loader";
+    private static final String USER_FULL_NAME = "Loader Larry";
+
+    @Autowired private ProjectionFetchExecutor projectionFetchExecutor;
+
+    private String userOid;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+
+        modifyObjectReplaceProperty(SystemConfigurationType.class, SystemObjectsType.SYSTEM_CONFIGURATION.value(),
+                ItemPath.create(SystemConfigurationType.F_INTERNALS, InternalsConfigurationType.F_PROJECTION_LOAD_THREADS),
+                initTask, initResult, PROJECTION_LOAD_THREADS);
+    }
+
+    /** Creates the user, so that the accounts can be fetched later. */
+    @Test
+    public void test100AddUserWithSeveralAccounts() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("user with accounts on three resources");
+        UserType user = new UserType()
+                .name(USER_NAME)
+                .fullName(USER_FULL_NAME)
+                .assignment(accountAssignment(RESOURCE_DUMMY_OID))
+                .assignment(accountAssignment(RESOURCE_DUMMY_RED_OID))
+                .assignment(accountAssignment(RESOURCE_DUMMY_BLUE_OID));
+
+        when("user is added");
+        var executedDeltas = modelService.executeChanges(
+                List.of(user.asPrismObject().createAddDelta()), null, task, result);
+        userOid = ObjectDeltaOperation.findAddDeltaOid(executedDeltas, user.asPrismObject());
+
+        then("all accounts are created");
+        assertSuccess(result);
+        assertUserAfter(userOid)
+                .assertLiveLinks(3);
+    }
+
+    /**
+     * The accounts are fetched in advance, in the threads of the shared executor. The reconciliation then uses them:
+     * the account attribute changed on the resource is fixed.
+     */
+    @Test
+    public void test110ReconcileUser() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("full name of the default account is changed on the resource");
+        getDummyAccount(null, USER_NAME)
+                .replaceAttributeValue(DummyResourceContoller.DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Wrong Name");
+
+        when("user is reconciled");
+        setOperationDelay(OPERATION_DELAY);
+        try {
+            reconcileUser(userOid, task, result);
+        } finally {
+            setOperationDelay(0);
+        }
+
+        then("the operation is successful, and the account is fixed");
+        assertSuccess(result);
+        assertUserAfter(userOid)
+                .assertLiveLinks(3);
+        assertDummyAccount(null, USER_NAME, USER_FULL_NAME, true);
+        assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_NAME, USER_FULL_NAME, true);
+        assertDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_NAME, USER_FULL_NAME, true);
+
+        and("the accounts were fetched by more than one thread of the shared executor");
+        assertThat(projectionFetchExecutor.getPoolSize())
+                .as("threads in the pool")
+                .isGreaterThan(1);
+    }
+
+    /**
+     * Red account cannot be fetched. The other ones are reconciled nevertheless, and the failed fetch
+     * is visible in the result tree.
+     */
+    @Test
+    public void test120ReconcileUserWithOneResourceDown() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("red resource is down for reading");
+        getDummyResource(RESOURCE_DUMMY_RED_NAME).setGetBreakMode(BreakMode.NETWORK);
+
+        and("full name of the default account is changed on the resource");
+        getDummyAccount(null, USER_NAME)
+                .replaceAttributeValue(DummyResourceContoller.DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Wrong Name");
+
+        when("user is reconciled");
+        try {
+            reconcileUser(userOid, task, result);
+        } finally {
+            getDummyResource(RESOURCE_DUMMY_RED_NAME).resetBreakMode();
+        }
+
+        then("the operation is not successful");
+        result.computeStatus();
+        displayDumpable("result", result);
+        assertThat(result.getStatus()).isNotEqualTo(OperationResultStatus.SUCCESS);
+
+        and("the default account is fixed");
+        assertDummyAccount(null, USER_NAME, USER_FULL_NAME, true);
+
+        and("the failed fetch has its result in the tree");
+        assertThat(result.findSubresultsDeeply(OP_FETCH))
+                .as("fetch results")
+                .anyMatch(r -> r.getStatus() != OperationResultStatus.SUCCESS);
+    }
+
+    private AssignmentType accountAssignment(String resourceOid) {
+        return new AssignmentType()
+                .construction(new ConstructionType()
+                        .resourceRef(resourceOid, ResourceType.COMPLEX_TYPE));
+    }
+
+    private void setOperationDelay(int delay) {
+        getDummyResource().setOperationDelayOffset(delay);
+        getDummyResource(RESOURCE_DUMMY_RED_NAME).setOperationDelayOffset(delay);
+        getDummyResource(RESOURCE_DUMMY_BLUE_NAME).setOperationDelayOffset(delay);
+    }
+}
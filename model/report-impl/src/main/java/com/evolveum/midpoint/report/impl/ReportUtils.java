@@ -916,11 +916,16 @@ public class ReportUtils {
         } else {
             formatType = defaultType;
         }
+        boolean streaming = report.getFileFormat() != null && Boolean.TRUE.equals(report.getFileFormat().isStreaming());
         switch (formatType) {
             case HTML:
-                return new HtmlReportDataWriter<>(reportService, compiledView, report.getFileFormat());
+                return streaming ?
+                        new StreamingHtmlReportDataWriter(reportService, compiledView, report.getFileFormat()) :
+                        new HtmlReportDataWriter<>(reportService, compiledView, report.getFileFormat());
             case CSV:
-                return new CsvReportDataWriter(reportService, report.getFileFormat());
+                return streaming ?
+                        new StreamingCsvReportDataWriter(reportService, report.getFileFormat()) :
+                        new CsvReportDataWriter(reportService, report.getFileFormat());
             default:
                 throw new AssertionError(formatType);
         }
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.report.impl.activity;
 
 import static com.evolveum.midpoint.util.MiscUtil.or0;
 
+import java.io.File;
 import java.util.Collection;
 
 import com.evolveum.midpoint.prism.Containerable;
@@ -21,6 +22,7 @@ import com.evolveum.midpoint.report.impl.ReportServiceImpl;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportDataRow;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportHeaderRow;
 import com.evolveum.midpoint.report.impl.controller.ReportDataWriter;
+import com.evolveum.midpoint.report.impl.controller.StreamingReportDataWriter;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.ObjectHandler;
 import com.evolveum.midpoint.schema.SearchResultList;
@@ -80,6 +82,18 @@ public class ExportActivitySupport extends ReportActivitySupport {
         saveSupport.saveAggregatedReportData(aggregatedData, completingDataWriter, aggregatedDataRef, result);
     }
 
+    /**
+     * As {@link #saveAggregatedReportData(String, ReportDataWriter, ObjectReferenceType, OperationResult)}, but the aggregated
+     * data are in a file, and the streaming writer copies them to the output file.
+     */
+    void saveAggregatedReportData(
+            @NotNull File aggregatedDataFile,
+            @NotNull StreamingReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> completingDataWriter,
+            @NotNull ObjectReferenceType aggregatedDataRef,
+            @NotNull OperationResult result) throws CommonException {
+        saveSupport.saveAggregatedReportData(aggregatedDataFile, completingDataWriter, aggregatedDataRef, result);
+    }
+
     /**
      * Search container objects for iterative task.
      */
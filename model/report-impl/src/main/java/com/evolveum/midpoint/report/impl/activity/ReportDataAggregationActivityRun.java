@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.report.impl.activity;
 
+import java.io.*;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Objects;
 
@@ -17,6 +19,7 @@ import com.evolveum.midpoint.report.impl.ReportUtils;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportDataRow;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportHeaderRow;
 import com.evolveum.midpoint.report.impl.controller.ReportDataWriter;
+import com.evolveum.midpoint.report.impl.controller.StreamingReportDataWriter;
 import com.evolveum.midpoint.task.api.RunningTask;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -29,6 +32,7 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ReportDataType;
 
 import static com.evolveum.midpoint.util.MiscUtil.stateCheck;
@@ -42,16 +46,25 @@ final class ReportDataAggregationActivityRun
 
     private static final Trace LOGGER = TraceManager.getTrace(ReportDataAggregationActivityRun.class);
 
+    private static final String AGGREGATED_DATA_FILE_PREFIX = "midpoint-report-aggregated-";
+
     /** Helper functionality for the "distributed report exports" activity. */
     @NotNull private final DistributedReportExportActivitySupport support;
 
     /**
-     * Data from all the partial reports.
-     *
-     * TODO eliminate gathering in memory: write to a file immediately after getting the data.
+     * Data from all the partial reports. Used if the {@link #completingDataWriter} is not a streaming one.
      */
     private final StringBuilder aggregatedData = new StringBuilder();
 
+    /**
+     * File with data from all the partial reports. Used if the {@link #completingDataWriter} is a streaming one;
+     * the data are appended there immediately after getting them.
+     *
+     * The name is derived from the global report data OID, so a file left over by a failed (e.g. interrupted) run
+     * is not kept forever: it is replaced when the aggregation is run again.
+     */
+    private File aggregatedDataFile;
+
     /** Data writer which completes the content of the report (e.g. by providing HTML code at the end) */
     private ReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow> completingDataWriter;
 
@@ -82,6 +95,23 @@ final class ReportDataAggregationActivityRun
                 FileFormatTypeType.CSV, // default type
                 getActivityHandler().reportService,
                 support.getCompiledCollectionView(result));
+
+        if (completingDataWriter instanceof StreamingReportDataWriter) {
+            openAggregatedDataFile();
+        }
+    }
+
+    private void openAggregatedDataFile() {
+        aggregatedDataFile = new File(
+                System.getProperty("java.io.tmpdir"),
+                AGGREGATED_DATA_FILE_PREFIX + support.getGlobalReportDataRef().getOid() + ".tmp");
+        try {
+            if (Files.deleteIfExists(aggregatedDataFile.toPath())) {
+                LOGGER.debug("Deleted aggregated report data file left over by a previous run: {}", aggregatedDataFile);
+            }
+        } catch (IOException e) {
+            throw new SystemException("Couldn't delete aggregated report data file " + aggregatedDataFile, e);
+        }
     }
 
     @Override
@@ -106,7 +136,16 @@ final class ReportDataAggregationActivityRun
             throws CommonException {
         LOGGER.info("Appending data from {} (and deleting the object)", reportData);
         checkSequentialNumber(reportData); // TODO check also the total # of buckets (after we know it at the start!)
-        aggregatedData.append(reportData.getData());
+        if (completingDataWriter instanceof StreamingReportDataWriter<?, ?> streamingDataWriter) {
+            try (Writer aggregatedDataFileWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(aggregatedDataFile, true), completingDataWriter.getEncoding()))) {
+                streamingDataWriter.appendAggregatedData(aggregatedDataFileWriter, reportData.getData());
+            } catch (IOException e) {
+                throw new SystemException("Couldn't write aggregated report data to " + aggregatedDataFile, e);
+            }
+        } else {
+            aggregatedData.append(reportData.getData());
+        }
         getActivityHandler().commonTaskBeans.repositoryService.deleteObject(ReportDataType.class, reportData.getOid(), result);
         return true;
     }
@@ -122,10 +161,30 @@ final class ReportDataAggregationActivityRun
 
     @Override
     public void afterRun(OperationResult result) throws CommonException {
-        support.saveAggregatedReportData(
-                aggregatedData.toString(),
-                completingDataWriter,
-                support.getGlobalReportDataRef(),
-                result);
+        if (completingDataWriter instanceof StreamingReportDataWriter<?, ?> streamingDataWriter) {
+            try {
+                if (!aggregatedDataFile.exists()) {
+                    // No partial data; the report is created nevertheless
+                    Files.createFile(aggregatedDataFile.toPath());
+                }
+                support.saveAggregatedReportData(
+                        aggregatedDataFile,
+                        streamingDataWriter,
+                        support.getGlobalReportDataRef(),
+                        result);
+            } catch (IOException e) {
+                throw new SystemException("Couldn't write aggregated report data to " + aggregatedDataFile, e);
+            } finally {
+                if (!aggregatedDataFile.delete()) {
+                    LOGGER.warn("Couldn't delete temporary file {}", aggregatedDataFile);
+                }
+            }
+        } else {
+            support.saveAggregatedReportData(
+                    aggregatedData.toString(),
+                    completingDataWriter,
+                    support.getGlobalReportDataRef(),
+                    result);
+        }
     }
 }
@@ -8,7 +8,6 @@ package com.evolveum.midpoint.report.impl.activity;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -32,6 +31,7 @@ import com.evolveum.midpoint.report.impl.controller.DashboardReportDataWriter;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportDataRow;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportHeaderRow;
 import com.evolveum.midpoint.report.impl.controller.ReportDataWriter;
+import com.evolveum.midpoint.report.impl.controller.StreamingReportDataWriter;
 import com.evolveum.midpoint.schema.ObjectDeltaOperation;
 import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.constants.ExpressionConstants;
@@ -92,24 +92,51 @@ class SaveReportFileSupport {
     void saveSimpleReportData(
             ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> dataWriter,
             OperationResult result) throws CommonException {
-        saveReportData(dataWriter.completeReport(), dataWriter, null, result);
+        if (dataWriter instanceof StreamingReportDataWriter<?, ?> streamingDataWriter) {
+            try {
+                saveReportData(streamingDataWriter::writeReport, dataWriter, null, result);
+            } finally {
+                dataWriter.reset(); // deletes the temporary files, also if the report was not written
+            }
+        } else {
+            saveReportData(stringContent(dataWriter.completeReport(), dataWriter), dataWriter, null, result);
+        }
     }
 
-    /** @see #saveAggregatedReportData(String, ReportDataWriter, ObjectReferenceType, OperationResult) */
+    /** @see ExportActivitySupport#saveAggregatedReportData(String, ReportDataWriter, ObjectReferenceType, OperationResult) */
     void saveAggregatedReportData(
             @NotNull String aggregatedData,
             @NotNull ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> completingDataWriter,
             @NotNull ObjectReferenceType preExistingDataRef,
             @NotNull OperationResult result) throws CommonException {
         saveReportData(
-                completingDataWriter.completeReport(aggregatedData),
+                stringContent(completingDataWriter.completeReport(aggregatedData), completingDataWriter),
                 completingDataWriter,
                 preExistingDataRef,
                 result);
     }
 
-    private void saveReportData(
+    /** @see ExportActivitySupport#saveAggregatedReportData(File, StreamingReportDataWriter, ObjectReferenceType, OperationResult) */
+    void saveAggregatedReportData(
+            @NotNull File aggregatedDataFile,
+            @NotNull StreamingReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> completingDataWriter,
+            @NotNull ObjectReferenceType preExistingDataRef,
+            @NotNull OperationResult result) throws CommonException {
+        saveReportData(
+                file -> completingDataWriter.writeAggregatedReport(aggregatedDataFile, file),
+                completingDataWriter,
+                preExistingDataRef,
+                result);
+    }
+
+    private static ReportFileContent stringContent(
             String completedReport,
+            ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> dataWriter) {
+        return file -> FileUtils.writeByteArrayToFile(file, completedReport.getBytes(dataWriter.getEncoding()));
+    }
+
+    private void saveReportData(
+            ReportFileContent reportFileContent,
             ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> dataWriter,
             @Nullable ObjectReferenceType emptyExportedDataObjectRef,
             OperationResult result) throws CommonException {
@@ -122,7 +149,7 @@ class SaveReportFileSupport {
         String aggregatedFilePath = getDestinationFileName(report, dataWriter);
 
         if (storeType == ONLY_FILE || storeType == WIDGET_AND_FILE)  {
-            writeToReportFile(completedReport, aggregatedFilePath, dataWriter.getEncoding());
+            writeToReportFile(reportFileContent, aggregatedFilePath);
             saveReportDataObject(dataWriter, aggregatedFilePath, emptyExportedDataObjectRef, result);
             if (report.getPostReportScript() != null) {
                 processPostReportScript(report, aggregatedFilePath, runningTask, result);
@@ -200,11 +227,9 @@ class SaveReportFileSupport {
         return formatDate.format(createDate);
     }
 
-    private void writeToReportFile(String contextOfFile, String aggregatedFilePath, @NotNull Charset encoding) {
+    private void writeToReportFile(ReportFileContent reportFileContent, String aggregatedFilePath) {
         try {
-            FileUtils.writeByteArrayToFile(
-                    new File(aggregatedFilePath),
-                    contextOfFile.getBytes(encoding));
+            reportFileContent.writeTo(new File(aggregatedFilePath));
         } catch (IOException e) {
             throw new SystemException("Couldn't write aggregated report to " + aggregatedFilePath, e);
         }
@@ -367,6 +392,12 @@ class SaveReportFileSupport {
         }
     }
 
+    /** Writes the content of the report to the file: either a string prepared beforehand, or directly by the data writer. */
+    @FunctionalInterface
+    private interface ReportFileContent {
+        void writeTo(File file) throws IOException;
+    }
+
     private void processPostReportScript(ReportType parentReport, String reportOutputFilePath, Task task, OperationResult parentResult) {
         CommandLineScriptType scriptType = parentReport.getPostReportScript();
         if (scriptType == null) {
@@ -81,6 +81,7 @@ public class CollectionDistributedExportController<C extends Containerable> exte
         if (!runningTask.canRun()) {
             LOGGER.warn("Not storing the (partial) resulting report for bucket #{}, as the activity is being suspended: {}",
                     bucketNumber, report);
+            dataWriter.reset();
             return;
         }
 
@@ -29,7 +29,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurat
 public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow>
         implements DashboardReportDataWriter {
 
-    @NotNull private final CommonCsvSupport support;
+    @NotNull final CommonCsvSupport support;
 
     @Nullable private final FileFormatConfigurationType configuration;
 
@@ -91,7 +91,7 @@ public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReport
         return configuration;
     }
 
-    private CSVFormat createCsvFormat() {
+    CSVFormat createCsvFormat() {
         CSVFormat csvFormat = support.createCsvFormat();
         if (getHeaderRow() != null) {
             return csvFormat
@@ -106,7 +106,7 @@ public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReport
         return row.getLabels();
     }
 
-    private List<String> createPhysicalColumnsList(ExportedReportDataRow row) {
+    List<String> createPhysicalColumnsList(ExportedReportDataRow row) {
         return row.getValues().stream()
                 .map(this::formatColumn)
                 .collect(Collectors.toList());
@@ -25,7 +25,10 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurat
 public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends ExportedReportHeaderRow>
         extends AbstractReportDataWriter<ED, EH> {
 
-    @NotNull private final CommonHtmlSupport support;
+    /** The part of the table box after the table content. */
+    static final String TABLE_BOX_END = "</table></div>";
+
+    @NotNull final CommonHtmlSupport support;
 
     final LocalizationService localizationService;
 
@@ -52,30 +55,32 @@ public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends E
             sb.append(createTHead(headerRow));
         }
         ContainerTag tBody = TagCreator.tbody();
-        dataRows.forEach(row -> {
-            ContainerTag tr = TagCreator.tr();
-            row.getValues().forEach(values -> {
-                if (values.size() == 1 && values.iterator().next().startsWith(CommonHtmlSupport.VALUE_CSS_STYLE_TAG)) {
-                    String value = values.iterator().next();
-                    tr.with(TagCreator.th().withStyle(value.substring((value.indexOf("{") + 1), value.indexOf("}"))));
-                } else {
-                    tr.with(TagCreator.th(formatColumn(values)));
-                }
-            });
-            tBody.with(tr);
-        });
+        dataRows.forEach(row -> tBody.with(createTr(row)));
         if (tBody.getNumChildren() != 0) {
             sb.append(tBody.render());
         }
         return sb.toString();
     }
 
+    ContainerTag createTr(ExportedReportDataRow row) {
+        ContainerTag tr = TagCreator.tr();
+        row.getValues().forEach(values -> {
+            if (values.size() == 1 && values.iterator().next().startsWith(CommonHtmlSupport.VALUE_CSS_STYLE_TAG)) {
+                String value = values.iterator().next();
+                tr.with(TagCreator.th().withStyle(value.substring((value.indexOf("{") + 1), value.indexOf("}"))));
+            } else {
+                tr.with(TagCreator.th(formatColumn(values)));
+            }
+        });
+        return tr;
+    }
+
     @Override
     public boolean shouldWriteHeader() {
         return true;
     }
 
-    private String createTHead(ExportedReportHeaderRow headerRow) {
+    String createTHead(ExportedReportHeaderRow headerRow) {
         ContainerTag trForHead = TagCreator.tr().withStyle("width: 100%;");
 
         headerRow.getColumns().forEach(column -> {
@@ -124,26 +129,41 @@ public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends E
     }
 
     private String completeReportInternal(String aggregatedData, boolean parseData) {
-        String cssStyle = support.getCssStyle();
-
-        StringBuilder body = new StringBuilder();
-        body.append("<div> <style> ").append(cssStyle).append(" </style>");
+        return createReportStart()
+                + createTableBox(aggregatedData, support, parseData)
+                + createReportEnd();
+    }
 
-        String table = createTableBox(aggregatedData, support, parseData);
-        body.append(table).append("</div>");
+    /** The part of the complete report before the table box. */
+    String createReportStart() {
+        return "<div> <style> " + support.getCssStyle() + " </style>";
+    }
 
+    /** The part of the complete report after the table box. */
+    String createReportEnd() {
+        StringBuilder end = new StringBuilder("</div>");
         String subscriptionFooter = reportService.missingSubscriptionFooter();
         if (subscriptionFooter != null) {
-            body.append("<div>")
+            end.append("<div>")
                     .append(subscriptionFooter)
                     .append("</div>");
         }
-
-        return body.toString();
+        return end.toString();
     }
 
     protected String createTableBox(String aggregatedData, CommonHtmlSupport support, boolean parseData) {
-        StringBuilder table = new StringBuilder();
+        String parsedData;
+        if (parseData) {
+            parsedData = parseAggregatedData(aggregatedData);
+        } else {
+            parsedData = aggregatedData;
+        }
+
+        return createTableBoxStart(support) + parsedData + TABLE_BOX_END;
+    }
+
+    /** The part of the table box before the table content (i.e. `thead` and `tbody`). */
+    String createTableBoxStart(CommonHtmlSupport support) {
         String style = support.getCssStyleOfTable();
         String classes = support.getCssClassOfTable();
 
@@ -153,19 +173,7 @@ public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends E
         String tableBox = TagCreator.div().withClasses("box", "boxed-table", classes).withStyle(style).with(div).render();
         tableBox = tableBox.substring(0, tableBox.length() - 6);
 
-        String parsedData;
-        if (parseData) {
-            parsedData = parseAggregatedData(aggregatedData);
-        } else {
-            parsedData = aggregatedData;
-        }
-
-        table.append(tableBox)
-                .append("<table class=\"table table-striped table-hover table-bordered\">")
-                .append(parsedData)
-                .append("</table>")
-                .append("</div>");
-        return table.toString();
+        return tableBox + "<table class=\"table table-striped table-hover table-bordered\">";
     }
 
     private String parseAggregatedData(String aggregatedData) {
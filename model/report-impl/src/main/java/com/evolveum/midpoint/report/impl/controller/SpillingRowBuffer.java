@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl.controller;
+
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurationType;
+
+import static com.evolveum.midpoint.util.MiscUtil.argCheck;
+
+/**
+ * Keeps formatted (string) rows of an exported report, ordered by their sequential numbers, in a bounded amount of memory.
+ *
+ * When there are more than {@link #maxRowsInMemory} rows, they are sorted and written ("spilled") to a temporary file.
+ * When the output is requested, the spilled files and the rows in memory are merged.
+ *
+ * Rows with the same sequential number are kept in the order they were added, just like in
+ * {@link AbstractReportDataWriter#appendDataRow(ExportedReportDataRow)}.
+ *
+ * The temporary files are deleted by {@link #clear()}. If the buffer is abandoned without clearing (e.g. when the export
+ * fails or the task is suspended), they are deleted when the buffer is garbage collected.
+ *
+ * Thread safety: Guarded by `this`.
+ */
+class SpillingRowBuffer {
+
+    private static final Trace LOGGER = TraceManager.getTrace(SpillingRowBuffer.class);
+
+    private static final int DEFAULT_MAX_ROWS_IN_MEMORY = 10_000;
+
+    private static final String SPILL_FILE_PREFIX = "midpoint-report-rows-";
+
+    /** Deletes the files of abandoned buffers. */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final Comparator<Row> ROW_ORDER =
+            Comparator.comparingInt(Row::sequentialNumber)
+                    .thenComparingLong(Row::order);
+
+    private final int maxRowsInMemory;
+
+    /** Rows not spilled yet, in the order of adding. */
+    @NotNull private final List<Row> rows = new ArrayList<>();
+
+    /** Files with spilled rows, each one sorted by {@link #ROW_ORDER}. */
+    @NotNull private final SpillFiles spillFiles = new SpillFiles();
+
+    /** Global order of the rows added; used to keep the rows with the same sequential number in the order of adding. */
+    private long rowCounter;
+
+    /** Uses `fileFormat/maxRowsInMemory` from the configuration, if present. */
+    SpillingRowBuffer(@Nullable FileFormatConfigurationType configuration) {
+        this(configuration != null && configuration.getMaxRowsInMemory() != null ?
+                configuration.getMaxRowsInMemory() : DEFAULT_MAX_ROWS_IN_MEMORY);
+    }
+
+    SpillingRowBuffer(int maxRowsInMemory) {
+        argCheck(maxRowsInMemory > 0, "maxRowsInMemory must be positive: %s", maxRowsInMemory);
+        this.maxRowsInMemory = maxRowsInMemory;
+        CLEANER.register(this, spillFiles);
+    }
+
+    synchronized void add(int sequentialNumber, @NotNull String text) throws IOException {
+        rows.add(new Row(sequentialNumber, rowCounter++, text));
+        if (rows.size() >= maxRowsInMemory) {
+            spill();
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return rows.isEmpty() && spillFiles.isEmpty();
+    }
+
+    private void spill() throws IOException {
+        rows.sort(ROW_ORDER);
+        File file = File.createTempFile(SPILL_FILE_PREFIX, ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (Row row : rows) {
+                row.write(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The rows stay in memory; the incomplete file is not used.
+            if (!file.delete()) {
+                LOGGER.warn("Couldn't delete temporary file {}", file);
+            }
+            throw e;
+        }
+        LOGGER.trace("Spilled {} rows to {}", rows.size(), file);
+        spillFiles.add(file);
+        rows.clear();
+    }
+
+    /** Writes all the rows, in the correct order, to the output. The buffer is left intact. */
+    synchronized void writeTo(@NotNull Writer output) throws IOException {
+        rows.sort(ROW_ORDER);
+        List<RowCursor> cursors = new ArrayList<>();
+        try {
+            for (File spillFile : spillFiles.getFiles()) {
+                cursors.add(new FileRowCursor(spillFile));
+            }
+            cursors.add(new MemoryRowCursor(rows.iterator()));
+
+            PriorityQueue<RowCursor> queue = new PriorityQueue<>(
+                    Comparator.comparing(RowCursor::current, ROW_ORDER));
+            for (RowCursor cursor : cursors) {
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RowCursor cursor = queue.poll();
+                output.write(cursor.current().text());
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            for (RowCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /** Discards all the rows, including the spilled ones. */
+    synchronized void clear() {
+        rows.clear();
+        spillFiles.run();
+    }
+
+    /**
+     * The spilled files. Deleting them is the clean-up action of the buffer, so this object must not reference the buffer.
+     *
+     * Thread safety: Guarded by `this`, as the clean-up action runs in the cleaner thread.
+     */
+    private static class SpillFiles implements Runnable {
+
+        @NotNull private final List<File> files = new ArrayList<>();
+
+        synchronized void add(@NotNull File file) {
+            files.add(file);
+        }
+
+        synchronized boolean isEmpty() {
+            return files.isEmpty();
+        }
+
+        synchronized @NotNull List<File> getFiles() {
+            return List.copyOf(files);
+        }
+
+        /** Deletes all the files. */
+        @Override
+        public synchronized void run() {
+            for (File file : files) {
+                if (!file.delete() && file.exists()) {
+                    LOGGER.warn("Couldn't delete temporary file {}", file);
+                }
+            }
+            files.clear();
+        }
+    }
+
+    private record Row(int sequentialNumber, long order, @NotNull String text) {
+
+        void write(DataOutputStream out) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(sequentialNumber);
+            out.writeLong(order);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        static @Nullable Row read(DataInputStream in) throws IOException {
+            int sequentialNumber;
+            try {
+                sequentialNumber = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            long order = in.readLong();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new Row(sequentialNumber, order, new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private interface RowCursor extends Closeable {
+
+        /** Moves to the next row; returns false if there's none. */
+        boolean advance() throws IOException;
+
+        Row current();
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private static class MemoryRowCursor implements RowCursor {
+
+        @NotNull private final Iterator<Row> iterator;
+        private Row current;
+
+        private MemoryRowCursor(@NotNull Iterator<Row> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean advance() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public Row current() {
+            return current;
+        }
+    }
+
+    private static class FileRowCursor implements RowCursor {
+
+        @NotNull private final DataInputStream input;
+        private Row current;
+
+        private FileRowCursor(@NotNull File file) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+
+        @Override
+        public boolean advance() throws IOException {
+            current = Row.read(input);
+            return current != null;
+        }
+
+        @Override
+        public Row current() {
+            return current;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
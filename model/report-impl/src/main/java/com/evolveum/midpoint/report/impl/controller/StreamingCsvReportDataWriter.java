@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.report.impl.ReportServiceImpl;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurationType;
+
+import static com.evolveum.midpoint.repo.common.reports.ReportSupportUtil.COMPRESSED_FILE_SUFFIX;
+
+/**
+ * Creates exported reports in CSV format, without keeping the data rows in memory.
+ *
+ * Each row is formatted as soon as it's appended, and stored in {@link SpillingRowBuffer}.
+ *
+ * Not intended for dashboard reports.
+ */
+public class StreamingCsvReportDataWriter extends CsvReportDataWriter
+        implements StreamingReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow> {
+
+    @NotNull private final SpillingRowBuffer rows;
+
+    /** Format for individual data rows (i.e. without the header). */
+    @NotNull private final CSVFormat rowFormat;
+
+    private final boolean compressed;
+
+    public StreamingCsvReportDataWriter(
+            ReportServiceImpl reportService,
+            @Nullable FileFormatConfigurationType configuration) {
+        super(reportService, configuration);
+        this.rowFormat = support.createCsvFormat();
+        this.rows = new SpillingRowBuffer(configuration);
+        this.compressed = configuration != null && Boolean.TRUE.equals(configuration.isCompress());
+    }
+
+    /** Thread safety: The formatting is done in the caller thread, the storing is guarded by {@link #rows}. */
+    @Override
+    public void appendDataRow(ExportedReportDataRow row) {
+        try {
+            StringWriter stringWriter = new StringWriter();
+            CSVPrinter printer = new CSVPrinter(stringWriter, rowFormat);
+            printer.printRecord(createPhysicalColumnsList(row));
+            printer.flush();
+            rows.add(row.getSequentialNumber(), stringWriter.toString());
+        } catch (IOException e) {
+            throw new SystemException("Couldn't store report data row: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        rows.clear();
+    }
+
+    @Override
+    public String getStringData() {
+        try {
+            StringWriter stringWriter = new StringWriter();
+            writeData(stringWriter);
+            return stringWriter.toString();
+        } catch (IOException e) {
+            throw new SystemException("Unexpected IOException: " + e.getMessage(), e);
+        }
+    }
+
+    /** Writes the header (if present) and the data rows. */
+    private void writeData(Writer output) throws IOException {
+        CSVPrinter printer = new CSVPrinter(output, createCsvFormat()); // prints the header, if there's any
+        printer.flush();
+        rows.writeTo(output);
+    }
+
+    @Override
+    public void writeReport(@NotNull File file) throws IOException {
+        try (Writer output = openOutput(file)) {
+            writeData(output);
+            writeSubscriptionFooter(output);
+        } finally {
+            rows.clear();
+        }
+    }
+
+    @Override
+    public void writeAggregatedReport(@NotNull File aggregatedDataFile, @NotNull File file) throws IOException {
+        try (Writer output = openOutput(file)) {
+            copyAggregatedData(aggregatedDataFile, output);
+            writeSubscriptionFooter(output);
+        }
+    }
+
+    /** See {@link CsvReportDataWriter#completeReport(String)}. */
+    private void writeSubscriptionFooter(Writer output) throws IOException {
+        String subscriptionFooter = reportService.missingSubscriptionFooter();
+        if (subscriptionFooter != null) {
+            output.write(subscriptionFooter + System.lineSeparator());
+        }
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public String getTypeSuffix() {
+        return compressed ? super.getTypeSuffix() + COMPRESSED_FILE_SUFFIX : super.getTypeSuffix();
+    }
+}
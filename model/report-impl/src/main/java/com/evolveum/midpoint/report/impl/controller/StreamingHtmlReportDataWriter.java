@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.model.api.authentication.CompiledObjectCollectionView;
+import com.evolveum.midpoint.report.impl.ReportServiceImpl;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurationType;
+
+import static com.evolveum.midpoint.repo.common.reports.ReportSupportUtil.COMPRESSED_FILE_SUFFIX;
+
+/**
+ * Creates exported reports in HTML format, without keeping the data rows in memory.
+ *
+ * Each row is rendered as soon as it's appended, and stored in {@link SpillingRowBuffer}.
+ *
+ * The output is the same as of {@link HtmlReportDataWriter}, including the format of the partial data of distributed reports.
+ */
+public class StreamingHtmlReportDataWriter
+        extends HtmlReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow>
+        implements StreamingReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow> {
+
+    private static final String THEAD_END = "</thead>";
+    private static final String TBODY_START = "<tbody>";
+    private static final String TBODY_END = "</tbody>";
+
+    @NotNull private final SpillingRowBuffer rows;
+
+    private final boolean compressed;
+
+    /**
+     * Whether the `tbody` element was started in the aggregated data.
+     * (The partial data are stripped of their own `tbody` tags, see {@link #appendAggregatedData(Writer, String)}.)
+     */
+    private boolean aggregatedBodyStarted;
+
+    public StreamingHtmlReportDataWriter(
+            ReportServiceImpl reportService,
+            CompiledObjectCollectionView compiledView,
+            @Nullable FileFormatConfigurationType configuration) {
+        super(reportService, compiledView, configuration);
+        this.rows = new SpillingRowBuffer(configuration);
+        this.compressed = configuration != null && Boolean.TRUE.equals(configuration.isCompress());
+    }
+
+    /** Thread safety: The rendering is done in the caller thread, the storing is guarded by {@link #rows}. */
+    @Override
+    public void appendDataRow(ExportedReportDataRow row) {
+        try {
+            rows.add(row.getSequentialNumber(), createTr(row).render());
+        } catch (IOException e) {
+            throw new SystemException("Couldn't store report data row: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        rows.clear();
+    }
+
+    @Override
+    public String getStringData() {
+        try {
+            StringWriter stringWriter = new StringWriter();
+            writeData(stringWriter);
+            return stringWriter.toString();
+        } catch (IOException e) {
+            throw new SystemException("Unexpected IOException: " + e.getMessage(), e);
+        }
+    }
+
+    /** Writes the header (if present) and the data rows, just like {@link #getStringDataInternal(ExportedReportHeaderRow, java.util.List)}. */
+    private void writeData(Writer output) throws IOException {
+        if (getHeaderRow() != null) {
+            output.write(createTHead(getHeaderRow()));
+        }
+        if (!rows.isEmpty()) {
+            output.write(TBODY_START);
+            rows.writeTo(output);
+            output.write(TBODY_END);
+        }
+    }
+
+    @Override
+    public void writeReport(@NotNull File file) throws IOException {
+        try (Writer output = openOutput(file)) {
+            output.write(createReportStart());
+            output.write(createTableBoxStart(support));
+            writeData(output);
+            output.write(TABLE_BOX_END);
+            output.write(createReportEnd());
+        } finally {
+            rows.clear();
+        }
+    }
+
+    /**
+     * The streaming counterpart of `parseAggregatedData`: the header (present in the first bucket only) is kept,
+     * and the data rows from all buckets are put into a single `tbody` element.
+     */
+    @Override
+    public void appendAggregatedData(@NotNull Writer aggregatedData, @NotNull String partialData) throws IOException {
+        String partialRows = partialData;
+        if (!aggregatedBodyStarted) {
+            int headEnd = partialData.indexOf(THEAD_END);
+            if (headEnd >= 0) {
+                aggregatedData.write(partialData, 0, headEnd + THEAD_END.length());
+                partialRows = partialData.substring(headEnd + THEAD_END.length());
+            }
+            aggregatedData.write(TBODY_START);
+            aggregatedBodyStarted = true;
+        }
+        aggregatedData.write(
+                partialRows.replace(TBODY_START, "").replace(TBODY_END, ""));
+    }
+
+    @Override
+    public void writeAggregatedReport(@NotNull File aggregatedDataFile, @NotNull File file) throws IOException {
+        try (Writer output = openOutput(file)) {
+            output.write(createReportStart());
+            output.write(createTableBoxStart(support));
+            copyAggregatedData(aggregatedDataFile, output);
+            if (aggregatedBodyStarted) {
+                output.write(TBODY_END);
+            }
+            output.write(TABLE_BOX_END);
+            output.write(createReportEnd());
+        }
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public String getTypeSuffix() {
+        return compressed ? super.getTypeSuffix() + COMPRESSED_FILE_SUFFIX : super.getTypeSuffix();
+    }
+}
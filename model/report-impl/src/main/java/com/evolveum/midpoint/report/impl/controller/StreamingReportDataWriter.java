@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl.controller;
+
+import java.io.*;
+import java.util.zip.GZIPOutputStream;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link ReportDataWriter} that writes the (complete) report directly to a file, instead of producing it as a string.
+ * The data rows are not kept in memory, see {@link SpillingRowBuffer}.
+ *
+ * Used when `fileFormat/streaming` is set in the report. The output can be compressed, see {@link #isCompressed()}.
+ *
+ * For distributed reports, the partial data (as produced by {@link #getStringData()} for individual buckets)
+ * are appended to an aggregated data file by {@link #appendAggregatedData(Writer, String)}, and then the report
+ * is completed by {@link #writeAggregatedReport(File, File)}.
+ */
+public interface StreamingReportDataWriter<ED extends ExportedReportDataRow, EH extends ExportedReportHeaderRow>
+        extends ReportDataWriter<ED, EH> {
+
+    /**
+     * Writes the complete report - i.e. the data rows (and the header) along with the format-specific prefix and suffix -
+     * to the specified file.
+     */
+    void writeReport(@NotNull File file) throws IOException;
+
+    /**
+     * Appends partial data coming from a bucket to the aggregated data. The partial data are provided in the order
+     * of the buckets.
+     */
+    default void appendAggregatedData(@NotNull Writer aggregatedData, @NotNull String partialData) throws IOException {
+        aggregatedData.write(partialData);
+    }
+
+    /**
+     * Writes the complete report to the specified file, taking the data rows from the aggregated data file
+     * (filled-in by {@link #appendAggregatedData(Writer, String)}).
+     */
+    void writeAggregatedReport(@NotNull File aggregatedDataFile, @NotNull File file) throws IOException;
+
+    /** Should the output be gzip-compressed? */
+    boolean isCompressed();
+
+    /** Opens a writer for the output file, compressing the output if needed. */
+    default @NotNull Writer openOutput(@NotNull File file) throws IOException {
+        OutputStream stream = new FileOutputStream(file);
+        if (isCompressed()) {
+            stream = new GZIPOutputStream(stream);
+        }
+        return new BufferedWriter(new OutputStreamWriter(stream, getEncoding()));
+    }
+
+    /** Copies the content of the aggregated data file (written in {@link #getEncoding()}) to the output. */
+    default void copyAggregatedData(@NotNull File aggregatedDataFile, @NotNull Writer output) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(aggregatedDataFile), getEncoding()))) {
+            reader.transferTo(output);
+        }
+    }
+}
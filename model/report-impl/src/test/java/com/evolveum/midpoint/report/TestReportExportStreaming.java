@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.TestObject;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Checks that the streaming exports (`fileFormat/streaming`) produce the same output as the regular ones.
+ *
+ * The number of rows kept in memory is set very low, so the rows are spilled to temporary files and merged.
+ * Both classic and distributed exports are tested, in CSV and HTML, with and without compression.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-report-test-main.xml" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class TestReportExportStreaming extends TestCsvReport {
+
+    private static final File TEST_DIR = new File("src/test/resources/reports");
+
+    private static final TestObject<TaskType> TASK_DISTRIBUTED_EXPORT_USERS = TestObject.file(TEST_DIR_REPORTS,
+            "task-distributed-export-users.xml", "5ab8f8c6-df1a-4580-af8b-a899f240b44f");
+
+    private static final TestObject<ReportType> REPORT_OBJECT_COLLECTION_USERS = TestObject.file(TEST_DIR,
+            "report-object-collection-users.xml", "64e13165-21e5-419a-8d8b-732895109f84");
+
+    private static final int USERS = 200;
+
+    private static final int MAX_ROWS_IN_MEMORY = 7;
+
+    /** Prefixes of temporary files created by the streaming writers and by the aggregation. */
+    private static final Set<String> TEMP_FILE_PREFIXES = Set.of("midpoint-report-rows-", "midpoint-report-aggregated-");
+
+    /** Used by {@link #runExportTask(TestObject, TestObject, OperationResult)}. */
+    private FileFormatConfigurationType fileFormat;
+
+    /** Used by {@link #runExportTask(TestObject, TestObject, OperationResult)}. */
+    private ItemName workDefinitionType;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+
+        repoAdd(TASK_EXPORT_CLASSIC, initResult);
+        repoAdd(TASK_DISTRIBUTED_EXPORT_USERS, initResult);
+        repoAdd(REPORT_OBJECT_COLLECTION_USERS, initResult);
+
+        createUsers(USERS, initTask, initResult);
+    }
+
+    @Test
+    public void test100ClassicCsv() throws Exception {
+        when("users are exported in the regular and in the streaming way");
+        String regular = exportClassic(regular(FileFormatTypeType.CSV));
+        String streaming = exportClassic(streaming(FileFormatTypeType.CSV, false));
+
+        then("the outputs are the same");
+        assertThat(regular.lines().count()).as("lines in regular output").isGreaterThan(USERS);
+        assertThat(streaming).isEqualTo(regular);
+    }
+
+    @Test
+    public void test110ClassicCsvCompressed() throws Exception {
+        when("users are exported in the regular and in the streaming way, with compression");
+        String regular = exportClassic(regular(FileFormatTypeType.CSV));
+        String streaming = exportClassic(streaming(FileFormatTypeType.CSV, true));
+
+        then("the outputs are the same");
+        assertThat(streaming).isEqualTo(regular);
+    }
+
+    @Test
+    public void test120ClassicHtml() throws Exception {
+        when("users are exported in the regular and in the streaming way");
+        String regular = exportClassic(regular(FileFormatTypeType.HTML));
+        String streaming = exportClassic(streaming(FileFormatTypeType.HTML, false));
+
+        then("the tables are the same");
+        assertThat(table(streaming)).isEqualTo(table(regular));
+    }
+
+    @Test
+    public void test200DistributedCsv() throws Exception {
+        when("users are exported in the regular and in the streaming way");
+        String regular = exportDistributed(regular(FileFormatTypeType.CSV));
+        String streaming = exportDistributed(streaming(FileFormatTypeType.CSV, false));
+
+        then("the outputs are the same");
+        assertThat(regular.lines().count()).as("lines in regular output").isGreaterThan(USERS);
+        assertThat(streaming).isEqualTo(regular);
+    }
+
+    @Test
+    public void test210DistributedHtmlCompressed() throws Exception {
+        when("users are exported in the regular and in the streaming way, with compression");
+        String regular = exportDistributed(regular(FileFormatTypeType.HTML));
+        String streaming = exportDistributed(streaming(FileFormatTypeType.HTML, true));
+
+        then("the tables are the same");
+        assertThat(table(streaming)).isEqualTo(table(regular));
+    }
+
+    private String exportClassic(FileFormatConfigurationType format) throws Exception {
+        return export(TASK_EXPORT_CLASSIC, WorkDefinitionsType.F_REPORT_EXPORT, format);
+    }
+
+    private String exportDistributed(FileFormatConfigurationType format) throws Exception {
+        return export(TASK_DISTRIBUTED_EXPORT_USERS, WorkDefinitionsType.F_DISTRIBUTED_REPORT_EXPORT, format);
+    }
+
+    /** Runs the export, checks that no temporary files are left, and returns the (uncompressed) output. */
+    private String export(TestObject<TaskType> exportTask, ItemName workDefinitionType, FileFormatConfigurationType format)
+            throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        Set<String> tempFilesBefore = listTempFiles();
+
+        this.fileFormat = format;
+        this.workDefinitionType = workDefinitionType;
+        runExportTask(exportTask, REPORT_OBJECT_COLLECTION_USERS, result);
+        waitForTaskCloseOrSuspend(exportTask.oid, 60000);
+
+        assertTask(exportTask.oid, "after")
+                .assertSuccess();
+
+        assertThat(listTempFiles())
+                .as("temporary files after the export")
+                .isSubsetOf(tempFilesBefore);
+
+        PrismObject<TaskType> reportTask = getObject(TaskType.class, exportTask.oid);
+        File outputFile = findReportOutputFile(reportTask, result);
+        assertThat(outputFile).as("output file").isNotNull();
+        boolean compressed = Boolean.TRUE.equals(format.isCompress());
+        assertThat(outputFile.getName().endsWith(".gz"))
+                .as("output file '%s' has the compression suffix", outputFile.getName())
+                .isEqualTo(compressed);
+
+        String content;
+        try (InputStream input = compressed ?
+                new GZIPInputStream(new FileInputStream(outputFile)) : new FileInputStream(outputFile)) {
+            content = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        displayValue("output (" + outputFile + ")", content);
+        return content;
+    }
+
+    /** The HTML table, i.e. without the "generated on" timestamp. */
+    private String table(String html) {
+        int tableStart = html.indexOf("<table");
+        assertThat(tableStart).as("table start").isGreaterThanOrEqualTo(0);
+        return html.substring(tableStart);
+    }
+
+    private Set<String> listTempFiles() throws IOException {
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles();
+        if (files == null) {
+            throw new IOException("Couldn't list the temporary directory");
+        }
+        return Arrays.stream(files)
+                .map(File::getName)
+                .filter(name -> TEMP_FILE_PREFIXES.stream().anyMatch(name::startsWith))
+                .collect(Collectors.toSet());
+    }
+
+    private FileFormatConfigurationType regular(FileFormatTypeType type) {
+        return new FileFormatConfigurationType()
+                .type(type);
+    }
+
+    private FileFormatConfigurationType streaming(FileFormatTypeType type, boolean compress) {
+        return new FileFormatConfigurationType()
+                .type(type)
+                .streaming(true)
+                .compress(compress)
+                .maxRowsInMemory(MAX_ROWS_IN_MEMORY);
+    }
+
+    @Override
+    protected FileFormatConfigurationType getFileFormatConfiguration() {
+        return fileFormat;
+    }
+
+    @Override
+    protected ItemName getWorkDefinitionType() {
+        return workDefinitionType;
+    }
+}
@@ -42,6 +42,8 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.task.api.TaskConstants;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventListType;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
 import com.evolveum.midpoint.xml.ns._public.common.api_types_3.TerminateSessionEventType;
 import com.evolveum.midpoint.xml.ns._public.common.api_types_3.UserSessionManagementListType;
 import com.evolveum.midpoint.xml.ns._public.common.api_types_3.UserSessionManagementType;
@@ -65,6 +67,7 @@ public class ClusterRestController extends AbstractRestController {
     public static final String CLASS_DOT = ClusterRestController.class.getName() + ".";
 
     private static final String OPERATION_EXECUTE_CLUSTER_CACHE_INVALIDATION_EVENT = CLASS_DOT + "executeClusterCacheInvalidationEvent";
+    private static final String OPERATION_EXECUTE_CLUSTER_CACHE_INVALIDATION_EVENTS = CLASS_DOT + "executeClusterCacheInvalidationEvents";
     private static final String OPERATION_EXECUTE_CLUSTER_TERMINATE_SESSION_EVENT = CLASS_DOT + "executeClusterTerminateSessionEvent";
     private static final String OPERATION_GET_LOCAL_SCHEDULER_INFORMATION = CLASS_DOT + "getLocalSchedulerInformation";
     private static final String OPERATION_STOP_LOCAL_SCHEDULER = CLASS_DOT + "stopLocalScheduler";
@@ -122,6 +125,35 @@ public class ClusterRestController extends AbstractRestController {
         return response;
     }
 
+    @PostMapping(ClusterServiceConsts.EVENT_INVALIDATION_BATCH)
+    public ResponseEntity<?> executeClusterCacheInvalidationEvents(
+            @RequestBody CacheInvalidationEventListType events) {
+        Task task = initRequest();
+        OperationResult result = createSubresult(task, OPERATION_EXECUTE_CLUSTER_CACHE_INVALIDATION_EVENTS);
+        result.addParam("events", events.getEvent().size());
+
+        ResponseEntity<?> response;
+        try {
+            checkNodeAuthentication();
+
+            CacheInvalidationContext context = new CacheInvalidationContext(true, null);
+            for (CacheInvalidationEventType event : events.getEvent()) {
+                Class<? extends ObjectType> clazz = event.getType() != null
+                        ? ObjectTypes.getObjectTypeClass(event.getType()) : null;
+                String oid = clazz != null ? event.getOid() : null;
+                // clusterwide is false: we got this from another node so we don't need to redistribute it
+                cacheDispatcher.dispatchInvalidation(clazz, oid, false, context);
+            }
+
+            result.recordSuccess();
+            response = createResponse(HttpStatus.OK, result);
+        } catch (Throwable t) {
+            response = handleException(result, t);
+        }
+        finishRequest(task, result);
+        return response;
+    }
+
     @PostMapping(ClusterServiceConsts.EVENT_TERMINATE_SESSION)
     public ResponseEntity<?> executeClusterTerminateSessionEvent(
             @RequestBody TerminateSessionEventType event) {
@@ -8,7 +8,12 @@ package com.evolveum.midpoint.rest.impl;
 
 import static org.springframework.http.ResponseEntity.status;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -17,6 +22,7 @@ import javax.xml.namespace.QName;
 import com.evolveum.midpoint.schema.config.ConfigurationItemOrigin;
 import com.evolveum.midpoint.schema.config.ExecuteScriptConfigItem;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.ws.rs.core.Response;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.Validate;
@@ -32,19 +38,26 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import com.evolveum.midpoint.model.api.*;
 import com.evolveum.midpoint.model.impl.ModelCrudService;
 import com.evolveum.midpoint.model.impl.scripting.PipelineData;
+import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismSerializer;
+import com.evolveum.midpoint.prism.SerializationOptions;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.ItemPathCollectionsUtil;
+import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
 import com.evolveum.midpoint.schema.DefinitionProcessingOption;
 import com.evolveum.midpoint.schema.DeltaConvertor;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.constants.MidPointConstants;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.constants.ObjectTypes;
 import com.evolveum.midpoint.schema.expression.VariablesMap;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
 import com.evolveum.midpoint.security.api.SecurityUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.*;
@@ -642,6 +655,152 @@ public class ModelRestController extends AbstractRestController {
         return response;
     }
 
+    /**
+     * Streaming variant of {@link #searchObjects(String, List, List, List, List, QueryType)}.
+     *
+     * The objects are written to the response as they are found (using iterative search), one object per line,
+     * in JSON format (NDJSON). Nothing is kept in memory.
+     *
+     * The objects are always ordered by OID. To get the next "page", the client provides the OID of the last object
+     * received as the `after` parameter (keyset paging, no counting and no offsets are needed). The number of objects
+     * is limited by `limit` parameter or by the `maxSize` in the query paging. Other paging options are not supported.
+     *
+     * If the search fails after the first object was written, the status cannot be changed any more.
+     * In that case, the last line contains the operation result.
+     */
+    @PostMapping("/{type}/search/stream")
+    public ResponseEntity<?> searchObjectsStreaming(
+            @PathVariable("type") String type,
+            @RequestParam(value = "options", required = false) List<String> options,
+            @RequestParam(value = "include", required = false) List<String> include,
+            @RequestParam(value = "exclude", required = false) List<String> exclude,
+            @RequestParam(value = "resolveNames", required = false) List<String> resolveNames,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestBody QueryType queryType,
+            HttpServletResponse httpResponse) {
+
+        Task task = initRequest();
+        OperationResult result = task.getResult().createSubresult("searchObjectsStreaming");
+
+        Class<? extends ObjectType> clazz = ObjectTypes.getClassFromRestType(type);
+        ResponseEntity<?> response;
+        ObjectStreamWriter streamWriter = null;
+        try {
+            ObjectQuery query = createStreamingQuery(clazz, queryType, after, limit);
+            Collection<SelectorOptions<GetOperationOptions>> searchOptions = GetOperationOptions.fromRestOptions(options, include,
+                    exclude, resolveNames, DefinitionProcessingOption.ONLY_IF_EXISTS, prismContext);
+
+            httpResponse.setStatus(HttpStatus.OK.value());
+            httpResponse.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            streamWriter = new ObjectStreamWriter(httpResponse);
+
+            ObjectStreamWriter writer = streamWriter;
+            modelService.searchObjectsIterative(clazz, query,
+                    (object, lResult) -> {
+                        try {
+                            removeExcludes(object, exclude); // temporary measure until fixed in repo
+                            writer.write(object);
+                            return true;
+                        } catch (IOException | SchemaException e) {
+                            throw new SystemException("Couldn't write " + object + " to the response: " + e.getMessage(), e);
+                        }
+                    },
+                    searchOptions, task, result);
+
+            result.computeStatusIfUnknown();
+            if (!result.isSuccess() && !result.isHandledError()) {
+                streamWriter.writeResult(result);
+            }
+            streamWriter.flush();
+            response = null; // the response was written directly
+        } catch (Exception ex) {
+            if (streamWriter == null || !streamWriter.hasWrittenObjects()) {
+                httpResponse.reset();
+                response = handleException(result, ex);
+            } else {
+                LoggingUtils.logUnexpectedException(logger, "Streaming search failed after some objects were written", ex);
+                response = null;
+                result.recordFatalError(ex);
+                try {
+                    streamWriter.writeResult(result);
+                    streamWriter.flush();
+                } catch (IOException | SchemaException e) {
+                    LoggingUtils.logUnexpectedException(logger, "Couldn't write operation result to the response", e);
+                }
+            }
+        }
+
+        result.computeStatus();
+        finishRequest(task, result);
+        return response;
+    }
+
+    /**
+     * Creates the query for streaming search: the client's filter (if any), objects after the provided OID,
+     * ordered by OID, with the limit.
+     */
+    private ObjectQuery createStreamingQuery(
+            Class<? extends ObjectType> clazz, QueryType queryType, String after, Integer limit) throws SchemaException {
+        ObjectQuery query = prismContext.getQueryConverter().createObjectQuery(clazz, queryType);
+        ObjectPaging clientPaging = query.getPaging();
+        if (clientPaging != null
+                && (clientPaging.getOffset() != null || clientPaging.hasOrdering() || clientPaging.hasCookie())) {
+            throw new IllegalArgumentException("Only maxSize paging is supported in streaming search; use 'after' parameter"
+                    + " for getting subsequent objects");
+        }
+        if (after != null) {
+            query.setFilter(
+                    ObjectQueryUtil.filterAnd(
+                            query.getFilter(),
+                            prismContext.queryFor(clazz)
+                                    .item(PrismConstants.T_ID).gt(after)
+                                    .buildFilter()));
+        }
+        Integer maxSize = limit != null ? limit : clientPaging != null ? clientPaging.getMaxSize() : null;
+        query.setPaging(
+                prismContext.queryFactory().createPaging(null, maxSize, PrismConstants.T_ID, OrderDirection.ASCENDING));
+        return query;
+    }
+
+    /** Writes objects (and possibly the operation result) to the response, one per line. */
+    private class ObjectStreamWriter {
+
+        @NotNull private final Writer writer;
+        @NotNull private final PrismSerializer<String> serializer =
+                prismContext.jsonSerializer().options(SerializationOptions.createSerializeReferenceNames());
+        private boolean writtenObjects;
+
+        ObjectStreamWriter(@NotNull HttpServletResponse httpResponse) throws IOException {
+            this.writer = new BufferedWriter(
+                    new OutputStreamWriter(httpResponse.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        void write(PrismObject<? extends ObjectType> object) throws IOException, SchemaException {
+            writeLine(serializer.serialize(object));
+            writtenObjects = true;
+        }
+
+        void writeResult(OperationResult result) throws IOException, SchemaException {
+            writeLine(serializer.serializeAnyData(result.createOperationResultType(), SchemaConstants.C_RESULT));
+        }
+
+        /** JSON strings cannot contain raw line breaks, so removing them from the serialized form is safe. */
+        private void writeLine(String json) throws IOException {
+            writer.write(json.replace("\r", "").replace("\n", ""));
+            writer.write('\n');
+        }
+
+        boolean hasWrittenObjects() {
+            return writtenObjects;
+        }
+
+        void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
     private void removeExcludes(PrismObject<? extends ObjectType> object, List<String> exclude)
             throws SchemaException {
         object.getValue().removePaths(
@@ -7,9 +7,12 @@
 
 package com.evolveum.midpoint.provisioning.api;
 
+import java.util.Map;
+
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
 import com.evolveum.midpoint.task.api.ExpressionEnvironmentSupplier;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
 
 public class ProvisioningOperationContext {
 
@@ -30,6 +33,13 @@ public class ProvisioningOperationContext {
      */
     private ObjectReferenceType shadowRef;
 
+    /**
+     * Repository shadows already read by the caller (e.g. by a single query for more shadows), indexed by OID.
+     * When getting a shadow, the matching one is used instead of reading it from the repository again.
+     * The shadow may be modified by the operation, so the caller should not use it afterwards.
+     */
+    private Map<String, ShadowType> repositoryShadows;
+
     public ObjectReferenceType shadowRef() {
         return shadowRef;
     }
@@ -39,6 +49,15 @@ public class ProvisioningOperationContext {
         return this;
     }
 
+    public Map<String, ShadowType> repositoryShadows() {
+        return repositoryShadows;
+    }
+
+    public ProvisioningOperationContext repositoryShadows(Map<String, ShadowType> repositoryShadows) {
+        this.repositoryShadows = repositoryShadows;
+        return this;
+    }
+
     public String requestIdentifier() {
         return requestIdentifier;
     }
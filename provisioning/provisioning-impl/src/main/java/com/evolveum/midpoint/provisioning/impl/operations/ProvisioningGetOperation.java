@@ -8,6 +8,7 @@
 package com.evolveum.midpoint.provisioning.impl.operations;
 
 import java.util.Collection;
+import java.util.Map;
 
 import com.evolveum.midpoint.provisioning.api.ProvisioningOperationContext;
 
@@ -109,7 +110,7 @@ public class ProvisioningGetOperation<T extends ObjectType> {
             throws ExpressionEvaluationException, ObjectNotFoundException, CommunicationException, SchemaException,
             ConfigurationException, SecurityViolationException {
         try {
-            return beans.shadowsFacade.getShadow(oid, null, null, options, context, task, result);
+            return beans.shadowsFacade.getShadow(oid, getProvidedRepositoryShadow(), null, options, context, task, result);
         } catch (MaintenanceException e) {
             throw new AssertionError(
                     "Unexpected MaintenanceException. The called method should have returned cached shadow instead.", e);
@@ -124,6 +125,11 @@ public class ProvisioningGetOperation<T extends ObjectType> {
         }
     }
 
+    private @Nullable ShadowType getProvidedRepositoryShadow() {
+        Map<String, ShadowType> repositoryShadows = context.repositoryShadows();
+        return repositoryShadows != null ? repositoryShadows.get(oid) : null;
+    }
+
     public boolean isRawMode() {
         return GetOperationOptions.isRaw(rootOptions);
     }
@@ -7,7 +7,9 @@
 
 package com.evolveum.midpoint.provisioning.impl.resourceobjects;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.datatype.XMLGregorianCalendar;
 
@@ -301,44 +303,35 @@ public class ResourceObjectConverter {
         ConnectorInstance connector = ctx.getConnector(LiveSyncCapabilityType.class, gResult);
         Integer maxChanges = getMaxChanges(maxChangesConfigured, ctx);
 
-        AtomicInteger processed = new AtomicInteger(0);
-        UcfLiveSyncChangeListener localListener = (ucfChange, lParentResult) -> {
-            int changeNumber = processed.getAndIncrement();
-
-            OperationResult lResult = lParentResult.subresult(OPERATION_HANDLE_CHANGE)
-                    .setMinor()
-                    .addParam("number", changeNumber)
-                    .addParam("localSequenceNumber", ucfChange.getLocalSequenceNumber())
-                    .addArbitraryObjectAsParam("primaryIdentifier", ucfChange.getPrimaryIdentifierValue())
-                    .addArbitraryObjectAsParam("token", ucfChange.getToken()).build();
-
-            try {
-                ResourceObjectLiveSyncChange change =
-                        new ResourceObjectLiveSyncChange(ucfChange, ctx, attrsToReturn);
-                // Intentionally not initializing the change here. Let us be flexible and let the ultimate caller decide.
-                return outerListener.onChange(change, lResult);
-            } catch (Throwable t) {
-                lResult.recordFatalError(t);
-                throw t;
-            } finally {
-                lResult.computeStatusIfUnknown();
-            }
-        };
+        LiveSyncChangesHandler localListener = new LiveSyncChangesHandler(ctx, attrsToReturn, outerListener);
 
         // get changes from the connector
-        UcfFetchChangesResult fetchChangesResult = connector.fetchChanges(
-                ctx.getObjectDefinition(),
-                TokenUtil.toUcf(initialToken),
-                attrsToReturn,
-                maxChanges,
-                ctx.getUcfExecutionContext(),
-                localListener,
-                gResult);
+        UcfFetchChangesResult fetchChangesResult;
+        try {
+            fetchChangesResult = connector.fetchChanges(
+                    ctx.getObjectDefinition(),
+                    TokenUtil.toUcf(initialToken),
+                    attrsToReturn,
+                    maxChanges,
+                    ctx.getUcfExecutionContext(),
+                    localListener,
+                    gResult);
+            if (!localListener.handleRemainingChanges(gResult)) {
+                // The connector may think it has returned all the changes, but some of them were not processed.
+                fetchChangesResult = new UcfFetchChangesResult(false, null);
+            }
+        } catch (Throwable t) {
+            localListener.handleChangesReceivedBeforeFailure(t, gResult);
+            throw t;
+        } finally {
+            localListener.batchesFinished();
+        }
 
         computeResultStatus(gResult);
 
         LOGGER.trace("END fetch changes ({} changes); interrupted = {}; all fetched = {}, final token = {}",
-                processed.get(), !ctx.canRun(), fetchChangesResult.isAllChangesFetched(), fetchChangesResult.getFinalToken());
+                localListener.processed.get(), !ctx.canRun(), fetchChangesResult.isAllChangesFetched(),
+                fetchChangesResult.getFinalToken());
 
         return fetchChangesResult;
     }
@@ -485,4 +478,128 @@ public class ResourceObjectConverter {
                         ctx.getExceptionDescription(connector), ex.getMessage()),
                 ex);
     }
+
+    /**
+     * Converts UCF live sync changes to {@link ResourceObjectLiveSyncChange} instances and passes them to the outer listener.
+     * If the listener wants so, the changes are passed in batches (see {@link ResourceObjectLiveSyncChangeListener#getBatchSize()}).
+     */
+    private static class LiveSyncChangesHandler implements UcfLiveSyncChangeListener {
+
+        @NotNull private final ProvisioningContext ctx;
+        @Nullable private final AttributesToReturn attrsToReturn;
+        @NotNull private final ResourceObjectLiveSyncChangeListener outerListener;
+        private final int batchSize;
+
+        private final AtomicInteger processed = new AtomicInteger(0);
+
+        /** Changes received from the connector but not yet passed to {@link #outerListener} (if batching is used). */
+        @NotNull private final List<UcfLiveSyncChange> changesBatch = new ArrayList<>();
+
+        /** Set when the outer listener requested to stop, leaving some of the changes (in the batch) unprocessed. */
+        private boolean changesLeftUnprocessed;
+
+        LiveSyncChangesHandler(
+                @NotNull ProvisioningContext ctx,
+                @Nullable AttributesToReturn attrsToReturn,
+                @NotNull ResourceObjectLiveSyncChangeListener outerListener) {
+            this.ctx = ctx;
+            this.attrsToReturn = attrsToReturn;
+            this.outerListener = outerListener;
+            this.batchSize = outerListener.getBatchSize();
+        }
+
+        @Override
+        public boolean onChange(UcfLiveSyncChange ucfChange, OperationResult lParentResult) {
+            if (batchSize <= 1) {
+                return handleChange(new ResourceObjectLiveSyncChange(ucfChange, ctx, attrsToReturn), ucfChange, lParentResult);
+            }
+            changesBatch.add(ucfChange);
+            if (changesBatch.size() < batchSize) {
+                return true;
+            } else {
+                return handleChangesBatch(lParentResult);
+            }
+        }
+
+        /**
+         * Processes the changes from the last (incomplete) batch.
+         *
+         * @return false if some changes were left unprocessed, because the outer listener requested to stop
+         */
+        boolean handleRemainingChanges(OperationResult result) {
+            if (!changesBatch.isEmpty()) {
+                handleChangesBatch(result);
+            }
+            return !changesLeftUnprocessed;
+        }
+
+        void batchesFinished() {
+            if (batchSize > 1) {
+                outerListener.batchesFinished();
+            }
+        }
+
+        /**
+         * Processes the changes received before the connector failed, just as they would be processed without batching.
+         * (So that e.g. the token can be advanced up to the last of them.) Any problem here must not hide the original failure.
+         */
+        void handleChangesReceivedBeforeFailure(Throwable failure, OperationResult result) {
+            if (changesBatch.isEmpty()) {
+                return;
+            }
+            LOGGER.debug("Fetching changes failed, processing {} change(s) received before the failure", changesBatch.size());
+            try {
+                handleChangesBatch(result);
+            } catch (Throwable t) {
+                failure.addSuppressed(t);
+            }
+        }
+
+        private boolean handleChangesBatch(OperationResult lParentResult) {
+            List<UcfLiveSyncChange> ucfChanges = new ArrayList<>(changesBatch);
+            changesBatch.clear();
+
+            List<ResourceObjectLiveSyncChange> changes = new ArrayList<>(ucfChanges.size());
+            for (UcfLiveSyncChange ucfChange : ucfChanges) {
+                changes.add(new ResourceObjectLiveSyncChange(ucfChange, ctx, attrsToReturn));
+            }
+            LOGGER.trace("Handling a batch of {} changes", changes.size());
+            outerListener.prepareForBatch(changes, lParentResult);
+
+            for (int i = 0; i < changes.size(); i++) {
+                if (!handleChange(changes.get(i), ucfChanges.get(i), lParentResult)) {
+                    int remaining = changes.size() - i - 1;
+                    if (remaining > 0) {
+                        LOGGER.trace("Listener requested to stop, {} remaining change(s) in the batch will not be processed",
+                                remaining);
+                        changesLeftUnprocessed = true;
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean handleChange(
+                ResourceObjectLiveSyncChange change, UcfLiveSyncChange ucfChange, OperationResult lParentResult) {
+            int changeNumber = processed.getAndIncrement();
+
+            OperationResult lResult = lParentResult.subresult(OPERATION_HANDLE_CHANGE)
+                    .setMinor()
+                    .addParam("number", changeNumber)
+                    .addParam("localSequenceNumber", ucfChange.getLocalSequenceNumber())
+                    .addArbitraryObjectAsParam("primaryIdentifier", ucfChange.getPrimaryIdentifierValue())
+                    .addArbitraryObjectAsParam("token", ucfChange.getToken()).build();
+
+            try {
+                // Intentionally not initializing the change here. Let us be flexible and let the ultimate caller decide.
+                return outerListener.onChange(change, lResult);
+            } catch (Throwable t) {
+                lResult.recordFatalError(t);
+                throw t;
+            } finally {
+                lResult.computeStatusIfUnknown();
+            }
+        }
+    }
 }
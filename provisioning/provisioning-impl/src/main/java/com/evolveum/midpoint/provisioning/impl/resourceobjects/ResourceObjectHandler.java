@@ -12,6 +12,8 @@ import com.evolveum.midpoint.util.annotation.Experimental;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Internal interface to handle each object found during by {@link ResourceObjectSearchOperation}.
  * (It is not the inner class of it, because that class is package-private.)
@@ -22,4 +24,27 @@ import org.jetbrains.annotations.NotNull;
 public interface ResourceObjectHandler {
 
     boolean handle(@NotNull ResourceObjectFound resourceObject, @NotNull OperationResult result);
+
+    /**
+     * How many objects should be collected before they are passed to {@link #handle(ResourceObjectFound, OperationResult)}
+     * one by one. Value of 1 (the default) means no batching.
+     */
+    default int getBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Called before a batch of objects is handled, so that the handler can prepare for them in bulk, e.g. look up their
+     * shadows using a single repository query. The objects are not initialized at this point. Called only if
+     * {@link #getBatchSize()} is greater than 1.
+     */
+    default void prepareForBatch(@NotNull List<ResourceObjectFound> resourceObjects, @NotNull OperationResult result) {
+    }
+
+    /**
+     * Called after the last batch was handled, or the search failed or was stopped; so that the handler can release
+     * anything it prepared for the batches. Called only if {@link #getBatchSize()} is greater than 1.
+     */
+    default void batchesFinished() {
+    }
 }
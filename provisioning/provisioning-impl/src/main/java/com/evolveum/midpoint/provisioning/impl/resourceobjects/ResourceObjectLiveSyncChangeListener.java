@@ -12,6 +12,10 @@ import com.evolveum.midpoint.provisioning.api.ResourceObjectChangeListener;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
 import com.evolveum.midpoint.schema.result.OperationResult;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
 /**
  * Processor of live sync changes emitted by {@link ResourceObjectConverter#fetchChanges(ProvisioningContext, LiveSyncToken,
  * Integer, ResourceObjectLiveSyncChangeListener, OperationResult)}.
@@ -27,4 +31,27 @@ public interface ResourceObjectLiveSyncChangeListener {
      * @return false if the processing of changes has to be stopped
      */
     boolean onChange(ResourceObjectLiveSyncChange change, OperationResult result);
+
+    /**
+     * How many changes should be collected before they are passed to {@link #onChange(ResourceObjectLiveSyncChange,
+     * OperationResult)} one by one. Value of 1 (the default) means no batching.
+     */
+    default int getBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Called before a batch of changes is processed, so that the listener can prepare for them in bulk, e.g. look up
+     * their shadows using a single repository query. The changes are not initialized at this point. Called only if
+     * {@link #getBatchSize()} is greater than 1.
+     */
+    default void prepareForBatch(@NotNull List<ResourceObjectLiveSyncChange> changes, @NotNull OperationResult result) {
+    }
+
+    /**
+     * Called after the last batch was processed, or fetching the changes failed or was stopped; so that the listener
+     * can release anything it prepared for the batches. Called only if {@link #getBatchSize()} is greater than 1.
+     */
+    default void batchesFinished() {
+    }
 }
@@ -30,6 +30,8 @@ import com.evolveum.midpoint.xml.ns._public.resource.capabilities_3.ReadCapabili
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -50,6 +52,12 @@ class ResourceObjectSearchOperation extends AbstractResourceObjectRetrievalOpera
     /** Just for numbering the objects for diagnostics purposes (for now). */
     private final AtomicInteger objectCounter = new AtomicInteger(0);
 
+    /** See {@link ResourceObjectHandler#getBatchSize()}. */
+    private final int batchSize;
+
+    /** Objects received from the connector but not yet passed to {@link #resultHandler} (if batching is used). */
+    @NotNull private final List<UcfObjectFound> objectsBatch = new ArrayList<>();
+
     ResourceObjectSearchOperation(
             @NotNull ProvisioningContext ctx,
             @NotNull ResourceObjectHandler resultHandler,
@@ -59,6 +67,7 @@ class ResourceObjectSearchOperation extends AbstractResourceObjectRetrievalOpera
         super(ctx, fetchAssociations, errorReportingMethod);
         this.resultHandler = resultHandler;
         this.clientQuery = clientQuery;
+        this.batchSize = resultHandler.getBatchSize();
     }
 
     public SearchResultMetadata execute(OperationResult parentResult)
@@ -87,16 +96,30 @@ class ResourceObjectSearchOperation extends AbstractResourceObjectRetrievalOpera
                 // Note that although both search hierarchy constraints and custom filters are part of object type delineation,
                 // they are treated differently. The former are handled by the UCF/ConnId connector, whereas the latter ones
                 // are handled here.
-                metadata = connector.search(
-                        objectDefinition,
-                        queryWithConstraints.query,
-                        this::handleObjectFound,
-                        ctx.createAttributesToReturn(),
-                        ctx.getEnabledCapability(PagedSearchCapabilityType.class),
-                        queryWithConstraints.constraints,
-                        getUcfErrorReportingMethod(),
-                        ctx.getUcfExecutionContext(),
-                        result);
+                try {
+                    metadata = connector.search(
+                            objectDefinition,
+                            queryWithConstraints.query,
+                            this::handleObjectFound,
+                            ctx.createAttributesToReturn(),
+                            ctx.getEnabledCapability(PagedSearchCapabilityType.class),
+                            queryWithConstraints.constraints,
+                            getUcfErrorReportingMethod(),
+                            ctx.getUcfExecutionContext(),
+                            result);
+
+                    // The last (incomplete) batch.
+                    if (!objectsBatch.isEmpty()) {
+                        handleObjectsBatch(result);
+                    }
+                } catch (Throwable t) {
+                    handleObjectsReceivedBeforeFailure(t, result);
+                    throw t;
+                } finally {
+                    if (batchSize > 1) {
+                        resultHandler.batchesFinished();
+                    }
+                }
 
             } catch (GenericFrameworkException e) {
                 throw new SystemException("Generic error in the connector: " + e.getMessage(), e);
@@ -143,7 +166,62 @@ class ResourceObjectSearchOperation extends AbstractResourceObjectRetrievalOpera
     }
 
     private boolean handleObjectFound(UcfObjectFound ucfObject, OperationResult parentResult) {
-        ResourceObjectFound objectFound = new ResourceObjectFound(ucfObject, ctx, fetchAssociations);
+        if (batchSize <= 1) {
+            return handleObjectFound(
+                    new ResourceObjectFound(ucfObject, ctx, fetchAssociations), ucfObject, parentResult);
+        }
+        objectsBatch.add(ucfObject);
+        if (objectsBatch.size() < batchSize) {
+            return true;
+        } else {
+            return handleObjectsBatch(parentResult);
+        }
+    }
+
+    /**
+     * Lets the handler prepare for the collected objects, and then passes them to it one by one.
+     *
+     * @return false if the handler requested to stop
+     */
+    private boolean handleObjectsBatch(OperationResult parentResult) {
+        List<UcfObjectFound> ucfObjects = new ArrayList<>(objectsBatch);
+        objectsBatch.clear();
+
+        List<ResourceObjectFound> objectsFound = new ArrayList<>(ucfObjects.size());
+        for (UcfObjectFound ucfObject : ucfObjects) {
+            objectsFound.add(new ResourceObjectFound(ucfObject, ctx, fetchAssociations));
+        }
+        LOGGER.trace("Handling a batch of {} objects", objectsFound.size());
+        resultHandler.prepareForBatch(objectsFound, parentResult);
+
+        for (int i = 0; i < objectsFound.size(); i++) {
+            if (!handleObjectFound(objectsFound.get(i), ucfObjects.get(i), parentResult)) {
+                LOGGER.trace("Handler requested to stop, {} remaining object(s) in the batch will not be handled",
+                        objectsFound.size() - i - 1);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The objects received before the connector failed are handled before the failure is propagated;
+     * just as they would be without batching. Any problem here must not hide the original failure.
+     */
+    private void handleObjectsReceivedBeforeFailure(Throwable failure, OperationResult result) {
+        if (objectsBatch.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Search failed, handling {} object(s) received before the failure", objectsBatch.size());
+        try {
+            handleObjectsBatch(result);
+        } catch (Throwable t) {
+            failure.addSuppressed(t);
+        }
+    }
+
+    private boolean handleObjectFound(
+            ResourceObjectFound objectFound, UcfObjectFound ucfObject, OperationResult parentResult) {
 
         // in order to utilize the cache right from the beginning...
         RepositoryCache.enterLocalCaches(b.cacheConfigurationManager);
@@ -24,6 +24,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInfo
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.SetMultimap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -36,6 +37,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.evolveum.midpoint.util.MiscUtil.schemaCheck;
 import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel.PER_CACHE;
@@ -44,12 +46,23 @@ import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLe
  * Caches {@link ResourceType} instances with a parsed schemas.
  *
  * Resource cache is similar to repository cache. One of the differences is that it does not expire its entries.
- * It relies on versions and on invalidation events instead. So we have to use resource object versions when querying it.
- * (This could be perhaps changed in the future. But not now.)
+ * It relies on invalidation events (coming from the repository cache via {@link CacheRegistry}, locally or from other
+ * cluster nodes) instead. Resources of given version can be requested as well; in that case, the versions are compared.
+ *
+ * Reading is lock-free. Writes (putting and invalidating) are serialized, so that we can reliably tell whether an entry
+ * being put could have missed an invalidation event. Such entries are marked as not verified, and their version is
+ * checked against the repository when they are requested via {@link #getIfLatest(String, boolean, OperationResult)}.
+ *
+ * Verification is not permanent, it is valid for {@link #VERIFICATION_VALIDITY_MILLIS}. After that, the version is checked
+ * again (directly in the repository, bypassing the repository cache). So, even if an invalidation event is lost or
+ * processed in an unexpected order (e.g. by this cache before the repository cache), stale resource is not used
+ * for longer than that.
  *
  * The cache deals with concrete resources, i.e. _not_ the abstract ones. So, when an abstract resource is invalidated,
  * all concrete ones that inherit from it should be invalidated as well.
  *
+ * Hits and misses are counted per resource, see {@link #getStatistics()}.
+ *
  * @author Radovan Semancik
  */
 @Component
@@ -58,8 +71,13 @@ public class ResourceCache implements Cache {
     private static final Trace LOGGER = TraceManager.getTrace(ResourceCache.class);
     private static final Trace LOGGER_CONTENT = TraceManager.getTrace(ResourceCache.class.getName() + ".content");
 
+    /** How long is the verification of an entry valid, i.e. how often is the version of a cached resource checked. */
+    private static final long VERIFICATION_VALIDITY_MILLIS = 10_000L;
+
     @Autowired private CacheRegistry cacheRegistry;
-    @Autowired @Qualifier("cacheRepositoryService") private RepositoryService repositoryService;
+
+    /** Plain repository, so that the version checks are not answered from the (global) repository cache. */
+    @Autowired @Qualifier("repositoryService") private RepositoryService repositoryService;
 
     @PostConstruct
     public void register() {
@@ -75,51 +93,87 @@ public class ResourceCache implements Cache {
      * Note that prism objects in this map are always not null and immutable.
      * And they must remain immutable after getting them from the cache.
      *
-     * As for ConcurrentHashMap: Although we use synchronization whenever possible, let's be extra cautious here.
+     * Modified only under {@link #writeLock}.
      */
-    private final Map<String, PrismObject<ResourceType>> cache = new ConcurrentHashMap<>();
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
 
     /**
      * `K -> V` means that (concrete) resource `V` depends on (concrete or abstract) resource `K`.
+     *
+     * Guarded by {@link #writeLock}.
      */
     private final SetMultimap<String, String> dependencyMap = HashMultimap.create();
 
+    /** Serializes modifications of the cache: putting and invalidating the entries. */
+    private final Object writeLock = new Object();
+
+    /**
+     * Number of invalidation events processed so far. Used to determine whether a resource being put into the cache
+     * could have missed an invalidation. Modified only under {@link #writeLock}.
+     */
+    private volatile long invalidationCount;
+
+    /** Hits and misses per resource OID. */
+    private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a marker to be used in {@link #put(ResourceType, Collection, Long)}. It should be obtained before
+     * the resource is read from the repository.
+     */
+    long getInvalidationMarker() {
+        return invalidationCount;
+    }
+
     /**
      * Puts a (complete) resource into the cache.
      *
      * @param resource The object to cache.
      * @param ancestorsOids OIDs of the resource ancestor(s), if any. Invalidation of any of these results in the invalidation
      * of the cached resource.
+     * @param invalidationMarker Value of {@link #getInvalidationMarker()} obtained before the resource was read from
+     * the repository. If there was no invalidation since then, the resource is considered to be the latest one.
+     * If `null` or if there was an invalidation, the resource version is checked when it's requested for the first time.
+     * Note that the resource may come from the (global) repository cache, so the verification is only as good as that
+     * cache; that's why it expires, see {@link #VERIFICATION_VALIDITY_MILLIS}.
      */
-    synchronized void put(
+    void put(
             @NotNull ResourceType resource,
-            @NotNull Collection<String> ancestorsOids) throws SchemaException {
+            @NotNull Collection<String> ancestorsOids,
+            @Nullable Long invalidationMarker) throws SchemaException {
         String oid = resource.getOid();
         schemaCheck(oid != null, "Attempt to cache %s without an OID", resource);
 
         String version = resource.getVersion();
         schemaCheck(version != null, "Attempt to cache %s without version", resource);
 
-        updateDependencies(oid, ancestorsOids);
+        synchronized (writeLock) {
+            updateDependencies(oid, ancestorsOids);
 
-        PrismObject<ResourceType> cachedResource = cache.get(oid);
-        if (cachedResource == null) {
-            LOGGER.debug("Caching(new): {}", resource);
-            cache.put(oid, resource.asPrismObject().createImmutableClone());
-        } else if (compareVersion(resource.getVersion(), cachedResource.getVersion())) {
-            LOGGER.debug("Caching fizzle, resource already cached: {}", resource);
-            // We already have equivalent resource, nothing to do
-            //  TODO is this correct? What if the resource being put here is newer than the existing one (although having the same version)?
-        } else {
-            LOGGER.debug("Caching(replace): {}", resource);
-            cache.put(oid, resource.asPrismObject().createImmutableClone());
+            boolean verified = invalidationMarker != null && invalidationMarker == invalidationCount;
+            long verifiedAt = verified ? System.currentTimeMillis() : 0;
+            Entry cachedEntry = cache.get(oid);
+            if (cachedEntry == null) {
+                LOGGER.debug("Caching(new): {} (verified: {})", resource, verified);
+                cache.put(oid, new Entry(resource.asPrismObject().createImmutableClone(), verifiedAt));
+            } else if (compareVersion(resource.getVersion(), cachedEntry.resource.getVersion())) {
+                // The version is increased on each modification of the resource in the repository, and the completed parts
+                // (schema, capabilities) are stored there as well. So the same version means an equivalent resource,
+                // and the cached one is kept. Only its verification is refreshed.
+                LOGGER.debug("Caching fizzle, resource already cached: {}", resource);
+                if (verified) {
+                    cachedEntry.verifiedAt = verifiedAt;
+                }
+            } else {
+                LOGGER.debug("Caching(replace): {} (verified: {})", resource, verified);
+                cache.put(oid, new Entry(resource.asPrismObject().createImmutableClone(), verifiedAt));
+            }
         }
     }
 
     /**
      * Updates the {@link #dependencyMap} with the current information about ancestors of given (concrete) resource.
      *
-     * Guarded by `this` (responsible of the caller).
+     * Guarded by {@link #writeLock} (responsible of the caller).
      */
     private void updateDependencies(String concreteResourceOid, Collection<String> ancestorsOids) {
         // Removing no-longer-valid ancestor OIDs
@@ -140,79 +194,96 @@ public class ResourceCache implements Cache {
     /**
      * Gets a resource if it has specified version. If it has not, purges it from the cache (even if it exists there).
      */
-    synchronized PrismObject<ResourceType> get(@NotNull String oid, String requestedVersion, boolean readOnly) {
-        InternalMonitor.getResourceCacheStats().recordRequest();
-
-        PrismObject<ResourceType> resourceToReturn;
-        PrismObject<ResourceType> cachedResource = cache.get(oid);
-        if (cachedResource == null) {
+    PrismObject<ResourceType> get(@NotNull String oid, String requestedVersion, boolean readOnly) {
+        Entry cachedEntry = cache.get(oid);
+        if (cachedEntry == null) {
             LOGGER.debug("MISS(not cached) for {} (get)", oid);
-            resourceToReturn = null;
-        } else if (!compareVersion(requestedVersion, cachedResource.getVersion())) {
-            LOGGER.debug("MISS(wrong version) for {} (req={}, actual={})", oid, requestedVersion, cachedResource.getVersion());
+            return recordMiss(oid);
+        } else if (!compareVersion(requestedVersion, cachedEntry.resource.getVersion())) {
+            LOGGER.debug("MISS(wrong version) for {} (req={}, actual={})",
+                    oid, requestedVersion, cachedEntry.resource.getVersion());
             LOGGER.trace("Cached resource version {} does not match requested resource version {}, purging from cache",
-                    cachedResource.getVersion(), requestedVersion);
+                    cachedEntry.resource.getVersion(), requestedVersion);
             invalidateSingle(oid);
-            resourceToReturn = null;
-        } else if (readOnly) {
-            cachedResource.checkImmutable();
-            LOGGER.trace("HIT(read only) for {} (v{})", cachedResource, cachedResource.getVersion());
-            resourceToReturn = cachedResource;
-        } else {
-            LOGGER.debug("HIT(returning clone) for {} (v{})", cachedResource, cachedResource.getVersion());
-            resourceToReturn = cachedResource.clone();
-        }
-
-        if (resourceToReturn != null) {
-            CachePerformanceCollector.INSTANCE.registerHit(ResourceCache.class, ResourceType.class, PER_CACHE);
-            InternalMonitor.getResourceCacheStats().recordHit();
+            return recordMiss(oid);
         } else {
-            CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
-            InternalMonitor.getResourceCacheStats().recordMiss();
+            return recordHit(oid, cachedEntry.resource, readOnly);
         }
-        return resourceToReturn;
     }
 
     /**
-     * Gets a resource without specifying requested version: returns one only if it has the same version as in the repo.
+     * Gets a resource without specifying requested version: returns one only if it is the latest one.
      *
-     * This requires a cooperation with the repository cache. Therefore this method is NOT synchronized
-     * and has operation result as its parameter.
+     * We rely on invalidation events here, so the repository is contacted only if the cached entry is not verified,
+     * or its verification expired. (See {@link #put(ResourceType, Collection, Long)}.)
      */
-    PrismObject<ResourceType> getIfLatest(@NotNull String oid, boolean readonly, OperationResult parentResult)
+    PrismObject<ResourceType> getIfLatest(@NotNull String oid, boolean readOnly, OperationResult parentResult)
             throws SchemaException, ObjectNotFoundException {
-        // First let's check if the cache contains given resource. If not, we can avoid getting version from the repo.
-        if (contains(oid)) {
+        Entry cachedEntry = cache.get(oid);
+        if (cachedEntry == null) {
+            LOGGER.debug("MISS(not cached) for {} (getIfLatest)", oid);
+            return recordMiss(oid);
+        }
+        long now = System.currentTimeMillis();
+        if (cachedEntry.isVerified(now)) {
+            return recordHit(oid, cachedEntry.resource, readOnly);
+        } else {
+            // If there's an invalidation in the meanwhile, the entry is removed, so the time can be set safely.
             String version = repositoryService.getVersion(ResourceType.class, oid, parentResult);
-            return get(oid, version, readonly);
+            PrismObject<ResourceType> resource = get(oid, version, readOnly);
+            if (resource != null) {
+                cachedEntry.verifiedAt = now;
+            }
+            return resource;
+        }
+    }
+
+    private PrismObject<ResourceType> recordHit(String oid, PrismObject<ResourceType> cachedResource, boolean readOnly) {
+        PrismObject<ResourceType> resourceToReturn;
+        if (readOnly) {
+            cachedResource.checkImmutable();
+            LOGGER.trace("HIT(read only) for {} (v{})", cachedResource, cachedResource.getVersion());
+            resourceToReturn = cachedResource;
         } else {
-            LOGGER.debug("MISS(not cached) for {} (getIfLatest)", oid);
-            CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
-            InternalMonitor.getResourceCacheStats().recordMiss();
-            return null;
+            LOGGER.debug("HIT(returning clone) for {} (v{})", cachedResource, cachedResource.getVersion());
+            resourceToReturn = cachedResource.clone();
         }
+        InternalMonitor.getResourceCacheStats().recordRequest();
+        InternalMonitor.getResourceCacheStats().recordHit();
+        CachePerformanceCollector.INSTANCE.registerHit(ResourceCache.class, ResourceType.class, PER_CACHE);
+        statistics.computeIfAbsent(oid, k -> new Statistics()).hits.increment();
+        return resourceToReturn;
     }
 
-    private synchronized boolean contains(@NotNull String oid) {
-        return cache.containsKey(oid);
+    private PrismObject<ResourceType> recordMiss(String oid) {
+        InternalMonitor.getResourceCacheStats().recordRequest();
+        InternalMonitor.getResourceCacheStats().recordMiss();
+        CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
+        statistics.computeIfAbsent(oid, k -> new Statistics()).misses.increment();
+        return null;
     }
 
     /**
      * Returns currently cached version. FOR DIAGNOSTICS ONLY.
      */
-    synchronized String getVersion(String oid) {
+    String getVersion(String oid) {
         if (oid == null) {
             return null;
         }
-        PrismObject<ResourceType> cachedResource = cache.get(oid);
-        if (cachedResource == null) {
+        Entry cachedEntry = cache.get(oid);
+        if (cachedEntry == null) {
             return null;
         }
-        return cachedResource.getVersion();
+        return cachedEntry.resource.getVersion();
+    }
+
+    /** Returns hits and misses for individual resources (by OID). FOR DIAGNOSTICS AND TESTS. */
+    public @NotNull Map<String, Statistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
     }
 
     @Override
-    public synchronized void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
         if (type == null || type.isAssignableFrom(ResourceType.class)) {
             if (oid != null) {
                 invalidateSingle(oid);
@@ -223,17 +294,25 @@ public class ResourceCache implements Cache {
     }
 
     /** Invalidates single (concrete) resource and all its descendants. */
-    synchronized void invalidateSingle(@NotNull String oid) {
+    void invalidateSingle(@NotNull String oid) {
+        synchronized (writeLock) {
+            invalidationCount++;
+            invalidateSingleDeep(oid);
+        }
+    }
+
+    /** Guarded by {@link #writeLock} (responsible of the caller). */
+    private void invalidateSingleDeep(@NotNull String oid) {
         Set<String> descendants = new HashSet<>(dependencyMap.get(oid));
         LOGGER.trace("Invalidating {} and all its descendants: {}", oid, descendants);
 
         invalidateSingleShallow(oid);
-        descendants.forEach(this::invalidateSingle);
+        descendants.forEach(this::invalidateSingleDeep);
     }
 
     /**
      * Removes the specific resource from {@link #cache} and {@link #dependencyMap}). Not touching the descendants.
-     * Must be guarded by `this` (caller's responsibility).
+     * Guarded by {@link #writeLock} (responsible of the caller).
      */
     private void invalidateSingleShallow(@NotNull String oid) {
         cache.remove(oid);
@@ -242,16 +321,19 @@ public class ResourceCache implements Cache {
                 entry -> oid.equals(entry.getValue()));
     }
 
-    /** Invalidates the whole cache. Must be guarded by `this` (caller's responsibility). */
+    /** Invalidates the whole cache. */
     private void invalidateAll() {
         LOGGER.trace("Invalidating the whole cache");
-        cache.clear();
-        dependencyMap.clear();
+        synchronized (writeLock) {
+            invalidationCount++;
+            cache.clear();
+            dependencyMap.clear();
+        }
     }
 
     @NotNull
     @Override
-    public synchronized Collection<SingleCacheStateInformationType> getStateInformation() {
+    public Collection<SingleCacheStateInformationType> getStateInformation() {
         return Collections.singleton(
                 new SingleCacheStateInformationType()
                         .name(ResourceCache.class.getName())
@@ -262,8 +344,49 @@ public class ResourceCache implements Cache {
     @Override
     public void dumpContent() {
         if (LOGGER_CONTENT.isInfoEnabled()) {
-            cache.forEach((oid, resource) -> LOGGER_CONTENT.info("Cached resource: {}: {} (version: {})",
-                    oid, resource, resource.getVersion()));
+            cache.forEach((oid, entry) -> LOGGER_CONTENT.info("Cached resource: {}: {} (version: {}, verified at: {}, {})",
+                    oid, entry.resource, entry.resource.getVersion(), entry.verifiedAt, statistics.get(oid)));
+        }
+    }
+
+    /** Cached resource along with the information when it was last known to be the latest version. */
+    private static class Entry {
+
+        @NotNull private final PrismObject<ResourceType> resource;
+
+        /**
+         * When was the resource last verified to be the latest version (unless invalidated, i.e. removed from the cache).
+         * Zero if it was never verified.
+         */
+        private volatile long verifiedAt;
+
+        private Entry(@NotNull PrismObject<ResourceType> resource, long verifiedAt) {
+            this.resource = resource;
+            this.verifiedAt = verifiedAt;
+        }
+
+        private boolean isVerified(long now) {
+            return verifiedAt != 0 && now - verifiedAt < VERIFICATION_VALIDITY_MILLIS;
+        }
+    }
+
+    /** Hits and misses for a single resource. */
+    public static class Statistics {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + getHits() + ", misses=" + getMisses();
         }
     }
 }
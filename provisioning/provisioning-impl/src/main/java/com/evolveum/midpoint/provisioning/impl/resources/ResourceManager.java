@@ -104,7 +104,8 @@ public class ResourceManager {
             LOGGER.trace("Returning resource from cache:\n{}", cachedResource.debugDumpLazily());
             return cachedResource.asObjectable();
         } else {
-            return completeAndCacheResource(repositoryObject, options, task, result);
+            // We don't know if there was an invalidation since the object was read, so the cache will check the version.
+            return completeAndCacheResource(repositoryObject, null, options, task, result);
         }
     }
 
@@ -130,15 +131,18 @@ public class ResourceManager {
             LOGGER.trace("Returning resource from cache:\n{}", cachedResource.debugDumpLazily());
             return cachedResource.asObjectable();
         } else {
+            // Must be obtained before reading the resource, see ResourceCache#put.
+            long invalidationMarker = resourceCache.getInvalidationMarker();
             // We must obviously NOT fetch resource from repo as read-only. We are going to modify it.
             ResourceType repositoryObject = readResourceFromRepository(oid, result);
-            return completeAndCacheResource(repositoryObject, options, task, result);
+            return completeAndCacheResource(repositoryObject, invalidationMarker, options, task, result);
         }
     }
 
     /** The processing is described in {@link ProvisioningService#getObject(Class, String, Collection, Task, OperationResult)}. */
     private @NotNull ResourceType completeAndCacheResource(
             @NotNull ResourceType repositoryObject,
+            @Nullable Long invalidationMarker,
             @Nullable GetOperationOptions options,
             @NotNull Task task,
             @NotNull OperationResult result)
@@ -166,7 +170,7 @@ public class ResourceManager {
             } else {
                 LOGGER.debug("Putting {} into cache", repositoryObject);
                 // Cache only resources that are completely OK
-                beans.resourceCache.put(completedResource, completionOperation.getAncestorsOids());
+                beans.resourceCache.put(completedResource, completionOperation.getAncestorsOids(), invalidationMarker);
             }
         }
         return completedResource;
@@ -14,6 +14,7 @@ import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
 
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.AbstractResourceEntity;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObject;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 import com.evolveum.midpoint.provisioning.util.InitializationState;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
@@ -65,8 +66,12 @@ public abstract class AbstractShadowedEntity implements InitializableObjectMixin
     /** Useful beans local to the Shadows package. */
     @NotNull final ShadowsLocalBeans b = ShadowsLocalBeans.get();
 
-    AbstractShadowedEntity(@NotNull AbstractResourceEntity prerequisite) {
+    /** Shadows looked up in advance for the batch of objects/changes this one belongs to. Used for shadow acquisition. */
+    @Nullable private final ShadowLookupBatch shadowLookupBatch;
+
+    AbstractShadowedEntity(@NotNull AbstractResourceEntity prerequisite, @Nullable ShadowLookupBatch shadowLookupBatch) {
         this.prerequisite = prerequisite;
+        this.shadowLookupBatch = shadowLookupBatch;
     }
 
     @Override
@@ -92,7 +97,7 @@ public abstract class AbstractShadowedEntity implements InitializableObjectMixin
 
         // Now find or create repository shadow, along with its classification (maybe it is not a good idea to merge the two).
         try {
-            return ShadowAcquisition.acquireRepoShadow(estimatedCtx, resourceObjectBean, false, result);
+            return ShadowAcquisition.acquireRepoShadow(estimatedCtx, resourceObjectBean, false, shadowLookupBatch, result);
         } catch (Exception e) {
             // No need to log stack trace now. It will be logged at the place where the exception is processed.
             LoggingUtils.logExceptionAsWarning(
@@ -12,6 +12,7 @@ import com.evolveum.midpoint.prism.PrismProperty;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.provisioning.api.GenericConnectorException;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 import com.evolveum.midpoint.provisioning.util.ProvisioningUtil;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
@@ -23,6 +24,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
 
@@ -69,6 +71,9 @@ class ShadowAcquisition {
     /** Whether we want to skip the classification. It is used e.g. in emergency shadow creation. */
     private final boolean skipClassification;
 
+    /** Shadows looked up in advance for a batch of resource objects this one belongs to (if any). */
+    @Nullable private final ShadowLookupBatch shadowLookupBatch;
+
     private final ShadowsLocalBeans b = ShadowsLocalBeans.get();
 
     private ShadowAcquisition(
@@ -76,12 +81,14 @@ class ShadowAcquisition {
             @NotNull PrismProperty<?> primaryIdentifier,
             @NotNull QName objectClass,
             @NotNull ShadowType resourceObject,
-            boolean skipClassification) {
+            boolean skipClassification,
+            @Nullable ShadowLookupBatch shadowLookupBatch) {
         this.ctx = ctx;
         this.primaryIdentifier = primaryIdentifier;
         this.objectClass = objectClass;
         this.resourceObject = resourceObject;
         this.skipClassification = skipClassification;
+        this.shadowLookupBatch = shadowLookupBatch;
     }
 
     /**
@@ -104,13 +111,25 @@ class ShadowAcquisition {
             @NotNull OperationResult result)
             throws SchemaException, ConfigurationException, ObjectNotFoundException, SecurityViolationException,
             CommunicationException, GenericConnectorException, ExpressionEvaluationException, EncryptionException {
+        return acquireRepoShadow(ctx, resourceObject, skipClassification, null, result);
+    }
+
+    /** As {@link #acquireRepoShadow(ProvisioningContext, ShadowType, boolean, OperationResult)}, using prefetched shadows. */
+    @NotNull static ShadowType acquireRepoShadow(
+            @NotNull ProvisioningContext ctx,
+            @NotNull ShadowType resourceObject,
+            boolean skipClassification,
+            @Nullable ShadowLookupBatch shadowLookupBatch,
+            @NotNull OperationResult result)
+            throws SchemaException, ConfigurationException, ObjectNotFoundException, SecurityViolationException,
+            CommunicationException, GenericConnectorException, ExpressionEvaluationException, EncryptionException {
 
         PrismProperty<?> primaryIdentifier = ProvisioningUtil.getSingleValuedPrimaryIdentifierRequired(resourceObject);
         QName objectClass = requireNonNull(
                 resourceObject.getObjectClass(),
                 () -> "No object class in " + ShadowUtil.shortDumpShadow(resourceObject));
 
-        return new ShadowAcquisition(ctx, primaryIdentifier, objectClass, resourceObject, skipClassification)
+        return new ShadowAcquisition(ctx, primaryIdentifier, objectClass, resourceObject, skipClassification, shadowLookupBatch)
                 .execute(result);
     }
 
@@ -158,7 +177,8 @@ class ShadowAcquisition {
     private @NotNull ShadowType acquireRawRepoShadow(OperationResult result)
             throws SchemaException, EncryptionException {
 
-        var existingLiveRepoShadow = b.shadowFinder.lookupLiveShadowByPrimaryId(ctx, primaryIdentifier, objectClass, result);
+        var existingLiveRepoShadow =
+                b.shadowFinder.lookupLiveShadowByPrimaryId(ctx, primaryIdentifier, objectClass, shadowLookupBatch, result);
         if (existingLiveRepoShadow != null) {
             LOGGER.trace("Found live shadow object in the repository {}", shortDumpShadowLazily(existingLiveRepoShadow));
             if (b.shadowUpdater.markLiveShadowExistingIfNotMarkedSo(existingLiveRepoShadow, result)) {
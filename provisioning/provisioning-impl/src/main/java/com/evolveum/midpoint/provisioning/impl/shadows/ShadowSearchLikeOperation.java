@@ -17,21 +17,28 @@ import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismProperty;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.*;
 import com.evolveum.midpoint.provisioning.api.ProvisioningOperationContext;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectFound;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectHandler;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowFinder;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 import com.evolveum.midpoint.provisioning.util.DefinitionsUtil;
 import com.evolveum.midpoint.provisioning.util.ProvisioningUtil;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.processor.ResourceAttributeContainer;
+import com.evolveum.midpoint.schema.processor.ResourceObjectDefinition;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.schema.util.ShadowUtil;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -149,19 +156,47 @@ class ShadowSearchLikeOperation {
         // We need to record the fetch down here. Now it is certain that we are going to fetch from resource.
         InternalMonitor.recordCount(InternalCounters.SHADOW_FETCH_OPERATION_COUNT);
 
-        ResourceObjectHandler shadowHandler = (ResourceObjectFound objectFound, OperationResult lResult) -> {
+        ResourceObjectHandler shadowHandler = new ResourceObjectHandler() {
 
-            ShadowedObjectFound shadowedObjectFound = new ShadowedObjectFound(objectFound, ctx);
-            shadowedObjectFound.initialize(ctx.getTask(), lResult);
-            ShadowType shadowedObject = shadowedObjectFound.getResultingObject(ucfErrorReportingMethod);
+            /** Shadows looked up for the current batch of objects. */
+            private ShadowLookupBatch shadowLookupBatch;
 
-            try {
-                return handler.handle(shadowedObject.asPrismObject(), lResult);
-            } catch (Throwable t) {
-                lResult.recordException(t);
-                throw t;
-            } finally {
-                lResult.close();
+            @Override
+            public boolean handle(@NotNull ResourceObjectFound objectFound, @NotNull OperationResult lResult) {
+
+                ShadowedObjectFound shadowedObjectFound = new ShadowedObjectFound(objectFound, ctx, shadowLookupBatch);
+                shadowedObjectFound.initialize(ctx.getTask(), lResult);
+                ShadowType shadowedObject = shadowedObjectFound.getResultingObject(ucfErrorReportingMethod);
+
+                try {
+                    return handler.handle(shadowedObject.asPrismObject(), lResult);
+                } catch (Throwable t) {
+                    lResult.recordException(t);
+                    throw t;
+                } finally {
+                    lResult.close();
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ShadowFinder.SHADOW_LOOKUP_BATCH_SIZE;
+            }
+
+            @Override
+            public void prepareForBatch(@NotNull List<ResourceObjectFound> objectsFound, @NotNull OperationResult lResult) {
+                batchesFinished();
+                ResourceObjectDefinition objectDefinition = ctx.getObjectDefinitionRequired();
+                shadowLookupBatch = b.shadowFinder.prefetchShadowsByPrimaryIds(
+                        ctx, objectDefinition, getPrimaryIdentifiers(objectsFound, objectDefinition), lResult);
+            }
+
+            @Override
+            public void batchesFinished() {
+                if (shadowLookupBatch != null) {
+                    shadowLookupBatch.close();
+                    shadowLookupBatch = null;
+                }
             }
         };
 
@@ -175,6 +210,24 @@ class ShadowSearchLikeOperation {
         }
     }
 
+    /** Primary identifiers of objects of given class, as they came from the resource. */
+    private static @NotNull List<PrismProperty<?>> getPrimaryIdentifiers(
+            @NotNull List<ResourceObjectFound> objectsFound, @NotNull ResourceObjectDefinition objectDefinition) {
+        List<PrismProperty<?>> primaryIdentifiers = new ArrayList<>();
+        for (ResourceObjectFound objectFound : objectsFound) {
+            ShadowType resourceObject = objectFound.getBean();
+            if (!QNameUtil.match(resourceObject.getObjectClass(), objectDefinition.getTypeName())) {
+                continue;
+            }
+            ResourceAttributeContainer attributesContainer = ShadowUtil.getAttributesContainer(resourceObject);
+            PrismProperty<?> primaryIdentifier = attributesContainer != null ? attributesContainer.getPrimaryIdentifier() : null;
+            if (primaryIdentifier != null) {
+                primaryIdentifiers.add(primaryIdentifier);
+            }
+        }
+        return primaryIdentifiers;
+    }
+
     private ObjectQuery createOnResourceQuery() throws SchemaException {
         if (query == null) {
             return null;
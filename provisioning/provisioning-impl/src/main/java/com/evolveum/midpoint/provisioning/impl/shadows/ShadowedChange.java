@@ -14,6 +14,7 @@ import java.util.Objects;
 import com.evolveum.midpoint.provisioning.impl.InitializableObjectMixin;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.CompleteResourceObject;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObject;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 import com.evolveum.midpoint.provisioning.impl.shadows.sync.NotApplicableException;
 
 import com.evolveum.midpoint.provisioning.util.InitializationState;
@@ -104,7 +105,11 @@ public abstract class ShadowedChange<ROC extends ResourceObjectChange>
     private ShadowType shadowedObject;
 
     ShadowedChange(@NotNull ROC resourceObjectChange) {
-        super(resourceObjectChange);
+        this(resourceObjectChange, null);
+    }
+
+    ShadowedChange(@NotNull ROC resourceObjectChange, @Nullable ShadowLookupBatch shadowLookupBatch) {
+        super(resourceObjectChange, shadowLookupBatch);
         this.resourceObjectChange = resourceObjectChange;
     }
 
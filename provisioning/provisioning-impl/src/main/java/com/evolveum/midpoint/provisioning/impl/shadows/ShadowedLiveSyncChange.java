@@ -13,8 +13,10 @@ import com.evolveum.midpoint.schema.AcknowledgementSink;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectLiveSyncChange;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 
 /**
  * Shadowed Live Sync change. The client should implement the {@link AcknowledgementSink} interface.
@@ -25,6 +27,11 @@ public class ShadowedLiveSyncChange extends ShadowedChange<ResourceObjectLiveSyn
         super(resourceObjectChange);
     }
 
+    public ShadowedLiveSyncChange(
+            @NotNull ResourceObjectLiveSyncChange resourceObjectChange, @Nullable ShadowLookupBatch shadowLookupBatch) {
+        super(resourceObjectChange, shadowLookupBatch);
+    }
+
     public LiveSyncToken getToken() {
         return resourceObjectChange.getToken();
     }
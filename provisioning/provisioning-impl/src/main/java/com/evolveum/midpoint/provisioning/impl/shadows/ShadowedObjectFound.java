@@ -15,6 +15,7 @@ import java.util.Objects;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.AbstractResourceEntity;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObject;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 
 import com.google.common.base.MoreObjects;
 import org.apache.commons.collections4.CollectionUtils;
@@ -68,8 +69,11 @@ public class ShadowedObjectFound extends AbstractShadowedEntity {
      */
     private ShadowType shadowedObject;
 
-    ShadowedObjectFound(@NotNull ResourceObjectFound resourceObjectFound, @NotNull ProvisioningContext globalCtx) {
-        super(resourceObjectFound);
+    ShadowedObjectFound(
+            @NotNull ResourceObjectFound resourceObjectFound,
+            @NotNull ProvisioningContext globalCtx,
+            @Nullable ShadowLookupBatch shadowLookupBatch) {
+        super(resourceObjectFound, shadowLookupBatch);
         this.resourceObjectFound = resourceObjectFound;
     }
 
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.impl.shadows.manager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Keeps the {@link ShadowLookupBatch} instances that are currently in use, and passes shadow invalidation events to them.
+ * So, when a prefetched shadow is modified or deleted in the repository (on this node) while the batch is being processed,
+ * it is not taken from the batch, but looked up in the repository again.
+ *
+ * It is a single component registered in {@link CacheRegistry}, because the registry is not meant to be changed as often
+ * as the batches come and go.
+ */
+@Component
+public class ActiveShadowLookupBatches implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ActiveShadowLookupBatches.class);
+    private static final Trace LOGGER_CONTENT = TraceManager.getTrace(ActiveShadowLookupBatches.class.getName() + ".content");
+
+    @Autowired private CacheRegistry cacheRegistry;
+
+    @NotNull private final Set<ShadowLookupBatch> batches = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCache(this);
+    }
+
+    void add(@NotNull ShadowLookupBatch batch) {
+        batches.add(batch);
+    }
+
+    void remove(@NotNull ShadowLookupBatch batch) {
+        batches.remove(batch);
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        if (type == null || type.isAssignableFrom(ShadowType.class)) {
+            LOGGER.trace("Invalidating shadow {} in {} active batch(es)", oid, batches.size());
+            batches.forEach(batch -> batch.invalidate(oid));
+        }
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.singleton(
+                new SingleCacheStateInformationType()
+                        .name(ActiveShadowLookupBatches.class.getName())
+                        .size(batches.size()));
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER_CONTENT.isInfoEnabled()) {
+            batches.forEach(batch -> LOGGER_CONTENT.info("Active shadow lookup batch: {}", batch));
+        }
+    }
+}
@@ -13,13 +13,15 @@ import static com.evolveum.midpoint.schema.util.ObjectTypeUtil.asObjectable;
 import static com.evolveum.midpoint.provisioning.util.ProvisioningUtil.selectLiveShadow;
 import static com.evolveum.midpoint.util.DebugUtil.lazy;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.util.MiscUtil;
+import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
 import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
@@ -61,8 +63,14 @@ public class ShadowFinder {
 
     private static final Trace LOGGER = TraceManager.getTrace(ShadowFinder.class);
 
+    private static final String OP_PREFETCH_SHADOWS = ShadowFinder.class.getName() + ".prefetchShadowsByPrimaryIds";
+
+    /** Maximal number of resource objects for which the shadows are looked up using a single repository query. */
+    public static final int SHADOW_LOOKUP_BATCH_SIZE = 100;
+
     @Autowired @Qualifier("cacheRepositoryService") private RepositoryService repositoryService;
     @Autowired private PrismContext prismContext;
+    @Autowired private ActiveShadowLookupBatches activeShadowLookupBatches;
 
     /** Simply gets a repo shadow from the repository. No magic here. */
     public @NotNull PrismObject<ShadowType> getShadow(@NotNull String oid, @NotNull OperationResult result)
@@ -145,12 +153,28 @@ public class ShadowFinder {
     public @Nullable ShadowType lookupLiveShadowByPrimaryId(
             ProvisioningContext ctx, PrismProperty<?> primaryIdentifier, QName objectClass, OperationResult result)
             throws SchemaException {
+        return lookupLiveShadowByPrimaryId(ctx, primaryIdentifier, objectClass, null, result);
+    }
 
-        ObjectQuery query = createQueryByPrimaryId(ctx, primaryIdentifier, objectClass);
+    /**
+     * As {@link #lookupLiveShadowByPrimaryId(ProvisioningContext, PrismProperty, QName, OperationResult)}, but the shadows
+     * are taken from the batch (if it covers the identifier), instead of querying the repository.
+     */
+    public @Nullable ShadowType lookupLiveShadowByPrimaryId(
+            ProvisioningContext ctx, PrismProperty<?> primaryIdentifier, QName objectClass,
+            @Nullable ShadowLookupBatch batch, OperationResult result)
+            throws SchemaException {
 
-        LOGGER.trace("Searching for shadow by primary identifier using query:\n{}", query.debugDumpLazily(1));
-        List<PrismObject<ShadowType>> shadowsFound = searchRepoShadows(query, zeroStalenessOptions(), result); // no caching!
-        LOGGER.trace("Found {} shadows (live or dead)", shadowsFound.size());
+        List<PrismObject<ShadowType>> shadowsFound = takeFromBatch(ctx, primaryIdentifier, objectClass, batch);
+        if (shadowsFound != null) {
+            LOGGER.trace("Found {} shadows (live or dead) in {}", shadowsFound.size(), batch);
+        } else {
+            ObjectQuery query = createQueryByPrimaryId(ctx, primaryIdentifier, objectClass);
+
+            LOGGER.trace("Searching for shadow by primary identifier using query:\n{}", query.debugDumpLazily(1));
+            shadowsFound = searchRepoShadows(query, zeroStalenessOptions(), result); // no caching!
+            LOGGER.trace("Found {} shadows (live or dead)", shadowsFound.size());
+        }
 
         PrismObject<ShadowType> liveShadow =
                 selectLiveShadow(shadowsFound, "when looking by primary identifier " + primaryIdentifier);
@@ -158,6 +182,131 @@ public class ShadowFinder {
         return asObjectable(liveShadow);
     }
 
+    private @Nullable List<PrismObject<ShadowType>> takeFromBatch(
+            ProvisioningContext ctx, PrismProperty<?> primaryIdentifier, QName objectClass, ShadowLookupBatch batch)
+            throws SchemaException {
+        if (batch == null) {
+            return null;
+        }
+        var normalizedValues = getNormalizedValues(primaryIdentifier, ctx.getObjectDefinitionRequired());
+        if (normalizedValues.size() != 1) {
+            return null;
+        }
+        return batch.take(
+                ctx.getResourceOid(), objectClass, primaryIdentifier.getElementName(), normalizedValues.get(0).getValue());
+    }
+
+    /**
+     * Looks up shadows for given primary identifiers (of objects of the given class) using a single repository query.
+     * The result is to be used in {@link #lookupLiveShadowByPrimaryId(ProvisioningContext, PrismProperty, QName,
+     * ShadowLookupBatch, OperationResult)} calls for the individual objects.
+     *
+     * Identifiers that do not fit (e.g. multivalued ones) are ignored. Shadows for them will be looked up as usual.
+     * The same goes for identifier values occurring more than once, see {@link ShadowLookupBatch}.
+     *
+     * Returns `null` if there is nothing to look up, or if the lookup could not be done. The latter is not an error:
+     * the shadows are simply looked up one by one. The returned batch must be closed after use.
+     */
+    public @Nullable ShadowLookupBatch prefetchShadowsByPrimaryIds(
+            @NotNull ProvisioningContext ctx,
+            @NotNull ResourceObjectDefinition objectDefinition,
+            @NotNull Collection<? extends PrismProperty<?>> primaryIdentifiers,
+            @NotNull OperationResult parentResult) {
+
+        if (primaryIdentifiers.size() < 2) {
+            return null; // nothing to gain here
+        }
+
+        var identifierDefinitions = objectDefinition.getPrimaryIdentifiers();
+        if (identifierDefinitions.size() != 1) {
+            LOGGER.trace("Not a single primary identifier in {}, shadows will not be looked up in batch", objectDefinition);
+            return null;
+        }
+        ResourceAttributeDefinition<?> identifierDef = identifierDefinitions.iterator().next();
+        if (QNameUtil.match(identifierDef.getTypeName(), PolyStringType.COMPLEX_TYPE)) {
+            // Multiple values in the filter are not supported by the repository for poly strings.
+            LOGGER.trace("Poly string primary identifier in {}, shadows will not be looked up in batch", objectDefinition);
+            return null;
+        }
+
+        OperationResult result = parentResult.subresult(OP_PREFETCH_SHADOWS)
+                .setMinor()
+                .addParam("identifiers", primaryIdentifiers.size())
+                .build();
+        ShadowLookupBatch batch = null;
+        try {
+            // Normalized real value -> normalized value (we need the values for the query)
+            Map<Object, PrismPropertyValue<Object>> normalizedValues = new LinkedHashMap<>();
+            Set<Object> repeatedValues = new HashSet<>();
+            for (PrismProperty<?> primaryIdentifier : primaryIdentifiers) {
+                if (QNameUtil.match(primaryIdentifier.getElementName(), identifierDef.getItemName())
+                        && primaryIdentifier.getValues().size() == 1) {
+                    //noinspection unchecked
+                    for (PrismPropertyValue<Object> normalizedValue
+                            : getNormalizedValues((PrismProperty<Object>) primaryIdentifier, objectDefinition)) {
+                        if (normalizedValues.put(normalizedValue.getValue(), normalizedValue) != null) {
+                            repeatedValues.add(normalizedValue.getValue());
+                        }
+                    }
+                }
+            }
+            normalizedValues.keySet().removeAll(repeatedValues);
+            if (normalizedValues.size() < 2) {
+                result.setNotApplicable();
+                return null;
+            }
+
+            ObjectQuery query = prismContext.queryFor(ShadowType.class)
+                    .itemWithDef(identifierDef, ShadowType.F_ATTRIBUTES, identifierDef.getItemName())
+                    .eq(new ArrayList<>(normalizedValues.values()))
+                    .and().item(ShadowType.F_OBJECT_CLASS).eq(objectDefinition.getTypeName())
+                    .and().item(ShadowType.F_RESOURCE_REF).ref(ctx.getResourceOid())
+                    .build();
+            LOGGER.trace("Searching for shadows by {} primary identifiers using query:\n{}",
+                    normalizedValues.size(), query.debugDumpLazily(1));
+            // Created before the query, so that no invalidation is missed.
+            batch = new ShadowLookupBatch(
+                    ctx.getResourceOid(), objectDefinition.getTypeName(), identifierDef.getItemName(),
+                    activeShadowLookupBatches);
+            List<PrismObject<ShadowType>> shadowsFound = searchRepoShadows(query, zeroStalenessOptions(), result);
+
+            Map<Object, List<PrismObject<ShadowType>>> shadowsByValue = new HashMap<>();
+            normalizedValues.keySet().forEach(value -> shadowsByValue.put(value, new ArrayList<>()));
+            for (PrismObject<ShadowType> shadow : shadowsFound) {
+                boolean matched = false;
+                for (Object value : ShadowUtil.getAttributeValues(shadow, identifierDef.getItemName())) {
+                    List<PrismObject<ShadowType>> shadows = shadowsByValue.get(value);
+                    if (shadows != null) {
+                        shadows.add(shadow);
+                        matched = true;
+                    }
+                }
+                if (!matched) {
+                    // E.g. the value is stored in a different form. We cannot trust the batch then.
+                    LOGGER.debug("Shadow {} found in batch lookup does not match any of the identifiers, "
+                            + "shadows will be looked up one by one", shadow);
+                    result.setNotApplicable();
+                    batch.close();
+                    return null;
+                }
+            }
+            LOGGER.trace("Found {} shadows (live or dead) for {} primary identifiers",
+                    shadowsFound.size(), shadowsByValue.size());
+            batch.fill(shadowsByValue);
+            return batch;
+        } catch (SchemaException | RuntimeException e) {
+            LoggingUtils.logExceptionAsWarning(
+                    LOGGER, "Couldn't look up shadows in batch, they will be looked up one by one: {}", e);
+            result.recordHandledError(e);
+            if (batch != null) {
+                batch.close();
+            }
+            return null;
+        } finally {
+            result.close();
+        }
+    }
+
     private @NotNull List<PrismObject<ShadowType>> searchShadowsByPrimaryId(
             ProvisioningContext ctx, ResourceObjectIdentifier.Primary<?> primaryIdentifier, OperationResult result)
             throws SchemaException {
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.impl.shadows.manager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Repository shadows looked up by a single query for a batch of resource objects (found by search or live sync).
+ * They are used by {@link ShadowFinder#lookupLiveShadowByPrimaryId(com.evolveum.midpoint.provisioning.impl.ProvisioningContext,
+ * com.evolveum.midpoint.prism.PrismProperty, QName, ShadowLookupBatch, com.evolveum.midpoint.schema.result.OperationResult)}
+ * instead of querying the repository for each object separately.
+ *
+ * Covers a single resource, object class and primary identifier attribute. Other lookups go to the repository as usual.
+ *
+ * The shadows must not be older than the ones the repository would return. Hence:
+ *
+ * . Only identifier values that occur once in the batch are covered. Processing one occurrence may create, update
+ * or delete the shadow, so the other ones must ask the repository.
+ * . Each entry can be taken only once.
+ * . Entries containing a shadow that was modified or deleted in the repository (on this node) since the batch was created
+ * are removed, see {@link ActiveShadowLookupBatches}. This covers e.g. a shadow marked as dead when processing a deletion
+ * of the object; or changes done by other threads.
+ *
+ * Shadows created after the batch was created are not reflected. This is safe: the "no shadow" entry leads to an attempt
+ * to create the shadow; which fails on the uniqueness constraint, and the existing shadow is then looked up in
+ * the repository as usual.
+ *
+ * Changes done on other nodes are not reflected either; just as they would not be if they came after the lookup of
+ * the individual shadow.
+ *
+ * Thread-safe, as the invalidations come from any thread. The batch must be {@link #close() closed} after use.
+ *
+ * @see ShadowFinder#prefetchShadowsByPrimaryIds(com.evolveum.midpoint.provisioning.impl.ProvisioningContext,
+ * com.evolveum.midpoint.schema.processor.ResourceObjectDefinition, java.util.Collection,
+ * com.evolveum.midpoint.schema.result.OperationResult)
+ */
+public class ShadowLookupBatch implements AutoCloseable {
+
+    @NotNull private final String resourceOid;
+    @NotNull private final QName objectClass;
+    @NotNull private final ItemName identifierName;
+
+    @NotNull private final ActiveShadowLookupBatches activeBatches;
+
+    /**
+     * Normalized primary identifier value -> shadows (live or dead) having that value.
+     * Contains an entry for each value queried, even if no shadows were found for it; until the entry is taken or invalidated.
+     * Empty until the batch is {@link #fill(Map) filled}.
+     *
+     * Guarded by `this`.
+     */
+    @NotNull private final Map<Object, List<PrismObject<ShadowType>>> shadowsByIdentifierValue = new HashMap<>();
+
+    /**
+     * OIDs of shadows invalidated before the batch was filled, i.e. while the repository was being queried.
+     * Entries with these shadows are not used, as they might be outdated.
+     *
+     * Guarded by `this`.
+     */
+    @NotNull private final Set<String> invalidatedOids = new HashSet<>();
+
+    /** Guarded by `this`. */
+    private boolean filled;
+
+    /** Everything was invalidated before the batch was filled. Guarded by `this`. */
+    private boolean allInvalidated;
+
+    /** Creates an empty batch and starts watching for invalidations. The batch is filled after the repository is queried. */
+    ShadowLookupBatch(
+            @NotNull String resourceOid,
+            @NotNull QName objectClass,
+            @NotNull ItemName identifierName,
+            @NotNull ActiveShadowLookupBatches activeBatches) {
+        this.resourceOid = resourceOid;
+        this.objectClass = objectClass;
+        this.identifierName = identifierName;
+        this.activeBatches = activeBatches;
+        activeBatches.add(this);
+    }
+
+    /** Provides the shadows found in the repository; except for those invalidated in the meanwhile. */
+    synchronized void fill(@NotNull Map<Object, List<PrismObject<ShadowType>>> shadowsFound) {
+        if (!allInvalidated) {
+            shadowsFound.forEach((value, shadows) -> {
+                if (shadows.stream().noneMatch(shadow -> invalidatedOids.contains(shadow.getOid()))) {
+                    shadowsByIdentifierValue.put(value, shadows);
+                }
+            });
+        }
+        invalidatedOids.clear();
+        filled = true;
+    }
+
+    /**
+     * Returns the shadows for given primary identifier value (and removes them from the batch);
+     * or `null` if the value is not covered by this batch.
+     */
+    synchronized @Nullable List<PrismObject<ShadowType>> take(
+            @NotNull String resourceOid,
+            @NotNull QName objectClass,
+            @NotNull QName identifierName,
+            @NotNull Object normalizedValue) {
+        if (!this.resourceOid.equals(resourceOid)
+                || !QNameUtil.match(this.objectClass, objectClass)
+                || !QNameUtil.match(this.identifierName, identifierName)) {
+            return null;
+        }
+        return shadowsByIdentifierValue.remove(normalizedValue);
+    }
+
+    /** Removes entries containing given shadow; or all entries if the OID is `null`. */
+    synchronized void invalidate(@Nullable String oid) {
+        if (!filled) {
+            if (oid != null) {
+                invalidatedOids.add(oid);
+            } else {
+                allInvalidated = true;
+            }
+        } else if (oid != null) {
+            shadowsByIdentifierValue.values().removeIf(
+                    shadows -> shadows.stream().anyMatch(shadow -> oid.equals(shadow.getOid())));
+        } else {
+            shadowsByIdentifierValue.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return shadowsByIdentifierValue.size();
+    }
+
+    /** Stops watching for invalidations. The batch should not be used afterwards. */
+    @Override
+    public void close() {
+        activeBatches.remove(this);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "objectClass=" + objectClass +
+                ", identifierName=" + identifierName +
+                ", size=" + size() +
+                '}';
+    }
+}
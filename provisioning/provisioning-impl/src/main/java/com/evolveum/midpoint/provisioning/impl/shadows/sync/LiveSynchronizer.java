@@ -9,6 +9,10 @@ package com.evolveum.midpoint.provisioning.impl.shadows.sync;
 
 import static org.apache.commons.lang3.BooleanUtils.isTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.evolveum.midpoint.prism.PrismProperty;
 import com.evolveum.midpoint.provisioning.api.*;
 import com.evolveum.midpoint.provisioning.impl.TokenUtil;
 import com.evolveum.midpoint.schema.ResourceOperationCoordinates;
@@ -25,14 +29,20 @@ import com.evolveum.midpoint.provisioning.impl.ProvisioningContextFactory;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectConverter;
 import com.evolveum.midpoint.provisioning.impl.shadows.ShadowsFacade;
 import com.evolveum.midpoint.provisioning.impl.shadows.ShadowedLiveSyncChange;
+import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectLiveSyncChange;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectLiveSyncChangeListener;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowFinder;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 import com.evolveum.midpoint.provisioning.ucf.api.GenericFrameworkException;
 import com.evolveum.midpoint.provisioning.ucf.api.UcfFetchChangesResult;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.processor.ResourceAttribute;
+import com.evolveum.midpoint.schema.processor.ResourceObjectDefinition;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.SchemaDebugUtil;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -57,6 +67,7 @@ public class LiveSynchronizer {
 
     @Autowired private ProvisioningContextFactory ctxFactory;
     @Autowired private ResourceObjectConverter resourceObjectConverter;
+    @Autowired private ShadowFinder shadowFinder;
 
     @NotNull
     public SynchronizationOperationResult synchronize(
@@ -82,32 +93,59 @@ public class LiveSynchronizer {
 
         IndividualEventsAcknowledgeGate<LiveSyncEvent> acknowledgeGate = new IndividualEventsAcknowledgeGate<>();
 
-        ResourceObjectLiveSyncChangeListener listener = (resourceObjectChange, lResult) -> {
+        ResourceObjectLiveSyncChangeListener listener = new ResourceObjectLiveSyncChangeListener() {
+
+            /** Shadows looked up for the current batch of changes. */
+            private ShadowLookupBatch shadowLookupBatch;
+
+            @Override
+            public boolean onChange(ResourceObjectLiveSyncChange resourceObjectChange, OperationResult lResult) {
 
-            int sequentialNumber = ctx.oldestTokenWatcher.changeArrived(resourceObjectChange.getToken());
+                int sequentialNumber = ctx.oldestTokenWatcher.changeArrived(resourceObjectChange.getToken());
 
-            ShadowedLiveSyncChange change = new ShadowedLiveSyncChange(resourceObjectChange);
-            change.initialize(task, lResult);
+                ShadowedLiveSyncChange change = new ShadowedLiveSyncChange(resourceObjectChange, shadowLookupBatch);
+                change.initialize(task, lResult);
 
-            LiveSyncEvent event = new LiveSyncEventImpl(change) {
-                @Override
-                public void acknowledge(boolean release, OperationResult aResult) {
-                    LOGGER.trace("Acknowledgement (release={}) sent for {}", release, this);
-                    if (release) {
-                        ctx.oldestTokenWatcher.changeProcessed(sequentialNumber);
+                LiveSyncEvent event = new LiveSyncEventImpl(change) {
+                    @Override
+                    public void acknowledge(boolean release, OperationResult aResult) {
+                        LOGGER.trace("Acknowledgement (release={}) sent for {}", release, this);
+                        if (release) {
+                            ctx.oldestTokenWatcher.changeProcessed(sequentialNumber);
+                        }
+                        acknowledgeGate.acknowledgeIssuedEvent(this);
                     }
-                    acknowledgeGate.acknowledgeIssuedEvent(this);
+                };
+
+                acknowledgeGate.registerIssuedEvent(event);
+                try {
+                    return handler.handle(event, lResult);
+                } catch (Throwable t) {
+                    // We assume the event was not acknowledged yet. Note that serious handler should never throw an exception!
+                    LoggingUtils.logUnexpectedException(LOGGER, "Got unexpected exception while handling a live sync event", t);
+                    acknowledgeGate.acknowledgeIssuedEvent(event);
+                    return false;
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ShadowFinder.SHADOW_LOOKUP_BATCH_SIZE;
+            }
+
+            @Override
+            public void prepareForBatch(
+                    @NotNull List<ResourceObjectLiveSyncChange> changes, @NotNull OperationResult lResult) {
+                batchesFinished();
+                shadowLookupBatch = prefetchShadows(ctx.context, changes, lResult);
+            }
+
+            @Override
+            public void batchesFinished() {
+                if (shadowLookupBatch != null) {
+                    shadowLookupBatch.close();
+                    shadowLookupBatch = null;
                 }
-            };
-
-            acknowledgeGate.registerIssuedEvent(event);
-            try {
-                return handler.handle(event, lResult);
-            } catch (Throwable t) {
-                // We assume the event was not acknowledged yet. Note that serious handler should never throw an exception!
-                LoggingUtils.logUnexpectedException(LOGGER, "Got unexpected exception while handling a live sync event", t);
-                acknowledgeGate.acknowledgeIssuedEvent(event);
-                return false;
             }
         };
 
@@ -135,6 +173,37 @@ public class LiveSynchronizer {
         return ctx.syncResult;
     }
 
+    /**
+     * Looks up shadows for a batch of changes in advance. Only changes of the same object class (the first one found)
+     * are considered. Deletions are included, although their shadows are looked up in a different way: an object that
+     * is deleted and then re-created in the same batch must not have its shadow taken from the batch.
+     */
+    private ShadowLookupBatch prefetchShadows(
+            ProvisioningContext ctx, List<ResourceObjectLiveSyncChange> changes, OperationResult result) {
+        ResourceObjectDefinition objectDefinition = null;
+        List<PrismProperty<?>> primaryIdentifiers = new ArrayList<>();
+        for (ResourceObjectLiveSyncChange change : changes) {
+            ResourceObjectDefinition changeDefinition = change.getCurrentResourceObjectDefinition();
+            if (changeDefinition == null) {
+                continue;
+            }
+            if (objectDefinition == null) {
+                objectDefinition = changeDefinition;
+            } else if (!QNameUtil.match(objectDefinition.getTypeName(), changeDefinition.getTypeName())) {
+                continue;
+            }
+            for (ResourceAttribute<?> identifier : change.getIdentifiers()) {
+                if (changeDefinition.isPrimaryIdentifier(identifier.getElementName())) {
+                    primaryIdentifiers.add(identifier);
+                }
+            }
+        }
+        if (objectDefinition == null) {
+            return null;
+        }
+        return shadowFinder.prefetchShadowsByPrimaryIds(ctx, objectDefinition, primaryIdentifiers, result);
+    }
+
     private void setupInitialToken(LiveSyncCtx ctx) {
         ctx.syncResult.setInitialToken(
                 ctx.tokenStorage.getToken());
@@ -36,6 +36,7 @@ import com.evolveum.midpoint.schema.util.Resource;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.AssertJUnit;
@@ -50,7 +51,10 @@ import com.evolveum.midpoint.prism.query.*;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningTestUtil;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowFinder;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowLookupBatch;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
@@ -88,6 +92,9 @@ public class TestDummy extends AbstractBasicDummyTest {
     static final long VALID_TO_MILLIS = 3454564324423L;
 
     private static final String GROUP_CORSAIRS_NAME = "corsairs";
+    private static final String BATCH_ACCOUNT_NAME_PREFIX = "batch-";
+
+    @Autowired private ShadowFinder shadowFinder;
 
     private String drakeAccountOid;
 
@@ -103,6 +110,10 @@ public class TestDummy extends AbstractBasicDummyTest {
     private String corsairsShadowOid;
     private String meathookAccountOid;
 
+    /** Accounts created by the batch tests (by name) and OIDs of their shadows (by lower-case name). */
+    private final Map<String, DummyAccount> batchAccounts = new HashMap<>();
+    private final Map<String, String> batchAccountShadowOids = new HashMap<>();
+
     protected String getMurrayRepoIcfName() {
         return ACCOUNT_MURRAY_USERNAME;
     }
@@ -4445,6 +4456,171 @@ public class TestDummy extends AbstractBasicDummyTest {
         assertSteadyResource();
     }
 
+    /**
+     * Repeated changes of the same accounts are fetched in a single batch. Shadows looked up for the batch
+     * must not be used for the repeated ones; so exactly one shadow per account must be created.
+     */
+    @Test
+    public void test880LiveSyncRepeatedChangesInOneBatch() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("three accounts are added, two of them are then modified (one of them twice)");
+        syncServiceMock.reset();
+        dummyResource.setSyncStyle(DummySyncStyle.DUMB);
+        DummyAccount first = addBatchAccount(BATCH_ACCOUNT_NAME_PREFIX + 1);
+        DummyAccount second = addBatchAccount(BATCH_ACCOUNT_NAME_PREFIX + 2);
+        addBatchAccount(BATCH_ACCOUNT_NAME_PREFIX + 3);
+        first.replaceAttributeValue(DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "First modification");
+        first.replaceAttributeValue(DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Second modification");
+        second.replaceAttributeValue(DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Modified");
+
+        when("live sync is run");
+        mockLiveSyncTaskHandler.synchronize(getDefaultAccountObjectClassCoordinates(), tokenStorage, task, result);
+
+        then("all changes are processed, with a single live shadow for each account");
+        assertSuccess(result);
+        List<ResourceObjectShadowChangeDescription> changes = syncServiceMock.getChanges();
+        assertThat(changes).as("changes").hasSizeGreaterThanOrEqualTo(3);
+        for (ResourceObjectShadowChangeDescription change : changes) {
+            PrismObject<ShadowType> shadow = change.getShadowedResourceObject();
+            String name = ShadowUtil.getAttributeValue(shadow, SchemaConstants.ICFS_NAME);
+            String previousOid = batchAccountShadowOids.put(name.toLowerCase(), shadow.getOid());
+            assertThat(previousOid == null || previousOid.equals(shadow.getOid()))
+                    .as("the same shadow for all changes of " + name)
+                    .isTrue();
+        }
+        assertThat(batchAccountShadowOids).as("shadows of batch accounts").hasSize(3);
+        for (String shadowOid : batchAccountShadowOids.values()) {
+            assertRepoShadow(shadowOid)
+                    .assertNotDead();
+        }
+
+        checkAllShadows();
+
+        assertSteadyResource();
+    }
+
+    /**
+     * An account is deleted and re-created, both in the same batch of changes. The shadow (live when the batch
+     * was fetched) must not be taken from the batch for the re-creation, as it is dead at that time.
+     */
+    @Test
+    public void test885LiveSyncDeleteAndRecreateInOneBatch() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        String name = BATCH_ACCOUNT_NAME_PREFIX + 3;
+        String oldShadowOid = requireNonNull(batchAccountShadowOids.get(name));
+
+        given("an account is deleted and re-created; other accounts are modified");
+        syncServiceMock.reset();
+        dummyResource.setSyncStyle(DummySyncStyle.DUMB);
+        if (isNameUnique()) {
+            dummyResource.deleteAccountByName(name);
+        } else {
+            dummyResource.deleteAccountById(batchAccounts.get(name).getId());
+        }
+        addBatchAccount(name);
+        batchAccounts.get(BATCH_ACCOUNT_NAME_PREFIX + 1)
+                .replaceAttributeValue(DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Third modification");
+        batchAccounts.get(BATCH_ACCOUNT_NAME_PREFIX + 2)
+                .replaceAttributeValue(DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Modified again");
+
+        when("live sync is run");
+        mockLiveSyncTaskHandler.synchronize(getDefaultAccountObjectClassCoordinates(), tokenStorage, task, result);
+
+        then("the old shadow is dead, the re-created account has a new live shadow");
+        assertSuccess(result);
+        assertRepoShadow(oldShadowOid)
+                .assertTombstone();
+        String newShadowOid = null;
+        for (ResourceObjectShadowChangeDescription change : syncServiceMock.getChanges()) {
+            PrismObject<ShadowType> shadow = change.getShadowedResourceObject();
+            if (!change.isDelete()
+                    && name.equalsIgnoreCase(ShadowUtil.getAttributeValue(shadow, SchemaConstants.ICFS_NAME))) {
+                newShadowOid = shadow.getOid();
+            }
+        }
+        assertThat(newShadowOid).as("shadow of the re-created account")
+                .isNotNull()
+                .isNotEqualTo(oldShadowOid);
+        assertRepoShadow(newShadowOid)
+                .assertNotDead();
+        for (int i = 1; i <= 2; i++) {
+            assertRepoShadow(batchAccountShadowOids.get(BATCH_ACCOUNT_NAME_PREFIX + i))
+                    .assertNotDead();
+        }
+
+        checkAllShadows();
+
+        // Clean slate for next tests
+        repositoryService.deleteObject(ShadowType.class, oldShadowOid, result);
+
+        assertSteadyResource();
+    }
+
+    /**
+     * Objects found by search are processed in batches, too. Repeated identifiers are not covered by the batch,
+     * and the entries whose shadows are modified in the meanwhile are dropped.
+     */
+    @Test
+    public void test887SearchWithShadowLookupBatch() throws Exception {
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        given("existing accounts and their shadows");
+        ObjectQuery query = createResourceAndObjectClassQuery(RESOURCE_DUMMY_OID, RI_ACCOUNT_OBJECT_CLASS);
+        int repoShadowsBefore = repositoryService.countObjects(ShadowType.class, query, null, result);
+
+        when("accounts are searched on the resource");
+        List<PrismObject<ShadowType>> accounts = provisioningService.searchObjects(ShadowType.class, query, null, task, result);
+
+        then("existing shadows are used, no new ones are created");
+        assertSuccess(result);
+        assertThat(accounts).as("accounts found").hasSizeGreaterThanOrEqualTo(3);
+        assertThat(repositoryService.countObjects(ShadowType.class, query, null, result))
+                .as("repo shadows after search")
+                .isEqualTo(repoShadowsBefore);
+
+        when("shadows are looked up in batch for identifiers of three accounts, one of them repeated");
+        ProvisioningContext ctx = provisioningContextFactory.createForShadowCoordinates(
+                new ResourceShadowCoordinates(RESOURCE_DUMMY_OID, ShadowKindType.ACCOUNT, SchemaConstants.INTENT_DEFAULT),
+                task, result);
+        List<PrismProperty<?>> identifiers = new ArrayList<>();
+        for (int i : new int[] { 0, 1, 0, 2 }) {
+            identifiers.add(
+                    requireNonNull(ShadowUtil.getAttributesContainer(accounts.get(i))).getPrimaryIdentifier());
+        }
+        try (ShadowLookupBatch batch = requireNonNull(
+                shadowFinder.prefetchShadowsByPrimaryIds(ctx, ctx.getObjectDefinitionRequired(), identifiers, result))) {
+
+            then("only the identifiers occurring once are covered");
+            assertThat(batch.size()).as("batch size").isEqualTo(2);
+
+            when("one of the covered shadows is modified");
+            repositoryService.modifyObject(ShadowType.class, accounts.get(1).getOid(),
+                    prismContext.deltaFor(ShadowType.class)
+                            .item(ShadowType.F_SYNCHRONIZATION_TIMESTAMP).replace(clock.currentTimeXMLGregorianCalendar())
+                            .asItemDeltas(),
+                    result);
+
+            then("it is no longer covered by the batch");
+            assertThat(batch.size()).as("batch size after modification").isEqualTo(1);
+        }
+
+        assertSteadyResource();
+    }
+
+    private DummyAccount addBatchAccount(String name) throws Exception {
+        DummyAccount account = new DummyAccount(name);
+        account.addAttributeValues(DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME, "Batch account " + name);
+        account.setEnabled(true);
+        dummyResource.addAccount(account);
+        batchAccounts.put(name, account);
+        return account;
+    }
+
     @Test
     public void test890LiveSyncModifyProtectedAccount() throws Exception {
         // GIVEN
@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.provisioning.impl.dummy;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -13,6 +15,7 @@ import java.util.Collection;
 
 import com.evolveum.midpoint.schema.processor.ResourceSchemaFactory;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.AssertJUnit;
@@ -24,6 +27,7 @@ import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.delta.PropertyDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.provisioning.impl.resources.ResourceCache;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
@@ -51,6 +55,8 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
 @DirtiesContext
 public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
 
+    @Autowired private ResourceCache resourceCache;
+
     @Test
     public void test010GetResource() throws Exception {
         // GIVEN
@@ -473,6 +479,39 @@ public class TestDummyResourceAndSchemaCaching extends AbstractDummyTest {
         assertConnectorInstanceUnchanged(resourceProvisioning);
     }
 
+    /**
+     * Get the resource again (after it was refreshed in the previous test). It should be taken from the cache,
+     * without reading it from the repository, and the hit should be counted for this resource.
+     */
+    @Test
+    public void test024GetResourceAgainAfterRefresh() throws Exception {
+        // GIVEN
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        ResourceCache.Statistics statistics = resourceCache.getStatistics().get(RESOURCE_DUMMY_OID);
+        assertThat(statistics).as("resource cache statistics").isNotNull();
+        long hitsBefore = statistics.getHits();
+        long missesBefore = statistics.getMisses();
+
+        // WHEN
+        PrismObject<ResourceType> resourceProvisioning = provisioningService.getObject(ResourceType.class, RESOURCE_DUMMY_OID, null, task, result);
+
+        // THEN
+        assertSuccess(result);
+        assertHasSchema(resourceProvisioning, "provisioning resource");
+
+        assertCounterIncrement(InternalCounters.RESOURCE_REPOSITORY_READ_COUNT, 0);
+        assertCounterIncrement(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT, 0);
+
+        displayDumpable("Resource cache", InternalMonitor.getResourceCacheStats());
+        assertResourceCacheHitsIncrement(1);
+        assertResourceCacheMissesIncrement(0);
+
+        assertThat(statistics.getHits()).as("hits for the resource").isEqualTo(hitsBefore + 1);
+        assertThat(statistics.getMisses()).as("misses for the resource").isEqualTo(missesBefore);
+    }
+
     /**
      * Change part of connector configuration. The cached resource should be refreshed, the schema re-parsed.
      * The connector also needs to re-initialized.
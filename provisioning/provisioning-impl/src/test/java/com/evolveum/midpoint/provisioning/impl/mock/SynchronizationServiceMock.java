@@ -9,6 +9,9 @@ package com.evolveum.midpoint.provisioning.impl.mock;
 
 import static org.testng.AssertJUnit.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
@@ -43,6 +46,7 @@ public class SynchronizationServiceMock
     private boolean wasFailure = false;
     private boolean wasInProgress = false;
     private ResourceObjectShadowChangeDescription lastChange = null;
+    private final List<ResourceObjectShadowChangeDescription> changes = new ArrayList<>();
     private boolean supportActivation = true;
 
     @Autowired private EventDispatcher notificationManager;
@@ -128,6 +132,7 @@ public class SynchronizationServiceMock
         // remember ...
         callCountNotifyChange++;
         lastChange = change;
+        changes.add(change);
     }
 
     @Override
@@ -211,6 +216,7 @@ public class SynchronizationServiceMock
         callCountNotifyChange = 0;
         callCountNotifyOperation = 0;
         lastChange = null;
+        changes.clear();
         wasSuccess = false;
         wasFailure = false;
         wasInProgress = false;
@@ -220,6 +226,11 @@ public class SynchronizationServiceMock
         return lastChange;
     }
 
+    /** All changes notified since the last {@link #reset()}, in the order of notification. */
+    public List<ResourceObjectShadowChangeDescription> getChanges() {
+        return changes;
+    }
+
     public int getCallCount() {
         return callCountNotifyChange;
     }
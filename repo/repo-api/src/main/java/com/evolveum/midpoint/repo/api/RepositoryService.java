@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.repo.api;
 
 import java.util.Collection;
+import java.util.List;
 
 import com.evolveum.midpoint.prism.*;
 
@@ -27,6 +28,7 @@ import com.evolveum.midpoint.repo.api.perf.PerformanceMonitor;
 import com.evolveum.midpoint.schema.selector.eval.ObjectFilterExpressionEvaluator;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
 import com.evolveum.midpoint.util.annotation.Experimental;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -131,6 +133,12 @@ public interface RepositoryService extends OrgTreeEvaluator, CaseSupportMixin, A
     String OP_ADVANCE_SEQUENCE = "advanceSequence";
     String OP_RETURN_UNUSED_VALUES_TO_SEQUENCE = "returnUnusedValuesToSequence";
     String OP_ALLOCATE_CONTAINER_IDENTIFIERS = "allocateContainerIdentifiers";
+    String OP_ALLOCATE_WORK_BUCKET = "allocateWorkBucket";
+    String OP_COMPLETE_WORK_BUCKET = "completeWorkBucket";
+    String OP_RELEASE_WORK_BUCKETS = "releaseWorkBuckets";
+    String OP_RECLAIM_WORK_BUCKETS = "reclaimWorkBuckets";
+    String OP_DELETE_WORK_BUCKETS = "deleteWorkBuckets";
+    String OP_STORE_TASK_STATISTICS = "storeTaskStatistics";
     String OP_EXECUTE_QUERY_DIAGNOSTICS = "executeQueryDiagnostics";
     String OP_GET_OBJECT = "getObject";
     String OP_SEARCH_OBJECTS = "searchObjects";
@@ -639,6 +647,131 @@ public interface RepositoryService extends OrgTreeEvaluator, CaseSupportMixin, A
             int howMany,
             @NotNull OperationResult result) throws ObjectNotFoundException;
 
+    /**
+     * Returns `true` if the repository can store work buckets of bucketed activities in a separate table, instead of
+     * the activity state in the coordinator task. See {@link #allocateWorkBucket(String, ActivityPath, String,
+     * WorkBucketsCreator, OperationResult)}.
+     */
+    default boolean supportsWorkBucketTable() {
+        return false;
+    }
+
+    /**
+     * Allocates a work bucket for given worker task, using the work bucket table (row-level allocation).
+     * The coordinator task itself is not read nor modified, so concurrent workers do not conflict on it.
+     *
+     * . If there is a bucket already delegated to the worker, it is returned.
+     * . Otherwise, the first ready bucket not being allocated concurrently by other worker is delegated to the worker.
+     * . If there is none, new buckets are created by the `bucketsCreator` - this is serialized among the workers.
+     * The first of them is delegated to the worker, the others are stored as ready.
+     *
+     * Buckets of the activity are created only by this method, i.e. they are not moved from the coordinator task.
+     */
+    @Experimental
+    default @NotNull WorkBucketAllocationResult allocateWorkBucket(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            @NotNull String workerOid,
+            @NotNull WorkBucketsCreator bucketsCreator,
+            @NotNull OperationResult result) throws SchemaException {
+        throw new UnsupportedOperationException();
+    }
+
+    @FunctionalInterface
+    interface WorkBucketsCreator {
+        /**
+         * Creates new buckets following the last existing one (`null` if there are no buckets yet).
+         * Returns empty list if there are no more buckets to be created.
+         */
+        @NotNull List<WorkBucketType> createBuckets(@Nullable WorkBucketType lastBucket) throws SchemaException;
+    }
+
+    /**
+     * Marks a bucket delegated to a worker as complete in the work bucket table.
+     *
+     * @return Number of complete buckets of the activity after the operation, or `null` if the bucket is not
+     * in the table (i.e. it is stored in the coordinator task).
+     * It is an error if the bucket is in the table but it is not delegated.
+     */
+    @Experimental
+    default @Nullable Integer completeWorkBucket(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            int sequentialNumber,
+            @NotNull OperationResult result) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns buckets delegated to a worker to the ready state in the work bucket table.
+     *
+     * @param sequentialNumber Bucket to be released; `null` means all buckets delegated to the worker.
+     * @return Number of buckets released.
+     */
+    @Experimental
+    default int releaseWorkBuckets(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            @NotNull String workerOid,
+            @Nullable Integer sequentialNumber,
+            @NotNull OperationResult result) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns buckets delegated to workers other than the specified (live) ones to the ready state
+     * in the work bucket table.
+     *
+     * @return Number of buckets reclaimed.
+     */
+    @Experimental
+    default int reclaimWorkBuckets(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            @NotNull Collection<String> liveWorkerOids,
+            @NotNull OperationResult result) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Deletes the buckets of the activity (or of all activities of the task, if `activityPath` is `null`)
+     * from the work bucket table. Called when the bucketing state of the activity is purged.
+     */
+    @Experimental
+    default void deleteWorkBuckets(
+            @NotNull String coordinatorOid,
+            @Nullable ActivityPath activityPath,
+            @NotNull OperationResult result) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns `true` if the repository can store task statistics and progress outside the task object.
+     * See {@link #storeTaskStatistics(String, Collection, OperationResult)}.
+     */
+    default boolean supportsTaskStatisticsTable() {
+        return false;
+    }
+
+    /**
+     * Stores statistics and/or progress of a task without rewriting the task object itself.
+     * The cost of the operation does not depend on the size of the task.
+     *
+     * Only replace deltas are accepted. The last delta stored for any given item path is applied to the task
+     * whenever it is read, so the effect is the same as of {@link #modifyObject(Class, String, Collection, OperationResult)}
+     * with the same modifications, except that the task version is not changed. The deltas are folded into the task
+     * object by the next regular modification of the task.
+     *
+     * Intended for the task manager, for frequent updates of statistics of running tasks.
+     */
+    @Experimental
+    default void storeTaskStatistics(
+            @NotNull String taskOid,
+            @NotNull Collection<? extends ItemDelta<?, ?>> modifications,
+            @NotNull OperationResult result) throws ObjectNotFoundException, SchemaException {
+        throw new UnsupportedOperationException();
+    }
+
     @Experimental
     @ApiStatus.Internal
     @NotNull
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
+
+/**
+ * Result of {@link RepositoryService#allocateWorkBucket(String, com.evolveum.midpoint.schema.util.task.ActivityPath,
+ * String, RepositoryService.WorkBucketsCreator, com.evolveum.midpoint.schema.result.OperationResult)}.
+ *
+ * @param bucket Bucket delegated to the worker, or `null` if there is no bucket available.
+ * @param situation What was found (or not found).
+ */
+public record WorkBucketAllocationResult(@Nullable WorkBucketType bucket, @NotNull Situation situation) {
+
+    public enum Situation {
+
+        /** There was a bucket already delegated to the worker. */
+        FOUND_DELEGATED_TO_ME,
+
+        /** A ready bucket was delegated to the worker. */
+        FOUND_READY,
+
+        /** New bucket(s) were created, and the first of them was delegated to the worker. */
+        CREATED_NEW,
+
+        /** No bucket is available, but some are still delegated to (other) workers. They may be released later. */
+        NOTHING_MORE_SOME_DELEGATED,
+
+        /** No bucket is available, and there are no delegated buckets. The work is done. */
+        NOTHING_MORE_DEFINITE
+    }
+}
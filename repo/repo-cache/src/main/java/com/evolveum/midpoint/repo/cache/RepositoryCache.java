@@ -91,6 +91,15 @@ public class RepositoryCache implements RepositoryService, Cache {
         LocalRepoCacheCollection.exit();
     }
 
+    /**
+     * Removes thread-local caches of the current thread, even if they were not exited properly.
+     *
+     * @return true if there was anything to remove
+     */
+    public static boolean removeLocalCachesForCurrentThread() {
+        return LocalRepoCacheCollection.removeForCurrentThread();
+    }
+
     //region --- GET, SEARCH and COUNT operations ------------------------------------------------------------------
 
     @NotNull
@@ -40,6 +40,7 @@ import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.FunctionLibraryType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemConfigurationType;
 
 /**
@@ -50,9 +51,14 @@ public class Invalidator {
 
     public static final Trace LOGGER = TraceManager.getTrace(Invalidator.class);
 
+    /**
+     * Resources are here because the provisioning resource cache relies on the invalidation events
+     * (it does not check the resource version on each access).
+     */
     private static final List<Class<?>> TYPES_ALWAYS_INVALIDATED_CLUSTERWIDE = Arrays.asList(
             SystemConfigurationType.class,
-            FunctionLibraryType.class);
+            FunctionLibraryType.class,
+            ResourceType.class);
 
     @Autowired private GlobalQueryCache globalQueryCache;
     @Autowired private GlobalObjectCache globalObjectCache;
@@ -81,6 +81,20 @@ public class LocalRepoCacheCollection {
         LocalQueryCache.exit(LOCAL_QUERY_CACHE_INSTANCE, LOGGER);
     }
 
+    /**
+     * Drops all local caches of the current thread, regardless of their enter/exit balance.
+     * Used when a (possibly virtual) thread finishes, so that the maps do not keep entries for dead threads.
+     *
+     * @return true if there was anything to remove
+     */
+    public static boolean removeForCurrentThread() {
+        Thread thread = Thread.currentThread();
+        boolean objectCacheRemoved = LOCAL_OBJECT_CACHE_INSTANCE.remove(thread) != null;
+        boolean versionCacheRemoved = LOCAL_VERSION_CACHE_INSTANCE.remove(thread) != null;
+        boolean queryCacheRemoved = LOCAL_QUERY_CACHE_INSTANCE.remove(thread) != null;
+        return objectCacheRemoved || versionCacheRemoved || queryCacheRemoved;
+    }
+
     public static boolean exists() {
         return LocalObjectCache.exists(LOCAL_OBJECT_CACHE_INSTANCE) ||
                 LocalVersionCache.exists(LOCAL_VERSION_CACHE_INSTANCE) ||
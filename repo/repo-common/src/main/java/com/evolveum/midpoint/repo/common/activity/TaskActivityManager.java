@@ -309,6 +309,7 @@ public class TaskActivityManager {
                         .asItemDeltas();
             }
             plainRepositoryService.modifyObject(TaskType.class, task.getOid(), itemDeltas, result);
+            deleteWorkBuckets(task.getOid(), activityPath, result);
             LOGGER.info("Deleted activity state for '{}' in {}", activityPath, task);
         } catch (CommonException e) {
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't delete state for activity path '{}' in {}", e, activityPath, task);
@@ -334,12 +335,20 @@ public class TaskActivityManager {
                                 .asItemDeltas());
             }
             plainRepositoryService.modifyObject(TaskType.class, task.getOid(), itemDeltas, result);
+            deleteWorkBuckets(task.getOid(), activityPath, result);
             LOGGER.info("Purged activity state for '{}' in {}", activityPath, task);
         } catch (CommonException e) {
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't delete state for activity path '{}' in {}", e, activityPath, task);
         }
     }
 
+    /** Buckets kept in the work bucket table (row-level allocation) go away together with the bucketing state. */
+    private void deleteWorkBuckets(String taskOid, ActivityPath activityPath, OperationResult result) {
+        if (plainRepositoryService.supportsWorkBucketTable()) {
+            plainRepositoryService.deleteWorkBuckets(taskOid, activityPath, result);
+        }
+    }
+
     /** Computes affected objects for a given activity definition, either simple or composite. */
     public @Nullable TaskAffectedObjectsType computeAffectedObjects(@Nullable ActivityDefinitionType activityDefinitionBean)
             throws SchemaException, ConfigurationException {
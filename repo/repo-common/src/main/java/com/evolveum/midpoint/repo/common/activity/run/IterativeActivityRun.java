@@ -384,8 +384,13 @@ public abstract class IterativeActivityRun<
             getRunningTask()
                     .updateAndStoreStatisticsIntoRepository(true, result); // Contains implicit task flush
 
+            BucketProgressOverviewType bucketProgress = bucketProgressHolder.getValue();
+            if (bucketProgress.getTotalBuckets() == null) {
+                // Buckets completed in the work bucket table do not provide the total, we know it from the allocation.
+                bucketProgress.setTotalBuckets(numberOfBucketsAnnounced);
+            }
             getTreeStateOverview()
-                    .updateBucketAndItemProgress(this, bucketProgressHolder.getValue(), result);
+                    .updateBucketAndItemProgress(this, bucketProgress, result);
 
         } catch (CommonException e) {
             throw new ActivityRunException("Couldn't complete work bucket", FATAL_ERROR, PERMANENT_ERROR, e);
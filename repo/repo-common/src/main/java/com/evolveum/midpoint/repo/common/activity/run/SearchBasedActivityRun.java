@@ -16,6 +16,8 @@ import com.evolveum.midpoint.repo.common.activity.definition.ResourceObjectSetSp
 import com.evolveum.midpoint.repo.common.activity.definition.WorkDefinition;
 import com.evolveum.midpoint.repo.common.activity.run.processing.ContainerableProcessingRequest;
 import com.evolveum.midpoint.repo.common.activity.run.processing.ItemPreprocessor;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.DiscriminatorValueSampler;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.RepositoryDiscriminatorValueSampler;
 import com.evolveum.midpoint.repo.common.activity.run.processing.ItemProcessingRequest;
 import com.evolveum.midpoint.repo.common.activity.run.sources.SearchableItemSource;
 import com.evolveum.midpoint.repo.common.activity.handlers.ActivityHandler;
@@ -82,6 +84,8 @@ public abstract class SearchBasedActivityRun<
     private static final Trace LOGGER = TraceManager.getTrace(SearchBasedActivityRun.class);
 
     private static final String OP_PREPROCESS_OBJECT = SearchBasedActivityRun.class.getName() + ".preprocessObject";
+    private static final String OP_CREATE_DISCRIMINATOR_VALUE_SAMPLER =
+            SearchBasedActivityRun.class.getName() + ".createDiscriminatorValueSampler";
 
     /**
      * Specification of the search that is to be executed: container type, query, options, and "use repository" flag.
@@ -137,8 +141,8 @@ public abstract class SearchBasedActivityRun<
         searchSpecification = createCustomizedSearchSpecification(result);
 
         narrowQueryForBucketingAndErrorHandling();
-        resolveExpressionsInQuery(result);
-        applyDefinitionsToQuery(result);
+        resolveExpressionsInQuery(searchSpecification, result);
+        applyDefinitionsToQuery(searchSpecification, result);
 
         LOGGER.trace("{}: will do the following search (in bucket: {}):\n{}",
                 shortName, bucket, DebugUtil.debugDumpLazily(searchSpecification));
@@ -357,13 +361,45 @@ public abstract class SearchBasedActivityRun<
             // We only need "use repo" and object type.
             simpleSearchSpecification = createCustomizedSearchSpecification(result);
         }
-        return simpleSearchSpecification.isUseRepository() ||
-                simpleSearchSpecification.isRaw() ||
-                simpleSearchSpecification.isNoFetch() ||
-                !ShadowType.class.equals(simpleSearchSpecification.getType());
+        return isInRepository(simpleSearchSpecification);
     }
 
-    private void resolveExpressionsInQuery(OperationResult result) throws CommonException {
+    private static boolean isInRepository(@NotNull SearchSpecification<?> searchSpecification) {
+        return searchSpecification.isUseRepository() ||
+                searchSpecification.isRaw() ||
+                searchSpecification.isNoFetch() ||
+                !ShadowType.class.equals(searchSpecification.getType());
+    }
+
+    /**
+     * Provides sampling for balanced work segmentation. Only objects that are searched for in the repository
+     * are supported; the sampling uses the query defined by the activity (without narrowing for buckets or failed objects).
+     */
+    @Override
+    public @Nullable DiscriminatorValueSampler getDiscriminatorValueSampler() {
+        OperationResult result = new OperationResult(OP_CREATE_DISCRIMINATOR_VALUE_SAMPLER);
+        try {
+            SearchSpecification<C> samplingSearchSpecification = createCustomizedSearchSpecification(result);
+            if (!isInRepository(samplingSearchSpecification)
+                    || !ObjectType.class.isAssignableFrom(samplingSearchSpecification.getType())) {
+                return null;
+            }
+            resolveExpressionsInQuery(samplingSearchSpecification, result);
+            applyDefinitionsToQuery(samplingSearchSpecification, result);
+            //noinspection unchecked
+            return new RepositoryDiscriminatorValueSampler(
+                    (Class<? extends ObjectType>) samplingSearchSpecification.getType(),
+                    samplingSearchSpecification.getQuery(),
+                    beans.repositoryService);
+        } catch (CommonException | ActivityRunException e) {
+            throw new SystemException("Couldn't prepare sampling of discriminator values: " + e.getMessage(), e);
+        } finally {
+            result.close();
+        }
+    }
+
+    private void resolveExpressionsInQuery(SearchSpecification<C> searchSpecification, OperationResult result)
+            throws CommonException {
         ObjectQuery query = searchSpecification.getQuery();
         if (query != null && ExpressionUtil.hasExpressions(query.getFilter())) {
             searchSpecification.setQuery(
@@ -372,7 +408,8 @@ public abstract class SearchBasedActivityRun<
         }
     }
 
-    private void applyDefinitionsToQuery(OperationResult result) throws CommonException {
+    private void applyDefinitionsToQuery(SearchSpecification<C> searchSpecification, OperationResult result)
+            throws CommonException {
         beans.getAdvancedActivityRunSupport()
                 .applyDefinitionsToQuery(searchSpecification, getRunningTask(), result);
     }
@@ -56,6 +56,9 @@ public class CompleteBucketOperation extends BucketOperation {
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
 
         LOGGER.trace("Completing work bucket #{} in {} (worker {})", sequentialNumber, coordinatorTaskOid, workerTaskOid);
+        if (completeInWorkBucketTable(result)) {
+            return;
+        }
         ModifyObjectResult<TaskType> modifyObjectResult =
                 plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
                         this::computeCompletionModifications, null, result);
@@ -64,6 +67,29 @@ public class CompleteBucketOperation extends BucketOperation {
         statisticsKeeper.register(BucketingConstants.COMPLETE_WORK_BUCKET);
     }
 
+    /**
+     * Completes the bucket in the work bucket table, if it's there (i.e. if row-level allocation is used).
+     * The coordinator task is not touched in that case; completed buckets are not compressed either, as they are
+     * not stored in the task.
+     */
+    private boolean completeInWorkBucketTable(OperationResult result) {
+        if (isStandalone() || !plainRepositoryService.supportsWorkBucketTable()) {
+            return false;
+        }
+        Integer completeBuckets =
+                plainRepositoryService.completeWorkBucket(coordinatorTaskOid, activityPath, sequentialNumber, result);
+        if (completeBuckets == null) {
+            return false;
+        }
+        // The total number of buckets is not known here; it is provided by the caller (if needed).
+        bucketProgressHolder.accept(
+                new BucketProgressOverviewType()
+                        .completeBuckets(completeBuckets));
+        bucketProgressHolder.passValue();
+        statisticsKeeper.register(BucketingConstants.COMPLETE_WORK_BUCKET);
+        return true;
+    }
+
     private @NotNull Collection<ItemDelta<?, ?>> computeCompletionModifications(@NotNull TaskType task) {
 
         ActivityStateType activityState = ActivityStateUtil.getActivityStateRequired(task.getActivityState(), activityPath);
@@ -14,6 +14,8 @@ import static java.util.Objects.requireNonNullElseGet;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getBuckets;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getWorkerOid;
 import static com.evolveum.midpoint.schema.util.task.work.BucketingConstants.*;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_BUCKET_SIZE;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_NUMBER_OF_BUCKETS;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_SCAVENGING;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_WORK_COMPLETE;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityStateType.F_BUCKETING;
@@ -32,9 +34,11 @@ import org.jetbrains.annotations.Nullable;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.repo.api.ModifyObjectResult;
+import com.evolveum.midpoint.repo.api.WorkBucketAllocationResult;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
 import com.evolveum.midpoint.schema.util.task.ActivityStateUtil;
@@ -61,6 +65,15 @@ public class GetBucketOperation extends BucketOperation {
     /** This is to limit sample size if probabilities are used. */
     private static final int MAX_RANDOM_SAMPLING_INTERVAL = 1000;
 
+    /**
+     * How many buckets are created at once in row-level mode, if the number of buckets is not known.
+     * If it is known, all the buckets are created at once, up to {@link #MAX_ROW_LEVEL_BUCKET_CREATION_BATCH}.
+     */
+    private static final int DEFAULT_ROW_LEVEL_BUCKET_CREATION_BATCH = 100;
+
+    /** Upper limit on the number of buckets created at once (in a single transaction) in row-level mode. */
+    private static final int MAX_ROW_LEVEL_BUCKET_CREATION_BATCH = 10_000;
+
     @NotNull private final GetBucketOperationOptions options;
 
     /** Generates new buckets under configuration provided by options. */
@@ -69,6 +82,12 @@ public class GetBucketOperation extends BucketOperation {
     /** If doing sampling, we try to get more buckets. All but the last are immediately marked as COMPLETE. */
     private int bucketsToGet;
 
+    /** Are the buckets kept in the work bucket table instead of the coordinator task? See {@link #getBucketRowLevel}. */
+    private boolean rowLevelAllocation;
+
+    /** Set when the first buckets of the activity were created in row-level mode. */
+    private boolean initialBucketsCreated;
+
     GetBucketOperation(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid, @NotNull ActivityPath activityPath,
             ActivityBucketManagementStatistics statisticsCollector,
             @Nullable GetBucketOperationOptions options, CommonTaskBeans beans) {
@@ -90,13 +109,16 @@ public class GetBucketOperation extends BucketOperation {
                 beans);
 
         this.bucketsToGet = determineBucketsToGet();
+        this.rowLevelAllocation = determineRowLevelAllocation();
 
         try {
             if (isStandalone()) {
                 return getBucketStandalone(result);
             } else {
                 executeInitialDelayForMultiNode();
-                return getBucketMultiNode(result);
+                return rowLevelAllocation ?
+                        getBucketRowLevel(result) :
+                        getBucketMultiNode(result);
             }
         } catch (Throwable t) {
             statisticsKeeper.register("getWorkBucket." + t.getClass().getSimpleName());
@@ -167,32 +189,145 @@ public class GetBucketOperation extends BucketOperation {
 
             // Nothing found!
 
-            if (!options.isScavenger()) {
-                markScavengingIfNotYet(result);
-                recordNothingFoundForNonScavenger();
+            if (!waitForFreeBucket(lastAttempt.isDefinite(), result)) {
                 return null;
             }
 
-            if (lastAttempt.isDefinite() || options.getFreeBucketWaitTime() == 0L) {
-                markWorkComplete(result);
-                recordNothingFoundDefinite();
-                return null;
+            reclaimWronglyAllocatedBuckets(result);
+            // We continue even if we could not find any wrongly allocated
+            // bucket -- maybe someone else found them before us, so we could use them.
+        }
+    }
+
+    /**
+     * Multi-node variant that keeps the buckets in the work bucket table: each allocation locks a single bucket row,
+     * so the workers do not conflict on the coordinator task. The coordinator keeps only the summary state
+     * (number of buckets, scavenging and work complete flags).
+     */
+    private WorkBucketType getBucketRowLevel(OperationResult result)
+            throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException, InterruptedException {
+        assert workerTaskOid != null;
+
+        // The number of complete buckets is not known here; it is reported when buckets are completed.
+        bucketProgressHolder.accept(
+                new BucketProgressOverviewType()
+                        .totalBuckets(bucketFactory.estimateNumberOfBuckets()));
+
+        // Buckets created by other workers (if any) must be of the same size as the ones we are going to create.
+        bucketFactory.getContentFactory().setBucketSize(loadStoredBucketSize(result));
+
+        for (;;) {
+
+            WorkBucketAllocationResult allocation = plainRepositoryService.allocateWorkBucket(
+                    coordinatorTaskOid, activityPath, workerTaskOid, this::createNewBucketsRowLevel, result);
+
+            bucketProgressHolder.passValue();
+
+            if (initialBucketsCreated) {
+                initialBucketsCreated = false;
+                storeInitialBucketingState(result);
+            }
+
+            WorkBucketType bucket = allocation.bucket();
+            switch (allocation.situation()) {
+                case FOUND_DELEGATED_TO_ME:
+                    recordFoundDelegated(bucket);
+                    return bucket;
+                case FOUND_READY:
+                    recordFoundReady(bucket);
+                    return bucket;
+                case CREATED_NEW:
+                    recordCreatedNew(bucket);
+                    return bucket;
+                default:
+                    // Nothing found!
             }
 
-            long toWait = getRemainingTimeToWait();
-            if (toWait <= 0) {
-                markWorkComplete(result); // TODO really marking work as complete?
-                recordNothingFoundWithWaitTimeElapsed();
+            boolean definite = allocation.situation() == WorkBucketAllocationResult.Situation.NOTHING_MORE_DEFINITE;
+            if (!waitForFreeBucket(definite, result)) {
                 return null;
             }
 
-            sleep(toWait);
             reclaimWronglyAllocatedBuckets(result);
-            // We continue even if we could not find any wrongly allocated
-            // bucket -- maybe someone else found them before us, so we could use them.
         }
     }
 
+    /**
+     * Creates buckets in batches, so that the workers mostly take existing ready buckets, and only rarely
+     * have to wait for the (serialized) creation of new ones. The other buckets than the first one stay ready.
+     */
+    private @NotNull List<WorkBucketType> createNewBucketsRowLevel(@Nullable WorkBucketType lastBucket)
+            throws SchemaException {
+        List<WorkBucketType> newBuckets = bucketFactory.createNewBuckets(
+                lastBucket != null ? List.of(lastBucket) : List.of(),
+                getRowLevelBucketCreationBatch(lastBucket));
+        if (lastBucket == null && !newBuckets.isEmpty()) {
+            initialBucketsCreated = true;
+        }
+        return newBuckets;
+    }
+
+    private int getRowLevelBucketCreationBatch(@Nullable WorkBucketType lastBucket) {
+        Integer estimatedBuckets = bucketFactory.estimateNumberOfBuckets();
+        if (estimatedBuckets == null) {
+            return DEFAULT_ROW_LEVEL_BUCKET_CREATION_BATCH;
+        }
+        int remaining = estimatedBuckets - (lastBucket != null ? lastBucket.getSequentialNumber() : 0);
+        return Math.max(1, Math.min(remaining, MAX_ROW_LEVEL_BUCKET_CREATION_BATCH));
+    }
+
+    /**
+     * Row-level allocation can be used only in multi-node scenario without sampling (all buckets are obtained one by one),
+     * when it's configured and supported by the repository.
+     */
+    private boolean determineRowLevelAllocation() {
+        if (isStandalone() || bucketsToGet != 1) {
+            return false;
+        }
+        ActivityDistributionDefinition distribution = options.getDistributionDefinition();
+        WorkAllocationDefinitionType allocation = distribution != null ?
+                distribution.getBuckets().getAllocation() : null;
+        if (allocation == null || !Boolean.TRUE.equals(allocation.isRowLevelAllocation())) {
+            return false;
+        }
+        if (!plainRepositoryService.supportsWorkBucketTable()) {
+            LOGGER.debug("Row-level bucket allocation is not supported by the repository, using the coordinator task");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Handles the situation when no bucket was obtained in the multi-node scenario.
+     *
+     * @return true if we waited for a bucket to be (possibly) freed, and should try again
+     */
+    private boolean waitForFreeBucket(boolean definite, OperationResult result)
+            throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException, InterruptedException {
+
+        if (!options.isScavenger()) {
+            markScavengingIfNotYet(result);
+            recordNothingFoundForNonScavenger();
+            return false;
+        }
+
+        if (definite || options.getFreeBucketWaitTime() == 0L) {
+            markWorkComplete(result);
+            recordNothingFoundDefinite();
+            return false;
+        }
+
+        long toWait = getRemainingTimeToWait();
+        if (toWait <= 0) {
+            markWorkComplete(result); // TODO really marking work as complete?
+            recordNothingFoundWithWaitTimeElapsed();
+            return false;
+        }
+
+        sleep(toWait);
+        return true;
+    }
+
     /**
      * Recording situation when there is a bucket to be returned.
      * (The cases where there is no bucket are treated separately for standalone/workers cases.
@@ -201,13 +336,13 @@ public class GetBucketOperation extends BucketOperation {
         @NotNull Situation situation = attempt.getSituationRequired();
         switch (situation) {
             case FOUND_DELEGATED_TO_ME:
-                recordFoundDelegated(attempt);
+                recordFoundDelegated(attempt.getBucketToUse());
                 break;
             case FOUND_READY:
-                recordFoundReady(attempt);
+                recordFoundReady(attempt.getBucketToUse());
                 break;
             case CREATED_NEW:
-                recordCreatedNew(attempt);
+                recordCreatedNew(attempt.getBucketToUse());
                 break;
             default:
                 throw new AssertionError(situation);
@@ -275,22 +410,22 @@ public class GetBucketOperation extends BucketOperation {
         return waitUntil - System.currentTimeMillis();
     }
 
-    private void recordFoundDelegated(@NotNull GetBucketOperationAttempt attempt) {
-        LOGGER.trace("Returning already delegated bucket for {}: {}", workerTaskOid, attempt.getBucketToUse());
+    private void recordFoundDelegated(WorkBucketType bucket) {
+        LOGGER.trace("Returning already delegated bucket for {}: {}", workerTaskOid, bucket);
         statisticsKeeper.register(GET_WORK_BUCKET_FOUND_DELEGATED);
     }
 
-    private void recordFoundReady(@NotNull GetBucketOperationAttempt attempt) {
+    private void recordFoundReady(WorkBucketType bucket) {
         CONTENTION_LOGGER.trace("Existing bucket acquired after {} ms (conflicts: {}) in {}: {}",
                 System.currentTimeMillis() - statisticsKeeper.start, statisticsKeeper.conflictCount, workerTaskOid,
-                attempt.getBucketToUse());
+                bucket);
         statisticsKeeper.register(GET_WORK_BUCKET_FOUND_READY);
     }
 
-    private void recordCreatedNew(@NotNull GetBucketOperationAttempt attempt) {
+    private void recordCreatedNew(WorkBucketType bucket) {
         CONTENTION_LOGGER.trace("New bucket(s) acquired after {} ms (retries: {}) in {}: {}",
                 System.currentTimeMillis() - statisticsKeeper.start, statisticsKeeper.conflictCount, workerTaskOid,
-                attempt.getBucketToUse());
+                bucket);
         statisticsKeeper.register(GET_WORK_BUCKET_CREATED_NEW);
     }
 
@@ -322,6 +457,17 @@ public class GetBucketOperation extends BucketOperation {
             throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
 
         Set<String> liveWorkers = getLiveWorkers(result);
+
+        if (rowLevelAllocation) {
+            int reclaimed = plainRepositoryService.reclaimWorkBuckets(coordinatorTaskOid, activityPath, liveWorkers, result);
+            if (reclaimed > 0) {
+                LOGGER.info("Reclaimed {} buckets in {}", reclaimed, coordinatorTaskOid);
+            } else {
+                LOGGER.debug("Reclaimed no buckets in {}", coordinatorTaskOid);
+            }
+            return;
+        }
+
         Holder<Integer> reclaimingHolder = new Holder<>(0);
 
         plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
@@ -384,6 +530,48 @@ public class GetBucketOperation extends BucketOperation {
                 }, null, result);
     }
 
+    /**
+     * In row-level mode, the number of buckets and the bucket size are stored in the coordinator
+     * when the first buckets are created.
+     */
+    private void storeInitialBucketingState(OperationResult result)
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        Integer numberOfBuckets = bucketFactory.estimateNumberOfBuckets();
+        Integer bucketSize = bucketFactory.getContentFactory().getBucketSize();
+        if (numberOfBuckets == null && bucketSize == null) {
+            return;
+        }
+        plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
+                task -> {
+                    ActivityStateType activityState =
+                            ActivityStateUtil.getActivityStateRequired(task.getActivityState(), activityPath);
+                    ItemPath stateItemPath = ActivityStateUtil.getStateItemPath(task.getActivityState(), activityPath);
+                    List<ItemDelta<?, ?>> modifications = new ArrayList<>();
+                    if (numberOfBuckets != null
+                            && !numberOfBuckets.equals(BucketingUtil.getNumberOfBuckets(activityState))) {
+                        modifications.addAll(prismContext.deltaFor(TaskType.class)
+                                .item(stateItemPath.append(F_BUCKETING, F_NUMBER_OF_BUCKETS)).replace(numberOfBuckets)
+                                .asItemDeltas());
+                    }
+                    if (bucketSize != null && !bucketSize.equals(BucketingUtil.getBucketSize(activityState))) {
+                        modifications.addAll(prismContext.deltaFor(TaskType.class)
+                                .item(stateItemPath.append(F_BUCKETING, F_BUCKET_SIZE)).replace(bucketSize)
+                                .asItemDeltas());
+                    }
+                    return modifications;
+                }, null, result);
+    }
+
+    /** In row-level mode, the coordinator task does not contain the buckets, so it's cheap to read. */
+    private Integer loadStoredBucketSize(OperationResult result) throws ObjectNotFoundException, SchemaException {
+        TaskType coordinatorTask = plainRepositoryService
+                .getObject(TaskType.class, coordinatorTaskOid, GetOperationOptions.createReadOnlyCollection(), result)
+                .asObjectable();
+        ActivityStateType activityState =
+                ActivityStateUtil.getActivityState(coordinatorTask.getActivityState(), activityPath);
+        return activityState != null ? BucketingUtil.getBucketSize(activityState) : null;
+    }
+
     private void markWorkComplete(OperationResult result)
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
         // We use dynamic modify only because we do not know the state item path without loading coordinator task first
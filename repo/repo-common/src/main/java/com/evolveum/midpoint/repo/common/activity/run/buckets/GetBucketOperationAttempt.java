@@ -10,9 +10,11 @@ package com.evolveum.midpoint.repo.common.activity.run.buckets;
 import static com.evolveum.midpoint.repo.common.activity.run.buckets.BucketOperation.bucketStateChangeDeltas;
 import static com.evolveum.midpoint.schema.util.task.ActivityStateUtil.getActivityStateRequired;
 import static com.evolveum.midpoint.schema.util.task.ActivityStateUtil.getStateItemPath;
+import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getBucketSize;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getNumberOfBuckets;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getWorkerOid;
 import static com.evolveum.midpoint.util.MiscUtil.argCheck;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_BUCKET_SIZE;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_NUMBER_OF_BUCKETS;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityStateType.F_BUCKETING;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.*;
@@ -33,6 +35,7 @@ import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.repo.api.RepoModifyOptions;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketContentFactory;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
@@ -164,7 +167,7 @@ class GetBucketOperationAttempt {
         }
 
         offerNewBuckets(
-                bucketFactory.createNewBuckets(currentBuckets, numberOfBucketsToGet));
+                createNewBuckets());
 
         if (numberOfBucketsToGet == 0) {
             situation = Situation.CREATED_NEW;
@@ -179,6 +182,26 @@ class GetBucketOperationAttempt {
                 Situation.NOTHING_MORE_DEFINITE;
     }
 
+    /** Creates new buckets, keeping the bucket size (if determined by the factory) in the bucketing state. */
+    private List<WorkBucketType> createNewBuckets() throws SchemaException {
+        BucketContentFactory contentFactory = bucketFactory.getContentFactory();
+        Integer storedBucketSize = getBucketSize(activityState);
+        contentFactory.setBucketSize(storedBucketSize);
+
+        List<WorkBucketType> newBuckets = bucketFactory.createNewBuckets(currentBuckets, numberOfBucketsToGet);
+
+        Integer bucketSize = contentFactory.getBucketSize();
+        if (bucketSize != null && !bucketSize.equals(storedBucketSize)) {
+            List<ItemDelta<?, ?>> bucketSizeMods = PrismContext.get().deltaFor(TaskType.class)
+                    .item(activityStateItemPath.append(F_BUCKETING, F_BUCKET_SIZE))
+                    .replace(bucketSize)
+                    .asItemDeltas();
+            LOGGER.trace("Going to set bucket size:\n{}", DebugUtil.debugDumpLazily(bucketSizeMods, 1));
+            modifications.addAll(bucketSizeMods);
+        }
+        return newBuckets;
+    }
+
     private boolean anyBucketsDelegated() {
         return currentBuckets.stream()
                 .anyMatch(b -> b.getState() == DELEGATED);
@@ -51,6 +51,11 @@ public class ReleaseBucketsOperation extends BucketOperation {
     public void execute(OperationResult result)
             throws ObjectNotFoundException, SchemaException {
 
+        if (releaseInWorkBucketTable(result)) {
+            statisticsKeeper.register(BucketingConstants.RELEASE_WORK_BUCKET);
+            return;
+        }
+
         ModifyObjectResult<TaskType> modifyObjectResult;
         try {
             modifyObjectResult = plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
@@ -63,6 +68,24 @@ public class ReleaseBucketsOperation extends BucketOperation {
         statisticsKeeper.register(BucketingConstants.RELEASE_WORK_BUCKET);
     }
 
+    /**
+     * Releases the bucket(s) in the work bucket table, if row-level allocation is used.
+     *
+     * @return true if there is nothing more to do, i.e. the specified bucket was released from the table.
+     * When releasing all buckets of the worker, the coordinator task is always checked as well.
+     */
+    private boolean releaseInWorkBucketTable(OperationResult result) {
+        assert workerTaskOid != null;
+        if (!plainRepositoryService.supportsWorkBucketTable()) {
+            return false;
+        }
+        int released = plainRepositoryService.releaseWorkBuckets(
+                coordinatorTaskOid, activityPath, workerTaskOid, sequentialNumber, result);
+        LOGGER.trace("Released {} bucket(s) in the work bucket table for {} (delegated to {})",
+                released, coordinatorTaskOid, workerTaskOid);
+        return sequentialNumber != null && released > 0;
+    }
+
     private @NotNull Collection<ItemDelta<?, ?>> computeReleaseModifications(@NotNull TaskType task) {
         assert workerTaskOid != null;
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import java.math.BigInteger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.BaseBucketContentFactory;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Creates interval buckets with roughly the same number of objects, see {@link BalancedWorkSegmentationType}.
+ *
+ * The boundaries are determined lazily, when the buckets are created: the next bucket starts where the last one ended,
+ * and ends at the discriminator value of the object that is "bucket size" objects further (in the discriminator order).
+ * Hence, the buckets are always contiguous, even if the data change between the creation of individual buckets.
+ * The bucket size is determined from the number of objects when the first bucket is created. It is then kept
+ * in the bucketing state (see {@link #getBucketSize()}), so all workers create the buckets of the same size.
+ *
+ * OID and string discriminators lead to {@link StringIntervalWorkBucketContentType}, numeric ones
+ * to {@link NumericIntervalWorkBucketContentType}.
+ */
+public class BalancedBucketContentFactory extends BaseBucketContentFactory<BalancedWorkSegmentationType> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(BalancedBucketContentFactory.class);
+
+    @NotNull private final ItemPath discriminator;
+    @Nullable private final ImplicitSegmentationResolver resolver;
+
+    /** Obtained lazily, because it is needed only when new buckets are to be created. */
+    private DiscriminatorValueSampler sampler;
+
+    /** Number of objects per bucket. Taken from the bucketing state or determined lazily (needs sampling). */
+    private Integer bucketSize;
+
+    BalancedBucketContentFactory(
+            @NotNull BalancedWorkSegmentationType segmentationConfig, @Nullable ImplicitSegmentationResolver resolver) {
+        super(segmentationConfig);
+        this.discriminator = segmentationConfig.getDiscriminator() != null ?
+                segmentationConfig.getDiscriminator().getItemPath() :
+                ItemName.fromQName(PrismConstants.T_ID);
+        this.resolver = resolver;
+    }
+
+    @Override
+    public AbstractWorkBucketContentType createNextBucketContent(AbstractWorkBucketContentType lastBucketContent,
+            Integer lastBucketSequentialNumber) throws SchemaException {
+        Object from;
+        if (lastBucketSequentialNumber != null) {
+            from = getTo(lastBucketContent);
+            if (from == null) {
+                return null; // the last bucket was unbounded, so there are no more buckets
+            }
+        } else {
+            from = null;
+        }
+
+        Object to = normalize(
+                getSampler().getValueAt(discriminator, from, true, getOrComputeBucketSize()));
+        if (to != null && from != null && compare(to, from) <= 0) {
+            // A lot of objects share the same discriminator value; we have to include them all in this bucket.
+            to = normalize(
+                    getSampler().getValueAt(discriminator, from, false, 0));
+        }
+
+        LOGGER.trace("Next bucket after #{}: [{}, {})", lastBucketSequentialNumber, from, to);
+        return createContent(from, to);
+    }
+
+    private @Nullable Object getTo(AbstractWorkBucketContentType lastBucketContent) {
+        if (lastBucketContent instanceof StringIntervalWorkBucketContentType stringInterval) {
+            return stringInterval.getTo();
+        } else if (lastBucketContent instanceof NumericIntervalWorkBucketContentType numericInterval) {
+            return numericInterval.getTo();
+        } else {
+            throw new IllegalStateException("Null or unsupported bucket content: " + lastBucketContent);
+        }
+    }
+
+    private AbstractWorkBucketContentType createContent(Object from, Object to) {
+        if (from instanceof BigInteger || to instanceof BigInteger) {
+            return new NumericIntervalWorkBucketContentType()
+                    .from((BigInteger) from)
+                    .to((BigInteger) to);
+        } else {
+            return new StringIntervalWorkBucketContentType()
+                    .from((String) from)
+                    .to((String) to);
+        }
+    }
+
+    private int getOrComputeBucketSize() throws SchemaException {
+        if (bucketSize == null) {
+            Integer numberOfBuckets = segmentationConfig.getNumberOfBuckets();
+            Integer maxBucketSize = segmentationConfig.getMaxBucketSize();
+            if (numberOfBuckets == null && maxBucketSize == null) {
+                throw new IllegalStateException("Neither numberOfBuckets nor maxBucketSize is specified");
+            }
+            int size = Integer.MAX_VALUE;
+            if (numberOfBuckets != null) {
+                int objects = getSampler().countObjects(discriminator, null);
+                size = (objects + numberOfBuckets - 1) / numberOfBuckets;
+            }
+            if (maxBucketSize != null) {
+                size = Math.min(size, maxBucketSize);
+            }
+            bucketSize = Math.max(size, 1);
+            LOGGER.debug("Using bucket size of {} for balanced segmentation by {}", bucketSize, discriminator);
+        }
+        return bucketSize;
+    }
+
+    @Override
+    public @Nullable Integer getBucketSize() {
+        return bucketSize;
+    }
+
+    @Override
+    public void setBucketSize(@Nullable Integer bucketSize) {
+        this.bucketSize = bucketSize;
+    }
+
+    private @NotNull DiscriminatorValueSampler getSampler() {
+        if (sampler == null) {
+            sampler = resolver != null ? resolver.getDiscriminatorValueSampler() : null;
+            if (sampler == null) {
+                throw new IllegalStateException("Balanced work segmentation is not supported in this activity");
+            }
+        }
+        return sampler;
+    }
+
+    private @Nullable Object normalize(@Nullable Object value) {
+        if (value == null || value instanceof String || value instanceof BigInteger) {
+            return value;
+        } else if (value instanceof PolyString polyString) {
+            return polyString.getOrig();
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        } else {
+            throw new IllegalStateException(
+                    "Unsupported value of balanced segmentation discriminator " + discriminator + ": " + value);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(@NotNull Object value1, @NotNull Object value2) {
+        return ((Comparable) value1).compareTo(value2);
+    }
+
+    /** Only the target number is known in advance. */
+    @Override
+    public Integer estimateNumberOfBuckets() {
+        return segmentationConfig.getNumberOfBuckets();
+    }
+}
@@ -31,4 +31,19 @@ public interface BucketContentFactory {
      * @return null if the number cannot be determined
      */
     Integer estimateNumberOfBuckets();
+
+    /**
+     * Returns the number of objects per bucket, if it was determined by this factory from the actual data.
+     * It is stored in the bucketing state, see {@link #setBucketSize(Integer)}.
+     */
+    default @Nullable Integer getBucketSize() {
+        return null;
+    }
+
+    /**
+     * Provides the number of objects per bucket stored in the bucketing state (if any), so that all buckets
+     * of the activity are created using the same value, regardless of which worker creates them.
+     */
+    default void setBucketSize(@Nullable Integer bucketSize) {
+    }
 }
@@ -37,6 +37,7 @@ public class BucketContentFactoryGenerator {
         registerSupplier(OidWorkSegmentationType.class, (cfg, ctx) -> new StringBucketContentFactory(cfg));
         registerSupplier(ExplicitWorkSegmentationType.class, (cfg, ctx) -> new ExplicitBucketContentFactory(cfg));
         registerSupplier(ImplicitWorkSegmentationType.class, this::createContentFactoryInImplicitCase);
+        registerSupplier(BalancedWorkSegmentationType.class, BalancedBucketContentFactory::new);
     }
 
     /**
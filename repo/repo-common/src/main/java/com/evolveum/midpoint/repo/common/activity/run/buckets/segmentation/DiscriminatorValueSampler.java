@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Provides information about the actual distribution of discriminator values among the objects to be processed.
+ * Used by {@link BalancedBucketContentFactory}.
+ */
+public interface DiscriminatorValueSampler {
+
+    /**
+     * Counts the objects to be processed (all of them, if `from` is null, or the ones having the discriminator value
+     * greater than or equal to `from`).
+     */
+    int countObjects(@NotNull ItemPath discriminator, @Nullable Object from) throws SchemaException;
+
+    /**
+     * Returns the discriminator value of the object at given position (starting at 0) among the objects to be processed,
+     * ordered by the discriminator value. Only objects with the value greater than `from` (or equal to it,
+     * if `inclusive` is true) are considered, if `from` is not null.
+     *
+     * @return null if there is no such object
+     */
+    @Nullable Object getValueAt(@NotNull ItemPath discriminator, @Nullable Object from, boolean inclusive, int position)
+            throws SchemaException;
+}
@@ -11,9 +11,13 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkSegmenta
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ImplicitWorkSegmentationType;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Resolves `ImplicitWorkSegmentationType` in a specific context.
+ *
+ * Also provides other context-dependent information needed to create buckets, like the distribution
+ * of discriminator values for `BalancedWorkSegmentationType`.
  */
 public interface ImplicitSegmentationResolver {
 
@@ -21,4 +25,12 @@ public interface ImplicitSegmentationResolver {
      * Converts `ImplicitWorkSegmentationType` into "real" segmentation configuration.
      */
     AbstractWorkSegmentationType resolveImplicitSegmentation(@NotNull ImplicitWorkSegmentationType segmentation);
+
+    /**
+     * Returns the sampler of discriminator values of the objects to be processed, or null if this context
+     * does not support it.
+     */
+    default @Nullable DiscriminatorValueSampler getDiscriminatorValueSampler() {
+        return null;
+    }
 }
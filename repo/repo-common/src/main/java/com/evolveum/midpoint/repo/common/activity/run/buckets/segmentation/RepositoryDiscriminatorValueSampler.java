@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismObjectDefinition;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.GetOperationOptionsBuilder;
+import com.evolveum.midpoint.schema.SchemaService;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Samples discriminator values of objects (of given type, matching given query) directly in the repository.
+ *
+ * Each value is obtained by a search with offset and the ordering by the discriminator, so the discriminator
+ * should be indexed in the repository. All other top-level items are excluded from retrieval, so the repository
+ * does not need to parse them (see {@link #getSamplingOptions(ItemPath)}).
+ */
+public class RepositoryDiscriminatorValueSampler implements DiscriminatorValueSampler {
+
+    private static final String OP_COUNT_OBJECTS = RepositoryDiscriminatorValueSampler.class.getName() + ".countObjects";
+    private static final String OP_GET_VALUE_AT = RepositoryDiscriminatorValueSampler.class.getName() + ".getValueAt";
+
+    @NotNull private final Class<? extends ObjectType> type;
+    @Nullable private final ObjectQuery query;
+    @NotNull private final RepositoryService repositoryService;
+    @NotNull private final PrismContext prismContext;
+
+    /** See {@link #getSamplingOptions(ItemPath)}. */
+    private Collection<SelectorOptions<GetOperationOptions>> samplingOptions;
+
+    public RepositoryDiscriminatorValueSampler(
+            @NotNull Class<? extends ObjectType> type,
+            @Nullable ObjectQuery query,
+            @NotNull RepositoryService repositoryService) {
+        this.type = type;
+        this.query = query;
+        this.repositoryService = repositoryService;
+        this.prismContext = PrismContext.get();
+    }
+
+    @Override
+    public int countObjects(@NotNull ItemPath discriminator, @Nullable Object from) throws SchemaException {
+        OperationResult result = new OperationResult(OP_COUNT_OBJECTS);
+        try {
+            return repositoryService.countObjects(type, createQuery(discriminator, from, true), null, result);
+        } finally {
+            result.close();
+        }
+    }
+
+    @Override
+    public @Nullable Object getValueAt(
+            @NotNull ItemPath discriminator, @Nullable Object from, boolean inclusive, int position)
+            throws SchemaException {
+        ObjectQuery sampleQuery = createQuery(discriminator, from, inclusive);
+        sampleQuery.setPaging(
+                prismContext.queryFactory().createPaging(position, 1,
+                        List.of(prismContext.queryFactory().createOrdering(discriminator, OrderDirection.ASCENDING))));
+
+        OperationResult result = new OperationResult(OP_GET_VALUE_AT);
+        try {
+            SearchResultList<? extends PrismObject<? extends ObjectType>> objects = repositoryService.searchObjects(
+                    type, sampleQuery, getSamplingOptions(discriminator), result);
+            if (objects.isEmpty()) {
+                return null;
+            }
+            PrismObject<? extends ObjectType> object = objects.get(0);
+            if (isOid(discriminator)) {
+                return object.getOid();
+            } else {
+                return object.getPropertyRealValue(discriminator, Object.class);
+            }
+        } finally {
+            result.close();
+        }
+    }
+
+    /** Read-only retrieval of the discriminator only (OID is always there). Cached, as the discriminator does not change. */
+    private @NotNull Collection<SelectorOptions<GetOperationOptions>> getSamplingOptions(@NotNull ItemPath discriminator) {
+        if (samplingOptions == null) {
+            PrismObjectDefinition<? extends ObjectType> definition =
+                    prismContext.getSchemaRegistry().findObjectDefinitionByCompileTimeClass(type);
+            ItemName retrieved = isOid(discriminator) ? null : ItemPath.toName(discriminator.first());
+            GetOperationOptionsBuilder builder = SchemaService.get().getOperationOptionsBuilder()
+                    .readOnly();
+            for (ItemDefinition<?> itemDefinition : definition.getDefinitions()) {
+                if (retrieved == null || !QNameUtil.match(retrieved, itemDefinition.getItemName())) {
+                    builder = builder.item(itemDefinition.getItemName()).dontRetrieve();
+                }
+            }
+            samplingOptions = builder.build();
+        }
+        return samplingOptions;
+    }
+
+    private @NotNull ObjectQuery createQuery(@NotNull ItemPath discriminator, @Nullable Object from, boolean inclusive) {
+        List<ObjectFilter> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add(inclusive ?
+                    prismContext.queryFor(type).item(discriminator).ge(from).buildFilter() :
+                    prismContext.queryFor(type).item(discriminator).gt(from).buildFilter());
+        }
+        ObjectQuery narrowedQuery = ObjectQueryUtil.addConjunctions(query, conditions);
+        return narrowedQuery != null ? narrowedQuery.clone() : prismContext.queryFactory().createQuery();
+    }
+
+    private static boolean isOid(@NotNull ItemPath discriminator) {
+        return discriminator.size() == 1
+                && ItemPath.isName(discriminator.first())
+                && QNameUtil.match(PrismConstants.T_ID, ItemPath.toName(discriminator.first()));
+    }
+}
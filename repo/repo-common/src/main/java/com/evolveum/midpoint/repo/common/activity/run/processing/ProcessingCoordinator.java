@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
 import com.evolveum.midpoint.repo.common.activity.run.IterativeActivityRun;
+import com.evolveum.midpoint.repo.common.expression.ExpressionEnvironmentThreadLocalHolder;
 import com.evolveum.midpoint.task.api.RunningLightweightTask;
 
 import com.evolveum.midpoint.util.exception.ConfigurationException;
@@ -36,8 +38,6 @@ public class ProcessingCoordinator<I> {
 
     private static final Trace LOGGER = TraceManager.getTrace(ProcessingCoordinator.class);
 
-    private static final long WORKER_THREAD_WAIT_FOR_REQUEST = 100L;
-
     private static final String OP_HANDLE_ASYNCHRONOUSLY = ProcessingCoordinator.class.getName() + ".handleAsynchronously";
     private static final String OP_EXECUTE_WORKER = ProcessingCoordinator.class.getName() + ".executeWorker";
 
@@ -57,12 +57,6 @@ public class ProcessingCoordinator<I> {
      */
     private final AtomicBoolean stopRequestedByAnyWorker = new AtomicBoolean(false);
 
-    /**
-     * Set to true when no more items are expected to arrive into the queue.
-     * It is informing worker threads that they can stop.
-     */
-    private final AtomicBoolean allItemsSubmitted = new AtomicBoolean(false);
-
     public ProcessingCoordinator(int threadsCount, @NotNull IterativeActivityRun<I, ?, ?, ?> activityRun) {
         this.coordinatorTask = activityRun.getRunningTask();
         this.activityRun = activityRun;
@@ -71,7 +65,8 @@ public class ProcessingCoordinator<I> {
         if (threadsCount > 0) {
             multithreaded = true;
             workerSpecificResults = new ArrayList<>(threadsCount);
-            requestsBuffer = new RequestsBuffer<>(threadsCount);
+            requestsBuffer = RequestsBuffer.create(
+                    threadsCount, activityRun.getActivity().getDistributionDefinition().getWorkerThreadsScheduling());
         } else {
             multithreaded = false;
             workerSpecificResults = null;
@@ -121,6 +116,7 @@ public class ProcessingCoordinator<I> {
      * is not invoked for significant time.
      */
     private void updateCoordinatorTaskStatistics(OperationResult result) {
+        recordWorkerThreadsStatistics();
         try {
             activityRun.updateStatistics(true, result);
         } catch (SchemaException | ObjectNotFoundException e) {
@@ -129,6 +125,14 @@ public class ProcessingCoordinator<I> {
         }
     }
 
+    /** Moves the statistics collected by the requests buffer to the activity statistics. */
+    private void recordWorkerThreadsStatistics() {
+        if (requestsBuffer != null) {
+            activityRun.getActivityState().getLiveStatistics().getLiveItemProcessing()
+                    .recordWorkerThreadsStatistics(requestsBuffer.collectStatistics());
+        }
+    }
+
     /**
      * Stop can be requested either internally (by handler or error in any worker thread)
      * or externally (by the task manager)
@@ -165,7 +169,7 @@ public class ProcessingCoordinator<I> {
             workerSpecificResult.addContext("subtaskIndex", i+1);
             workerSpecificResults.add(workerSpecificResult);
 
-            RunningLightweightTask subtask = coordinatorTask.createSubtask(new WorkerHandler(workerSpecificResult));
+            RunningLightweightTask subtask = coordinatorTask.createSubtask(new WorkerHandler(i, workerSpecificResult));
             subtask.setResult(new OperationResult(OP_EXECUTE_WORKER, OperationResultStatus.IN_PROGRESS, (String) null));
             subtask.setName("Worker thread " + (i+1) + " of " + threadsCount);
             subtask.setExecutionEnvironment(CloneUtil.clone(coordinatorTask.getExecutionEnvironment()));
@@ -187,9 +191,13 @@ public class ProcessingCoordinator<I> {
     public void finishProcessing(OperationResult result) {
         LOGGER.trace("ProcessingCoordinator: finishing processing. Coordinator task canRun = {}", coordinatorTask.canRun());
 
-        allItemsSubmitted.set(true);
+        if (multithreaded) {
+            assert requestsBuffer != null;
+            requestsBuffer.allRequestsSubmitted();
+        }
         waitForWorkersFinish(result);
         nackQueuedRequests(result);
+        recordWorkerThreadsStatistics();
     }
 
     private void waitForWorkersFinish(OperationResult result) {
@@ -209,9 +217,11 @@ public class ProcessingCoordinator<I> {
     }
 
     private class WorkerHandler implements LightweightTaskHandler {
+        private final int workerIndex;
         private final OperationResult workerSpecificResult;
 
-        private WorkerHandler(OperationResult workerSpecificResult) {
+        private WorkerHandler(int workerIndex, OperationResult workerSpecificResult) {
+            this.workerIndex = workerIndex;
             this.workerSpecificResult = workerSpecificResult;
         }
 
@@ -225,45 +235,53 @@ public class ProcessingCoordinator<I> {
             workerTask.setName(workerTask.getName().getOrig() + " (" + Thread.currentThread().getName() + ")");
             workerSpecificResult.addArbitraryObjectAsContext("subtaskName", workerTask.getName());
 
-            String taskIdentifier = workerTask.getTaskIdentifier();
-
             while (canRun(workerTask)) {
 
                 workerTask.refreshThreadLocalStatistics();
-                ItemProcessingRequest<I> request = requestsBuffer.poll(taskIdentifier);
-
-                if (request != null) {
-                    try {
-                        if (!request.process(workerTask, workerSpecificResult)) {
-                            stopRequestedByAnyWorker.set(true);
-                        }
-                    } finally {
-                        requestsBuffer.markProcessed(request, taskIdentifier);
-                        treatOperationResultAfterOperation();
-                    }
-                } else {
-                    if (allItemsSubmitted.get()) {
-                        LOGGER.trace("Queue is empty and nothing more is expected - exiting");
-                        break;
-                    } else {
-                        LOGGER.trace("No requests to be processed but expecting some to come. Waiting for {} msecs",
-                                WORKER_THREAD_WAIT_FOR_REQUEST);
-                        try {
-                            //noinspection BusyWait
-                            Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
-                        } catch (InterruptedException e) {
-                            LOGGER.trace("Waiting interrupted, exiting");
-                            break;
-                        }
+                ItemProcessingRequest<I> request;
+                try {
+                    request = requestsBuffer.next(workerIndex, () -> canRun(workerTask));
+                } catch (InterruptedException e) {
+                    LOGGER.trace("Waiting interrupted, exiting");
+                    break;
+                }
+
+                if (request == null) {
+                    LOGGER.trace("No more requests for this worker - exiting");
+                    break;
+                }
+
+                try {
+                    if (!request.process(workerTask, workerSpecificResult)) {
+                        stopRequestedByAnyWorker.set(true);
+                        requestsBuffer.wakeUpWorkers();
                     }
+                } finally {
+                    requestsBuffer.markProcessed(request, workerIndex);
+                    treatOperationResultAfterOperation();
                 }
             }
 
-            int reservedRequests = requestsBuffer.getReservedRequestsCount(taskIdentifier);
+            int reservedRequests = requestsBuffer.getReservedRequestsCount(workerIndex);
             if (reservedRequests > 0) {
                 LOGGER.warn("Worker task exiting but it has {} reserved (pre-assigned) change requests", reservedRequests);
             }
             workerTask.refreshThreadLocalStatistics();
+            clearThreadLocalState();
+        }
+
+        /**
+         * The state should be cleared by the item processing itself. But if it's not (e.g. because of an error), we don't
+         * want it to stay there: pooled threads would reuse it, and for virtual threads it would be simply leaked.
+         */
+        private void clearThreadLocalState() {
+            int environments = ExpressionEnvironmentThreadLocalHolder.clearExpressionEnvironment();
+            if (environments > 0) {
+                LOGGER.warn("Worker task exiting but it has {} expression environment(s) left on the stack", environments);
+            }
+            if (RepositoryCache.removeLocalCachesForCurrentThread()) {
+                LOGGER.warn("Worker task exiting but it has local repository caches still entered");
+            }
         }
 
         private void treatOperationResultAfterOperation() {
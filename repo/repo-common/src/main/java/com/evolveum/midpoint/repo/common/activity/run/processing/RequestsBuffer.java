@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2010-2021 Evolveum and contributors
+ * Copyright (C) 2010-2024 Evolveum and contributors
  *
  * This work is dual-licensed under the Apache License 2.0
  * and European Union Public License. See LICENSE file for details.
@@ -7,238 +7,69 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.processing;
 
-import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.result.OperationResult;
-import com.evolveum.midpoint.util.logging.Trace;
-import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityWorkerThreadsStatisticsType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkerThreadsSchedulingType;
 
 /**
- * TODO fix the description
- *
- * <p>Stores requests to be processed.</p>
+ * Stores requests waiting to be processed by worker threads. Workers are identified by their index (0..threads-1).
  *
- * <p>Its primary responsibility is that it has to ensure that changes related to given primary identifier are processed exactly
- * in the order in which they were fetched from the resource (recorded as {@link com.evolveum.midpoint.provisioning.ucf.api.Change#localSequenceNumber}).
- * This responsibility is ensured by the concepts of binding and reservation.</p>
+ * All implementations must ensure that requests with the same correlation value (see {@link CorrelatableProcessingRequest})
+ * are processed one after another, in the order in which they were submitted.
  *
- * <p>Primary identifier I is said to be _bound_ to task T if an object with this identifier it is being currently processed by T
- * or is waiting to be processed by T (reserved for T). See {@link #bind(ProcessChangeRequest, String)} and {@link #unbind(ProcessChangeRequest, String)}
- * methods.</p>
+ * Requests are submitted by a single (coordinator) thread.
  *
- * <p>Reservation is represented by a queue of requests waiting to be processed by specified subtask. A request gets
- * onto this queue if it's fetched from the global queue but cannot be processed because it is bound to a subtask different
- * from the current one. So it's put into "owning" task reserved requests queue. See {@link #reserve(ProcessChangeRequest, String)}.</p>
+ * @see SharedQueueRequestsBuffer
+ * @see WorkStealingRequestsBuffer
  */
-@SuppressWarnings("JavadocReference")
-class RequestsBuffer<I> {
-
-    private static final Trace LOGGER = TraceManager.getTrace(RequestsBuffer.class);
-
-    private static final long REQUEST_QUEUE_OFFER_TIMEOUT = 1000L;
-
-    /**
-     * Global queue of waiting requests.
-     */
-    private final BlockingQueue<ItemProcessingRequest<I>> globalQueue;
-
-    /**
-     * Current bindings of resource objects (their identifiers) to subtasks.
-     *
-     * Entry key: primary resource object identifier (~ account ID)
-     * Entry value: task identifier
-     */
-    private final Map<Object, String> bindingsMap = new HashMap<>();
-
-    /**
-     * Change requests reserved to be processed by each subtask.
-     *
-     * Entry key: task identifier.
-     * Entry value: queue of requests. The requests are sorted by change identifier, to ensure processing in the correct order.
-     */
-    private final Map<String, PriorityQueue<ItemProcessingRequest<I>>> reservedRequestsQueueMap = new HashMap<>();
-
-    RequestsBuffer(int threadsCount) {
-        int globalQueueSize = threadsCount*2; // actually, size of threadsCount should be sufficient but it doesn't hurt if queue is larger
-        globalQueue = new ArrayBlockingQueue<>(globalQueueSize);
-    }
+interface RequestsBuffer<I> {
 
-    /**
-     * Offers a request for processing.
-     *
-     * This method is intentionally NOT synchronized.
-     *
-     * @throws InterruptedException If present, the request was not put into the queue.
-     */
-    boolean offer(ItemProcessingRequest<I> request) throws InterruptedException {
-        return globalQueue.offer(request, REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+    static <I> @NotNull RequestsBuffer<I> create(int threadsCount, WorkerThreadsSchedulingType scheduling) {
+        if (scheduling == WorkerThreadsSchedulingType.WORK_STEALING) {
+            return new WorkStealingRequestsBuffer<>(threadsCount);
+        } else {
+            return new SharedQueueRequestsBuffer<>(threadsCount);
+        }
     }
 
     /**
-     * Tries to obtain a request to be processed by the specified subtask.
-     * Does NOT wait, it just checks reserved requests and global queues.
+     * Offers a request for processing. Waits for a limited time if the buffer is full.
      *
-     * Post-conditions:
-     * - Returns null only if there are no reserved nor globally available requests.
-     * - If the request is not null, the primary identifier of the request is (successfully) bound to the specified task.
+     * @return false if the request could not be accepted (yet)
+     * @throws InterruptedException If present, the request was not put into the buffer.
      */
-    synchronized ItemProcessingRequest<I> poll(String taskIdentifier) {
-
-        ItemProcessingRequest<I> reserved = getNextReservedRequest(taskIdentifier);
-        if (reserved != null) {
-            LOGGER.trace("Got reserved (pre-assigned) request: {}", reserved);
-            if (bind(reserved, taskIdentifier)) {
-                return reserved;
-            } else {
-                throw new IllegalStateException("A reserved request couldn't be bound to the current task. Request = " +
-                        reserved + ", task = " + taskIdentifier);
-            }
-        }
-
-        for (;;) {
-            ItemProcessingRequest<I> request = globalQueue.poll();
-            LOGGER.trace("Got request from global queue: {}", request);
-
-            if (request == null) {
-                // Nothing in the queue for now. OK, let's try next time.
-                return null;
-            }
-
-            if (bind(request, taskIdentifier)) {
-                return request;
-            } else {
-                // The request couldn't be bound to the specified task. We have to go and try another one.
-            }
-        }
-    }
+    boolean offer(@NotNull ItemProcessingRequest<I> request) throws InterruptedException;
 
     /**
-     * Binds a request identifier to specified subtask, if possible i.e. if the request identifier is not bound to another task.
-     * If the request identifier is bound to another task, the request is assigned to it.
+     * Returns the next request to be processed by given worker, waiting for it if needed.
      *
-     * @return true if the request was successfully bound to the current task;
-     *         false if it was reassigned (so this task has to fetch another request).
+     * Returns null if the worker should exit: either no more requests are expected (see {@link #allRequestsSubmitted()}),
+     * or `canRun` returned false.
      */
-    private boolean bind(ItemProcessingRequest<I> request, String taskIdentifier) {
-        if (!(request instanceof CorrelatableProcessingRequest)) {
-            return true;
-        }
-
-        Object correlationValue = ((CorrelatableProcessingRequest) request).getCorrelationValue();
-        if (correlationValue == null) {
-            LOGGER.warn("Null correlationValue in request {}", request);
-            return true;
-        }
+    ItemProcessingRequest<I> next(int workerIndex, @NotNull BooleanSupplier canRun) throws InterruptedException;
 
-        String boundTo = bindingsMap.get(correlationValue);
-        if (boundTo == null) {
-            LOGGER.trace("Binding {} to {}", correlationValue, taskIdentifier);
-            bindingsMap.put(correlationValue, taskIdentifier);
-            return true;
-        }
+    /** Marks specified request as processed by given worker. */
+    void markProcessed(@NotNull ItemProcessingRequest<I> request, int workerIndex);
 
-        if (boundTo.equals(taskIdentifier)) {
-            LOGGER.trace("Processing {} as it is already bound to current task: {}", correlationValue, taskIdentifier);
-            return true;
-        }
+    /** Informs the buffer that no more requests will arrive. Workers waiting for requests are woken up. */
+    void allRequestsSubmitted();
 
-        LOGGER.trace("Request {} (ID {}) is already bound to another task {}. Moving it to the reserved"
-                + " requests queue for that task. Current task: {}", request, correlationValue, boundTo, taskIdentifier);
-        reserve(request, boundTo);
-        return false;
-    }
+    /** Wakes up the workers waiting for requests, e.g. because the processing should stop. */
+    void wakeUpWorkers();
 
-    /**
-     * Gets a change reserved for given task (if there's any).
-     * REMOVES the reservation.
-     *
-     * @return Change reserved for given task; or null if there's nothing there.
-     */
-    private ItemProcessingRequest<I> getNextReservedRequest(String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
-        if (reservedRequests != null) {
-            return reservedRequests.poll();
-        } else {
-            return null;
-        }
-    }
+    /** Returns the number of requests that are waiting to be processed by the given worker (and no other). */
+    int getReservedRequestsCount(int workerIndex);
 
-    private void reserve(ItemProcessingRequest<I> request, String owningTaskIdentifier) {
-        reservedRequestsQueueMap
-                .computeIfAbsent(owningTaskIdentifier, key -> new PriorityQueue<>())
-                .offer(request);
-    }
+    /** Acknowledges (release=false) all requests that are still waiting. Should be called when there's no concurrency. */
+    int nackAllRequests(OperationResult result);
 
     /**
-     * Marks specified request as processed: Unbinds its primary identifier from the calling subtask.
+     * Returns the statistics collected since the last call: the counters are reset, `queueDepth` is the current
+     * number of waiting requests.
      */
-    synchronized void markProcessed(ItemProcessingRequest<I> request, String taskIdentifier) {
-        unbind(request, taskIdentifier);
-    }
-
-    private void unbind(ItemProcessingRequest<I> request, String taskIdentifier) {
-        if (!(request instanceof CorrelatableProcessingRequest)) {
-            return;
-        }
-
-        Object correlationValue = ((CorrelatableProcessingRequest) request).getCorrelationValue();
-        LOGGER.trace("Trying to unbind {} from {}", correlationValue, taskIdentifier);
-        if (correlationValue == null) {
-            LOGGER.trace("correlationValue is null (warning has been already issued): {}", request);
-            return;
-        }
-
-        if (isReserved(correlationValue, taskIdentifier)) {
-            LOGGER.trace("...but it is reserved to its owner (some relevant changes are waiting), so not unbinding now");
-            return;
-        }
-
-        String previousOwner = bindingsMap.remove(correlationValue);
-        LOGGER.trace("Unbound (previous owner was: {})", previousOwner);
-        assert taskIdentifier.equals(previousOwner);
-    }
-
-    private boolean isReserved(Object primaryIdentifier, String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
-        if (reservedRequests != null) {
-            for (ItemProcessingRequest<I> request : reservedRequests) {
-                if (request instanceof CorrelatableProcessingRequest &&
-                        primaryIdentifier.equals(((CorrelatableProcessingRequest) request).getCorrelationValue())) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    synchronized int getReservedRequestsCount(String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
-        return reservedRequests != null ? reservedRequests.size() : 0;
-    }
-
-    // should be called when there's no concurrency
-    int nackAllRequests(OperationResult result) {
-        AtomicInteger nackCounter = new AtomicInteger();
-
-        nackAll(globalQueue, nackCounter, result);
-        reservedRequestsQueueMap.values().forEach(queue -> nackAll(queue, nackCounter, result));
-
-        return nackCounter.get();
-    }
-
-    private void nackAll(Queue<ItemProcessingRequest<I>> queue, AtomicInteger counter, OperationResult result) {
-        for (;;) {
-            ItemProcessingRequest<I> request = queue.poll();
-            if (request == null) {
-                break;
-            } else {
-                request.acknowledge(false, result);
-                counter.incrementAndGet();
-            }
-        }
-    }
+    @NotNull ActivityWorkerThreadsStatisticsType collectStatistics();
 }
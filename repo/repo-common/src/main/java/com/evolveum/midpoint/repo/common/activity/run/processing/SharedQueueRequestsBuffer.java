@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.processing;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityWorkerThreadsStatisticsType;
+
+/**
+ * Shared-queue implementation of {@link RequestsBuffer}; the default one.
+ *
+ * Requests are put into a single global queue (of size `threadsCount * 2`), from which all workers take them.
+ *
+ * The ordering of correlated requests (e.g. changes related to given primary identifier that have to be processed exactly
+ * in the order in which they were fetched from the resource) is ensured by the concepts of binding and reservation:
+ *
+ * - Correlation value V is said to be _bound_ to worker W if a request with this value is being currently processed by W
+ * or is waiting to be processed by W (reserved for W). See {@link #bind(ItemProcessingRequest, int)}
+ * and {@link #unbind(ItemProcessingRequest, int)} methods.
+ * - Reservation is represented by a queue of requests waiting to be processed by specified worker. A request gets
+ * onto this queue if it's fetched from the global queue but cannot be processed because it is bound to a worker different
+ * from the current one. So it's put into "owning" worker reserved requests queue. See {@link #reserve(ItemProcessingRequest, int)}.
+ * Workers always take their reserved requests first.
+ *
+ * Idle workers check the global queue periodically, see {@link #WORKER_THREAD_WAIT_FOR_REQUEST}. All operations
+ * except for {@link #offer(ItemProcessingRequest)} are synchronized on the buffer.
+ *
+ * @see WorkStealingRequestsBuffer
+ */
+@SuppressWarnings("JavadocReference")
+class SharedQueueRequestsBuffer<I> implements RequestsBuffer<I> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(SharedQueueRequestsBuffer.class);
+
+    private static final long REQUEST_QUEUE_OFFER_TIMEOUT = 1000L;
+
+    private static final long WORKER_THREAD_WAIT_FOR_REQUEST = 100L;
+
+    /**
+     * Global queue of waiting requests.
+     */
+    private final BlockingQueue<ItemProcessingRequest<I>> globalQueue;
+
+    /**
+     * Current bindings of resource objects (their identifiers) to workers.
+     *
+     * Entry key: primary resource object identifier (~ account ID)
+     * Entry value: worker index
+     */
+    private final Map<Object, Integer> bindingsMap = new HashMap<>();
+
+    /**
+     * Change requests reserved to be processed by each worker.
+     *
+     * Entry key: worker index.
+     * Entry value: queue of requests. The requests are sorted by change identifier, to ensure processing in the correct order.
+     */
+    private final Map<Integer, PriorityQueue<ItemProcessingRequest<I>>> reservedRequestsQueueMap = new HashMap<>();
+
+    /** Set to true when no more requests are expected to arrive into the queue. */
+    private volatile boolean allRequestsSubmitted;
+
+    private final AtomicInteger submittedCount = new AtomicInteger();
+    private final AtomicInteger reservedCount = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    SharedQueueRequestsBuffer(int threadsCount) {
+        int globalQueueSize = threadsCount*2; // actually, size of threadsCount should be sufficient but it doesn't hurt if queue is larger
+        globalQueue = new ArrayBlockingQueue<>(globalQueueSize);
+    }
+
+    /**
+     * Offers a request for processing.
+     *
+     * This method is intentionally NOT synchronized.
+     *
+     * @throws InterruptedException If present, the request was not put into the queue.
+     */
+    @Override
+    public boolean offer(@NotNull ItemProcessingRequest<I> request) throws InterruptedException {
+        if (globalQueue.offer(request, REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            submittedCount.incrementAndGet();
+            maxQueueDepth.accumulateAndGet(globalQueue.size(), Math::max);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public ItemProcessingRequest<I> next(int workerIndex, @NotNull BooleanSupplier canRun) throws InterruptedException {
+        for (;;) {
+            ItemProcessingRequest<I> request = poll(workerIndex);
+            if (request != null) {
+                return request;
+            } else if (allRequestsSubmitted) {
+                LOGGER.trace("Queue is empty and nothing more is expected - exiting");
+                return null;
+            } else if (!canRun.getAsBoolean()) {
+                return null;
+            } else {
+                LOGGER.trace("No requests to be processed but expecting some to come. Waiting for {} msecs",
+                        WORKER_THREAD_WAIT_FOR_REQUEST);
+                //noinspection BusyWait
+                Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
+            }
+        }
+    }
+
+    /**
+     * Tries to obtain a request to be processed by the specified worker.
+     * Does NOT wait, it just checks reserved requests and global queues.
+     *
+     * Post-conditions:
+     * - Returns null only if there are no reserved nor globally available requests.
+     * - If the request is not null, the primary identifier of the request is (successfully) bound to the specified worker.
+     */
+    private synchronized ItemProcessingRequest<I> poll(int workerIndex) {
+
+        ItemProcessingRequest<I> reserved = getNextReservedRequest(workerIndex);
+        if (reserved != null) {
+            LOGGER.trace("Got reserved (pre-assigned) request: {}", reserved);
+            if (bind(reserved, workerIndex)) {
+                return reserved;
+            } else {
+                throw new IllegalStateException("A reserved request couldn't be bound to the current worker. Request = " +
+                        reserved + ", worker = " + workerIndex);
+            }
+        }
+
+        for (;;) {
+            ItemProcessingRequest<I> request = globalQueue.poll();
+            LOGGER.trace("Got request from global queue: {}", request);
+
+            if (request == null) {
+                // Nothing in the queue for now. OK, let's try next time.
+                return null;
+            }
+
+            if (bind(request, workerIndex)) {
+                return request;
+            } else {
+                // The request couldn't be bound to the specified worker. We have to go and try another one.
+            }
+        }
+    }
+
+    /**
+     * Binds a request identifier to specified worker, if possible i.e. if the request identifier is not bound to another worker.
+     * If the request identifier is bound to another worker, the request is assigned to it.
+     *
+     * @return true if the request was successfully bound to the current worker;
+     *         false if it was reassigned (so this worker has to fetch another request).
+     */
+    private boolean bind(ItemProcessingRequest<I> request, int workerIndex) {
+        if (!(request instanceof CorrelatableProcessingRequest)) {
+            return true;
+        }
+
+        Object correlationValue = ((CorrelatableProcessingRequest) request).getCorrelationValue();
+        if (correlationValue == null) {
+            LOGGER.warn("Null correlationValue in request {}", request);
+            return true;
+        }
+
+        Integer boundTo = bindingsMap.get(correlationValue);
+        if (boundTo == null) {
+            LOGGER.trace("Binding {} to {}", correlationValue, workerIndex);
+            bindingsMap.put(correlationValue, workerIndex);
+            return true;
+        }
+
+        if (boundTo == workerIndex) {
+            LOGGER.trace("Processing {} as it is already bound to current worker: {}", correlationValue, workerIndex);
+            return true;
+        }
+
+        LOGGER.trace("Request {} (ID {}) is already bound to another worker {}. Moving it to the reserved"
+                + " requests queue for that worker. Current worker: {}", request, correlationValue, boundTo, workerIndex);
+        reserve(request, boundTo);
+        return false;
+    }
+
+    /**
+     * Gets a change reserved for given worker (if there's any).
+     * REMOVES the reservation.
+     *
+     * @return Change reserved for given worker; or null if there's nothing there.
+     */
+    private ItemProcessingRequest<I> getNextReservedRequest(int workerIndex) {
+        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(workerIndex);
+        if (reservedRequests != null) {
+            return reservedRequests.poll();
+        } else {
+            return null;
+        }
+    }
+
+    private void reserve(ItemProcessingRequest<I> request, int owningWorkerIndex) {
+        reservedRequestsQueueMap
+                .computeIfAbsent(owningWorkerIndex, key -> new PriorityQueue<>())
+                .offer(request);
+        reservedCount.incrementAndGet();
+    }
+
+    /**
+     * Marks specified request as processed: Unbinds its primary identifier from the calling worker.
+     */
+    @Override
+    public synchronized void markProcessed(@NotNull ItemProcessingRequest<I> request, int workerIndex) {
+        unbind(request, workerIndex);
+    }
+
+    private void unbind(ItemProcessingRequest<I> request, int workerIndex) {
+        if (!(request instanceof CorrelatableProcessingRequest)) {
+            return;
+        }
+
+        Object correlationValue = ((CorrelatableProcessingRequest) request).getCorrelationValue();
+        LOGGER.trace("Trying to unbind {} from {}", correlationValue, workerIndex);
+        if (correlationValue == null) {
+            LOGGER.trace("correlationValue is null (warning has been already issued): {}", request);
+            return;
+        }
+
+        if (isReserved(correlationValue, workerIndex)) {
+            LOGGER.trace("...but it is reserved to its owner (some relevant changes are waiting), so not unbinding now");
+            return;
+        }
+
+        Integer previousOwner = bindingsMap.remove(correlationValue);
+        LOGGER.trace("Unbound (previous owner was: {})", previousOwner);
+        assert previousOwner != null && previousOwner == workerIndex;
+    }
+
+    private boolean isReserved(Object primaryIdentifier, int workerIndex) {
+        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(workerIndex);
+        if (reservedRequests != null) {
+            for (ItemProcessingRequest<I> request : reservedRequests) {
+                if (request instanceof CorrelatableProcessingRequest &&
+                        primaryIdentifier.equals(((CorrelatableProcessingRequest) request).getCorrelationValue())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void allRequestsSubmitted() {
+        allRequestsSubmitted = true;
+    }
+
+    @Override
+    public void wakeUpWorkers() {
+        // Idle workers check the state regularly, so nothing to do here.
+    }
+
+    @Override
+    public synchronized int getReservedRequestsCount(int workerIndex) {
+        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(workerIndex);
+        return reservedRequests != null ? reservedRequests.size() : 0;
+    }
+
+    // should be called when there's no concurrency
+    @Override
+    public int nackAllRequests(OperationResult result) {
+        AtomicInteger nackCounter = new AtomicInteger();
+
+        nackAll(globalQueue, nackCounter, result);
+        reservedRequestsQueueMap.values().forEach(queue -> nackAll(queue, nackCounter, result));
+
+        return nackCounter.get();
+    }
+
+    private void nackAll(Queue<ItemProcessingRequest<I>> queue, AtomicInteger counter, OperationResult result) {
+        for (;;) {
+            ItemProcessingRequest<I> request = queue.poll();
+            if (request == null) {
+                break;
+            } else {
+                request.acknowledge(false, result);
+                counter.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public @NotNull ActivityWorkerThreadsStatisticsType collectStatistics() {
+        int queueDepth = getQueueDepth();
+        return new ActivityWorkerThreadsStatisticsType()
+                .submitted(submittedCount.getAndSet(0))
+                .reserved(reservedCount.getAndSet(0))
+                .queueDepth(queueDepth)
+                .maxQueueDepth(maxQueueDepth.getAndSet(queueDepth));
+    }
+
+    private synchronized int getQueueDepth() {
+        int depth = globalQueue.size();
+        for (Queue<ItemProcessingRequest<I>> reservedRequests : reservedRequestsQueueMap.values()) {
+            depth += reservedRequests.size();
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.processing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityWorkerThreadsStatisticsType;
+
+/**
+ * Work-stealing implementation of {@link RequestsBuffer}.
+ *
+ * Each worker has its own queue. A request is put into the queue of the least loaded worker, and the worker takes
+ * requests from the head of its queue. If its queue is empty, the worker takes (steals) a request from the tail
+ * of the queue of another worker. Workers that have nothing to do wait until a new request arrives, or until
+ * the processing is over; the periodic checking (see {@link #IDLE_WORKER_MAX_WAIT}) is only a safety net.
+ *
+ * The order of processing of correlated requests (see {@link CorrelatableProcessingRequest}) is ensured by _reservations_.
+ * A reservation binds a correlation value to a worker, as long as there is any request with this value waiting
+ * or being processed. All such requests go to the queue of that worker, so they are processed in the order of submission,
+ * by that worker. A correlated request can be stolen only if it's the only one that was ever submitted for its reservation;
+ * the reservation is then transferred to the thief. Once a second request joins the reservation, the owner is fixed
+ * until the reservation ends.
+ *
+ * The number of waiting requests is limited to `threadsCount * 2`, just like in {@link SharedQueueRequestsBuffer}.
+ */
+class WorkStealingRequestsBuffer<I> implements RequestsBuffer<I> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(WorkStealingRequestsBuffer.class);
+
+    private static final long REQUEST_QUEUE_OFFER_TIMEOUT = 1000L;
+
+    /** Idle workers are signalled on any relevant change; this is just the upper bound for their waiting. */
+    private static final long IDLE_WORKER_MAX_WAIT = 1000L;
+
+    @NotNull private final WorkerQueue<I>[] workerQueues;
+
+    private final int capacity;
+
+    /** Free places for waiting requests. Acquired when a request is submitted, released when it's taken by a worker. */
+    @NotNull private final Semaphore freeSlots;
+
+    /**
+     * Current reservations.
+     *
+     * Entry key: correlation value (e.g. primary resource object identifier).
+     * Entry value: the worker and the number of requests not processed yet.
+     *
+     * Reservations are updated only via atomic {@link ConcurrentHashMap} operations.
+     */
+    private final Map<Object, Reservation> reservations = new ConcurrentHashMap<>();
+
+    /** Guards waiting of idle workers. */
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition stateChanged = idleLock.newCondition();
+
+    /** Number of workers waiting (or about to wait) for the {@link #stateChanged} condition. */
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+
+    /**
+     * Incremented on each change that may be interesting for idle workers (new request, end of processing).
+     * A worker waits only if there was no such change since it last looked for a request.
+     */
+    private final AtomicLong stateVersion = new AtomicLong();
+
+    private volatile boolean allRequestsSubmitted;
+
+    /** Where to start looking for the least loaded worker. Updated by the submitting thread only. */
+    private int nextWorker;
+
+    private final AtomicInteger submittedCount = new AtomicInteger();
+    private final AtomicInteger reservedCount = new AtomicInteger();
+    private final AtomicInteger stolenCount = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    WorkStealingRequestsBuffer(int threadsCount) {
+        //noinspection unchecked
+        workerQueues = new WorkerQueue[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            workerQueues[i] = new WorkerQueue<>();
+        }
+        capacity = threadsCount * 2;
+        freeSlots = new Semaphore(capacity);
+    }
+
+    @Override
+    public boolean offer(@NotNull ItemProcessingRequest<I> request) throws InterruptedException {
+        if (!freeSlots.tryAcquire(REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        int workerIndex = selectWorker(request);
+        workerQueues[workerIndex].addLast(request);
+        LOGGER.trace("Request {} put into the queue of worker {}", request, workerIndex);
+
+        submittedCount.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(getQueueDepth(), Math::max);
+        stateVersion.incrementAndGet();
+        if (idleWorkers.get() > 0) {
+            signalStateChanged();
+        }
+        return true;
+    }
+
+    /** Returns the reserved worker for correlated requests (creating the reservation if needed), least loaded one otherwise. */
+    private int selectWorker(ItemProcessingRequest<I> request) {
+        Object correlationValue = getCorrelationValue(request);
+        if (correlationValue == null) {
+            if (request instanceof CorrelatableProcessingRequest) {
+                LOGGER.warn("Null correlationValue in request {}", request);
+            }
+            return getLeastLoadedWorker();
+        }
+        int[] selected = new int[1];
+        reservations.compute(correlationValue, (key, reservation) -> {
+            if (reservation == null) {
+                reservation = new Reservation(getLeastLoadedWorker());
+            } else {
+                LOGGER.trace("Request {} (ID {}) is bound to worker {}", request, key, reservation.worker);
+                reservation.pending++;
+                reservation.stealable = false;
+                reservedCount.incrementAndGet();
+            }
+            selected[0] = reservation.worker;
+            return reservation;
+        });
+        return selected[0];
+    }
+
+    private int getLeastLoadedWorker() {
+        int best = nextWorker;
+        int bestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < workerQueues.length && bestSize > 0; i++) {
+            int candidate = (nextWorker + i) % workerQueues.length;
+            int size = workerQueues[candidate].size();
+            if (size < bestSize) {
+                best = candidate;
+                bestSize = size;
+            }
+        }
+        nextWorker = (best + 1) % workerQueues.length;
+        return best;
+    }
+
+    @Override
+    public ItemProcessingRequest<I> next(int workerIndex, @NotNull BooleanSupplier canRun) throws InterruptedException {
+        for (;;) {
+            long version = stateVersion.get();
+            ItemProcessingRequest<I> request = take(workerIndex);
+            if (request != null) {
+                return request;
+            }
+            if (allRequestsSubmitted) {
+                LOGGER.trace("No requests for worker {} and nothing more is expected - exiting", workerIndex);
+                return null;
+            }
+            if (!canRun.getAsBoolean()) {
+                return null;
+            }
+            awaitStateChange(version, canRun);
+        }
+    }
+
+    /**
+     * Waits until {@link #stateVersion} differs from the given one (or {@link #IDLE_WORKER_MAX_WAIT} elapses).
+     * The {@link #idleWorkers} counter is incremented before checking the version, and it's checked
+     * by {@link #offer(ItemProcessingRequest)} after the version is incremented; so the signal cannot be missed.
+     */
+    private void awaitStateChange(long version, BooleanSupplier canRun) throws InterruptedException {
+        idleLock.lockInterruptibly();
+        try {
+            idleWorkers.incrementAndGet();
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(IDLE_WORKER_MAX_WAIT);
+                while (stateVersion.get() == version && !allRequestsSubmitted && canRun.getAsBoolean() && remaining > 0) {
+                    remaining = stateChanged.awaitNanos(remaining);
+                }
+            } finally {
+                idleWorkers.decrementAndGet();
+            }
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    private void signalStateChanged() {
+        idleLock.lock();
+        try {
+            stateChanged.signalAll();
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    /** Takes a request from the worker's own queue or, if there's none, steals one from another worker. */
+    private ItemProcessingRequest<I> take(int workerIndex) {
+        ItemProcessingRequest<I> request = workerQueues[workerIndex].pollFirst();
+        if (request == null) {
+            request = steal(workerIndex);
+        }
+        if (request != null) {
+            freeSlots.release();
+        }
+        return request;
+    }
+
+    private ItemProcessingRequest<I> steal(int thiefIndex) {
+        for (int i = 1; i < workerQueues.length; i++) {
+            int victimIndex = (thiefIndex + i) % workerQueues.length;
+            WorkerQueue<I> victimQueue = workerQueues[victimIndex];
+            if (victimQueue.size() > 0) {
+                ItemProcessingRequest<I> request =
+                        victimQueue.pollLastMatching(r -> transferReservationIfPossible(r, thiefIndex));
+                if (request != null) {
+                    LOGGER.trace("Worker {} stole request {} from worker {}", thiefIndex, request, victimIndex);
+                    stolenCount.incrementAndGet();
+                    return request;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Can the request be stolen by the thief? Uncorrelated requests can; correlated ones only if no other request
+     * has ever joined their reservation. In that case, the reservation is transferred.
+     */
+    private boolean transferReservationIfPossible(ItemProcessingRequest<I> request, int thiefIndex) {
+        Object correlationValue = getCorrelationValue(request);
+        if (correlationValue == null) {
+            return true;
+        }
+        boolean[] transferred = new boolean[1];
+        reservations.computeIfPresent(correlationValue, (key, reservation) -> {
+            if (reservation.stealable) {
+                assert reservation.pending == 1;
+                reservation.worker = thiefIndex;
+                transferred[0] = true;
+            }
+            return reservation;
+        });
+        return transferred[0];
+    }
+
+    @Override
+    public void markProcessed(@NotNull ItemProcessingRequest<I> request, int workerIndex) {
+        Object correlationValue = getCorrelationValue(request);
+        if (correlationValue != null) {
+            reservations.computeIfPresent(correlationValue, (key, reservation) -> {
+                assert reservation.worker == workerIndex;
+                return --reservation.pending > 0 ? reservation : null;
+            });
+        }
+    }
+
+    private Object getCorrelationValue(ItemProcessingRequest<I> request) {
+        return request instanceof CorrelatableProcessingRequest correlatable ? correlatable.getCorrelationValue() : null;
+    }
+
+    @Override
+    public void allRequestsSubmitted() {
+        allRequestsSubmitted = true;
+        wakeUpWorkers();
+    }
+
+    @Override
+    public void wakeUpWorkers() {
+        stateVersion.incrementAndGet();
+        signalStateChanged();
+    }
+
+    @Override
+    public int getReservedRequestsCount(int workerIndex) {
+        return workerQueues[workerIndex].countMatching(r -> getCorrelationValue(r) != null);
+    }
+
+    @Override
+    public int nackAllRequests(OperationResult result) {
+        int count = 0;
+        for (WorkerQueue<I> queue : workerQueues) {
+            ItemProcessingRequest<I> request;
+            while ((request = queue.pollFirst()) != null) {
+                request.acknowledge(false, result);
+                freeSlots.release();
+                count++;
+            }
+        }
+        reservations.clear();
+        return count;
+    }
+
+    private int getQueueDepth() {
+        return capacity - freeSlots.availablePermits();
+    }
+
+    @Override
+    public @NotNull ActivityWorkerThreadsStatisticsType collectStatistics() {
+        int queueDepth = getQueueDepth();
+        return new ActivityWorkerThreadsStatisticsType()
+                .submitted(submittedCount.getAndSet(0))
+                .reserved(reservedCount.getAndSet(0))
+                .stolen(stolenCount.getAndSet(0))
+                .queueDepth(queueDepth)
+                .maxQueueDepth(maxQueueDepth.getAndSet(queueDepth));
+    }
+
+    /** Requests waiting for a worker. The size can be read without locking. */
+    private static class WorkerQueue<I> {
+
+        private final Deque<ItemProcessingRequest<I>> requests = new ArrayDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        synchronized void addLast(ItemProcessingRequest<I> request) {
+            requests.addLast(request);
+            size.incrementAndGet();
+        }
+
+        synchronized ItemProcessingRequest<I> pollFirst() {
+            ItemProcessingRequest<I> request = requests.pollFirst();
+            if (request != null) {
+                size.decrementAndGet();
+            }
+            return request;
+        }
+
+        /** Removes the last request matching the predicate. The predicate is evaluated under the queue lock. */
+        synchronized ItemProcessingRequest<I> pollLastMatching(Predicate<ItemProcessingRequest<I>> predicate) {
+            Iterator<ItemProcessingRequest<I>> iterator = requests.descendingIterator();
+            while (iterator.hasNext()) {
+                ItemProcessingRequest<I> request = iterator.next();
+                if (predicate.test(request)) {
+                    iterator.remove();
+                    size.decrementAndGet();
+                    return request;
+                }
+            }
+            return null;
+        }
+
+        synchronized int countMatching(Predicate<ItemProcessingRequest<I>> predicate) {
+            return (int) requests.stream().filter(predicate).count();
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+
+    /** Mutable, but modified only within atomic operations on {@link #reservations} map. */
+    private static class Reservation {
+
+        private int worker;
+        private int pending = 1;
+
+        /** False if more than one request was submitted for this reservation; the worker cannot change then. */
+        private boolean stealable = true;
+
+        private Reservation(int worker) {
+            this.worker = worker;
+        }
+    }
+}
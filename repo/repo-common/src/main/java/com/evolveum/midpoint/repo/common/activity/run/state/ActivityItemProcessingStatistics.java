@@ -167,6 +167,24 @@ public class ActivityItemProcessingStatistics extends Initializable {
         return newRecord;
     }
 
+    /**
+     * Adds the counters collected by the worker threads coordinator since the last call.
+     * The `queueDepth` is replaced, because it reflects the current state.
+     */
+    public synchronized void recordWorkerThreadsStatistics(@NotNull ActivityWorkerThreadsStatisticsType delta) {
+        assertInitialized();
+        ActivityWorkerThreadsStatisticsType threads = value.getWorkerThreads();
+        if (threads == null) {
+            threads = new ActivityWorkerThreadsStatisticsType();
+            value.setWorkerThreads(threads);
+        }
+        threads.setSubmitted(or0(threads.getSubmitted()) + or0(delta.getSubmitted()));
+        threads.setReserved(or0(threads.getReserved()) + or0(delta.getReserved()));
+        threads.setStolen(or0(threads.getStolen()) + or0(delta.getStolen()));
+        threads.setQueueDepth(delta.getQueueDepth());
+        threads.setMaxQueueDepth(Math.max(or0(threads.getMaxQueueDepth()), or0(delta.getMaxQueueDepth())));
+    }
+
     /**
      * Records the operation end. Must be synchronized because it is called externally (through Operation interface).
      */
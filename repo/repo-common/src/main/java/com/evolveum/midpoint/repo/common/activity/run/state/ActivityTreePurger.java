@@ -166,6 +166,10 @@ public class ActivityTreePurger {
             doPurge(Context.root(localRootPath, taskActivityState));
             if (!deltas.isEmpty()) {
                 beans.repositoryService.modifyObject(TaskType.class, task.getOid(), deltas, result);
+                if (beans.plainRepositoryService.supportsWorkBucketTable()) {
+                    // Bucketing state was purged (or removed) for all the activities in the task.
+                    beans.plainRepositoryService.deleteWorkBuckets(task.getOid(), null, result);
+                }
                 if (task instanceof RunningTask) {
                     task.refresh(result);
                 }
@@ -43,6 +43,17 @@ public class ExpressionEnvironmentThreadLocalHolder {
         stack.pop();
     }
 
+    /**
+     * Removes the whole stack for the current thread. Should be called when the thread finishes its work.
+     *
+     * @return number of environments that were left on the stack (i.e. not popped); normally zero
+     */
+    public static int clearExpressionEnvironment() {
+        Deque<ExpressionEnvironment> stack = EXPRESSION_ENVIRONMENT_STACK_TL.get();
+        EXPRESSION_ENVIRONMENT_STACK_TL.remove();
+        return stack != null ? stack.size() : 0;
+    }
+
     public static ExpressionEnvironment getExpressionEnvironment() {
         Deque<ExpressionEnvironment> stack = EXPRESSION_ENVIRONMENT_STACK_TL.get();
         return stack != null ? stack.peek() : null;
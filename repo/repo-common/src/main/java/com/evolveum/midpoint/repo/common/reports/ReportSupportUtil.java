@@ -31,6 +31,9 @@ public class ReportSupportUtil {
 
     private static final String EXPORT_DIR_NAME = "export";
 
+    /** Suffix of compressed (gzip) report output files. */
+    public static final String COMPRESSED_FILE_SUFFIX = ".gz";
+
     public static File getExportDir() {
         return new File(getMidPointHomeDirName(), EXPORT_DIR_NAME);
     }
@@ -55,6 +58,9 @@ public class ReportSupportUtil {
     public static @NotNull String getContentType(ReportDataType reportData) {
         String type;
         String filePath = reportData.getFilePath();
+        if (filePath != null && filePath.endsWith(COMPRESSED_FILE_SUFFIX)) {
+            return "application/gzip";
+        }
         FileFormatTypeType fileFormat = reportData.getFileFormat();
         if (fileFormat != null) {
             type = fileFormat.value().toLowerCase();
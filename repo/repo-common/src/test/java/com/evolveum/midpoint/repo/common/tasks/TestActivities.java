@@ -65,7 +65,9 @@ import com.evolveum.midpoint.util.DebugUtil;
  * 1. running simple mock activity ({@link #test120RunSimpleTask()}),
  * 2. running mock semi-composite activity ({@link #test130RunCompositeTask()}),
  * 3. running custom composite activity ({@link #test140RunCustomCompositeTask()}),
- * 4. running mock iterative activity, including bucketing ({@link #test150RunMockIterativeTask()}, {@link #test155RunBucketedMockIterativeTask()}),
+ * 4. running mock iterative activity, including bucketing and worker threads ({@link #test150RunMockIterativeTask()},
+ * {@link #test152RunMockIterativeTaskWithWorkStealing()}, {@link #test153RunCorrelatedMockIterativeTaskWithWorkStealing()},
+ * {@link #test155RunBucketedMockIterativeTask()}),
  * 5. running mock search-based activity, including bucketing ({@link #test160RunMockSearchBasedTask()}, {@link #test170RunBucketedTask()}),
  * 6. running tree of bucketed activities ({@link #test180RunBucketedTree()}),
  * 7. delegation of processing to separate task(s) - for simple activity ({@link #test200Subtask()}) or children
@@ -95,6 +97,8 @@ public class TestActivities extends AbstractRepoCommonTest {
     private static final TestObject<TaskType> TASK_135_NO_OP = TestObject.file(TEST_DIR, "task-135-no-op.xml", "d1c750b0-eddc-445f-b907-d19c8ed754b5");
     private static final TestObject<TaskType> TASK_140_CUSTOM_COMPOSITE = TestObject.file(TEST_DIR, "task-140-custom-composite.xml", "65866e01-73cd-4249-9b7b-03ebc4413bd0");
     private static final TestObject<TaskType> TASK_150_MOCK_ITERATIVE = TestObject.file(TEST_DIR, "task-150-mock-iterative.xml", "c21785e9-1c67-492f-bc79-0c51f74561a1");
+    private static final TestObject<TaskType> TASK_152_MOCK_ITERATIVE_WORK_STEALING = TestObject.file(TEST_DIR, "task-152-mock-iterative-work-stealing.xml", "2b0d7b0e-6a5f-4d8c-9e37-0c1f4a6e8d52");
+    private static final TestObject<TaskType> TASK_153_MOCK_ITERATIVE_WORK_STEALING_CORRELATED = TestObject.file(TEST_DIR, "task-153-mock-iterative-work-stealing-correlated.xml", "8f6c1d2e-33a7-4b7e-9a51-5d0c8e2f7b14");
     private static final TestObject<TaskType> TASK_155_MOCK_ITERATIVE_BUCKETED = TestObject.file(TEST_DIR, "task-155-mock-iterative-bucketed.xml", "02a94071-2eff-4ca0-aa63-3fdf9d540064");
     private static final TestObject<TaskType> TASK_160_MOCK_SEARCH_ITERATIVE = TestObject.file(TEST_DIR, "task-160-mock-search-iterative.xml", "9d8384b3-a007-44e2-a9f7-084a64bdc285");
     private static final TestObject<TaskType> TASK_170_MOCK_BUCKETED = TestObject.file(TEST_DIR, "task-170-mock-bucketed.xml", "04e257d1-bb25-4675-8e00-f248f164fbc3");
@@ -566,6 +570,139 @@ public class TestActivities extends AbstractRepoCommonTest {
                 .assertHasWallClockTime();
     }
 
+    /**
+     * Runs mock-iterative activity with worker threads using work-stealing scheduling.
+     */
+    @Test
+    public void test152RunMockIterativeTaskWithWorkStealing() throws Exception {
+        given();
+
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        recorder.reset();
+
+        Task task1 = taskAdd(TASK_152_MOCK_ITERATIVE_WORK_STEALING, result);
+
+        when();
+
+        waitForTaskClose(task1.getOid(), result, 10000);
+
+        then();
+
+        displayDumpable("recorder", recorder);
+
+        task1.refresh(result);
+        // @formatter:off
+        assertTask(task1, "after")
+                .display()
+                .assertSuccess()
+                .assertClosed()
+                .assertProgress(20)
+                .activityState()
+                    .rootActivity()
+                        .assertComplete()
+                        .assertSuccess()
+                        .itemProcessingStatistics()
+                            .assertTotalCounts(20, 0, 0)
+                        .end();
+        // @formatter:on
+
+        List<String> expected = IntStream.rangeClosed(1, 20)
+                .mapToObj(i -> "Item: " + i)
+                .collect(Collectors.toList());
+        assertThat(recorder.getExecutions()).as("recorder")
+                .containsExactlyInAnyOrderElementsOf(expected);
+
+        ActivityWorkerThreadsStatisticsType workerThreads =
+                ActivityItemProcessingStatisticsUtil.getItemProcessingStatistics(
+                                task1.getActivitiesStateOrClone().getActivity())
+                        .getWorkerThreads();
+        displayValue("worker threads statistics", workerThreads);
+        assertThat(workerThreads).as("worker threads statistics").isNotNull();
+        assertThat(workerThreads.getSubmitted()).as("submitted").isEqualTo(20);
+        assertThat(workerThreads.getQueueDepth()).as("queue depth").isEqualTo(0);
+        assertThat(workerThreads.getMaxQueueDepth()).as("max queue depth").isBetween(1, 8);
+    }
+
+    /**
+     * Runs mock-iterative activity with correlated items (by `item mod 3`) and work-stealing scheduling.
+     *
+     * Correlated items must be processed one after another, in the order of submission. Moreover, an item that was
+     * submitted while the previous correlated item was still being processed (i.e. it was reserved) must be processed
+     * by the same worker thread.
+     */
+    @Test
+    public void test153RunCorrelatedMockIterativeTaskWithWorkStealing() throws Exception {
+        given();
+
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        recorder.reset();
+
+        Task task1 = taskAdd(TASK_153_MOCK_ITERATIVE_WORK_STEALING_CORRELATED, result);
+
+        when();
+
+        waitForTaskClose(task1.getOid(), result, 20000);
+
+        then();
+
+        displayDumpable("recorder", recorder);
+
+        task1.refresh(result);
+        // @formatter:off
+        assertTask(task1, "after")
+                .display()
+                .assertSuccess()
+                .assertClosed()
+                .assertProgress(60)
+                .activityState()
+                    .rootActivity()
+                        .assertComplete()
+                        .assertSuccess()
+                        .itemProcessingStatistics()
+                            .assertTotalCounts(60, 0, 0)
+                        .end();
+        // @formatter:on
+
+        List<MockRecorder.ItemProcessing> processings = new ArrayList<>(recorder.getItemProcessings());
+        assertThat(processings).as("item processings").hasSize(60);
+        processings.sort(Comparator.comparingLong(MockRecorder.ItemProcessing::start));
+
+        Map<Object, MockRecorder.ItemProcessing> lastByCorrelationValue = new HashMap<>();
+        int reservedCount = 0;
+        for (MockRecorder.ItemProcessing current : processings) {
+            MockRecorder.ItemProcessing previous = lastByCorrelationValue.put(current.correlationValue(), current);
+            if (previous == null) {
+                continue;
+            }
+            assertThat((Integer) current.item())
+                    .as("item processed after " + previous)
+                    .isGreaterThan((Integer) previous.item());
+            assertThat(current.start())
+                    .as("start of " + current + " (previous correlated item: " + previous + ")")
+                    .isGreaterThanOrEqualTo(previous.end());
+            if (recorder.getSubmissions().get(current.item()) < previous.end()) {
+                reservedCount++;
+                assertThat(current.thread())
+                        .as("thread processing reserved " + current + " (previous correlated item: " + previous + ")")
+                        .isEqualTo(previous.thread());
+            }
+        }
+        displayValue("reserved items", reservedCount);
+        assertThat(reservedCount).as("reserved items").isPositive();
+
+        ActivityWorkerThreadsStatisticsType workerThreads =
+                ActivityItemProcessingStatisticsUtil.getItemProcessingStatistics(
+                                task1.getActivitiesStateOrClone().getActivity())
+                        .getWorkerThreads();
+        displayValue("worker threads statistics", workerThreads);
+        assertThat(workerThreads.getSubmitted()).as("submitted").isEqualTo(60);
+        assertThat(workerThreads.getReserved()).as("reserved").isPositive();
+    }
+
     /**
      * Runs mock-iterative activity with buckets.
      */
@@ -23,12 +23,14 @@ import java.util.function.Consumer;
 import jakarta.annotation.PostConstruct;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
@@ -41,6 +43,8 @@ import com.evolveum.midpoint.repo.common.activity.run.buckets.GetBucketOperation
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketContentFactory;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketContentFactoryGenerator;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.DiscriminatorValueSampler;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.ImplicitSegmentationResolver;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.StringBucketContentFactory;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
@@ -303,6 +307,110 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
         assertBoundaries(contentFactory, Arrays.asList("0123456789abcdef", "0123456789abcdef"));
     }
 
+    /**
+     * Tests the balanced segmentation on skewed data. Checks that the buckets have (roughly) the same number of objects,
+     * and that a value shared by many objects is not split among buckets.
+     */
+    @Test
+    public void test060BalancedBuckets() throws Exception {
+        given();
+        List<String> values = List.of("a1", "a2", "a3", "a4", "a5", "a6", "b1", "c1", "c1", "c1", "c1", "d1");
+        BucketsDefinitionType bucketing = new BucketsDefinitionType()
+                .balancedSegmentation(new BalancedWorkSegmentationType()
+                        .numberOfBuckets(4));
+
+        when();
+
+        BucketContentFactory contentFactory =
+                contentFactoryCreator.createContentFactory(bucketing, createResolver(values));
+        List<AbstractWorkBucketContentType> contents = new ArrayList<>();
+        AbstractWorkBucketContentType content = null;
+        for (int sequentialNumber = 0; ; sequentialNumber++) {
+            content = contentFactory.createNextBucketContent(content, sequentialNumber > 0 ? sequentialNumber : null);
+            if (content == null) {
+                break;
+            }
+            contents.add(content);
+        }
+
+        then();
+
+        displayValue("bucket contents", contents);
+        assertThat(contents).containsExactly(
+                new StringIntervalWorkBucketContentType().to("a4"),
+                new StringIntervalWorkBucketContentType().from("a4").to("b1"),
+                new StringIntervalWorkBucketContentType().from("b1").to("c1"),
+                new StringIntervalWorkBucketContentType().from("c1").to("d1"),
+                new StringIntervalWorkBucketContentType().from("d1"));
+        assertEquals("Wrong # of estimated buckets", Integer.valueOf(4), contentFactory.estimateNumberOfBuckets());
+    }
+
+    /**
+     * The bucket size determined when the first bucket was created (and kept in the bucketing state) must be used
+     * for subsequent buckets, even if they are created by other workers and the number of objects has changed since.
+     */
+    @Test
+    public void test065BalancedBucketsStoredSize() throws Exception {
+        given("the first buckets created from 12 objects");
+        List<String> values = List.of("a1", "a2", "a3", "a4", "a5", "a6", "b1", "c1", "c1", "c1", "c1", "d1");
+        BucketsDefinitionType bucketing = new BucketsDefinitionType()
+                .balancedSegmentation(new BalancedWorkSegmentationType()
+                        .numberOfBuckets(4));
+        BucketContentFactory firstFactory =
+                contentFactoryCreator.createContentFactory(bucketing, createResolver(values));
+        firstFactory.createNextBucketContent(null, null);
+        Integer bucketSize = firstFactory.getBucketSize();
+        assertEquals("Wrong bucket size", Integer.valueOf(3), bucketSize);
+
+        when("next bucket is created by another factory after four objects were added");
+        List<String> grownValues = new ArrayList<>(values);
+        grownValues.addAll(List.of("e1", "e2", "e3", "e4"));
+        BucketContentFactory secondFactory =
+                contentFactoryCreator.createContentFactory(bucketing, createResolver(grownValues));
+        secondFactory.setBucketSize(bucketSize);
+        AbstractWorkBucketContentType content = secondFactory.createNextBucketContent(
+                new StringIntervalWorkBucketContentType().from("c1").to("d1"), 4);
+
+        then("the stored bucket size is used (the size computed from 16 objects would be 4)");
+        assertThat(content).isEqualTo(
+                new StringIntervalWorkBucketContentType().from("d1").to("e3"));
+        assertEquals("Wrong bucket size", bucketSize, secondFactory.getBucketSize());
+    }
+
+    /** Provides balanced segmentation sampler working on a list of sorted discriminator values. */
+    private ImplicitSegmentationResolver createResolver(List<String> sortedValues) {
+        return new ImplicitSegmentationResolver() {
+            @Override
+            public AbstractWorkSegmentationType resolveImplicitSegmentation(@NotNull ImplicitWorkSegmentationType segmentation) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public DiscriminatorValueSampler getDiscriminatorValueSampler() {
+                return new DiscriminatorValueSampler() {
+                    @Override
+                    public int countObjects(@NotNull ItemPath discriminator, @Nullable Object from) {
+                        return select(from, true).size();
+                    }
+
+                    @Override
+                    public Object getValueAt(
+                            @NotNull ItemPath discriminator, @Nullable Object from, boolean inclusive, int position) {
+                        List<String> selected = select(from, inclusive);
+                        return position < selected.size() ? selected.get(position) : null;
+                    }
+
+                    private List<String> select(Object from, boolean inclusive) {
+                        return sortedValues.stream()
+                                .filter(v -> from == null
+                                        || (inclusive ? v.compareTo((String) from) >= 0 : v.compareTo((String) from) > 0))
+                                .toList();
+                    }
+                };
+            }
+        };
+    }
+
     /**
      * Tests the get-complete cycle (4x) with explicit, numeric interval segmentation providing 3 buckets.
      */
@@ -49,6 +49,7 @@ public class TestWorkerTasks extends AbstractRepoCommonTest {
     private static final TestObject<TaskType> TASK_150_WORKERS_MOVE = TestObject.file(TEST_DIR, "task-150-workers-move.xml", "f3efb438-c573-4631-bbff-ba9e09b3ae03");
     private static final TestObject<TaskType> TASK_160_WORKERS_ADD_DELETE = TestObject.file(TEST_DIR, "task-160-workers-add-delete.xml", "9e94e921-d319-422a-b9d6-9e98d9034975");
     private static final TestObject<TaskType> TASK_170_NUMBER_SEGMENTATION_NUMBER_OF_BUCKETS = TestObject.file(TEST_DIR, "task-170-num-seg-num-of-buckets.xml", "33b0f9bb-15bd-4f64-bd08-11aad034e77e");
+    private static final TestObject<TaskType> TASK_180_ROW_LEVEL_ALLOCATION = TestObject.file(TEST_DIR, "task-180-row-level-allocation.xml", "5b1c2d0e-7a4f-4e8b-9c6d-3f2a1e0b9d18");
 
     private static final File SYSTEM_CONFIGURATION_FILE = new File(TEST_DIR, "system-configuration.xml");
 
@@ -820,4 +821,73 @@ public class TestWorkerTasks extends AbstractRepoCommonTest {
                 .end();
         // @formatter:on
     }
+
+    /**
+     * Four workers processing roles in 20 buckets that are kept in the work bucket table (row-level allocation).
+     * All buckets must be processed exactly once, and the coordinator task must not contain the buckets themselves.
+     */
+    @Test
+    public void test180RowLevelAllocation() throws Exception {
+        skipIfNotNativeRepository();
+
+        given();
+        OperationResult result = createOperationResult();
+
+        mockRecorder.reset();
+
+        assumeNoExtraClusterNodes(result);
+
+        List<RoleType> roles = allRoles.subList(0, 80);
+
+        when();
+        Task root = taskAdd(TASK_180_ROW_LEVEL_ALLOCATION, result);
+
+        then();
+        try {
+            waitForTaskTreeCloseCheckingSuspensionWithError(root.getOid(), result, DEFAULT_TIMEOUT);
+
+            root.refresh(result);
+            assertTaskTreeAfter180("after 1st run", root, result);
+            assertExecutions(roles, 1);
+
+            when("second run");
+            taskManager.scheduleTasksNow(List.of(root.getOid()), result);
+
+            then("second run");
+            waitForTaskTreeCloseCheckingSuspensionWithError(root.getOid(), result, DEFAULT_TIMEOUT);
+
+            root.refresh(result);
+            assertTaskTreeAfter180("after 2nd run", root, result);
+            assertExecutions(roles, 2);
+
+        } finally {
+            suspendAndDeleteTasks(root.getOid());
+        }
+    }
+
+    private void assertTaskTreeAfter180(String message, Task root, OperationResult result) throws SchemaException {
+        // @formatter:off
+        assertTask(root, message)
+                .display()
+                .assertClosed()
+                .assertSuccess()
+                .loadSubtasksDeeply(result)
+                .progressInformation() // this is for the whole tree
+                    .display()
+                    .assertBuckets(20, 20)
+                    .assertItems(80, null)
+                .end()
+                .assertSubtasks(4);
+        // @formatter:on
+
+        ActivityStateType rootState = root.getActivityStateOrClone(ActivityPath.empty());
+        assertThat(rootState).as("root activity state").isNotNull();
+        assertThat(rootState.getBucketing()).as("root bucketing state").isNotNull();
+        assertThat(rootState.getBucketing().getBucket())
+                .as("buckets in the coordinator task " + message)
+                .isEmpty();
+        assertThat(rootState.getBucketing().isWorkComplete())
+                .as("work complete flag " + message)
+                .isTrue();
+    }
 }
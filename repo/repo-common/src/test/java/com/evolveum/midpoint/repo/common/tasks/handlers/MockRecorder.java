@@ -15,6 +15,7 @@ import org.springframework.stereotype.Component;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.commons.collections4.ListUtils.synchronizedList;
 
@@ -24,6 +25,13 @@ public class MockRecorder implements DebugDumpable {
     @SuppressWarnings("unchecked")
     private final List<String> executions = synchronizedList(new ArrayList<>());
 
+    /** Submission times (nanos) of items; for checking the ordering of processing. */
+    @NotNull private final Map<Object, Long> submissions = new ConcurrentHashMap<>();
+
+    /** Processing of items, for checking the ordering and the threads used. Recorded only for some activities. */
+    @SuppressWarnings("unchecked")
+    private final List<ItemProcessing> itemProcessings = synchronizedList(new ArrayList<>());
+
     /** This is to verify that realization start timestamps in workers are the same. */
     @NotNull private final Set<XMLGregorianCalendar> realizationStartTimestamps = new HashSet<>();
 
@@ -35,6 +43,22 @@ public class MockRecorder implements DebugDumpable {
         return executions;
     }
 
+    public void recordSubmission(Object item) {
+        submissions.put(item, System.nanoTime());
+    }
+
+    public @NotNull Map<Object, Long> getSubmissions() {
+        return submissions;
+    }
+
+    public void recordItemProcessing(Object item, Object correlationValue, String thread, long start, long end) {
+        itemProcessings.add(new ItemProcessing(item, correlationValue, thread, start, end));
+    }
+
+    public List<ItemProcessing> getItemProcessings() {
+        return itemProcessings;
+    }
+
     public void recordRealizationStartTimestamp(XMLGregorianCalendar value) {
         realizationStartTimestamps.add(value);
     }
@@ -45,6 +69,8 @@ public class MockRecorder implements DebugDumpable {
 
     public void reset() {
         executions.clear();
+        submissions.clear();
+        itemProcessings.clear();
         realizationStartTimestamps.clear();
     }
 
@@ -53,7 +79,12 @@ public class MockRecorder implements DebugDumpable {
         StringBuilder sb = new StringBuilder();
         DebugUtil.debugDumpLabelLn(sb, "MockRecorder", indent);
         DebugUtil.debugDumpWithLabelLn(sb, "executions", executions, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "item processings", itemProcessings, indent + 1);
         DebugUtil.debugDumpWithLabel(sb, "realization start timestamps", realizationStartTimestamps, indent + 1);
         return sb.toString();
     }
+
+    /** Processing of an item by a worker thread; start and end are in nanos. */
+    public record ItemProcessing(Object item, Object correlationValue, String thread, long start, long end) {
+    }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.tasks.handlers.iterative;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.repo.common.activity.run.PlainIterativeActivityRun;
+import com.evolveum.midpoint.repo.common.activity.run.processing.CorrelatableProcessingRequest;
+
+/**
+ * Mock request whose processing must be ordered with respect to other requests with the same correlation value.
+ */
+class CorrelatedIterativeMockProcessingRequest extends IterativeMockProcessingRequest
+        implements CorrelatableProcessingRequest {
+
+    private final int correlationValue;
+
+    CorrelatedIterativeMockProcessingRequest(@NotNull Integer item, int correlationValue,
+            @NotNull PlainIterativeActivityRun<Integer, ?, ?, ?> activityRun) {
+        super(item, activityRun);
+        this.correlationValue = correlationValue;
+    }
+
+    @Override
+    public Integer getCorrelationValue() {
+        return correlationValue;
+    }
+}
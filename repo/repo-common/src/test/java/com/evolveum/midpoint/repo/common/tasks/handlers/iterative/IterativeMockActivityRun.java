@@ -62,10 +62,13 @@ final class IterativeMockActivityRun
         Interval narrowed = NumericIntervalBucketUtil.getNarrowedInterval(bucket, workDef.getInterval());
 
         for (int item = narrowed.from; item < narrowed.to; item++) {
-            ItemProcessingRequest<Integer> request = new IterativeMockProcessingRequest(item, this);
+            ItemProcessingRequest<Integer> request = workDef.getCorrelationModulo() > 0 ?
+                    new CorrelatedIterativeMockProcessingRequest(item, item % workDef.getCorrelationModulo(), this) :
+                    new IterativeMockProcessingRequest(item, this);
             if (!coordinator.submit(request, result)) {
                 break;
             }
+            getRecorder().recordSubmission(item);
         }
     }
 
@@ -87,14 +90,20 @@ final class IterativeMockActivityRun
             @NotNull OperationResult parentResult) {
         IterativeMockWorkDefinition def = getActivity().getWorkDefinition();
 
+        Integer item = request.getItem();
+        long start = System.nanoTime();
+
         if (def.getDelay() > 0) {
             MiscUtil.sleepWatchfully(System.currentTimeMillis() + def.getDelay(), 100, workerTask::canRun);
         }
 
-        Integer item = request.getItem();
         String message = emptyIfNull(def.getMessage()) + item;
         LOGGER.info("Message: {}", message);
         getRecorder().recordExecution(message);
+        if (request instanceof CorrelatedIterativeMockProcessingRequest correlated) {
+            getRecorder().recordItemProcessing(
+                    item, correlated.getCorrelationValue(), Thread.currentThread().getName(), start, System.nanoTime());
+        }
 
         provideSomeMockStatistics(request, workerTask);
         return true;
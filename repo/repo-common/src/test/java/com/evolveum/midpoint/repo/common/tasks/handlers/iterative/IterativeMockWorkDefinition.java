@@ -30,6 +30,7 @@ public class IterativeMockWorkDefinition extends AbstractWorkDefinition {
     private static final ItemName TO_NAME = new ItemName(NS_EXT, "to");
     private static final ItemName MESSAGE_NAME = new ItemName(NS_EXT, "message");
     private static final ItemName DELAY_NAME = new ItemName(NS_EXT, "delay");
+    private static final ItemName CORRELATION_MODULO_NAME = new ItemName(NS_EXT, "correlationModulo");
 
     static final QName WORK_DEFINITION_TYPE_QNAME = new QName(NS_EXT, "IterativeMockDefinitionType");
     static final QName WORK_DEFINITION_ITEM_QNAME = new QName(NS_EXT, "iterativeMock");
@@ -44,6 +45,9 @@ public class IterativeMockWorkDefinition extends AbstractWorkDefinition {
 
     private final long delay;
 
+    /** If positive, items with the same `item mod correlationModulo` value are correlated. */
+    private final int correlationModulo;
+
     IterativeMockWorkDefinition(@NotNull WorkDefinitionFactory.WorkDefinitionInfo info) {
         super(info);
         PrismContainerValue<?> pcv = info.source().getValue();
@@ -51,6 +55,7 @@ public class IterativeMockWorkDefinition extends AbstractWorkDefinition {
         this.to = MoreObjects.firstNonNull(pcv.getPropertyRealValue(TO_NAME, Integer.class), from);
         this.message = pcv.getPropertyRealValue(MESSAGE_NAME, String.class);
         this.delay = or0(pcv.getPropertyRealValue(DELAY_NAME, Long.class));
+        this.correlationModulo = or0(pcv.getPropertyRealValue(CORRELATION_MODULO_NAME, Integer.class));
     }
 
     public int getFrom() {
@@ -73,6 +78,10 @@ public class IterativeMockWorkDefinition extends AbstractWorkDefinition {
         return delay;
     }
 
+    public int getCorrelationModulo() {
+        return correlationModulo;
+    }
+
     @Override
     public @NotNull AffectedObjectsInformation.ObjectSet getAffectedObjectSetInformation() {
         return AffectedObjectsInformation.ObjectSet.notSupported(); // not relevant here
@@ -83,6 +92,7 @@ public class IterativeMockWorkDefinition extends AbstractWorkDefinition {
         DebugUtil.debugDumpWithLabelLn(sb, "from", from, indent+1);
         DebugUtil.debugDumpWithLabelLn(sb, "to", to, indent+1);
         DebugUtil.debugDumpWithLabelLn(sb, "message", message, indent+1);
-        DebugUtil.debugDumpWithLabel(sb, "delay", delay, indent+1);
+        DebugUtil.debugDumpWithLabelLn(sb, "delay", delay, indent+1);
+        DebugUtil.debugDumpWithLabel(sb, "correlationModulo", correlationModulo, indent+1);
     }
 }
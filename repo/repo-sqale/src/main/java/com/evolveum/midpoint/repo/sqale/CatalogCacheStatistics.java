@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage counters of catalog caches ({@link UriCache}, {@link ExtItemCache}).
+ * The counters are updated on every lookup, so they must be cheap; {@link LongAdder} does not
+ * contend when updated concurrently from many threads.
+ *
+ * Hits are lookups served from the memory only, misses are lookups that had to go to the database
+ * (either to read a row created by another node, or to insert a new one).
+ * Database time is the total time spent by the misses, which is the time where the threads
+ * could potentially wait for each other.
+ */
+public class CatalogCacheStatistics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder insertedRows = new LongAdder();
+    private final LongAdder preloadedRows = new LongAdder();
+    private final LongAdder databaseNanos = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    /** Records a database access started at `startNanos` (value from {@link System#nanoTime()}). */
+    void recordMiss(long startNanos) {
+        misses.increment();
+        databaseNanos.add(System.nanoTime() - startNanos);
+    }
+
+    void recordInsertedRows(int count) {
+        insertedRows.add(count);
+    }
+
+    void recordPreloadedRows(int count) {
+        preloadedRows.add(count);
+    }
+
+    void reset() {
+        hits.reset();
+        misses.reset();
+        insertedRows.reset();
+        preloadedRows.reset();
+        databaseNanos.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getInsertedRows() {
+        return insertedRows.sum();
+    }
+
+    public long getPreloadedRows() {
+        return preloadedRows.sum();
+    }
+
+    public long getDatabaseTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(databaseNanos.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits()
+                + ", misses=" + getMisses()
+                + ", insertedRows=" + getInsertedRows()
+                + ", preloadedRows=" + getPreloadedRows()
+                + ", databaseTimeMs=" + getDatabaseTimeMillis();
+    }
+}
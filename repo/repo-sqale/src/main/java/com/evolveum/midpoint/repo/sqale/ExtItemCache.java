@@ -6,11 +6,13 @@
  */
 package com.evolveum.midpoint.repo.sqale;
 
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import com.querydsl.core.QueryFlag;
+import com.querydsl.sql.dml.SQLInsertClause;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -22,16 +24,47 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * Cache for {@link MExtItem} catalog.
+ *
+ * Reads are served from concurrent maps without any locking.
+ * When an item is not found, the database is consulted (without holding any lock either):
+ *
+ * * For an unknown ID, all the rows newer than the newest known one are loaded as well,
+ * because a single unknown ID typically means that other node created more items.
+ * * For unknown keys, the rows created by other nodes are loaded first, and the still missing ones
+ * are inserted in a single transaction using `ON CONFLICT DO NOTHING` and read back.
+ * Concurrent inserts of the same key (from this or other node) are thus harmless, they end up
+ * with the same row.
+ * The rows are always inserted in the same order to avoid deadlocks between concurrent inserts,
+ * and the insert is retried if the transaction is rolled back on deadlock or serialization failure anyway.
  */
 public class ExtItemCache {
 
     private static final Trace LOGGER = TraceManager.getTrace(ExtItemCache.class);
 
+    /** How many times the insert is attempted if the transaction fails on deadlock or serialization failure. */
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    /**
+     * Order of the inserted rows, the same as the order of columns in the unique key.
+     * Concurrent batch inserts wait for each other's conflicting keys in the order of the rows,
+     * so using the same order everywhere prevents deadlocks between them.
+     */
+    private static final Comparator<MExtItem.Key> INSERT_ORDER =
+            Comparator.<MExtItem.Key, String>comparing(k -> k.itemName)
+                    .thenComparing(k -> k.valueType)
+                    .thenComparing(k -> k.holderType)
+                    .thenComparing(k -> k.cardinality);
+
     private final Map<Integer, MExtItem> idToExtItem = new ConcurrentHashMap<>();
     private final Map<MExtItem.Key, MExtItem> keyToExtItem = new ConcurrentHashMap<>();
 
+    /** The highest ID in the cache, used to load rows created by other nodes. */
+    private final AtomicInteger maxKnownId = new AtomicInteger();
+
+    private final CatalogCacheStatistics statistics = new CatalogCacheStatistics();
+
     // WARNING: Each .get() creates new connection, always use in try-with-resource block!
-    private Supplier<JdbcSession> jdbcSessionSupplier;
+    private volatile Supplier<JdbcSession> jdbcSessionSupplier;
 
     /**
      * Initializes the ext-item cache.
@@ -43,6 +76,8 @@ public class ExtItemCache {
         // this can be called repeatedly in tests, so the clear may be necessary
         idToExtItem.clear();
         keyToExtItem.clear();
+        maxKnownId.set(0);
+        statistics.reset();
 
         QExtItem uri = QExtItem.DEFAULT;
         List<MExtItem> result;
@@ -63,83 +98,166 @@ public class ExtItemCache {
     private void updateMaps(MExtItem row) {
         idToExtItem.put(row.id, row);
         keyToExtItem.put(row.key(), row);
+        maxKnownId.accumulateAndGet(row.id, Math::max);
     }
 
-    public synchronized @NotNull MExtItem resolveExtensionItem(@NotNull MExtItem.Key extItemKey) {
-        if (jdbcSessionSupplier == null) {
-            throw new IllegalStateException("Ext item cache was not initialized yet!");
-        }
+    public @NotNull MExtItem resolveExtensionItem(@NotNull MExtItem.Key extItemKey) {
+        checkInitialized();
 
         MExtItem extItem = keyToExtItem.get(extItemKey);
         if (extItem != null) {
+            statistics.recordHit();
             return extItem;
         }
 
+        return resolveExtensionItems(List.of(extItemKey)).get(extItemKey);
+    }
+
+    /**
+     * Returns extension items for all the provided keys, creating the missing ones in the database.
+     * All the missing items are created in a single transaction, which is much cheaper than
+     * calling {@link #resolveExtensionItem(MExtItem.Key)} for each of them.
+     */
+    public @NotNull Map<MExtItem.Key, MExtItem> resolveExtensionItems(@NotNull Collection<MExtItem.Key> extItemKeys) {
+        checkInitialized();
+
+        Map<MExtItem.Key, MExtItem> extItems = new HashMap<>();
+        Set<MExtItem.Key> missingKeys = new HashSet<>();
+        for (MExtItem.Key key : extItemKeys) {
+            MExtItem extItem = keyToExtItem.get(key);
+            if (extItem != null) {
+                statistics.recordHit();
+                extItems.put(key, extItem);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return extItems;
+        }
+
+        long start = System.nanoTime();
+        // Other nodes may have created the items already.
+        preloadNewRows(null);
+        collectCached(missingKeys, extItems);
+
+        if (!missingKeys.isEmpty()) {
+            insertAndRetrieve(missingKeys);
+            collectCached(missingKeys, extItems);
+            if (!missingKeys.isEmpty()) {
+                throw new IllegalStateException("Ext items were neither inserted nor found: " + missingKeys);
+            }
+        }
+        statistics.recordMiss(start);
+        return extItems;
+    }
+
+    private void collectCached(Set<MExtItem.Key> missingKeys, Map<MExtItem.Key, MExtItem> extItems) {
+        Iterator<MExtItem.Key> iterator = missingKeys.iterator();
+        while (iterator.hasNext()) {
+            MExtItem.Key key = iterator.next();
+            MExtItem extItem = keyToExtItem.get(key);
+            if (extItem != null) {
+                extItems.put(key, extItem);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Inserts the rows for the keys and reads them back.
+     * If the transaction is rolled back because of a deadlock or serialization failure, it is retried
+     * (a few times), because items inserted by the concurrent transaction are simply read back the next time.
+     */
+    private void insertAndRetrieve(Set<MExtItem.Key> keys) {
+        List<MExtItem.Key> sortedKeys = new ArrayList<>(keys);
+        sortedKeys.sort(INSERT_ORDER);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insertAndRetrieve(sortedKeys);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_INSERT_ATTEMPTS || !SqaleUtils.isTransactionSerializationProblem(e)) {
+                    throw e;
+                }
+                LOGGER.debug("Ext item cache insert failed on attempt {}, retrying: {}", attempt, e.getMessage());
+            }
+        }
+    }
+
+    private void insertAndRetrieve(List<MExtItem.Key> keys) {
         QExtItem ei = QExtItem.DEFAULT;
+        List<MExtItem> rows;
         try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startTransaction()) {
-            Integer id = jdbcSession.newInsert(ei)
-                    .set(ei.itemName, extItemKey.itemName)
-                    .set(ei.valueType, extItemKey.valueType)
-                    .set(ei.holderType, extItemKey.holderType)
-                    .set(ei.cardinality, extItemKey.cardinality)
-                    .executeWithKey(ei.id);
+            SQLInsertClause insert = jdbcSession.newInsert(ei);
+            for (MExtItem.Key key : keys) {
+                insert.set(ei.itemName, key.itemName)
+                        .set(ei.valueType, key.valueType)
+                        .set(ei.holderType, key.holderType)
+                        .set(ei.cardinality, key.cardinality)
+                        .addBatch();
+            }
+            // Items inserted concurrently by other threads or nodes are simply read back below.
+            long inserted = insert
+                    .addFlag(QueryFlag.Position.END, " ON CONFLICT DO NOTHING")
+                    .execute();
+
+            rows = jdbcSession.newQuery()
+                    .select(ei)
+                    .from(ei)
+                    .where(ei.itemName.in(keys.stream().map(k -> k.itemName).toList()))
+                    .fetch();
             jdbcSession.commit();
+            statistics.recordInsertedRows((int) inserted);
+        }
 
-            extItem = MExtItem.of(id, extItemKey);
-            updateMaps(extItem);
-        } catch (RuntimeException e) {
-            if (SqaleUtils.isUniqueConstraintViolation(e)) {
-                extItem = retrieveFromDb(extItemKey);
-            } else {
-                throw e;
+        Set<MExtItem.Key> keySet = new HashSet<>(keys);
+        for (MExtItem row : rows) {
+            updateMaps(row);
+            if (keySet.contains(row.key())) {
+                LOGGER.debug("Ext item cache row inserted or retrieved: {}", row);
             }
         }
-
-        LOGGER.debug("Ext item cache row inserted: {}", extItem);
-        return extItem;
     }
 
-    private MExtItem retrieveFromDb(@NotNull MExtItem.Key key) {
+    /**
+     * Loads all rows newer than the newest known row, plus the row with the specified ID (if not null),
+     * which may be older if the sequence values were not committed in order.
+     */
+    private void preloadNewRows(@Nullable Integer id) {
         QExtItem ei = QExtItem.DEFAULT;
-        MExtItem row;
+        List<MExtItem> rows;
         try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startReadOnlyTransaction()) {
-            row = jdbcSession.newQuery()
+            rows = jdbcSession.newQuery()
                     .select(ei)
                     .from(ei)
-                    .where(ei.itemName.eq(key.itemName))
-                    .where(ei.valueType.eq(key.valueType))
-                    .where(ei.holderType.eq(key.holderType))
-                    .where(ei.cardinality.eq(key.cardinality))
-                    .fetchOne();
+                    .where(id != null
+                            ? ei.id.gt(maxKnownId.get()).or(ei.id.eq(id))
+                            : ei.id.gt(maxKnownId.get()))
+                    .fetch();
         }
-        if (row != null) {
+        for (MExtItem row : rows) {
             updateMaps(row);
         }
-        return row;
+        if (!rows.isEmpty()) {
+            statistics.recordPreloadedRows(rows.size());
+            LOGGER.debug("Ext item cache loaded {} new rows, highest known ID is {}", rows.size(), maxKnownId);
+        }
     }
 
-    public synchronized @Nullable MExtItem getExtensionItem(Integer id) {
-        if (jdbcSessionSupplier == null) {
-            throw new IllegalStateException("Ext item cache was not initialized yet!");
-        }
+    public @Nullable MExtItem getExtensionItem(Integer id) {
+        checkInitialized();
 
         MExtItem extItem = idToExtItem.get(id);
         if (extItem != null) {
+            statistics.recordHit();
             return extItem;
         }
 
-        try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startReadOnlyTransaction()) {
-            extItem = jdbcSession.newQuery()
-                    .from(QExtItem.DEFAULT)
-                    .select(QExtItem.DEFAULT)
-                    .where(QExtItem.DEFAULT.id.eq(id))
-                    .fetchOne();
-        }
-
-        if (extItem != null) {
-            updateMaps(extItem);
-        }
-        return extItem;
+        long start = System.nanoTime();
+        preloadNewRows(id);
+        statistics.recordMiss(start);
+        return idToExtItem.get(id);
     }
 
     /**
@@ -147,10 +265,22 @@ public class ExtItemCache {
      * Use with care, because this is not multi-node safe.
      */
     public @Nullable MExtItem getExtensionItem(MExtItem.Key extItemKey) {
+        checkInitialized();
+
+        return keyToExtItem.get(extItemKey);
+    }
+
+    public @NotNull CatalogCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    public int size() {
+        return idToExtItem.size();
+    }
+
+    private void checkInitialized() {
         if (jdbcSessionSupplier == null) {
             throw new IllegalStateException("Ext item cache was not initialized yet!");
         }
-
-        return keyToExtItem.get(extItemKey);
     }
 }
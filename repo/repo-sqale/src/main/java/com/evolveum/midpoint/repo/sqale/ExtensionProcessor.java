@@ -36,8 +36,12 @@ public class ExtensionProcessor {
 
     public Jsonb processExtensions(
             @NotNull Containerable extContainer, MExtItemHolderType holderType) {
-        Map<String, Object> extMap = new LinkedHashMap<>();
         PrismContainerValue<?> prismContainerValue = extContainer.asPrismContainerValue();
+
+        // Keys are collected first, so all the missing ext items are created in the catalog at once.
+        List<Item<?, ?>> indexedItems = new ArrayList<>();
+        List<Key> indexedItemKeys = new ArrayList<>();
+        List<Key> keysToResolve = new ArrayList<>();
         for (Item<?, ?> item : prismContainerValue.getItems()) {
             try {
                 Objects.requireNonNull(item, "Object for converting must not be null.");
@@ -46,10 +50,28 @@ public class ExtensionProcessor {
                     continue; // item does not have definition, skipping
                 }
 
-                ExtItemInfo extItemInfo = findExtensionItem(extDef, holderType);
-                if (extItemInfo == null) {
+                Key key = extensionItemKey(extDef, holderType);
+                if (key == null) {
                     continue; // not-indexed, skipping this item
                 }
+                indexedItems.add(item);
+                indexedItemKeys.add(key);
+                keysToResolve.add(key);
+                if (additionalSingleValueIndexNeeded(item, key.cardinality)) {
+                    keysToResolve.add(MExtItem.keyFrom(extDef, holderType, MExtItemCardinality.SCALAR));
+                }
+            } catch (RuntimeException e) {
+                throw new SystemException(
+                        "Exception when translating extension item " + item, e);
+            }
+        }
+        Map<Key, MExtItem> extItems = repositoryContext.resolveExtensionItems(keysToResolve);
+
+        Map<String, Object> extMap = new LinkedHashMap<>();
+        for (int i = 0; i < indexedItems.size(); i++) {
+            Item<?, ?> item = indexedItems.get(i);
+            try {
+                ExtItemInfo extItemInfo = extItemInfo(extItems.get(indexedItemKeys.get(i)), item.getDefinition());
 
                 Object value = extItemValue(item, extItemInfo);
 
@@ -57,7 +79,7 @@ public class ExtensionProcessor {
 
                 // We may need to add also single value index, if definition is dynamic;
                 // see additionalSingleValueIndexNeeded() javadoc for more information.
-                if (additionalSingleValueIndexNeeded(item, extItemInfo)) {
+                if (additionalSingleValueIndexNeeded(item, extItemInfo.item.cardinality)) {
                     addSingleValueIndex(extMap, item, holderType);
                 }
 
@@ -84,12 +106,12 @@ public class ExtensionProcessor {
      * states allows for search to work properly, once definition is known to search invoker.
      *
      * @param item Item to be added
-     * @param extItemInfo Originally determined item definition
+     * @param cardinality Cardinality of originally determined ext item
      * @return true if we also need to add single value index
      */
-    private boolean additionalSingleValueIndexNeeded(Item<?, ?> item, ExtItemInfo extItemInfo) {
+    private boolean additionalSingleValueIndexNeeded(Item<?, ?> item, MExtItemCardinality cardinality) {
         return item.size() == 1
-                && MExtItemCardinality.ARRAY.equals(extItemInfo.item.cardinality)
+                && MExtItemCardinality.ARRAY.equals(cardinality)
                 && item.getDefinition().isDynamic();
     }
 
@@ -193,6 +215,12 @@ public class ExtensionProcessor {
      */
     public MExtItem resolveExtensionItem(
             @NotNull ItemDefinition<?> definition, MExtItemHolderType holderType) {
+        Key key = extensionItemKey(definition, holderType);
+        return key != null ? repositoryContext.resolveExtensionItem(key) : null;
+    }
+
+    /** Returns ext item key for the provided definition and holder type, or null if the item is not indexed. */
+    private @Nullable Key extensionItemKey(@NotNull ItemDefinition<?> definition, MExtItemHolderType holderType) {
         if (definition instanceof PrismContainerDefinition<?>) {
             // Skip containers for now
             return null;
@@ -213,7 +241,7 @@ public class ExtensionProcessor {
                     + "', can't say if '" + definition.getItemName() + "' is indexed or not.");
         } // else it's reference which is indexed implicitly
 
-        return repositoryContext.resolveExtensionItem(MExtItem.keyFrom(definition, holderType));
+        return MExtItem.keyFrom(definition, holderType);
     }
 
     public void extensionsToContainer(Map<String, Object> attributes, Containerable container) throws SchemaException {
@@ -7,9 +7,13 @@
 package com.evolveum.midpoint.repo.sqale;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.xml.namespace.QName;
 
+import com.querydsl.core.QueryFlag;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.Expressions;
@@ -42,11 +46,8 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 public class SqaleQueryContext<S, Q extends FlexibleRelationalPathBase<R>, R>
         extends SqlQueryContext<S, Q, R> {
 
-    /**
-     * Flag guarding whether we need to refresh organization closure before executing
-     * the actual query.
-     */
-    private boolean containsOrgFilter = false;
+    /** Matches the estimated number of rows on the first line of PostgreSQL EXPLAIN output. */
+    private static final Pattern EXPLAIN_ROWS_PATTERN = Pattern.compile(" rows=(\\d+) ");
 
     /**
      * Enables {@link #loadObject} method that is used to fetch additional objects,
@@ -149,6 +150,35 @@ public class SqaleQueryContext<S, Q extends FlexibleRelationalPathBase<R>, R>
         }
     }
 
+    /**
+     * Estimates the count from the planner statistics, using the top row estimate from `EXPLAIN`.
+     * This does not touch the data, so it is cheap even for huge tables.
+     * The exact count is returned for estimates under {@link GetOperationOptions#ESTIMATED_COUNT_THRESHOLD}
+     * and for DISTINCT queries (the distinct select would have to be explained, not the count).
+     */
+    @Override
+    public int executeEstimatedCount(JdbcSession jdbcSession) {
+        if (sqlQuery.getMetadata().isDistinct()) {
+            return executeCount(jdbcSession);
+        }
+
+        List<String> plan = sqlQuery.clone(jdbcSession.connection())
+                .select(Expressions.stringTemplate("1"))
+                .addFlag(QueryFlag.Position.START, "EXPLAIN ")
+                .fetch();
+        Matcher matcher = plan.isEmpty() ? null : EXPLAIN_ROWS_PATTERN.matcher(plan.get(0));
+        if (matcher == null || !matcher.find()) {
+            return executeCount(jdbcSession);
+        }
+
+        long estimate = Long.parseLong(matcher.group(1));
+        if (estimate < GetOperationOptions.ESTIMATED_COUNT_THRESHOLD) {
+            return executeCount(jdbcSession);
+        }
+        // Integer.MAX_VALUE is used as "unknown count" by the GUI, estimate is still a known count.
+        return (int) Math.min(estimate, Integer.MAX_VALUE - 1);
+    }
+
     @Override
     public SqaleRepoContext repositoryContext() {
         return (SqaleRepoContext) super.repositoryContext();
@@ -158,14 +188,6 @@ public class SqaleQueryContext<S, Q extends FlexibleRelationalPathBase<R>, R>
         return repositoryContext().searchCachedRelationId(qName);
     }
 
-    public void markContainsOrgFilter() {
-        containsOrgFilter = true;
-        SqaleQueryContext<?, ?, ?> parentContext = parentContext();
-        if (parentContext != null) {
-            parentContext.markContainsOrgFilter();
-        }
-    }
-
     /** Returns derived {@link SqaleQueryContext} for JOIN. */
     @Override
     protected <TS, TQ extends FlexibleRelationalPathBase<TR>, TR> SqlQueryContext<TS, TQ, TR>
@@ -205,16 +227,6 @@ public class SqaleQueryContext<S, Q extends FlexibleRelationalPathBase<R>, R>
         return (SqaleQueryContext<?, ?, ?>) super.parentContext();
     }
 
-    @Override
-    public void beforeQuery() {
-        if (containsOrgFilter) {
-            try (JdbcSession jdbcSession = repositoryContext().newJdbcSession().startTransaction()) {
-                jdbcSession.executeStatement("CALL m_refresh_org_closure()");
-                jdbcSession.commit();
-            }
-        }
-    }
-
     @Override
     public QueryModelMapping<S, Q, R> queryMapping() {
         return queryMapping;
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.repo.sqale;
 import java.lang.reflect.Array;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import javax.sql.DataSource;
@@ -114,6 +115,7 @@ public class SqaleRepoContext extends SqlRepoContext {
         querydslConfig.register(new EnumAsObjectType<>(TaskWaitingReasonType.class));
         querydslConfig.register(new EnumAsObjectType<>(ThreadStopActionType.class));
         querydslConfig.register(new EnumAsObjectType<>(TimeIntervalStatusType.class));
+        querydslConfig.register(new EnumAsObjectType<>(WorkBucketStateType.class));
         querydslConfig.register(new EnumAsObjectType<>(ExecutionModeType.class));
         querydslConfig.register(new EnumAsObjectType<>(PredefinedConfigurationType.class));
 
@@ -217,6 +219,11 @@ public class SqaleRepoContext extends SqlRepoContext {
         return extItemCache.resolveExtensionItem(extItemKey);
     }
 
+    /** Returns extension items for all the provided keys, missing ones are created in a single transaction. */
+    public @NotNull Map<MExtItem.Key, MExtItem> resolveExtensionItems(@NotNull Collection<MExtItem.Key> extItemKeys) {
+        return extItemCache.resolveExtensionItems(extItemKeys);
+    }
+
     public @Nullable MExtItem getExtensionItem(Integer id) {
         return extItemCache.getExtensionItem(id);
     }
@@ -225,6 +232,22 @@ public class SqaleRepoContext extends SqlRepoContext {
         return extItemCache.getExtensionItem(extItemKey);
     }
 
+    public @NotNull CatalogCacheStatistics getUriCacheStatistics() {
+        return uriCache.getStatistics();
+    }
+
+    public int getUriCacheSize() {
+        return uriCache.size();
+    }
+
+    public @NotNull CatalogCacheStatistics getExtItemCacheStatistics() {
+        return extItemCache.getStatistics();
+    }
+
+    public int getExtItemCacheSize() {
+        return extItemCache.size();
+    }
+
     public void setFullTextSearchConfiguration(FullTextSearchConfigurationType fullTextSearchConfig) {
         this.fullTextSearchConfig = fullTextSearchConfig;
     }
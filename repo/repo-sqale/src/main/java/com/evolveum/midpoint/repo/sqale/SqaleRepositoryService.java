@@ -19,18 +19,25 @@ import com.evolveum.midpoint.util.MiscUtil;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ObjectArrays;
+import com.querydsl.core.QueryFlag;
 import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ExpressionUtils;
 import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.dml.SQLDeleteClause;
+import com.querydsl.sql.dml.SQLInsertClause;
 import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.postgresql.util.PSQLException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.evolveum.midpoint.common.SequenceUtil;
 import com.evolveum.midpoint.common.crypto.CryptoUtil;
 import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ChangeType;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.delta.ItemDeltaCollectionsUtil;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
@@ -43,6 +50,7 @@ import com.evolveum.midpoint.prism.query.builder.S_ConditionEntry;
 import com.evolveum.midpoint.prism.util.PrismUtil;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.*;
+import com.evolveum.midpoint.repo.api.WorkBucketAllocationResult.Situation;
 import com.evolveum.midpoint.repo.sqale.mapping.SqaleTableMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObjectType;
@@ -55,6 +63,11 @@ import com.evolveum.midpoint.repo.sqale.qmodel.ref.QObjectReferenceMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.ref.QReferenceMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.simulation.QProcessedObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.simulation.QProcessedObjectMapping;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.MTaskBucket;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTask;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTaskBucket;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTaskMapping;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTaskStatistics;
 import com.evolveum.midpoint.repo.sqale.update.AddObjectContext;
 import com.evolveum.midpoint.repo.sqale.update.RootUpdateContext;
 import com.evolveum.midpoint.repo.sqlbase.*;
@@ -67,6 +80,7 @@ import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
 import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
@@ -97,6 +111,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
     public static final int INITIAL_VERSION_NUMBER = 0;
     public static final String INITIAL_VERSION_STRING = String.valueOf(INITIAL_VERSION_NUMBER);
 
+    /** Operation name for {@link #addObjects}, which is not a part of {@link RepositoryService} interface. */
+    public static final String OP_ADD_OBJECTS = "addObjects";
+
     private static final int MAX_CONFLICT_WATCHERS = 10;
 
     private static final Collection<SelectorOptions<GetOperationOptions>> GET_FOR_UPDATE_OPTIONS =
@@ -216,7 +233,11 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             throw new ObjectNotFoundException(schemaType, oid.toString(), isAllowNotFound(options));
         }
 
-        return rootMapping.toSchemaObjectComplete(result, root, options, jdbcSession, false);
+        S object = rootMapping.toSchemaObjectComplete(result, root, options, jdbcSession, false);
+        if (object instanceof TaskType task) {
+            QTaskMapping.get().applyStoredStatistics(task, jdbcSession);
+        }
+        return object;
     }
 
     @Override
@@ -297,26 +318,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                 .build();
 
         try {
-            PolyString name = object.getName();
-            if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
-                throw new SchemaException("Attempt to add object without name.");
-            }
-
-            //noinspection ConstantConditions
-            logger.debug(
-                    "Adding object type '{}', overwrite={}, allowUnencryptedValues={}, name={} - {}",
-                    object.getCompileTimeClass().getSimpleName(), options.isOverwrite(),
-                    options.isAllowUnencryptedValues(), name.getOrig(), name.getNorm());
-
-            if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
-                CryptoUtil.checkEncrypted(object);
-            }
-
-            if (InternalsConfig.consistencyChecks) {
-                object.checkConsistence(ConsistencyCheckScope.THOROUGH);
-            } else {
-                object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
-            }
+            checkObjectToAdd(object, options);
 
             return object.getOid() == null || !options.isOverwrite()
                     ? executeAddObject(object)
@@ -332,6 +334,97 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    private void checkObjectToAdd(@NotNull PrismObject<?> object, @NotNull RepoAddOptions options)
+            throws SchemaException {
+        PolyString name = object.getName();
+        if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
+            throw new SchemaException("Attempt to add object without name.");
+        }
+
+        //noinspection ConstantConditions
+        logger.debug(
+                "Adding object type '{}', overwrite={}, allowUnencryptedValues={}, name={} - {}",
+                object.getCompileTimeClass().getSimpleName(), options.isOverwrite(),
+                options.isAllowUnencryptedValues(), name.getOrig(), name.getNorm());
+
+        if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
+            CryptoUtil.checkEncrypted(object);
+        }
+
+        if (InternalsConfig.consistencyChecks) {
+            object.checkConsistence(ConsistencyCheckScope.THOROUGH);
+        } else {
+            object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
+        }
+    }
+
+    /**
+     * Adds multiple objects in a single transaction, which is much faster than separate {@link #addObject} calls
+     * when the repository is bulk-loaded, e.g. by ninja import.
+     *
+     * Options and checks are the same as for {@link #addObject}, overwrite included.
+     * The operation is all-or-nothing: if any object can't be added, the whole transaction is rolled back
+     * and the exception is thrown. The caller can then add the objects one by one to find the culprit.
+     *
+     * This is not a part of {@link RepositoryService} interface, as it is relevant only for the native repository.
+     *
+     * Org closure is maintained by the triggers on `m_org` and `m_ref_object_parent_org`, just as for single objects.
+     * Adding an org with a parent org takes the transaction-level advisory lock (`pg_advisory_xact_lock(47)`)
+     * that serializes all the changes of the org hierarchy; the lock is held until the whole batch is committed.
+     * Hence, callers that add many objects concurrently should not put orgs into large batches.
+     */
+    public void addObjects(
+            @NotNull List<? extends PrismObject<? extends ObjectType>> objects,
+            @Nullable RepoAddOptions options,
+            @NotNull OperationResult parentResult)
+            throws ObjectAlreadyExistsException, SchemaException {
+
+        Objects.requireNonNull(objects, "Objects must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        RepoAddOptions addOptions = options != null ? options : new RepoAddOptions();
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_ADD_OBJECTS)
+                .addParam("objects", objects.size())
+                .addParam(OperationResult.PARAM_OPTIONS, addOptions.toString())
+                .build();
+
+        long opHandle = registerOperationStart(OP_ADD_OBJECTS, ObjectType.class);
+        try {
+            List<PrismObject<? extends ObjectType>> addedObjects = new ArrayList<>();
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+                for (PrismObject<? extends ObjectType> object : objects) {
+                    checkObjectToAdd(object, addOptions);
+                    if (object.getOid() == null || !addOptions.isOverwrite()) {
+                        new AddObjectContext<>(sqlRepoContext, object)
+                                .execute(jdbcSession);
+                        addedObjects.add(object);
+                    } else {
+                        overwriteObject(jdbcSession, object);
+                    }
+                }
+                jdbcSession.commit();
+            } catch (com.querydsl.core.QueryException e) { // Querydsl exception, not ours
+                if (e.getCause() instanceof PSQLException psqlException) {
+                    SqaleUtils.handlePostgresException(psqlException);
+                }
+                throw e;
+            }
+            // watchers are notified only after the commit, the batch may still be rolled back before that
+            for (PrismObject<? extends ObjectType> object : addedObjects) {
+                invokeConflictWatchers((w) -> w.afterAddObject(object.getOid(), object));
+            }
+        } catch (RepositoryException | RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            registerOperationFinish(opHandle);
+            operationResult.close();
+        }
+    }
+
     private <T extends ObjectType> String executeAddObject(
             @NotNull PrismObject<T> object)
             throws SchemaException, ObjectAlreadyExistsException {
@@ -353,37 +446,10 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             throws SchemaException, RepositoryException, ObjectAlreadyExistsException {
 
         String oid = newObject.getOid();
-        UUID oidUuid = SqaleUtils.oidToUuidMandatory(oid);
 
         long opHandle = registerOperationStart(OP_ADD_OBJECT_OVERWRITE, newObject);
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
-            try {
-                //noinspection ConstantConditions
-                RootUpdateContext<T, QObject<MObject>, MObject> updateContext =
-                        prepareUpdateContext(jdbcSession, newObject.getCompileTimeClass(), oidUuid);
-                PrismObject<T> prismObject = updateContext.getPrismObject();
-                // no precondition check for overwrite
-
-                invokeConflictWatchers(w -> w.beforeModifyObject(prismObject));
-                newObject.setUserData(RepositoryService.KEY_ORIGINAL_OBJECT, prismObject.clone());
-                ObjectDelta<T> delta = prismObject.diff(newObject, EquivalenceStrategy.LITERAL);
-                Collection<? extends ItemDelta<?, ?>> modifications = delta.getModifications();
-
-                logger.trace("overwriteAddObjectAttempt: originalOid={}, modifications={}",
-                        oid, modifications);
-                Collection<? extends ItemDelta<?, ?>> executedModifications =
-                        updateContext.execute(modifications, false);
-                replaceObject(updateContext, updateContext.getPrismObject());
-                if (!executedModifications.isEmpty()) {
-                    invokeConflictWatchers((w) -> w.afterModifyObject(oid));
-                }
-                logger.trace("OBJECT after:\n{}", prismObject.debugDumpLazily());
-            } catch (ObjectNotFoundException e) {
-                // so it is just plain addObject after all
-                new AddObjectContext<>(sqlRepoContext, newObject)
-                        .execute(jdbcSession);
-                invokeConflictWatchers((w) -> w.afterAddObject(oid, newObject));
-            }
+            overwriteObject(jdbcSession, newObject);
             jdbcSession.commit();
             return oid;
         } catch (RuntimeException e) {
@@ -394,6 +460,41 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    /** Overwrites (or adds) the object using provided JDBC session, does not commit. */
+    private <T extends ObjectType> void overwriteObject(
+            @NotNull JdbcSession jdbcSession, @NotNull PrismObject<T> newObject)
+            throws SchemaException, RepositoryException, ObjectAlreadyExistsException {
+        String oid = newObject.getOid();
+        UUID oidUuid = SqaleUtils.oidToUuidMandatory(oid);
+        try {
+            //noinspection ConstantConditions
+            RootUpdateContext<T, QObject<MObject>, MObject> updateContext =
+                    prepareUpdateContext(jdbcSession, newObject.getCompileTimeClass(), oidUuid);
+            PrismObject<T> prismObject = updateContext.getPrismObject();
+            // no precondition check for overwrite
+
+            invokeConflictWatchers(w -> w.beforeModifyObject(prismObject));
+            newObject.setUserData(RepositoryService.KEY_ORIGINAL_OBJECT, prismObject.clone());
+            ObjectDelta<T> delta = prismObject.diff(newObject, EquivalenceStrategy.LITERAL);
+            Collection<? extends ItemDelta<?, ?>> modifications = delta.getModifications();
+
+            logger.trace("overwriteAddObjectAttempt: originalOid={}, modifications={}",
+                    oid, modifications);
+            Collection<? extends ItemDelta<?, ?>> executedModifications =
+                    updateContext.execute(modifications, false);
+            replaceObject(updateContext, updateContext.getPrismObject());
+            if (!executedModifications.isEmpty()) {
+                invokeConflictWatchers((w) -> w.afterModifyObject(oid));
+            }
+            logger.trace("OBJECT after:\n{}", prismObject.debugDumpLazily());
+        } catch (ObjectNotFoundException e) {
+            // so it is just plain addObject after all
+            new AddObjectContext<>(sqlRepoContext, newObject)
+                    .execute(jdbcSession);
+            invokeConflictWatchers((w) -> w.afterAddObject(oid, newObject));
+        }
+    }
+
     @Override
     @NotNull
     public <T extends ObjectType> ModifyObjectResult<T> modifyObject(
@@ -609,6 +710,10 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             replaceObject(updateContext, updateContext.getPrismObject());
         } else {
             modifications = updateContext.execute(modifications);
+            if (!modifications.isEmpty() && prismObject.asObjectable() instanceof TaskType) {
+                // Separately stored statistics were applied when the task was read, now they are in the full object.
+                deleteTaskStatistics(updateContext.jdbcSession(), updateContext.objectOid());
+            }
         }
         logger.trace("OBJECT after:\n{}", prismObject.debugDumpLazily());
 
@@ -628,6 +733,10 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         updateContext.jdbcSession().newDelete(updateContext.entityPath())
                 .where(updateContext.entityPath().oid.eq(updateContext.objectOid()))
                 .execute();
+        if (newObject.asObjectable() instanceof TaskType) {
+            // The new object supersedes the separately stored statistics (if any).
+            deleteTaskStatistics(updateContext.jdbcSession(), updateContext.objectOid());
+        }
         try {
             // We add object again, this will ensure recreation of all indices and correct
             // table rows again
@@ -701,6 +810,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
 
         S object = rootMapping.toSchemaObjectComplete(
                 result, entityPath, getOptions, jdbcSession, RepoModifyOptions.isForceReindex(options));
+        if (object instanceof TaskType task) {
+            QTaskMapping.get().applyStoredStatistics(task, jdbcSession);
+        }
 
         R rootRow = rootMapping.newRowObject();
         rootRow.oid = oid;
@@ -1786,9 +1898,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                 .collect(Collectors.toList());
 
         long opHandle = registerOperationStart(OP_IS_DESCENDANT, OrgType.class);
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
-            jdbcSession.executeStatement("CALL m_refresh_org_closure()");
-
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
             QOrgClosure oc = new QOrgClosure();
             long count = jdbcSession.newQuery()
                     .from(oc)
@@ -1814,9 +1924,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
 
         long opHandle = registerOperationStart(OP_IS_ANCESTOR, OrgType.class);
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
-            jdbcSession.executeStatement("CALL m_refresh_org_closure()");
-
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
             QOrgClosure oc = new QOrgClosure();
             long count = jdbcSession.newQuery()
                     .from(oc)
@@ -1999,6 +2107,460 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    // region Work buckets
+    @Override
+    public boolean supportsWorkBucketTable() {
+        return true;
+    }
+
+    @Override
+    public @NotNull WorkBucketAllocationResult allocateWorkBucket(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            @NotNull String workerOid,
+            @NotNull WorkBucketsCreator bucketsCreator,
+            @NotNull OperationResult parentResult) throws SchemaException {
+        UUID coordinatorUuid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+        UUID workerUuid = SqaleUtils.oidToUuidMandatory(workerOid);
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_ALLOCATE_WORK_BUCKET)
+                .addParam(OperationResult.PARAM_OID, coordinatorOid)
+                .addParam("activityPath", activityPath.toString())
+                .addParam("workerOid", workerOid)
+                .build();
+
+        try {
+            WorkBucketAllocationResult allocationResult =
+                    executeAllocateWorkBucket(coordinatorUuid, activityPath.toString(), workerUuid, bucketsCreator);
+            operationResult.addReturn("situation", allocationResult.situation().toString());
+            return allocationResult;
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    /**
+     * Allocates the bucket in a single transaction.
+     * Ready buckets are locked by `FOR UPDATE SKIP LOCKED`, so the workers never wait for each other when
+     * taking existing buckets. Creation of new buckets is serialized by transaction-level advisory lock
+     * specific for the coordinator and the activity. The creator is expected to create buckets in batches,
+     * so that the lock is taken only rarely; the first of the new buckets is delegated, the others stay ready.
+     */
+    private WorkBucketAllocationResult executeAllocateWorkBucket(
+            UUID coordinatorOid, String activityPath, UUID workerOid, WorkBucketsCreator bucketsCreator)
+            throws SchemaException {
+        long opHandle = registerOperationStart(OP_ALLOCATE_WORK_BUCKET, TaskType.class);
+        QTaskBucket tb = new QTaskBucket();
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            MTaskBucket row = findWorkBucket(jdbcSession, tb, coordinatorOid, activityPath,
+                    tb.state.eq(WorkBucketStateType.DELEGATED).and(tb.workerOid.eq(workerOid)), false);
+            if (row != null) {
+                jdbcSession.commit();
+                return new WorkBucketAllocationResult(toWorkBucket(row), Situation.FOUND_DELEGATED_TO_ME);
+            }
+
+            row = findWorkBucket(jdbcSession, tb, coordinatorOid, activityPath,
+                    tb.state.eq(WorkBucketStateType.READY), true);
+            if (row == null) {
+                // Only one worker creates new buckets at a time, others wait here.
+                jdbcSession.newQuery()
+                        .select(Expressions.template(Object.class,
+                                "pg_advisory_xact_lock(hashtextextended({0}, 0))",
+                                QTaskBucket.TABLE_NAME + ":" + coordinatorOid + ":" + activityPath))
+                        .fetchOne();
+                // Buckets may have been created while we were waiting for the lock.
+                row = findWorkBucket(jdbcSession, tb, coordinatorOid, activityPath,
+                        tb.state.eq(WorkBucketStateType.READY), true);
+            }
+            if (row != null) {
+                jdbcSession.newUpdate(tb)
+                        .set(tb.state, WorkBucketStateType.DELEGATED)
+                        .set(tb.workerOid, workerOid)
+                        .where(tb.ownerOid.eq(coordinatorOid)
+                                .and(tb.activityPath.eq(activityPath))
+                                .and(tb.sequentialNumber.eq(row.sequentialNumber)))
+                        .execute();
+                row.state = WorkBucketStateType.DELEGATED;
+                row.workerOid = workerOid;
+                jdbcSession.commit();
+                return new WorkBucketAllocationResult(toWorkBucket(row), Situation.FOUND_READY);
+            }
+
+            MTaskBucket lastRow = jdbcSession.newQuery()
+                    .select(tb)
+                    .from(tb)
+                    .where(tb.ownerOid.eq(coordinatorOid).and(tb.activityPath.eq(activityPath)))
+                    .orderBy(tb.sequentialNumber.desc())
+                    .limit(1)
+                    .fetchOne();
+            List<WorkBucketType> newBuckets =
+                    bucketsCreator.createBuckets(lastRow != null ? toWorkBucket(lastRow) : null);
+            if (newBuckets.isEmpty()) {
+                // Any bucket that is not complete counts, including ready buckets that were skipped above
+                // because they are locked by other workers (being delegated right now). This plain read does not
+                // skip the locked rows.
+                boolean someDelegated = jdbcSession.newQuery()
+                        .select(tb.sequentialNumber)
+                        .from(tb)
+                        .where(tb.ownerOid.eq(coordinatorOid)
+                                .and(tb.activityPath.eq(activityPath))
+                                .and(tb.state.ne(WorkBucketStateType.COMPLETE)))
+                        .fetchFirst() != null;
+                jdbcSession.commit();
+                return new WorkBucketAllocationResult(null,
+                        someDelegated ? Situation.NOTHING_MORE_SOME_DELEGATED : Situation.NOTHING_MORE_DEFINITE);
+            }
+
+            SQLInsertClause insert = jdbcSession.newInsert(tb);
+            for (int i = 0; i < newBuckets.size(); i++) {
+                WorkBucketType newBucket = newBuckets.get(i);
+                boolean first = i == 0;
+                insert.set(tb.ownerOid, coordinatorOid)
+                        .set(tb.activityPath, activityPath)
+                        .set(tb.sequentialNumber, newBucket.getSequentialNumber())
+                        .set(tb.state, first ? WorkBucketStateType.DELEGATED : WorkBucketStateType.READY)
+                        .set(tb.workerOid, first ? workerOid : null)
+                        .set(tb.bucket, createWorkBucketSerializedForm(newBucket))
+                        .addBatch();
+            }
+            insert.execute();
+            jdbcSession.commit();
+            logger.trace("Created {} new work bucket(s) for {}/'{}'", newBuckets.size(), coordinatorOid, activityPath);
+
+            WorkBucketType bucketToUse = newBuckets.get(0).clone()
+                    .state(WorkBucketStateType.DELEGATED)
+                    .workerRef(workerOid.toString(), TaskType.COMPLEX_TYPE);
+            return new WorkBucketAllocationResult(bucketToUse, Situation.CREATED_NEW);
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+    }
+
+    /** Returns the first bucket (by sequential number) matching the condition, optionally locking it. */
+    private @Nullable MTaskBucket findWorkBucket(JdbcSession jdbcSession, QTaskBucket tb,
+            UUID coordinatorOid, String activityPath, Predicate condition, boolean lockSkippingLocked) {
+        SQLQuery<MTaskBucket> query = jdbcSession.newQuery()
+                .select(tb)
+                .from(tb)
+                .where(tb.ownerOid.eq(coordinatorOid)
+                        .and(tb.activityPath.eq(activityPath))
+                        .and(condition))
+                .orderBy(tb.sequentialNumber.asc())
+                .limit(1);
+        if (lockSkippingLocked) {
+            query.forUpdate()
+                    .addFlag(QueryFlag.Position.END, " skip locked");
+        }
+        return query.fetchOne();
+    }
+
+    @Override
+    public @Nullable Integer completeWorkBucket(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            int sequentialNumber,
+            @NotNull OperationResult parentResult) {
+        UUID coordinatorUuid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_COMPLETE_WORK_BUCKET)
+                .addParam(OperationResult.PARAM_OID, coordinatorOid)
+                .addParam("activityPath", activityPath.toString())
+                .addParam("sequentialNumber", sequentialNumber)
+                .build();
+
+        try {
+            return executeCompleteWorkBucket(coordinatorUuid, activityPath.toString(), sequentialNumber);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    private Integer executeCompleteWorkBucket(UUID coordinatorOid, String activityPath, int sequentialNumber) {
+        long opHandle = registerOperationStart(OP_COMPLETE_WORK_BUCKET, TaskType.class);
+        QTaskBucket tb = new QTaskBucket();
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            Predicate bucketPredicate = tb.ownerOid.eq(coordinatorOid)
+                    .and(tb.activityPath.eq(activityPath))
+                    .and(tb.sequentialNumber.eq(sequentialNumber));
+            long updated = jdbcSession.newUpdate(tb)
+                    .set(tb.state, WorkBucketStateType.COMPLETE)
+                    .setNull(tb.workerOid)
+                    .where(bucketPredicate, tb.state.eq(WorkBucketStateType.DELEGATED))
+                    .execute();
+            if (updated == 0) {
+                WorkBucketStateType state = jdbcSession.newQuery()
+                        .select(tb.state)
+                        .from(tb)
+                        .where(bucketPredicate)
+                        .fetchOne();
+                if (state == null) {
+                    return null; // not managed by the table
+                }
+                throw new IllegalStateException("Bucket #" + sequentialNumber + " in " + coordinatorOid
+                        + "/'" + activityPath + "' is not delegated: " + state);
+            }
+            long complete = jdbcSession.newQuery()
+                    .from(tb)
+                    .where(tb.ownerOid.eq(coordinatorOid)
+                            .and(tb.activityPath.eq(activityPath))
+                            .and(tb.state.eq(WorkBucketStateType.COMPLETE)))
+                    .fetchCount();
+            jdbcSession.commit();
+            return (int) complete;
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+    }
+
+    @Override
+    public int releaseWorkBuckets(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            @NotNull String workerOid,
+            @Nullable Integer sequentialNumber,
+            @NotNull OperationResult parentResult) {
+        UUID coordinatorUuid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+        UUID workerUuid = SqaleUtils.oidToUuidMandatory(workerOid);
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_RELEASE_WORK_BUCKETS)
+                .addParam(OperationResult.PARAM_OID, coordinatorOid)
+                .addParam("activityPath", activityPath.toString())
+                .addParam("workerOid", workerOid)
+                .addParam("sequentialNumber", String.valueOf(sequentialNumber))
+                .build();
+
+        try {
+            QTaskBucket tb = new QTaskBucket();
+            Predicate predicate = tb.state.eq(WorkBucketStateType.DELEGATED).and(tb.workerOid.eq(workerUuid));
+            if (sequentialNumber != null) {
+                predicate = ExpressionUtils.and(predicate, tb.sequentialNumber.eq(sequentialNumber));
+            }
+            return executeReturnWorkBucketsToReady(
+                    OP_RELEASE_WORK_BUCKETS, tb, coordinatorUuid, activityPath.toString(), predicate);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    @Override
+    public int reclaimWorkBuckets(
+            @NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath,
+            @NotNull Collection<String> liveWorkerOids,
+            @NotNull OperationResult parentResult) {
+        UUID coordinatorUuid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_RECLAIM_WORK_BUCKETS)
+                .addParam(OperationResult.PARAM_OID, coordinatorOid)
+                .addParam("activityPath", activityPath.toString())
+                .addParam("liveWorkers", liveWorkerOids.size())
+                .build();
+
+        try {
+            QTaskBucket tb = new QTaskBucket();
+            Predicate predicate = tb.state.eq(WorkBucketStateType.DELEGATED);
+            if (!liveWorkerOids.isEmpty()) {
+                predicate = ExpressionUtils.and(predicate,
+                        tb.workerOid.isNull().or(tb.workerOid.notIn(
+                                liveWorkerOids.stream()
+                                        .map(SqaleUtils::oidToUuidMandatory)
+                                        .collect(Collectors.toList()))));
+            }
+            return executeReturnWorkBucketsToReady(
+                    OP_RECLAIM_WORK_BUCKETS, tb, coordinatorUuid, activityPath.toString(), predicate);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    private int executeReturnWorkBucketsToReady(
+            String opName, QTaskBucket tb, UUID coordinatorOid, String activityPath, Predicate predicate) {
+        long opHandle = registerOperationStart(opName, TaskType.class);
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            long updated = jdbcSession.newUpdate(tb)
+                    .set(tb.state, WorkBucketStateType.READY)
+                    .setNull(tb.workerOid)
+                    .where(tb.ownerOid.eq(coordinatorOid), tb.activityPath.eq(activityPath), predicate)
+                    .execute();
+            jdbcSession.commit();
+            logger.trace("Returned {} work bucket(s) to READY state in {}/'{}'", updated, coordinatorOid, activityPath);
+            return (int) updated;
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+    }
+
+    @Override
+    public void deleteWorkBuckets(
+            @NotNull String coordinatorOid,
+            @Nullable ActivityPath activityPath,
+            @NotNull OperationResult parentResult) {
+        UUID coordinatorUuid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_DELETE_WORK_BUCKETS)
+                .addParam(OperationResult.PARAM_OID, coordinatorOid)
+                .addParam("activityPath", activityPath != null ? activityPath.toString() : null)
+                .build();
+
+        long opHandle = registerOperationStart(OP_DELETE_WORK_BUCKETS, TaskType.class);
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            QTaskBucket tb = new QTaskBucket();
+            SQLDeleteClause delete = jdbcSession.newDelete(tb)
+                    .where(tb.ownerOid.eq(coordinatorUuid));
+            if (activityPath != null) {
+                delete.where(tb.activityPath.eq(activityPath.toString()));
+            }
+            long deleted = delete.execute();
+            jdbcSession.commit();
+            logger.trace("Deleted {} work bucket(s) in {}/{}", deleted, coordinatorOid, activityPath);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            registerOperationFinish(opHandle);
+            operationResult.close();
+        }
+    }
+
+    /** State and worker are stored in columns only; the serialized form contains the number and the content. */
+    private byte[] createWorkBucketSerializedForm(WorkBucketType bucket) throws SchemaException {
+        WorkBucketType bucketToStore = bucket.cloneWithoutId()
+                .state(null)
+                .workerRef(null);
+        return sqlRepoContext.createStringSerializer()
+                .options(SerializationOptions.createSerializeReferenceNamesForNullOids().skipWhitespaces(true))
+                .serializeRealValue(bucketToStore, ActivityBucketingStateType.F_BUCKET)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private WorkBucketType toWorkBucket(MTaskBucket row) throws SchemaException {
+        WorkBucketType bucket = sqlRepoContext.parsePrismObject(row.bucket, WorkBucketType.class).prismValue;
+        bucket.setState(row.state);
+        if (row.workerOid != null) {
+            bucket.workerRef(row.workerOid.toString(), TaskType.COMPLEX_TYPE);
+        }
+        return bucket;
+    }
+    // endregion
+
+    // region Task statistics
+    @Override
+    public boolean supportsTaskStatisticsTable() {
+        return true;
+    }
+
+    @Override
+    public void storeTaskStatistics(
+            @NotNull String taskOid,
+            @NotNull Collection<? extends ItemDelta<?, ?>> modifications,
+            @NotNull OperationResult parentResult) throws ObjectNotFoundException, SchemaException {
+        UUID oidUuid = SqaleUtils.oidToUuidMandatory(taskOid);
+        for (ItemDelta<?, ?> modification : modifications) {
+            Validate.isTrue(modification.isReplace() && !modification.isAdd() && !modification.isDelete(),
+                    "Only replace deltas can be stored as task statistics: %s", modification);
+        }
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_STORE_TASK_STATISTICS)
+                .addParam(OperationResult.PARAM_OID, taskOid)
+                .addParam("modifications", modifications.size())
+                .build();
+
+        try {
+            executeStoreTaskStatistics(oidUuid, modifications);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    /**
+     * Stores (upserts) the deltas, one row per item path.
+     * The task row is locked in share mode, so the statistics can't be stored concurrently with a regular
+     * modification of the task, which moves them to the full object and deletes them from the table.
+     */
+    private void executeStoreTaskStatistics(
+            UUID oid, Collection<? extends ItemDelta<?, ?>> modifications)
+            throws ObjectNotFoundException, SchemaException {
+        long opHandle = registerOperationStart(OP_STORE_TASK_STATISTICS, TaskType.class);
+        QTask t = QTaskMapping.get().defaultAlias();
+        QTaskStatistics tst = new QTaskStatistics();
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            UUID found = jdbcSession.newQuery()
+                    .select(t.oid)
+                    .from(t)
+                    .where(t.oid.eq(oid))
+                    .forShare()
+                    .fetchOne();
+            if (found == null) {
+                throw new ObjectNotFoundException(TaskType.class, oid.toString(), false);
+            }
+
+            for (ItemDelta<?, ?> modification : modifications) {
+                String itemPath = prismContext().itemPathSerializer().serializeStandalone(modification.getPath());
+                jdbcSession.newInsert(tst)
+                        .set(tst.ownerOid, oid)
+                        .set(tst.itemPath, itemPath)
+                        .set(tst.delta, createTaskStatisticsSerializedForm(oid, modification))
+                        // upsert, see also QLookupTableRowMapping.insert; seq gets the next value in both cases
+                        .addFlag(QueryFlag.Position.END, " ON CONFLICT (ownerOid, itemPath)"
+                                + " DO UPDATE SET delta = EXCLUDED.delta, seq = EXCLUDED.seq")
+                        .execute();
+            }
+            jdbcSession.commit();
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+    }
+
+    /** Stored as a single-item object delta, the same way as deltas are stored in the audit. */
+    private byte[] createTaskStatisticsSerializedForm(UUID oid, ItemDelta<?, ?> modification)
+            throws SchemaException {
+        ObjectDelta<TaskType> delta = prismContext().deltaFactory().object().create(TaskType.class, ChangeType.MODIFY);
+        delta.setOid(oid.toString());
+        delta.addModification(modification.clone());
+        DeltaConversionOptions options = DeltaConversionOptions.createSerializeReferenceNames();
+        return DeltaConvertor.serializeDelta(DeltaConvertor.toObjectDeltaType(delta, options), options,
+                        sqlRepoContext.getJdbcRepositoryConfiguration().getFullObjectFormat())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void deleteTaskStatistics(JdbcSession jdbcSession, UUID oid) {
+        QTaskStatistics tst = new QTaskStatistics();
+        long deleted = jdbcSession.newDelete(tst)
+                .where(tst.ownerOid.eq(oid))
+                .execute();
+        if (deleted > 0) {
+            logger.trace("Deleted {} separately stored statistics item(s) of task {}", deleted, oid);
+        }
+    }
+    // endregion
+
     @Override
     public @NotNull String getRepositoryType() {
         return REPOSITORY_IMPL_NAME;
@@ -2033,25 +2595,21 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                     sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
                 QOrgClosure oc = new QOrgClosure();
                 closureCount = jdbcSession.newQuery().from(oc).fetchCount();
-                // this is CTE used also for m_org_closure materialized view (here with count)
+                // Closure computed on the fly from the parent-org refs (here with count).
+                // The closure table is maintained by triggers, this checks their results.
                 QOrg o = QOrgMapping.getOrgMapping().defaultAlias();
-                QObjectReference<?> ref = QObjectReferenceMapping.getForParentOrg().newAlias("ref");
                 QObjectReference<?> par = QObjectReferenceMapping.getForParentOrg().newAlias("par");
                 //noinspection unchecked
                 expectedCount = jdbcSession.newQuery()
                         .withRecursive(oc, oc.ancestorOid, oc.descendantOid)
                         .as(new SQLQuery<>().union(
-                                // non-recursive term: initial select
+                                // non-recursive term: identity rows for all orgs
                                 new SQLQuery<>().select(o.oid, o.oid)
-                                        .from(o)
-                                        .where(new SQLQuery<>().select(Expressions.ONE)
-                                                .from(ref)
-                                                .where(ref.targetOid.eq(o.oid)
-                                                        .or(ref.ownerOid.eq(o.oid)))
-                                                .exists()),
+                                        .from(o),
                                 new SQLQuery<>().select(par.targetOid, oc.descendantOid)
                                         .from(par, oc)
-                                        .where(par.ownerOid.eq(oc.ancestorOid))))
+                                        .where(par.ownerOid.eq(oc.ancestorOid)
+                                                .and(par.ownerType.eq(MObjectType.ORG)))))
                         .from(oc)
                         .fetchCount();
                 logger.info("Org closure consistency checked - closure count {}, expected count {}",
@@ -218,6 +218,7 @@ public class SqaleServiceBase {
 
             addGlobalMetadataInfo(jdbcSession, details);
         }
+        addCatalogCacheInfo(details);
 
         details.sort((o1, o2) -> String.CASE_INSENSITIVE_ORDER.compare(o1.getLabel(), o2.getLabel()));
 
@@ -235,6 +236,13 @@ public class SqaleServiceBase {
         }
     }
 
+    private void addCatalogCacheInfo(List<LabeledString> details) {
+        details.add(new LabeledString("uriCache", "size=" + sqlRepoContext.getUriCacheSize()
+                + ", " + sqlRepoContext.getUriCacheStatistics()));
+        details.add(new LabeledString("extItemCache", "size=" + sqlRepoContext.getExtItemCacheSize()
+                + ", " + sqlRepoContext.getExtItemCacheStatistics()));
+    }
+
     private String getTransactionIsolation(
             Connection connection, JdbcRepositoryConfiguration config) {
         String value = config.getTransactionIsolation() != null ?
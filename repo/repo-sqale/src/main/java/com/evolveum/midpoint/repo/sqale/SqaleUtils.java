@@ -38,10 +38,16 @@ public class SqaleUtils {
      */
     public static final String SCHEMA_AUDIT_CHANGE_NUMBER = "schemaAuditChangeNumber";
 
-    public static final int CURRENT_SCHEMA_CHANGE_NUMBER = 25;
+    public static final int CURRENT_SCHEMA_CHANGE_NUMBER = 28;
 
     public static final int CURRENT_SCHEMA_AUDIT_CHANGE_NUMBER = 8;
 
+    /** PostgreSQL SQL state for serialization failure (transaction rollback). */
+    private static final String SQL_STATE_SERIALIZATION_FAILURE = "40001";
+
+    /** PostgreSQL SQL state for detected deadlock (transaction rollback). */
+    private static final String SQL_STATE_DEADLOCK_DETECTED = "40P01";
+
     /** User Data Key used to attach owner Oid to prism container values in order to propagate OID even if parent
      * full object is not present.
      *
@@ -156,6 +162,19 @@ public class SqaleUtils {
         return PSQLState.UNIQUE_VIOLATION.getState().equals(psqlException.getSQLState());
     }
 
+    /**
+     * Returns true if the exception was caused by a deadlock or a serialization failure,
+     * i.e. the transaction was rolled back by the database and can be simply retried.
+     */
+    public static boolean isTransactionSerializationProblem(Exception exception) {
+        PSQLException psqlException = ExceptionUtil.findCause(exception, PSQLException.class);
+        if (psqlException == null) {
+            return false;
+        }
+        String state = psqlException.getSQLState();
+        return SQL_STATE_SERIALIZATION_FAILURE.equals(state) || SQL_STATE_DEADLOCK_DETECTED.equals(state);
+    }
+
     public static String toString(Object object) {
         return new ToStringUtil(object).toString();
     }
@@ -10,9 +10,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import javax.xml.namespace.QName;
 
+import com.querydsl.core.QueryFlag;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -47,6 +49,11 @@ import com.evolveum.midpoint.util.logging.TraceManager;
  * This could be avoided if the runtime maps were updated *only* after the row was successfully
  * read from the DB in other operations - which beats the purposes of those fast operations.
  * Instead, we risk adding the row that is not used, it is no harm; it will likely be used later.
+ *
+ * No method of this cache holds a lock, not even when the database is accessed.
+ * Concurrent inserts of the same URI are resolved by `ON CONFLICT DO NOTHING` and reading the row back.
+ * When an unknown ID is encountered, all the rows newer than the newest known one are loaded,
+ * because a single unknown ID typically means that other node added more URIs.
  */
 public class UriCache {
 
@@ -61,11 +68,19 @@ public class UriCache {
      */
     public static final int UNKNOWN_ID = -1;
 
+    /** How many times the insert is attempted if the transaction fails on deadlock or serialization failure. */
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
     private final Map<Integer, String> idToUri = new ConcurrentHashMap<>();
     private final Map<String, Integer> uriToId = new ConcurrentHashMap<>();
 
+    /** The highest ID in the cache, used to load rows created by other nodes. */
+    private final AtomicInteger maxKnownId = new AtomicInteger();
+
+    private final CatalogCacheStatistics statistics = new CatalogCacheStatistics();
+
     // WARNING: Each .get() creates new connection, always use in try-with-resource block!
-    private Supplier<JdbcSession> jdbcSessionSupplier;
+    private volatile Supplier<JdbcSession> jdbcSessionSupplier;
 
     /**
      * Initializes the URI cache.
@@ -77,6 +92,8 @@ public class UriCache {
         // this can be called repeatedly in tests, so the clear may be necessary
         idToUri.clear();
         uriToId.clear();
+        maxKnownId.set(0);
+        statistics.reset();
 
         QUri uri = QUri.DEFAULT;
         List<MUri> result;
@@ -101,6 +118,7 @@ public class UriCache {
 
         idToUri.put(row.id, row.uri);
         uriToId.put(row.uri, row.id);
+        maxKnownId.accumulateAndGet(row.id, Math::max);
     }
 
     /** Returns ID for QName, possibly {@code null} - does not work with underlying database. */
@@ -164,6 +182,8 @@ public class UriCache {
         String uri = idToUri.get(id);
         if (uri == null) {
             uri = retrieveUriFromDb(id);
+        } else {
+            statistics.recordHit();
         }
         return uri;
     }
@@ -172,6 +192,8 @@ public class UriCache {
         Integer id = uriToId.get(uri);
         if (id == null) {
             id = retrieveIdFromDb(uri);
+        } else {
+            statistics.recordHit();
         }
         return id;
     }
@@ -180,7 +202,7 @@ public class UriCache {
      * Returns ID for URI creating new cache row in DB as needed.
      * Returns null for null URI parameter.
      */
-    public synchronized @Nullable Integer processCacheableUri(@Nullable Object uri) {
+    public @Nullable Integer processCacheableUri(@Nullable Object uri) {
         if (uri == null) {
             return null;
         }
@@ -197,31 +219,51 @@ public class UriCache {
             return id;
         }
 
-        QUri qu = QUri.DEFAULT;
-        try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startTransaction()) {
-            id = jdbcSession.newInsert(qu)
-                    .set(qu.uri, uriString)
-                    .executeWithKey(qu.id);
-            jdbcSession.commit();
+        long start = System.nanoTime();
+        id = insertUri(uriString);
+        statistics.recordMiss(start);
 
-            updateMaps(MUri.of(id, uriString));
-        } catch (RuntimeException e) {
-
-            if (SqaleUtils.isUniqueConstraintViolation(e)) {
-                // Insert failed, record exists, so lets try to retrieve it
-                Integer retId = retrieveIdFromDb(uriString);
-                if (retId == null) {
-                    throw new IllegalStateException("Couldn't insert uri to cache and uri was not present in cache.", e);
-                }
-                return retId;
+        if (id == null) {
+            // Insert did nothing, record exists, so lets try to retrieve it
+            id = retrieveIdFromDb(uriString);
+            if (id == null) {
+                throw new IllegalStateException("Couldn't insert uri to cache and uri was not present in cache.");
             }
-            throw e;
+            return id;
         }
+
+        updateMaps(MUri.of(id, uriString));
+        statistics.recordInsertedRows(1);
         LOGGER.debug("URI cache inserted URI={} under ID={}", uri, id);
         return id;
     }
 
+    /**
+     * Inserts the URI and returns its new ID, or null if the URI was inserted concurrently
+     * (by other thread or node).
+     * If the transaction is rolled back because of a deadlock or serialization failure, it is retried.
+     */
+    private Integer insertUri(String uriString) {
+        QUri qu = QUri.DEFAULT;
+        for (int attempt = 1; ; attempt++) {
+            try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startTransaction()) {
+                Integer id = jdbcSession.newInsert(qu)
+                        .set(qu.uri, uriString)
+                        .addFlag(QueryFlag.Position.END, " ON CONFLICT DO NOTHING")
+                        .executeWithKey(qu.id);
+                jdbcSession.commit();
+                return id;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_INSERT_ATTEMPTS || !SqaleUtils.isTransactionSerializationProblem(e)) {
+                    throw e;
+                }
+                LOGGER.debug("URI cache insert failed on attempt {}, retrying: {}", attempt, e.getMessage());
+            }
+        }
+    }
+
     private Integer retrieveIdFromDb(String uriString) {
+        long start = System.nanoTime();
         MUri row;
         try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startReadOnlyTransaction()) {
             row = jdbcSession.newQuery()
@@ -230,6 +272,7 @@ public class UriCache {
                     .where(QUri.DEFAULT.uri.eq(uriString))
                     .fetchOne();
         }
+        statistics.recordMiss(start);
         if (row == null) {
             return null;
         }
@@ -237,19 +280,37 @@ public class UriCache {
         return row.id;
     }
 
+    /**
+     * Loads all rows newer than the newest known row, plus the row with the specified ID,
+     * which may be older if the sequence values were not committed in order.
+     */
     private String retrieveUriFromDb(Integer id) {
-        MUri row;
+        long start = System.nanoTime();
+        QUri qu = QUri.DEFAULT;
+        List<MUri> rows;
         try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startReadOnlyTransaction()) {
-            row = jdbcSession.newQuery()
-                    .select(QUri.DEFAULT)
-                    .from(QUri.DEFAULT)
-                    .where(QUri.DEFAULT.id.eq(id))
-                    .fetchOne();
+            rows = jdbcSession.newQuery()
+                    .select(qu)
+                    .from(qu)
+                    .where(qu.id.gt(maxKnownId.get()).or(qu.id.eq(id)))
+                    .fetch();
         }
-        if (row == null) {
-            return null;
+        statistics.recordMiss(start);
+        for (MUri row : rows) {
+            updateMaps(row);
         }
-        updateMaps(row);
-        return row.uri;
+        if (rows.size() > 1) {
+            statistics.recordPreloadedRows(rows.size());
+            LOGGER.debug("URI cache loaded {} new rows, highest known ID is {}", rows.size(), maxKnownId);
+        }
+        return idToUri.get(id);
+    }
+
+    public @NotNull CatalogCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    public int size() {
+        return idToUri.size();
     }
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Bounded write-behind queue for audit records.
+ *
+ * Records submitted by the callers are collected by a single writer thread and written in batches,
+ * each batch in a single transaction (see {@link SqaleAuditService#executeAuditBatch(List)}).
+ * A batch is written when {@link #flushSize} records are collected, or when the oldest record
+ * in the batch waits for {@link #flushIntervalMs}, whichever comes first.
+ *
+ * When the queue is full, {@link #submit(AuditEventRecord)} blocks until there is a free space (back-pressure).
+ * Depending on the {@link Durability}, the caller then waits for the batch to be committed, or returns immediately.
+ *
+ * If a batch cannot be written, its records are written one by one, so a single bad record
+ * does not cause the loss of the whole batch.
+ *
+ * After {@link #shutdown()} is started, the records are written directly by the submitting thread.
+ * The {@link #stoppingLock} ensures that no record is put into the queue after the writer thread was told to stop;
+ * so every queued record is either written, or (if the writer does not finish in time) failed.
+ */
+public class AuditWriteBehindQueue {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AuditWriteBehindQueue.class);
+
+    private static final String WRITER_THREAD_NAME = "midpoint-audit-writer";
+
+    /** How long do we wait for the writer thread to write out the queued records on shutdown. */
+    private static final long SHUTDOWN_TIMEOUT_MS = 30_000L;
+
+    /** When is the {@link #submit(AuditEventRecord)} method allowed to return. */
+    public enum Durability {
+
+        /**
+         * After the record is committed to the database. The caller gets the write error (if any),
+         * and the record has its repository ID set. This is the default.
+         */
+        COMMIT,
+
+        /**
+         * Right after the record is put into the queue. The records in the queue are lost if the node crashes,
+         * and write errors are only logged.
+         */
+        QUEUE
+    }
+
+    @NotNull private final BlockingQueue<PendingRecord> queue;
+    @NotNull private final Consumer<List<AuditEventRecord>> batchWriter;
+    @NotNull private final Consumer<AuditEventRecord> singleWriter;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    @NotNull private final Durability durability;
+
+    @NotNull private final Thread writerThread;
+
+    /**
+     * Held (as read lock) by {@link #submit(AuditEventRecord)} while checking {@link #stopping} and enqueueing the record;
+     * and (as write lock) by {@link #shutdown()} when setting {@link #stopping}.
+     */
+    @NotNull private final ReadWriteLock stoppingLock = new ReentrantReadWriteLock();
+
+    private volatile boolean stopping;
+
+    public AuditWriteBehindQueue(
+            @NotNull Consumer<List<AuditEventRecord>> batchWriter,
+            @NotNull Consumer<AuditEventRecord> singleWriter,
+            int queueSize,
+            int flushSize,
+            long flushIntervalMs,
+            @NotNull Durability durability) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchWriter = batchWriter;
+        this.singleWriter = singleWriter;
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.durability = durability;
+
+        writerThread = new Thread(this::writeLoop, WRITER_THREAD_NAME);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Puts the record into the queue, blocking if the queue is full.
+     * In {@link Durability#COMMIT} mode waits until the record is committed.
+     */
+    public void submit(@NotNull AuditEventRecord record) {
+        PendingRecord pending = new PendingRecord(record);
+        try {
+            boolean queued;
+            stoppingLock.readLock().lockInterruptibly();
+            try {
+                queued = !stopping;
+                if (queued && !queue.offer(pending)) {
+                    LOGGER.debug("Audit write-behind queue is full ({} records), waiting for a free space", queue.size());
+                    queue.put(pending);
+                }
+            } finally {
+                stoppingLock.readLock().unlock();
+            }
+            if (!queued) {
+                // The writer may be already gone, let's write the record directly.
+                singleWriter.accept(record);
+            } else if (durability == Durability.COMMIT) {
+                pending.written.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for the audit record to be written", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new SystemException(cause.getMessage(), cause);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(flushSize);
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Not expected, shutdown does not interrupt the writer; the remaining records will be written
+                // in the next cycles.
+                LOGGER.debug("Audit writer interrupted, stopping = {}", stopping);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        LOGGER.debug("Audit writer thread finished");
+    }
+
+    /** Waits for the first record, then collects more until the batch is full or the flush interval elapses. */
+    private void collectBatch(List<PendingRecord> batch) throws InterruptedException {
+        PendingRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= flushSize || remaining <= 0 || stopping) {
+                return;
+            }
+            PendingRecord next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        try {
+            batchWriter.accept(batch.stream().map(p -> p.record).toList());
+            for (PendingRecord pending : batch) {
+                pending.written.complete(null);
+            }
+            LOGGER.trace("Written a batch of {} audit records", batch.size());
+        } catch (Throwable t) {
+            // Any problem (including errors) must not stop the writer thread, the submitters would wait forever.
+            LOGGER.warn("Couldn't write a batch of {} audit records, writing them one by one: {}",
+                    batch.size(), t.getMessage(), t);
+            for (PendingRecord pending : batch) {
+                writeSingle(pending);
+            }
+        }
+    }
+
+    private void writeSingle(PendingRecord pending) {
+        try {
+            singleWriter.accept(pending.record);
+            pending.written.complete(null);
+        } catch (Throwable t) {
+            if (durability == Durability.QUEUE) {
+                // Nobody waits for the result, so this is the only place where the problem is reported.
+                LOGGER.error("Couldn't write audit record {}: {}", pending.record, t.getMessage(), t);
+            }
+            pending.written.completeExceptionally(t);
+        }
+    }
+
+    /** Stops accepting new records, writes out the queued ones and stops the writer thread. */
+    public void shutdown() {
+        // Waits for the submitters that are just putting their records into the queue.
+        // The writer thread is still running, so they do not wait for the free space forever.
+        stoppingLock.writeLock().lock();
+        try {
+            stopping = true;
+        } finally {
+            stoppingLock.writeLock().unlock();
+        }
+        LOGGER.info("Shutting down audit write-behind queue, {} records to be written", queue.size());
+
+        // Not interrupting the writer thread, as that could break the batch being written.
+        // It notices the flag after the current poll times out (see flushIntervalMs).
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            LOGGER.warn("Audit writer thread did not finish in {} ms, {} queued audit records will not be written",
+                    SHUTDOWN_TIMEOUT_MS, queue.size());
+            // Nothing is added to the queue anymore. Let us release the submitters waiting for these records.
+            PendingRecord pending;
+            while ((pending = queue.poll()) != null) {
+                pending.written.completeExceptionally(
+                        new SystemException("Audit write-behind queue was shut down before the record was written"));
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "queued=" + queue.size() +
+                ", flushSize=" + flushSize +
+                ", flushIntervalMs=" + flushIntervalMs +
+                ", durability=" + durability +
+                '}';
+    }
+
+    private static class PendingRecord {
+
+        @NotNull private final AuditEventRecord record;
+        @NotNull private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private PendingRecord(@NotNull AuditEventRecord record) {
+            this.record = record;
+        }
+    }
+}
@@ -16,6 +16,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.*;
 import javax.xml.datatype.Duration;
@@ -68,12 +71,17 @@ import com.evolveum.prism.xml.ns._public.types_3.ObjectDeltaType;
  */
 public class SqaleAuditService extends SqaleServiceBase implements AuditService {
 
+    private static final String OP_AUDIT_BATCH = "auditBatch";
+
     private final SqlQueryExecutor sqlQueryExecutor;
 
     // set from SystemConfigurationAuditType
     private boolean escapeIllegalCharacters = false;
     @NotNull private OperationResultDetailLevel deltaSuccessExecutionResult = OperationResultDetailLevel.CLEANED_UP;
 
+    /** If set, {@link AuditEventRecord}s are written asynchronously, in batches. */
+    @Nullable private volatile AuditWriteBehindQueue writeBehindQueue;
+
     public SqaleAuditService(
             SqaleRepoContext sqlRepoContext,
             SqlPerformanceMonitorsCollection sqlPerformanceMonitorsCollection) {
@@ -88,7 +96,12 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         OperationResult operationResult = parentResult.createSubresult(opNamePrefix + OP_AUDIT);
 
         try {
-            executeAudit(record);
+            AuditWriteBehindQueue writeBehindQueue = this.writeBehindQueue;
+            if (writeBehindQueue != null) {
+                writeBehindQueue.submit(record);
+            } else {
+                executeAudit(record);
+            }
         } catch (RuntimeException e) {
             throw handledGeneralException(e, operationResult);
         } catch (Throwable t) {
@@ -128,13 +141,7 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
     private MAuditEventRecord insertAuditEventRecord(JdbcSession jdbcSession, AuditEventRecord record) {
         QAuditEventRecordMapping aerMapping = QAuditEventRecordMapping.get();
         QAuditEventRecord aer = aerMapping.defaultAlias();
-        MAuditEventRecord row = aerMapping.toRowObject(record);
-
-        Collection<MAuditDelta> deltaRows = prepareDeltas(record.getDeltas());
-        row.deltas = deltaRows;
-
-        Set<String> changedItemPaths = collectChangedItemPaths(deltaRows);
-        row.changedItemPaths = changedItemPaths.isEmpty() ? null : changedItemPaths.toArray(String[]::new);
+        MAuditEventRecord row = toAuditEventRow(record);
 
         SQLInsertClause insert = jdbcSession.newInsert(aer).populate(row);
         Map<String, ColumnMetadata> customColumns = aerMapping.getExtensionColumns();
@@ -154,6 +161,20 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         return row;
     }
 
+    /**
+     * Creates audit event row with transient deltas prepared for insertion and changed item paths.
+     */
+    private MAuditEventRecord toAuditEventRow(AuditEventRecord record) {
+        MAuditEventRecord row = QAuditEventRecordMapping.get().toRowObject(record);
+
+        Collection<MAuditDelta> deltaRows = prepareDeltas(record.getDeltas());
+        row.deltas = deltaRows;
+
+        Set<String> changedItemPaths = collectChangedItemPaths(deltaRows);
+        row.changedItemPaths = changedItemPaths.isEmpty() ? null : changedItemPaths.toArray(String[]::new);
+        return row;
+    }
+
     private Collection<MAuditDelta> prepareDeltas(Collection<ObjectDeltaOperation<?>> deltas) {
         // we want to keep only unique deltas, checksum is also part of PK
         Set<String> seenChecksums = new HashSet<>();
@@ -308,12 +329,15 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         return changedItemPaths;
     }
 
-    private void insertAuditDeltas(
-            JdbcSession jdbcSession, MAuditEventRecord auditRow) {
+    private void insertAuditDeltas(JdbcSession jdbcSession, MAuditEventRecord auditRow) {
+        insertAuditDeltas(jdbcSession, List.of(auditRow));
+    }
 
-        if (!auditRow.deltas.isEmpty()) {
-            SQLInsertClause insertBatch = jdbcSession.newInsert(
-                    QAuditDeltaMapping.get().defaultAlias());
+    /** Inserts deltas of all the provided audit rows using a single bulk insert. */
+    private void insertAuditDeltas(JdbcSession jdbcSession, Collection<MAuditEventRecord> auditRows) {
+        SQLInsertClause insertBatch = jdbcSession.newInsert(
+                QAuditDeltaMapping.get().defaultAlias());
+        for (MAuditEventRecord auditRow : auditRows) {
             for (MAuditDelta deltaRow : auditRow.deltas) {
                 deltaRow.recordId = auditRow.id;
                 deltaRow.timestamp = auditRow.timestamp;
@@ -321,9 +345,13 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
                 // NULLs are important to keep the value count consistent during the batch
                 insertBatch.populate(deltaRow, DefaultMapper.WITH_NULL_BINDINGS).addBatch();
             }
-            insertBatch.setBatchToBulk(true);
-            insertBatch.execute();
         }
+        if (insertBatch.getBatchCount() == 0) {
+            return;
+        }
+
+        insertBatch.setBatchToBulk(true);
+        insertBatch.execute();
     }
 
     private void insertReferences(JdbcSession jdbcSession,
@@ -334,6 +362,17 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
 
         QAuditRefValue qr = QAuditRefValueMapping.get().defaultAlias();
         SQLInsertClause insertBatch = jdbcSession.newInsert(qr);
+        addReferencesToBatch(insertBatch, qr, auditRow, references);
+        if (insertBatch.getBatchCount() == 0) {
+            return; // strange, no values anywhere?
+        }
+
+        insertBatch.setBatchToBulk(true);
+        insertBatch.execute();
+    }
+
+    private void addReferencesToBatch(SQLInsertClause insertBatch, QAuditRefValue qr,
+            MAuditEventRecord auditRow, Map<String, Set<AuditReferenceValue>> references) {
         for (String refName : references.keySet()) {
             for (AuditReferenceValue refValue : references.get(refName)) {
                 // id will be generated, but we're not interested in those here
@@ -349,14 +388,118 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
                         .addBatch();
             }
         }
-        if (insertBatch.getBatchCount() == 0) {
-            return; // strange, no values anywhere?
+    }
+
+    // region write-behind (batched) audit
+
+    /**
+     * Writes the records using a single transaction and a bulk insert for each table.
+     * Used by {@link AuditWriteBehindQueue}.
+     *
+     * IDs are allocated from the audit event sequence upfront, so we don't need the IDs generated
+     * by the insert (which is not reliably possible for multi-row inserts) to insert the child rows.
+     */
+    public void executeAuditBatch(List<AuditEventRecord> records) {
+        long opHandle = registerOperationStart(OP_AUDIT_BATCH);
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            List<MAuditEventRecord> auditRows = new ArrayList<>(records.size());
+            for (AuditEventRecord record : records) {
+                record.setRepoId(null); // we want DB to assign the ID
+                auditRows.add(toAuditEventRow(record));
+            }
+            allocateAuditEventIds(jdbcSession, auditRows);
+
+            insertAuditEventRecords(jdbcSession, records, auditRows);
+            insertAuditDeltas(jdbcSession, auditRows);
+
+            QAuditRefValue qr = QAuditRefValueMapping.get().defaultAlias();
+            SQLInsertClause refsInsertBatch = jdbcSession.newInsert(qr);
+            for (int i = 0; i < records.size(); i++) {
+                addReferencesToBatch(refsInsertBatch, qr, auditRows.get(i), records.get(i).getReferences());
+            }
+            if (refsInsertBatch.getBatchCount() > 0) {
+                refsInsertBatch.setBatchToBulk(true);
+                refsInsertBatch.execute();
+            }
+
+            jdbcSession.commit();
+
+            for (int i = 0; i < records.size(); i++) {
+                records.get(i).setRepoId(auditRows.get(i).id);
+            }
+        } finally {
+            registerOperationFinish(opHandle);
         }
+    }
 
+    private void allocateAuditEventIds(JdbcSession jdbcSession, List<MAuditEventRecord> auditRows) {
+        try (PreparedStatement stmt = jdbcSession.connection().prepareStatement(
+                "SELECT nextval(pg_get_serial_sequence('" + QAuditEventRecord.TABLE_NAME + "', 'id'))"
+                        + " FROM generate_series(1, ?)")) {
+            stmt.setInt(1, auditRows.size());
+            try (ResultSet rs = stmt.executeQuery()) {
+                for (MAuditEventRecord auditRow : auditRows) {
+                    if (!rs.next()) {
+                        throw new SystemException("Couldn't allocate IDs for " + auditRows.size() + " audit records");
+                    }
+                    auditRow.id = rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new SystemException("Couldn't allocate IDs for audit records", e);
+        }
+    }
+
+    private void insertAuditEventRecords(
+            JdbcSession jdbcSession, List<AuditEventRecord> records, List<MAuditEventRecord> auditRows) {
+        QAuditEventRecordMapping aerMapping = QAuditEventRecordMapping.get();
+        QAuditEventRecord aer = aerMapping.defaultAlias();
+        Map<String, ColumnMetadata> customColumns = aerMapping.getExtensionColumns();
+
+        SQLInsertClause insertBatch = jdbcSession.newInsert(aer);
+        for (int i = 0; i < records.size(); i++) {
+            Map<String, String> customColumnProperties = records.get(i).getCustomColumnProperty();
+            for (String propertyName : customColumnProperties.keySet()) {
+                if (!customColumns.containsKey(propertyName)) {
+                    throw new IllegalArgumentException("Audit event record table doesn't"
+                            + " contains column for property " + propertyName);
+                }
+            }
+
+            // NULLs are important to keep the value count consistent during the batch
+            insertBatch.populate(auditRows.get(i), DefaultMapper.WITH_NULL_BINDINGS);
+            // All custom columns for each row, for the same reason.
+            for (String propertyName : customColumns.keySet()) {
+                String value = customColumnProperties.get(propertyName);
+                insertBatch.columns(aer.getPath(propertyName)).values(value);
+            }
+            insertBatch.addBatch();
+        }
         insertBatch.setBatchToBulk(true);
         insertBatch.execute();
     }
 
+    /**
+     * Starts asynchronous writing of the audit records, see {@link AuditWriteBehindQueue}.
+     * Must be called before the service is used, normally by {@link SqaleAuditServiceFactory}.
+     */
+    public void startWriteBehind(int queueSize, int flushSize, long flushIntervalMs,
+            @NotNull AuditWriteBehindQueue.Durability durability) {
+        writeBehindQueue = new AuditWriteBehindQueue(
+                this::executeAuditBatch, this::executeAudit, queueSize, flushSize, flushIntervalMs, durability);
+        logger.info("Audit records will be written asynchronously: {}", writeBehindQueue);
+    }
+
+    @Override
+    public void destroy() {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.shutdown();
+            writeBehindQueue = null;
+        }
+        super.destroy();
+    }
+    // endregion
+
     @Override
     public void audit(AuditEventRecordType record, OperationResult parentResult) {
         Objects.requireNonNull(record, "Audit event record must not be null.");
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.repo.sqale.audit;
 import static com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration.*;
 
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 import javax.sql.DataSource;
 
@@ -59,6 +60,17 @@ public class SqaleAuditServiceFactory implements AuditServiceFactory {
     private static final String CONF_AUDIT_SERVICE_COLUMN_NAME = "columnName";
     private static final String CONF_AUDIT_SERVICE_EVENT_RECORD_PROPERTY_NAME = "eventRecordPropertyName";
 
+    // Write-behind (asynchronous batched) audit, see AuditWriteBehindQueue
+    private static final String CONF_ASYNC_WRITE = "asyncWrite";
+    private static final String CONF_ASYNC_WRITE_QUEUE_SIZE = "asyncWriteQueueSize";
+    private static final String CONF_ASYNC_WRITE_FLUSH_SIZE = "asyncWriteFlushSize";
+    private static final String CONF_ASYNC_WRITE_FLUSH_INTERVAL_MS = "asyncWriteFlushIntervalMs";
+    private static final String CONF_ASYNC_WRITE_DURABILITY = "asyncWriteDurability";
+
+    private static final int DEFAULT_ASYNC_WRITE_QUEUE_SIZE = 10_000;
+    private static final int DEFAULT_ASYNC_WRITE_FLUSH_SIZE = 100;
+    private static final long DEFAULT_ASYNC_WRITE_FLUSH_INTERVAL_MS = 50L;
+
     private final SqaleRepositoryConfiguration sqaleRepositoryConfiguration;
     private final SchemaService schemaService;
     private final DataSource repositoryDataSource;
@@ -84,6 +96,7 @@ public class SqaleAuditServiceFactory implements AuditServiceFactory {
             SqaleRepoContext sqlRepoContext = createSqaleRepoContext(configuration);
             auditService = new SqaleAuditService(sqlRepoContext, sqlPerformanceMonitorsCollection);
             initCustomColumns(configuration, sqlRepoContext);
+            initWriteBehind(configuration);
         } catch (RepositoryServiceFactoryException ex) {
             throw new AuditServiceFactoryException(ex.getMessage(), ex);
         }
@@ -170,6 +183,33 @@ public class SqaleAuditServiceFactory implements AuditServiceFactory {
         }
     }
 
+    private void initWriteBehind(@NotNull Configuration configuration) throws AuditServiceFactoryException {
+        if (!configuration.getBoolean(CONF_ASYNC_WRITE, false)) {
+            return;
+        }
+
+        int queueSize = configuration.getInt(CONF_ASYNC_WRITE_QUEUE_SIZE, DEFAULT_ASYNC_WRITE_QUEUE_SIZE);
+        int flushSize = configuration.getInt(CONF_ASYNC_WRITE_FLUSH_SIZE, DEFAULT_ASYNC_WRITE_FLUSH_SIZE);
+        long flushIntervalMs = configuration.getLong(
+                CONF_ASYNC_WRITE_FLUSH_INTERVAL_MS, DEFAULT_ASYNC_WRITE_FLUSH_INTERVAL_MS);
+        if (queueSize <= 0 || flushSize <= 0 || flushIntervalMs <= 0) {
+            throw new AuditServiceFactoryException("Asynchronous audit write queue size, flush size and flush interval"
+                    + " must be positive numbers, got " + queueSize + ", " + flushSize + ", " + flushIntervalMs);
+        }
+
+        String durabilityString = configuration.getString(
+                CONF_ASYNC_WRITE_DURABILITY, AuditWriteBehindQueue.Durability.COMMIT.name());
+        AuditWriteBehindQueue.Durability durability;
+        try {
+            durability = AuditWriteBehindQueue.Durability.valueOf(durabilityString.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new AuditServiceFactoryException("Unknown asynchronous audit write durability '" + durabilityString
+                    + "', supported values are: " + Arrays.toString(AuditWriteBehindQueue.Durability.values()), e);
+        }
+
+        auditService.startWriteBehind(queueSize, flushSize, flushIntervalMs, durability);
+    }
+
     private String getStringFromConfig(Configuration config, String key) {
         String value = config.getString(key);
         if (Strings.isNullOrEmpty(value)) {
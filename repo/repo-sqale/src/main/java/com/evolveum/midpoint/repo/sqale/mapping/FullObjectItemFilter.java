@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.mapping;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import javax.xml.namespace.QName;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Removes selected top-level items from the JSON serialized form (full object) before it is parsed.
+ *
+ * This is used for items excluded by `retrieve` get options, which can be large (assignments, operation executions)
+ * and are not needed by the caller, e.g. for GUI lists or lookups.
+ * Skipping them on the token level is much cheaper than parsing them to Prism structures.
+ *
+ * Only the JSON form of the expected shape (`{"@ns": ..., "<root>": {<items>}}`) is supported;
+ * for any other input {@link #skipItems(byte[], Collection)} returns `null` and the full object must be parsed as is.
+ *
+ * Items are matched by qualified names. Unqualified field names are in the namespace declared by the `@ns` field;
+ * items with no namespace match any namespace, as usual for item paths.
+ *
+ * Only exclusion is supported, i.e. `retrieve=EXCLUDE` options; include projections (items selected by
+ * `retrieve=INCLUDE` with everything else left out) are not honored here and the full object is parsed completely.
+ */
+public class FullObjectItemFilter {
+
+    private static final Trace LOGGER = TraceManager.getTrace(FullObjectItemFilter.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Nesting depth of the fields (items) of the serialized object itself, the root object being depth 1. */
+    private static final int OBJECT_ITEM_DEPTH = 2;
+
+    /** Field of the root object with the default namespace, see `JsonWriter`. */
+    private static final String NAMESPACE_FIELD = "@ns";
+
+    /** Serialized form without the skipped items and the names of the items that were actually present and skipped. */
+    public record Result(byte[] fullObject, @NotNull List<ItemName> skippedItems) {
+    }
+
+    /**
+     * Returns the serialized form without the specified items, or `null` if the full object is not JSON,
+     * or none of the items is present in it.
+     */
+    public static @Nullable Result skipItems(byte[] fullObject, @NotNull Collection<ItemName> items) {
+        if (items.isEmpty() || !isJsonObject(fullObject)) {
+            return null;
+        }
+
+        List<ItemName> skippedItems = new ArrayList<>();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(fullObject.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(fullObject);
+                JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            int depth = 0;
+            String defaultNamespace = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                } else if (token == JsonToken.VALUE_STRING && depth <= OBJECT_ITEM_DEPTH
+                        && NAMESPACE_FIELD.equals(parser.currentName())) {
+                    defaultNamespace = parser.getText();
+                } else if (token == JsonToken.FIELD_NAME && depth == OBJECT_ITEM_DEPTH) {
+                    ItemName item = findItem(items, parser.getText(), defaultNamespace);
+                    if (item != null) {
+                        parser.nextToken();
+                        parser.skipChildren(); // no-op for scalar values
+                        skippedItems.add(item);
+                        continue;
+                    }
+                }
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    // Copied verbatim to avoid any loss of precision or formatting change.
+                    generator.writeNumber(parser.getText());
+                } else {
+                    generator.copyCurrentEvent(parser);
+                }
+            }
+        } catch (IOException e) {
+            // Let the regular parsing handle (and loudly report) the problem.
+            LOGGER.debug("Couldn't skip items in the full object, it will be parsed whole: {}", e.toString());
+            return null;
+        }
+
+        return skippedItems.isEmpty() ? null : new Result(output.toByteArray(), skippedItems);
+    }
+
+    private static boolean isJsonObject(byte[] fullObject) {
+        for (byte b : fullObject) {
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Item names in the serialized form are local names in the default namespace,
+     * or URIs with local name after `#` if qualification is needed.
+     */
+    private static ItemName findItem(Collection<ItemName> items, String fieldName, String defaultNamespace) {
+        int hash = fieldName.lastIndexOf('#');
+        QName fieldItemName = hash >= 0
+                ? new QName(fieldName.substring(0, hash), fieldName.substring(hash + 1))
+                : new QName(defaultNamespace != null ? defaultNamespace : "", fieldName);
+        for (ItemName item : items) {
+            if (QNameUtil.match(item, fieldItemName)) {
+                return item;
+            }
+        }
+        return null;
+    }
+}
@@ -21,6 +21,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.Containerable;
+import com.evolveum.midpoint.prism.Item;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.SerializationOptions;
 import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.path.PathSet;
@@ -472,12 +475,11 @@ public abstract class SqaleTableMapping<S, Q extends FlexibleRelationalPathBase<
     }
 
     protected <T> T parseSchemaObject(byte[] fullObject, String identifier, Class<T> clazz) throws SchemaException {
-        String serializedForm = fullObject != null
-                ? new String(fullObject, StandardCharsets.UTF_8)
-                : null;
         try {
-            RepositoryObjectParseResult<T> result =
-                    repositoryContext().parsePrismObject(serializedForm, clazz);
+            // Parsed from bytes directly, the string is created only for the error message below.
+            RepositoryObjectParseResult<T> result = fullObject != null
+                    ? repositoryContext().parsePrismObject(fullObject, clazz)
+                    : repositoryContext().parsePrismObject((String) null, clazz);
             T schemaObject = result.prismValue;
             if (result.parsingContext.hasWarnings()) {
                 logger.warn("Object {} parsed with {} warnings",
@@ -492,11 +494,39 @@ public abstract class SqaleTableMapping<S, Q extends FlexibleRelationalPathBase<
             // The message is enough to fix the problem.
             logger.error("Couldn't parse object {} {}: {}: {}\nSerialized form: '{}'",
                     clazz.getSimpleName(), identifier,
-                    e.getClass().getName(), e.getMessage(), serializedForm);
+                    e.getClass().getName(), e.getMessage(),
+                    fullObject != null ? new String(fullObject, StandardCharsets.UTF_8) : null);
             throw e;
         }
     }
 
+    /**
+     * Parses the full object without the specified top-level items, see {@link FullObjectItemFilter}.
+     * The skipped items are marked as incomplete, so they are not mistaken for empty ones.
+     */
+    protected <T extends Containerable> T parseSchemaObject(byte[] fullObject, String identifier, Class<T> clazz,
+            @NotNull Collection<ItemName> itemsToSkip) throws SchemaException {
+        FullObjectItemFilter.Result filtered = fullObject != null && !itemsToSkip.isEmpty()
+                ? FullObjectItemFilter.skipItems(fullObject, itemsToSkip)
+                : null;
+        if (filtered == null) {
+            return parseSchemaObject(fullObject, identifier, clazz);
+        }
+
+        T schemaObject = parseSchemaObject(filtered.fullObject(), identifier, clazz);
+        PrismContainerValue<?> value = schemaObject.asPrismContainerValue();
+        for (ItemName itemName : filtered.skippedItems()) {
+            ItemDefinition<?> definition = value.getComplexTypeDefinition() != null
+                    ? value.getComplexTypeDefinition().findItemDefinition(itemName)
+                    : null;
+            if (definition != null) {
+                //noinspection unchecked,rawtypes
+                value.findOrCreateItem(itemName, (Class) Item.class, definition).setIncomplete(true);
+            }
+        }
+        return schemaObject;
+    }
+
     /** Creates serialized (byte array) form of an object or a container. */
     public <C extends Containerable> byte[] createFullObject(C container) throws SchemaException {
         repositoryContext().normalizeAllRelations(container.asPrismContainerValue());
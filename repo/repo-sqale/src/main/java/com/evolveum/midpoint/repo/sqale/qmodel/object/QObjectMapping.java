@@ -20,6 +20,8 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.UniformItemPath;
 import com.evolveum.midpoint.repo.api.RepositoryObjectDiagnosticData;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoContext;
@@ -34,9 +36,12 @@ import com.evolveum.midpoint.repo.sqale.qmodel.ref.QReferenceMapping;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
 import com.evolveum.midpoint.repo.sqlbase.mapping.RepositoryMappingException;
 import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.RetrieveOption;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractRoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHolderType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.MetadataType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
@@ -58,6 +63,13 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
 
     public static final String DEFAULT_ALIAS_NAME = "o";
 
+    /**
+     * Top-level items that can be large, skipped when parsing owner objects only to get some other item from them
+     * (see {@link #parseSchemaObject(byte[], String, Class, Collection)}).
+     */
+    public static final List<ItemName> LARGE_ITEMS = List.of(
+            AssignmentHolderType.F_ASSIGNMENT, AbstractRoleType.F_INDUCEMENT, ObjectType.F_OPERATION_EXECUTION);
+
     private static QObjectMapping<?, ?, ?> instance;
 
     // Explanation in class Javadoc for SqaleTableMapping
@@ -168,7 +180,7 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
             throws SchemaException {
         byte[] fullObject = Objects.requireNonNull(row.get(entityPath.fullObject));
         UUID oid = Objects.requireNonNull(row.get(entityPath.oid));
-        S ret = parseSchemaObject(fullObject, oid.toString());
+        S ret = parseSchemaObject(fullObject, oid.toString(), schemaType(), excludedItems(options));
         if (GetOperationOptions.isAttachDiagData(SelectorOptions.findRootOptions(options))) {
             RepositoryObjectDiagnosticData diagData = new RepositoryObjectDiagnosticData(fullObject.length);
             ret.asPrismContainer().setUserData(RepositoryService.KEY_DIAG_DATA, diagData);
@@ -176,6 +188,29 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
         return ret;
     }
 
+    /**
+     * Returns top-level items excluded by the `retrieve` options; these are not parsed from the full object.
+     * Excluded nested items are ignored, the containing item is parsed whole.
+     */
+    protected @NotNull List<ItemName> excludedItems(Collection<SelectorOptions<GetOperationOptions>> options) {
+        if (options == null) {
+            return List.of();
+        }
+
+        List<ItemName> items = new ArrayList<>();
+        for (SelectorOptions<GetOperationOptions> option : options) {
+            GetOperationOptions getOptions = option.getOptions();
+            if (getOptions == null || getOptions.getRetrieve() != RetrieveOption.EXCLUDE) {
+                continue;
+            }
+            UniformItemPath path = option.getItemPath(null);
+            if (path != null && path.size() == 1 && path.startsWithName()) {
+                items.add(path.firstName());
+            }
+        }
+        return items;
+    }
+
     /**
      * The same function as in overridden method, but softer exception handling.
      * This targets cases like {@link RepositoryService#searchObjects} where single wrong object
@@ -30,6 +30,8 @@ import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractRoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHolderType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationExecutionType;
 
@@ -160,7 +162,9 @@ public class QOperationExecutionMapping<OR extends MObject>
                             .fetch();
                     for (Tuple row : result) {
                         UUID oid = Objects.requireNonNull(row.get(o.oid));
-                        ObjectType owner = parseSchemaObject(row.get(o.fullObject), oid.toString(), ObjectType.class);
+                        // Only the operation executions are needed from the owner, other large items are not parsed.
+                        ObjectType owner = parseSchemaObject(row.get(o.fullObject), oid.toString(), ObjectType.class,
+                                List.of(AssignmentHolderType.F_ASSIGNMENT, AbstractRoleType.F_INDUCEMENT));
                         owners.put(oid, owner);
                     }
                 }
@@ -6,9 +6,11 @@
  */
 package com.evolveum.midpoint.repo.sqale.qmodel.org;
 
+import java.sql.Types;
+
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.sql.ColumnMetadata;
 
-import com.evolveum.midpoint.repo.sqale.SqaleQueryContext;
 import com.evolveum.midpoint.repo.sqale.SqaleRepositoryService;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
@@ -18,12 +20,10 @@ import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
  * Can also be used for common table expression (CTE) representing org hierarchy on the fly.
  * This does not have to be under {@link FlexibleRelationalPathBase}, but is for convenience.
  *
- * [IMPORTANT]
- * *Be aware that the materialized view is refreshed only on demand!*
- * This is executed when {@link com.evolveum.midpoint.prism.query.OrgFilter} is used in
- * {@link SqaleQueryContext#beforeQuery()} or when executing
- * {@link SqaleRepositoryService#isAnySubordinate(java.lang.String, java.util.Collection)}.
- * If any access via other paths is done, use statement `CALL m_refresh_org_closure()` before.
+ * The table is maintained incrementally by triggers on `m_ref_object_parent_org` and `m_org`
+ * and is always up-to-date in the transaction, no refresh is needed before using it.
+ * Full rebuild (e.g. after changes with triggers off) is done by `CALL m_refresh_org_closure(true)`,
+ * see also {@link SqaleRepositoryService#testOrgClosureConsistency}.
  */
 @SuppressWarnings("unused")
 public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
@@ -38,9 +38,12 @@ public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
             ColumnMetadata.named("ancestor_oid").ofType(UuidPath.UUID_TYPE);
     public static final ColumnMetadata DESCENDANT_OID =
             ColumnMetadata.named("descendant_oid").ofType(UuidPath.UUID_TYPE);
+    public static final ColumnMetadata PATHS =
+            ColumnMetadata.named("paths").ofType(Types.INTEGER);
 
     public final UuidPath ancestorOid = createUuid("ancestorOid", ANCESTOR_OID);
     public final UuidPath descendantOid = createUuid("descendantOid", DESCENDANT_OID);
+    public final NumberPath<Integer> paths = createInteger("paths", PATHS);
 
     public QOrgClosure() {
         this(DEFAULT_ALIAS_NAME, DEFAULT_SCHEMA_NAME);
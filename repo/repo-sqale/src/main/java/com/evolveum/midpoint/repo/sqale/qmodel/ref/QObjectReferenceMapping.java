@@ -17,6 +17,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.PrismReference;
+import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoContext;
 import com.evolveum.midpoint.repo.sqale.qmodel.focus.QFocusMapping;
@@ -331,6 +332,12 @@ public class QObjectReferenceMapping<OS extends ObjectType, OQ extends QObject<O
                     //  and define what to load for referenced/owner object?
                     QueryTableMapping<OS, OQ, OR> mapping = Objects.requireNonNull(ownerMappingSupplier).get();
                     OQ o = mapping.defaultAlias();
+                    // Only the reference is needed from the owner, so the large items (except for the reference)
+                    // are not parsed at all.
+                    ItemName referenceName = referencePath != null ? referencePath.firstName() : null;
+                    List<ItemName> itemsToSkip = QObjectMapping.LARGE_ITEMS.stream()
+                            .filter(item -> !QNameUtil.match(item, referenceName))
+                            .toList();
                     List<Tuple> result = jdbcSession.newQuery()
                             .select(o.oid, o.fullObject)
                             .from(o)
@@ -338,7 +345,8 @@ public class QObjectReferenceMapping<OS extends ObjectType, OQ extends QObject<O
                             .fetch();
                     for (Tuple row : result) {
                         UUID oid = Objects.requireNonNull(row.get(o.oid));
-                        OS owner = parseSchemaObject(row.get(o.fullObject), oid.toString(), mapping.schemaType());
+                        OS owner = parseSchemaObject(
+                                row.get(o.fullObject), oid.toString(), mapping.schemaType(), itemsToSkip);
                         PrismReference reference = owner.asPrismObject().findReference(referencePath);
                         refsByOwnerAndTarget.put(oid, reference.getRealValues().stream()
                                 .map(r -> (ObjectReferenceType) r)
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.task;
+
+import java.util.UUID;
+
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType;
+
+/**
+ * Querydsl "row bean" type related to {@link QTaskBucket}.
+ */
+public class MTaskBucket {
+
+    public UUID ownerOid;
+    public String activityPath;
+    public Integer sequentialNumber;
+    public WorkBucketStateType state;
+    public UUID workerOid;
+    public byte[] bucket;
+
+    @Override
+    public String toString() {
+        return "MTaskBucket{" +
+                "ownerOid=" + ownerOid +
+                ", activityPath='" + activityPath + '\'' +
+                ", sequentialNumber=" + sequentialNumber +
+                ", state=" + state +
+                ", workerOid=" + workerOid +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.task;
+
+import java.util.UUID;
+
+/**
+ * Querydsl "row bean" type related to {@link QTaskStatistics}.
+ */
+public class MTaskStatistics {
+
+    public UUID ownerOid;
+    public String itemPath;
+    public byte[] delta;
+    public Long seq;
+
+    @Override
+    public String toString() {
+        return "MTaskStatistics{" +
+                "ownerOid=" + ownerOid +
+                ", itemPath='" + itemPath + '\'' +
+                '}';
+    }
+}
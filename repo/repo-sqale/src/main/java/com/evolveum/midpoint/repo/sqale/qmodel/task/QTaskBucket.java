@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.task;
+
+import java.sql.Types;
+
+import com.querydsl.core.types.dsl.ArrayPath;
+import com.querydsl.core.types.dsl.EnumPath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+
+import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType;
+
+/**
+ * Querydsl query type for work buckets stored in their own table (row-level allocation).
+ * This is not a mapped container, it is not searchable by the repository API; it is used only by
+ * the work bucket operations of the repository service.
+ */
+@SuppressWarnings("unused")
+public class QTaskBucket extends FlexibleRelationalPathBase<MTaskBucket> {
+
+    private static final long serialVersionUID = -3870419385326157734L;
+
+    public static final String TABLE_NAME = "m_task_bucket";
+
+    public static final String DEFAULT_ALIAS_NAME = "tb";
+
+    public static final ColumnMetadata OWNER_OID =
+            ColumnMetadata.named("ownerOid").ofType(UuidPath.UUID_TYPE).notNull();
+    public static final ColumnMetadata ACTIVITY_PATH =
+            ColumnMetadata.named("activityPath").ofType(Types.VARCHAR).notNull();
+    public static final ColumnMetadata SEQUENTIAL_NUMBER =
+            ColumnMetadata.named("sequentialNumber").ofType(Types.INTEGER).notNull();
+    public static final ColumnMetadata STATE =
+            ColumnMetadata.named("state").ofType(Types.OTHER).notNull();
+    public static final ColumnMetadata WORKER_OID =
+            ColumnMetadata.named("workerOid").ofType(UuidPath.UUID_TYPE);
+    public static final ColumnMetadata BUCKET =
+            ColumnMetadata.named("bucket").ofType(Types.BINARY).notNull();
+
+    public final UuidPath ownerOid = createUuid("ownerOid", OWNER_OID);
+    public final StringPath activityPath = createString("activityPath", ACTIVITY_PATH);
+    public final NumberPath<Integer> sequentialNumber = createInteger("sequentialNumber", SEQUENTIAL_NUMBER);
+    public final EnumPath<WorkBucketStateType> state =
+            createEnum("state", WorkBucketStateType.class, STATE);
+    public final UuidPath workerOid = createUuid("workerOid", WORKER_OID);
+    public final ArrayPath<byte[], Byte> bucket = createByteArray("bucket", BUCKET);
+
+    public QTaskBucket() {
+        this(DEFAULT_ALIAS_NAME, DEFAULT_SCHEMA_NAME);
+    }
+
+    public QTaskBucket(String variable) {
+        this(variable, DEFAULT_SCHEMA_NAME);
+    }
+
+    public QTaskBucket(String variable, String schema) {
+        super(MTaskBucket.class, variable, schema, TABLE_NAME);
+    }
+}
@@ -8,9 +8,16 @@ package com.evolveum.midpoint.repo.sqale.qmodel.task;
 
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.evolveum.midpoint.prism.path.PathSet;
 
@@ -23,6 +30,7 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.PrismProperty;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.util.PrismUtil;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoContext;
 import com.evolveum.midpoint.repo.sqale.delta.item.SinglePathItemDeltaProcessor;
@@ -32,12 +40,16 @@ import com.evolveum.midpoint.repo.sqale.qmodel.object.QAssignmentHolderMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.QObjectMapping;
 import com.evolveum.midpoint.repo.sqale.update.SqaleUpdateContext;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.repo.sqlbase.SqlQueryContext;
+import com.evolveum.midpoint.repo.sqlbase.mapping.ResultListRowTransformer;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
+import com.evolveum.midpoint.schema.DeltaConvertor;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.util.task.TaskTypeUtil;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.prism.xml.ns._public.types_3.ObjectDeltaType;
 
 /**
  * Mapping between {@link QTask} and {@link TaskType}.
@@ -198,6 +210,85 @@ public class QTaskMapping
         return task;
     }
 
+    /**
+     * Search results get the statistics stored outside the full object (see {@link QTaskStatistics})
+     * loaded by a single query for the whole page.
+     */
+    @Override
+    public ResultListRowTransformer<TaskType, QTask, MTask> createRowTransformer(
+            SqlQueryContext<TaskType, QTask, MTask> sqlQueryContext, JdbcSession jdbcSession) {
+        Map<UUID, List<MTaskStatistics>> statistics = new HashMap<>();
+        return new ResultListRowTransformer<>() {
+            @Override
+            public void beforeTransformation(List<Tuple> rowTuples, QTask entityPath) {
+                Set<UUID> oids = rowTuples.stream()
+                        .map(row -> Objects.requireNonNull(row.get(entityPath.oid)))
+                        .collect(Collectors.toSet());
+                if (!oids.isEmpty()) {
+                    statistics.putAll(loadStoredStatistics(oids, jdbcSession));
+                }
+            }
+
+            @Override
+            public TaskType transform(Tuple rowTuple, QTask entityPath,
+                    Collection<SelectorOptions<GetOperationOptions>> options) {
+                TaskType task = toSchemaObjectCompleteSafe(rowTuple, entityPath, options, jdbcSession, false);
+                UUID oid = Objects.requireNonNull(rowTuple.get(entityPath.oid));
+                applyStoredStatistics(task, oid, statistics.getOrDefault(oid, List.of()));
+                return task;
+            }
+        };
+    }
+
+    /**
+     * Loads and applies the statistics stored outside the full object for a single task, see {@link QTaskStatistics}.
+     * Used when a single task is read by OID; searches load them for the whole page, see {@link #createRowTransformer}.
+     */
+    public void applyStoredStatistics(@NotNull TaskType task, @NotNull JdbcSession jdbcSession) {
+        UUID oid = UUID.fromString(task.getOid());
+        applyStoredStatistics(task, oid,
+                loadStoredStatistics(List.of(oid), jdbcSession).getOrDefault(oid, List.of()));
+    }
+
+    /** Returns the stored statistics rows by task OID, each list in the order the rows were stored. */
+    private Map<UUID, List<MTaskStatistics>> loadStoredStatistics(
+            @NotNull Collection<UUID> oids, @NotNull JdbcSession jdbcSession) {
+        QTaskStatistics tst = new QTaskStatistics();
+        List<MTaskStatistics> rows = jdbcSession.newQuery()
+                .select(tst)
+                .from(tst)
+                .where(tst.ownerOid.in(oids))
+                .orderBy(tst.ownerOid.asc(), tst.seq.asc())
+                .fetch();
+        Map<UUID, List<MTaskStatistics>> rowsByOid = new HashMap<>();
+        for (MTaskStatistics row : rows) {
+            rowsByOid.computeIfAbsent(row.ownerOid, k -> new ArrayList<>()).add(row);
+        }
+        return rowsByOid;
+    }
+
+    /**
+     * Applies the stored statistics and progress deltas. Each row holds the last replace delta for its path,
+     * and the rows are applied in the order they were stored (`seq`), so a newer value of a parent item
+     * overwrites an older value of its child, and vice versa.
+     *
+     * The task is still readable if a delta can't be applied (e.g. because the activity state it belongs to
+     * was removed concurrently), the delta is skipped in that case.
+     */
+    private void applyStoredStatistics(
+            @NotNull TaskType task, @NotNull UUID oid, @NotNull List<MTaskStatistics> rows) {
+        for (MTaskStatistics row : rows) {
+            try {
+                ObjectDelta<TaskType> delta = DeltaConvertor.createObjectDelta(
+                        parseSchemaObject(row.delta, "statistics-" + oid, ObjectDeltaType.class));
+                delta.applyTo(task.asPrismObject());
+            } catch (SchemaException | RuntimeException e) {
+                logger.warn("Couldn't apply stored statistics for {} in task {}, skipping them: {}",
+                        row.itemPath, oid, e.getMessage(), e);
+            }
+        }
+    }
+
     // Specific to Task, so we leave it as nested class right here.
     public static class FullResultDeltaProcessor
             extends SinglePathItemDeltaProcessor<byte[], ArrayPath<byte[], Byte>> {
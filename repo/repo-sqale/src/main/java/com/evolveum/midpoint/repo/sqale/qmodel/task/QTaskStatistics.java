@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.task;
+
+import java.sql.Types;
+
+import com.querydsl.core.types.dsl.ArrayPath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+
+import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
+
+/**
+ * Querydsl query type for task statistics and progress stored outside the task full object.
+ * This is not a mapped container, it is not searchable by the repository API; the rows are written
+ * by the repository service and applied to the task by {@link QTaskMapping} when the task is read.
+ */
+@SuppressWarnings("unused")
+public class QTaskStatistics extends FlexibleRelationalPathBase<MTaskStatistics> {
+
+    private static final long serialVersionUID = 6034960815240412397L;
+
+    public static final String TABLE_NAME = "m_task_statistics";
+
+    public static final String DEFAULT_ALIAS_NAME = "tst";
+
+    public static final ColumnMetadata OWNER_OID =
+            ColumnMetadata.named("ownerOid").ofType(UuidPath.UUID_TYPE).notNull();
+    public static final ColumnMetadata ITEM_PATH =
+            ColumnMetadata.named("itemPath").ofType(Types.VARCHAR).notNull();
+    public static final ColumnMetadata DELTA =
+            ColumnMetadata.named("delta").ofType(Types.BINARY).notNull();
+    public static final ColumnMetadata SEQ =
+            ColumnMetadata.named("seq").ofType(Types.BIGINT).notNull();
+
+    public final UuidPath ownerOid = createUuid("ownerOid", OWNER_OID);
+    public final StringPath itemPath = createString("itemPath", ITEM_PATH);
+    public final ArrayPath<byte[], Byte> delta = createByteArray("delta", DELTA);
+    public final NumberPath<Long> seq = createLong("seq", SEQ);
+
+    public QTaskStatistics() {
+        this(DEFAULT_ALIAS_NAME, DEFAULT_SCHEMA_NAME);
+    }
+
+    public QTaskStatistics(String variable) {
+        this(variable, DEFAULT_SCHEMA_NAME);
+    }
+
+    public QTaskStatistics(String variable, String schema) {
+        super(MTaskStatistics.class, variable, schema, TABLE_NAME);
+    }
+}
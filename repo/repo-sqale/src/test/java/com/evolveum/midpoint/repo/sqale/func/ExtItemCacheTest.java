@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.ExtItemCache;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItem;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemCardinality;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemHolderType;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.QExtItem;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.QNameUtil;
+
+/**
+ * This tests {@link ExtItemCache} including multi-node simulation using two separate cache instances,
+ * just like {@link UriCacheTest}.
+ */
+public class ExtItemCacheTest extends SqaleRepoBaseTest {
+
+    private ExtItemCache extItemCache1;
+    private ExtItemCache extItemCache2;
+
+    @BeforeClass
+    public void init() {
+        extItemCache1 = new ExtItemCache();
+        extItemCache1.initialize(sqlRepoContext::newJdbcSession);
+        extItemCache2 = new ExtItemCache();
+        extItemCache2.initialize(sqlRepoContext::newJdbcSession);
+    }
+
+    @Test
+    public void test100ResolveMultipleItemsAtOnce() {
+        given("keys of new ext items");
+        String name = "test-item-" + getTestNameShort();
+        MExtItem.Key key1 = key(name + "-1");
+        MExtItem.Key key2 = key(name + "-2");
+
+        when("the items are resolved at once");
+        Map<MExtItem.Key, MExtItem> extItems = extItemCache1.resolveExtensionItems(List.of(key1, key2));
+
+        then("both items are created and cached");
+        assertThat(extItems).containsOnlyKeys(key1, key2);
+        assertThat(extItemCache1.getExtensionItem(key1)).isEqualTo(extItems.get(key1));
+        assertThat(extItemCache1.getExtensionItem(extItems.get(key2).id)).isEqualTo(extItems.get(key2));
+        QExtItem ei = QExtItem.DEFAULT;
+        assertCount(ei, 2, ei.itemName.startsWith(name));
+
+        and("resolving them again does not access the database");
+        long missesBefore = extItemCache1.getStatistics().getMisses();
+        assertThat(extItemCache1.resolveExtensionItem(key1)).isEqualTo(extItems.get(key1));
+        assertThat(extItemCache1.getStatistics().getMisses()).isEqualTo(missesBefore);
+    }
+
+    @Test
+    public void test200ItemCreatedByOtherCacheIsReused() {
+        given("ext item created by cache 1");
+        MExtItem.Key key = key("test-item-" + getTestNameShort());
+        MExtItem extItem = extItemCache1.resolveExtensionItem(key);
+
+        expect("cache 2 obtains it by ID and by key without creating a new row");
+        assertThat(extItemCache2.getExtensionItem(extItem.id).key()).isEqualTo(key);
+        assertThat(extItemCache2.resolveExtensionItem(key).id).isEqualTo(extItem.id);
+        QExtItem ei = QExtItem.DEFAULT;
+        assertCount(ei, 1, ei.itemName.eq(key.itemName));
+    }
+
+    @Test
+    public void test300ConcurrentResolutionOfTheSameItem() throws Exception {
+        given("multiple threads and a new ext item key");
+        MExtItem.Key key = key("test-item-" + getTestNameShort());
+        int threads = 5;
+
+        when("the item is resolved concurrently by both caches in all the threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            ExtItemCache extItemCache = i % 2 == 0 ? extItemCache1 : extItemCache2;
+            futures.add(executor.submit(() -> extItemCache.resolveExtensionItem(key).id));
+        }
+        executor.shutdown();
+
+        then("all the threads get the same item and only one row is created");
+        List<Integer> ids = new ArrayList<>();
+        for (Future<Integer> future : futures) {
+            ids.add(future.get(1, TimeUnit.MINUTES));
+        }
+        assertThat(ids).hasSize(threads)
+                .containsOnly(ids.get(0));
+        QExtItem ei = QExtItem.DEFAULT;
+        assertCount(ei, 1, ei.itemName.eq(key.itemName));
+    }
+
+    @Test
+    public void test310ConcurrentResolutionOfItemsInDifferentOrder() throws Exception {
+        given("multiple threads and new ext item keys, each thread having them in different order");
+        String name = "test-item-" + getTestNameShort();
+        List<MExtItem.Key> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(key(name + "-" + i));
+        }
+        int threads = 6;
+
+        when("the items are resolved at once concurrently by both caches in all the threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<MExtItem.Key, MExtItem>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            ExtItemCache extItemCache = i % 2 == 0 ? extItemCache1 : extItemCache2;
+            List<MExtItem.Key> threadKeys = new ArrayList<>(keys);
+            Collections.shuffle(threadKeys, new Random(i));
+            futures.add(executor.submit(() -> extItemCache.resolveExtensionItems(threadKeys)));
+        }
+        executor.shutdown();
+
+        then("all the threads get the same items and only one row per item is created");
+        Map<MExtItem.Key, Integer> ids = new HashMap<>();
+        for (Future<Map<MExtItem.Key, MExtItem>> future : futures) {
+            Map<MExtItem.Key, MExtItem> extItems = future.get(1, TimeUnit.MINUTES);
+            assertThat(extItems).hasSize(keys.size());
+            extItems.forEach((key, extItem) -> {
+                Integer previousId = ids.putIfAbsent(key, extItem.id);
+                assertThat(previousId == null || previousId.equals(extItem.id))
+                        .as("the same ID for " + key.itemName)
+                        .isTrue();
+            });
+        }
+        QExtItem ei = QExtItem.DEFAULT;
+        assertCount(ei, keys.size(), ei.itemName.startsWith(name + "-"));
+    }
+
+    private MExtItem.Key key(String itemName) {
+        MExtItem.Key key = new MExtItem.Key();
+        key.itemName = itemName;
+        key.valueType = QNameUtil.qNameToUri(DOMUtil.XSD_STRING);
+        key.holderType = MExtItemHolderType.EXTENSION;
+        key.cardinality = MExtItemCardinality.SCALAR;
+        return key;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.init.AuditServiceProxy;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.audit.AuditWriteBehindQueue;
+import com.evolveum.midpoint.repo.sqale.audit.SqaleAuditService;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditDelta;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditEventRecord;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditRefValue;
+import com.evolveum.midpoint.schema.ObjectDeltaOperation;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
+import com.evolveum.midpoint.task.api.test.NullTaskImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests batched (write-behind) audit insertion, see {@link AuditWriteBehindQueue}.
+ */
+public class SqaleAuditWriteBehindTest extends SqaleRepoBaseTest {
+
+    private SqaleAuditService sqaleAuditService;
+
+    @BeforeClass
+    public void initObjects() {
+        sqaleAuditService = ((AuditServiceProxy) auditService).getImplementation(SqaleAuditService.class);
+    }
+
+    @Test
+    public void test100AuditBatch() throws SchemaException {
+        given("empty audit and a batch of records with deltas, references and custom columns");
+        clearAudit();
+        List<AuditEventRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            records.add(createRecord(i));
+        }
+        records.get(3).getCustomColumnProperty().remove("foo"); // rows with different custom columns
+
+        when("the batch is written");
+        sqaleAuditService.executeAuditBatch(records);
+
+        then("all the records and their child rows are stored and have IDs assigned");
+        assertCount(QAuditEventRecord.class, 10);
+        assertCount(QAuditDelta.class, 10);
+        assertCount(QAuditRefValue.class, 10);
+        assertThat(records)
+                .extracting(AuditEventRecord::getRepoId)
+                .doesNotContainNull()
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void test200WriteBehindQueueWithConcurrentSubmitters() throws Exception {
+        given("empty audit and a small write-behind queue");
+        clearAudit();
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(
+                sqaleAuditService::executeAuditBatch,
+                r -> sqaleAuditService.audit(r, NullTaskImpl.INSTANCE, createOperationResult()),
+                5, 7, 20, AuditWriteBehindQueue.Durability.COMMIT);
+
+        when("records are submitted from multiple threads");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<AuditEventRecord>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i <= 50; i++) {
+                AuditEventRecord record = createRecord(i);
+                futures.add(executor.submit(() -> {
+                    queue.submit(record);
+                    return record;
+                }));
+            }
+            then("each record is committed when submit returns");
+            for (Future<AuditEventRecord> future : futures) {
+                assertThat(future.get().getRepoId()).isNotNull();
+            }
+        } finally {
+            executor.shutdownNow();
+            queue.shutdown();
+        }
+
+        and("all records are stored");
+        assertCount(QAuditEventRecord.class, 50);
+        assertCount(QAuditDelta.class, 50);
+        assertThat(queue.getQueueSize()).isZero();
+    }
+
+    @Test
+    public void test210QueueDurabilityDoesNotWaitForWrite() throws Exception {
+        given("a queue with QUEUE durability and a writer that is blocked");
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        List<AuditEventRecord> written = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(
+                records -> {
+                    await(writerBlocked);
+                    written.addAll(records);
+                },
+                written::add,
+                10, 5, 20, AuditWriteBehindQueue.Durability.QUEUE);
+
+        try {
+            when("records are submitted");
+            for (int i = 1; i <= 3; i++) {
+                queue.submit(new AuditEventRecord());
+            }
+
+            then("submit returns before the records are written");
+            assertThat(written).isEmpty();
+        } finally {
+            writerBlocked.countDown();
+            queue.shutdown();
+        }
+
+        and("the records are written on shutdown at the latest");
+        assertThat(written).hasSize(3);
+        assertThat(queue.getQueueSize()).isZero();
+    }
+
+    @Test
+    public void test220FullQueueBlocksSubmitters() throws Exception {
+        given("a queue for two records with a writer that is blocked");
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        List<AuditEventRecord> written = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(
+                records -> {
+                    await(writerBlocked);
+                    written.addAll(records);
+                },
+                written::add,
+                2, 1, 20, AuditWriteBehindQueue.Durability.QUEUE);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            when("the first record is taken by the writer and two more fill the queue");
+            queue.submit(new AuditEventRecord());
+            waitForQueueSize(queue, 0);
+            queue.submit(new AuditEventRecord());
+            queue.submit(new AuditEventRecord());
+
+            and("another record is submitted");
+            Future<?> blockedSubmit = executor.submit(() -> queue.submit(new AuditEventRecord()));
+
+            then("the submitter waits for a free space");
+            assertThatThrownBy(() -> blockedSubmit.get(300, TimeUnit.MILLISECONDS))
+                    .isInstanceOf(TimeoutException.class);
+
+            when("the writer is unblocked");
+            writerBlocked.countDown();
+
+            then("the submitter can continue");
+            blockedSubmit.get(10, TimeUnit.SECONDS);
+        } finally {
+            writerBlocked.countDown();
+            executor.shutdownNow();
+            queue.shutdown();
+        }
+
+        and("all records are written");
+        assertThat(written).hasSize(4);
+    }
+
+    @Test
+    public void test230FailedBatchIsWrittenOneByOne() throws Exception {
+        given("empty audit and a queue that collects the records of concurrent submitters in one batch");
+        clearAudit();
+        AtomicInteger failedBatches = new AtomicInteger();
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(
+                records -> {
+                    try {
+                        sqaleAuditService.executeAuditBatch(records);
+                    } catch (RuntimeException e) {
+                        failedBatches.incrementAndGet();
+                        throw e;
+                    }
+                },
+                r -> sqaleAuditService.audit(r, NullTaskImpl.INSTANCE, createOperationResult()),
+                10, 5, 1000, AuditWriteBehindQueue.Durability.COMMIT);
+
+        and("one of the records is not valid (custom column that does not exist)");
+        List<AuditEventRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            records.add(createRecord(i));
+        }
+        AuditEventRecord badRecord = records.get(2);
+        badRecord.getCustomColumnProperty().put("nonexistent", "value");
+
+        when("the records are submitted");
+        ExecutorService executor = Executors.newFixedThreadPool(records.size());
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (AuditEventRecord record : records) {
+                futures.add(executor.submit(() -> queue.submit(record)));
+            }
+
+            then("the batch fails, but only the bad record is not written");
+            for (int i = 0; i < records.size(); i++) {
+                Future<?> future = futures.get(i);
+                if (records.get(i) == badRecord) {
+                    assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS))
+                            .isInstanceOf(ExecutionException.class)
+                            .hasRootCauseInstanceOf(IllegalArgumentException.class);
+                } else {
+                    future.get(10, TimeUnit.SECONDS);
+                    assertThat(records.get(i).getRepoId()).isNotNull();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            queue.shutdown();
+        }
+        assertThat(failedBatches.get()).as("failed batches").isEqualTo(1);
+        assertCount(QAuditEventRecord.class, 4);
+    }
+
+    @Test
+    public void test240ErrorInWriterIsReportedAndWriterContinues() throws Exception {
+        given("a queue with a writer that throws an error for the first record");
+        AuditEventRecord failingRecord = new AuditEventRecord();
+        List<AuditEventRecord> written = Collections.synchronizedList(new ArrayList<>());
+        Consumer<AuditEventRecord> singleWriter = record -> {
+            if (record == failingRecord) {
+                throw new AssertionError("simulated error");
+            }
+            written.add(record);
+        };
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(
+                records -> records.forEach(singleWriter), singleWriter,
+                10, 5, 20, AuditWriteBehindQueue.Durability.COMMIT);
+
+        try {
+            expect("the error is thrown to the submitter");
+            assertThatThrownBy(() -> queue.submit(failingRecord))
+                    .isInstanceOf(AssertionError.class);
+
+            and("other records are still written");
+            queue.submit(new AuditEventRecord());
+            assertThat(written).hasSize(1);
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    public void test250ShutdownWithConcurrentSubmitters() throws Exception {
+        given("a queue with an in-memory writer");
+        List<AuditEventRecord> written = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(
+                written::addAll, written::add, 5, 3, 10, AuditWriteBehindQueue.Durability.COMMIT);
+
+        when("records are submitted from multiple threads while the queue is shut down");
+        int threads = 4;
+        int recordsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        queue.submit(new AuditEventRecord());
+                    }
+                }));
+            }
+            Thread.sleep(20);
+            queue.shutdown();
+
+            then("no submitter is left waiting");
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        and("every record is written exactly once");
+        assertThat(written).hasSize(threads * recordsPerThread);
+        assertThat(written).doesNotHaveDuplicates();
+        assertThat(queue.getQueueSize()).isZero();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+
+    private void waitForQueueSize(AuditWriteBehindQueue queue, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (queue.getQueueSize() != expected) {
+            assertThat(System.currentTimeMillis()).as("time waiting for queue size " + expected).isLessThan(deadline);
+            //noinspection BusyWait
+            Thread.sleep(10);
+        }
+    }
+
+    private AuditEventRecord createRecord(int i) throws SchemaException {
+        AuditEventRecord record = new AuditEventRecord();
+        record.setParameter(String.valueOf(i));
+        record.setTimestamp(System.currentTimeMillis());
+        record.getCustomColumnProperty().put("foo", "foo-" + i);
+
+        ObjectDeltaOperation<UserType> delta = new ObjectDeltaOperation<>();
+        delta.setObjectDelta(prismContext.deltaFor(UserType.class)
+                .item(UserType.F_FULL_NAME).replace(PolyString.fromOrig("name-" + i))
+                .asObjectDelta(UUID.randomUUID().toString()));
+        record.addDelta(delta);
+
+        record.addReferenceValue("ref1",
+                ObjectTypeUtil.createObjectRef(UUID.randomUUID().toString(), ObjectTypes.USER)
+                        .asReferenceValue());
+        return record;
+    }
+}
@@ -415,6 +415,58 @@ public class SqaleRepoAddDeleteObjectTest extends SqaleRepoBaseTest {
         assertSingleOperationRecorded(REPO_OP_PREFIX + RepositoryService.OP_ADD_OBJECT_OVERWRITE);
     }
 
+    @Test
+    public void test160AddObjectsInSingleTransaction()
+            throws ObjectAlreadyExistsException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("multiple objects of different types, with and without OID");
+        long baseCount = count(QObject.CLASS);
+        UserType user = new UserType()
+                .oid(UUID.randomUUID().toString())
+                .name("user" + getTestNumber());
+        RoleType role = new RoleType()
+                .name("role" + getTestNumber());
+
+        when("adding them to the repository in a batch");
+        repositoryService.addObjects(List.of(user.asPrismObject(), role.asPrismObject()), null, result);
+
+        then("operation is successful and all the objects are created");
+        assertThatOperationResult(result).isSuccess();
+        assertCount(QObject.CLASS, baseCount + 2);
+        assertThat(role.getOid()).isNotNull();
+        assertThat(selectObjectByOid(QUser.class, user.getOid()).version)
+                .isEqualTo(SqaleRepositoryService.INITIAL_VERSION_NUMBER);
+    }
+
+    @Test
+    public void test161AddObjectsWithConflictAddsNothing()
+            throws ObjectAlreadyExistsException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("user with provided OID already exists");
+        UUID providedOid = UUID.randomUUID();
+        UserType user1 = new UserType()
+                .oid(providedOid.toString())
+                .name("user" + getTestNumber());
+        repositoryService.addObject(user1.asPrismObject(), null, result);
+
+        when("adding a batch with a new user and another user with the same OID");
+        long baseCount = count(QObject.CLASS);
+        UserType newUser = new UserType()
+                .name("user" + getTestNumber() + "-new");
+        UserType user2 = new UserType()
+                .oid(providedOid.toString())
+                .name("user" + getTestNumber() + "-conflict");
+
+        then("operation fails and none of the objects is created");
+        assertThatThrownBy(() -> repositoryService.addObjects(
+                List.of(newUser.asPrismObject(), user2.asPrismObject()), null, result))
+                .isInstanceOf(ObjectAlreadyExistsException.class);
+        assertThatOperationResult(result).isFatalError();
+        assertCount(QObject.CLASS, baseCount);
+    }
+
     @Test
     public void test200AddObjectWithMultivalueContainers()
             throws ObjectAlreadyExistsException, SchemaException {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.prism.query.QueryFactory;
+import com.evolveum.midpoint.prism.query.builder.S_FilterExit;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.schema.query.KeysetPaging;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Checks that the pages obtained by {@link KeysetPaging} when navigating forward and backward
+ * are the same as the pages obtained by OFFSET paging (with the same orderings).
+ * Sort values contain duplicates and nulls, so both the OID tie-breaker and the offset fallback are used.
+ */
+public class SqaleRepoKeysetPagingTest extends SqaleRepoBaseTest {
+
+    private static final String COST_CENTER = "keyset-paging";
+    private static final int COUNT_OF_CREATED_USERS = 17;
+    private static final int PAGE_SIZE = 5;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+        String[] employeeNumbers = { "e1", "e2", "e3", null };
+        String[] fullNames = { "Alpha", "alpha", "Beta", null, "Beta" };
+        for (int i = 1; i <= COUNT_OF_CREATED_USERS; i++) {
+            UserType user = new UserType()
+                    .name(String.format("kp-user-%02d", i))
+                    .costCenter(COST_CENTER)
+                    .employeeNumber(employeeNumbers[i % employeeNumbers.length]);
+            if (fullNames[i % fullNames.length] != null) {
+                user.fullName(fullNames[i % fullNames.length]);
+            }
+            repositoryService.addObject(user.asPrismObject(), null, result);
+        }
+
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test100UniqueValuesAscending() throws SchemaException {
+        int keysetPages = assertKeysetPagingMatchesOffset(UserType.F_NAME, OrderDirection.ASCENDING);
+
+        and("all pages but the first one (in each direction) are loaded using keyset");
+        assertThat(keysetPages).isEqualTo(2 * (pageCount() - 1));
+    }
+
+    @Test
+    public void test110UniqueValuesDescending() throws SchemaException {
+        int keysetPages = assertKeysetPagingMatchesOffset(UserType.F_NAME, OrderDirection.DESCENDING);
+
+        and("all pages but the first one (in each direction) are loaded using keyset");
+        assertThat(keysetPages).isEqualTo(2 * (pageCount() - 1));
+    }
+
+    @Test
+    public void test200DuplicateAndNullValuesAscending() throws SchemaException {
+        int keysetPages = assertKeysetPagingMatchesOffset(UserType.F_EMPLOYEE_NUMBER, OrderDirection.ASCENDING);
+        assertThat(keysetPages).isPositive();
+    }
+
+    @Test
+    public void test210DuplicateAndNullValuesDescending() throws SchemaException {
+        int keysetPages = assertKeysetPagingMatchesOffset(UserType.F_EMPLOYEE_NUMBER, OrderDirection.DESCENDING);
+        assertThat(keysetPages).isPositive();
+    }
+
+    @Test
+    public void test300PolyStringDuplicateAndNullValuesAscending() throws SchemaException {
+        int keysetPages = assertKeysetPagingMatchesOffset(UserType.F_FULL_NAME, OrderDirection.ASCENDING);
+        assertThat(keysetPages).isPositive();
+    }
+
+    @Test
+    public void test310PolyStringDuplicateAndNullValuesDescending() throws SchemaException {
+        int keysetPages = assertKeysetPagingMatchesOffset(UserType.F_FULL_NAME, OrderDirection.DESCENDING);
+        assertThat(keysetPages).isPositive();
+    }
+
+    /**
+     * Navigates through all the pages forward and then back to the first page,
+     * comparing each page with the OFFSET page. Returns the number of pages loaded using keyset.
+     */
+    private int assertKeysetPagingMatchesOffset(ItemPath orderBy, OrderDirection direction)
+            throws SchemaException {
+        OperationResult result = createOperationResult();
+        KeysetPaging keysetPaging = new KeysetPaging();
+        int keysetPages = 0;
+
+        when("navigating forward through all the pages");
+        for (int page = 0; page < pageCount(); page++) {
+            keysetPages += assertPage(keysetPaging, orderBy, direction, page, "forward", result);
+        }
+
+        and("navigating backward to the first page");
+        for (int page = pageCount() - 2; page >= 0; page--) {
+            keysetPages += assertPage(keysetPaging, orderBy, direction, page, "backward", result);
+        }
+
+        then("all the pages match");
+        assertThatOperationResult(result).isSuccess();
+        return keysetPages;
+    }
+
+    /** Returns 1 if the page was loaded using keyset, 0 if it was loaded using offset. */
+    private int assertPage(KeysetPaging keysetPaging, ItemPath orderBy, OrderDirection direction,
+            int page, String navigation, OperationResult result) throws SchemaException {
+        ObjectQuery query = pageQuery(orderBy, direction, page);
+        ObjectQuery preparedQuery = keysetPaging.prepareQuery(UserType.class, query, null, true);
+        List<PrismObject<UserType>> keysetPage = keysetPaging.pageLoaded(
+                repositoryService.searchObjects(UserType.class, preparedQuery, null, result));
+
+        List<PrismObject<UserType>> offsetPage =
+                repositoryService.searchObjects(UserType.class, offsetPageQuery(orderBy, direction, page), null, result);
+
+        assertThat(keysetPage)
+                .as("page %d (%s) ordered by %s %s", page, navigation, orderBy, direction)
+                .extracting(PrismObject::getOid)
+                .containsExactlyElementsOf(offsetPage.stream().map(PrismObject::getOid).toList());
+        return preparedQuery.getPaging().getOffset() == null ? 1 : 0;
+    }
+
+    /** Query as used by GUI provider, with offset and single ordering. */
+    private ObjectQuery pageQuery(ItemPath orderBy, OrderDirection direction, int page) {
+        S_FilterExit filter = prismContext.queryFor(UserType.class)
+                .item(UserType.F_COST_CENTER).eq(COST_CENTER);
+        return (direction == OrderDirection.ASCENDING ? filter.asc(orderBy) : filter.desc(orderBy))
+                .offset(page * PAGE_SIZE)
+                .maxSize(PAGE_SIZE)
+                .build();
+    }
+
+    /** Reference query using OFFSET with OID as a secondary ordering, just like {@link KeysetPaging} orders. */
+    private ObjectQuery offsetPageQuery(ItemPath orderBy, OrderDirection direction, int page) {
+        QueryFactory queryFactory = prismContext.queryFactory();
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_COST_CENTER).eq(COST_CENTER)
+                .build();
+        query.setPaging(queryFactory.createPaging(page * PAGE_SIZE, PAGE_SIZE, List.of(
+                queryFactory.createOrdering(orderBy, direction),
+                queryFactory.createOrdering(PrismConstants.T_ID, direction))));
+        return query;
+    }
+
+    private int pageCount() {
+        return (COUNT_OF_CREATED_USERS + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+}
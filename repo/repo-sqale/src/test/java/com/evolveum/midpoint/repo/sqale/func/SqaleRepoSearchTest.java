@@ -2684,6 +2684,16 @@ public class SqaleRepoSearchTest extends SqaleRepoBaseTest {
                 // A bit of a train-wreck... but it should work.
                 .matches(m -> m.getRealValue(ValueMetadataType.class).getProvenance()
                         .getAcquisition().get(0).getChannel().equals("acquisition-channel"));
+
+        and("owners are parsed without assignments, which are not needed for the references");
+        assertThat(result).allSatisfy(r -> {
+            PrismContainerValue<?> owner = ((Item<?, ?>) r.asReferenceValue().getParent()).getParent();
+            PrismContainer<?> assignments = owner.findContainer(UserType.F_ASSIGNMENT);
+            if (assignments != null) {
+                assertThat(assignments.isIncomplete()).isTrue();
+                assertThat(assignments.getValues()).isEmpty();
+            }
+        });
     }
 
     @Test
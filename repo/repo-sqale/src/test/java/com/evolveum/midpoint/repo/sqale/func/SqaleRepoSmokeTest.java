@@ -11,6 +11,7 @@ import static com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPath
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.*;
 
@@ -28,6 +29,7 @@ import com.evolveum.midpoint.audit.api.AuditEventStage;
 import com.evolveum.midpoint.audit.api.AuditEventType;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.PrismObjectValue;
+import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.DeleteObjectResult;
 import com.evolveum.midpoint.repo.api.RepoModifyOptions;
@@ -142,13 +144,24 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
                 .parentOrgRef(orgOid, OrgType.COMPLEX_TYPE);
         repositoryService.addObject(user.asPrismObject(), null, result);
 
+        and("closure is damaged by removing the parent-child row");
+        QOrgClosure oc = new QOrgClosure();
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.newDelete(oc)
+                    .where(oc.ancestorOid.eq(UUID.fromString(rootOid))
+                            .and(oc.descendantOid.eq(UUID.fromString(orgOid))))
+                    .execute();
+            jdbcSession.commit();
+        }
+
         when("testOrgClosureConsistency() is called with rebuild flag");
         repositoryService.testOrgClosureConsistency(true, result);
 
         expect("operation is successful and contains info about closure");
         assertThatOperationResult(result).isSuccess();
         OperationResult subresult = result.getLastSubresult();
-        assertThat(subresult.getReturnSingle("closure-count")).isEqualTo(String.valueOf(baseCount));
+        // two equality rows for each org, parent-child row was deleted
+        assertThat(subresult.getReturnSingle("closure-count")).isEqualTo(String.valueOf(baseCount + 2));
         assertThat(subresult.getReturnSingle("expected-count"))
                 // two equality rows for each org + 1 for parent reference
                 .isEqualTo(String.valueOf(baseCount + 3));
@@ -159,14 +172,14 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
     }
 
     @Test
-    public void test021OrgClosureIsRefreshedBeforeOrgFilterQuery() throws Exception {
+    public void test021OrgClosureIsUpdatedWithParentOrgRefs() throws Exception {
         OperationResult result = createOperationResult();
 
         given("reset closure");
         refreshOrgClosureForce();
         long baseCount = count(new QOrgClosure());
 
-        given("user belonging to org hierarchy");
+        when("user belonging to org hierarchy is added");
         OrgType orgRoot = new OrgType().name("orgRoot" + getTestNumber());
         String rootOid = repositoryService.addObject(orgRoot.asPrismObject(), null, result);
         OrgType org = new OrgType().name("org" + getTestNumber())
@@ -175,21 +188,83 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
         UserType user = new UserType().name("user" + getTestNumber())
                 .parentOrgRef(orgOid, OrgType.COMPLEX_TYPE);
         String userOid = repositoryService.addObject(user.asPrismObject(), null, result);
-        assertThat(count(new QOrgClosure())).isEqualTo(baseCount); // not refreshed yet
 
-        when("query with org filter is used");
+        then("closure is updated without any refresh");
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 3); // see previous test
+
+        and("query with org filter returns proper results");
         SearchResultList<PrismObject<UserType>> users = repositoryService.searchObjects(
                 UserType.class, prismContext.queryFor(UserType.class).isChildOf(rootOid).build(),
                 null, result);
-
-        expect("operation is successful and returns proper results");
         assertThatOperationResult(result).isSuccess();
         assertThat(users).hasSize(1)
                 .extracting(p -> p.asObjectable().getOid())
                 .containsExactlyInAnyOrder(userOid);
 
-        and("closure is rebuilt");
-        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 3); // see previous test
+        when("parent org reference of the org is removed");
+        repositoryService.modifyObject(OrgType.class, orgOid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(ObjectType.F_PARENT_ORG_REF)
+                        .delete(new ObjectReferenceType().oid(rootOid).type(OrgType.COMPLEX_TYPE))
+                        .asObjectDelta(orgOid).getModifications(),
+                result);
+
+        then("closure contains only identity rows for the orgs");
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 2);
+        assertThat(repositoryService.searchObjects(
+                UserType.class, prismContext.queryFor(UserType.class).isChildOf(rootOid).build(),
+                null, result)).isEmpty();
+    }
+
+    @Test
+    public void test022OrgClosureWithMultipleParents() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("reset closure");
+        refreshOrgClosureForce();
+        long baseCount = count(new QOrgClosure());
+
+        and("org with two parents under the same root");
+        String rootOid = repositoryService.addObject(
+                new OrgType().name("orgRoot" + getTestNumber()).asPrismObject(), null, result);
+        String parent1Oid = repositoryService.addObject(
+                new OrgType().name("orgParent1" + getTestNumber())
+                        .parentOrgRef(rootOid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(), null, result);
+        String parent2Oid = repositoryService.addObject(
+                new OrgType().name("orgParent2" + getTestNumber())
+                        .parentOrgRef(rootOid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(), null, result);
+        String childOid = repositoryService.addObject(
+                new OrgType().name("orgChild" + getTestNumber())
+                        .parentOrgRef(parent1Oid, OrgType.COMPLEX_TYPE)
+                        .parentOrgRef(parent2Oid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(), null, result);
+        // 4 identity rows, 2 parents under root, child under both parents and under root
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 9);
+
+        when("one of the parents is removed from the child");
+        repositoryService.modifyObject(OrgType.class, childOid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(ObjectType.F_PARENT_ORG_REF)
+                        .delete(new ObjectReferenceType().oid(parent1Oid).type(OrgType.COMPLEX_TYPE))
+                        .asObjectDelta(childOid).getModifications(),
+                result);
+
+        then("child is still under the root via the other parent");
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 8);
+        assertThat(repositoryService.isAncestor(
+                repositoryService.getObject(OrgType.class, rootOid, null, result), childOid))
+                .isTrue();
+        assertThat(repositoryService.isAncestor(
+                repositoryService.getObject(OrgType.class, parent1Oid, null, result), childOid))
+                .isFalse();
+
+        and("closure is consistent");
+        repositoryService.testOrgClosureConsistency(false, result);
+        OperationResult subresult = result.getLastSubresult();
+        assertThat(subresult.getReturnSingle("closure-count"))
+                .isEqualTo(subresult.getReturnSingle("expected-count"));
     }
 
     @Test
@@ -300,6 +375,107 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
         assertThatOperationResult(result).isFatalError();
     }
 
+    @Test
+    public void test205GetObjectWithFullObjectInOtherFormat() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("existing user with full object stored as XML (e.g. before the full object format was changed)");
+        UserType user = new UserType()
+                .name("user" + getTestNumber())
+                .emailAddress("user@example.com");
+        String userOid = repositoryService.addObject(user.asPrismObject(), null, result);
+        QUser u = aliasFor(QUser.class);
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.newUpdate(u)
+                    .set(u.fullObject, prismContext.xmlSerializer()
+                            .serialize(user.asPrismObject())
+                            .getBytes(StandardCharsets.UTF_8))
+                    .where(u.oid.eq(UUID.fromString(userOid)))
+                    .execute();
+            jdbcSession.commit();
+        }
+
+        when("getObject is called for the user");
+        PrismObject<UserType> object =
+                repositoryService.getObject(UserType.class, userOid, null, result);
+
+        then("object is parsed from XML regardless of the configured format");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(object.asObjectable().getEmailAddress()).isEqualTo("user@example.com");
+
+        when("the user is modified");
+        repositoryService.modifyObject(UserType.class, userOid,
+                prismContext.deltaFor(UserType.class)
+                        .item(UserType.F_EMAIL_ADDRESS).replace("user2@example.com")
+                        .asObjectDelta(userOid).getModifications(),
+                result);
+
+        then("full object is stored in the configured format again");
+        MUser row = selectObjectByOid(QUser.class, UUID.fromString(userOid));
+        assertThat(sqlRepoContext.detectLanguage(row.fullObject))
+                .isEqualTo(sqlRepoContext.getJdbcRepositoryConfiguration().getFullObjectFormat());
+        assertThat(repositoryService.getObject(UserType.class, userOid, null, result)
+                .asObjectable().getEmailAddress()).isEqualTo("user2@example.com");
+    }
+
+    @Test
+    public void test206GetAndSearchObjectWithExcludedItems() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("existing user with assignments");
+        String userName = "user" + getTestNumber();
+        UserType user = new UserType()
+                .name(userName)
+                .emailAddress("user@example.com")
+                .assignment(new AssignmentType()
+                        .targetRef(UUID.randomUUID().toString(), RoleType.COMPLEX_TYPE))
+                .assignment(new AssignmentType()
+                        .targetRef(UUID.randomUUID().toString(), RoleType.COMPLEX_TYPE));
+        String userOid = repositoryService.addObject(user.asPrismObject(), null, result);
+        Collection<SelectorOptions<GetOperationOptions>> options =
+                SchemaService.get().getOperationOptionsBuilder()
+                        .item(UserType.F_ASSIGNMENT).dontRetrieve()
+                        .build();
+
+        when("getObject is called with assignments excluded");
+        PrismObject<UserType> object =
+                repositoryService.getObject(UserType.class, userOid, options, result);
+
+        then("object without assignments is returned, assignment container is marked as incomplete");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(object.asObjectable().getEmailAddress()).isEqualTo("user@example.com");
+        assertThat(object.asObjectable().getAssignment()).isEmpty();
+        assertThat(object.findContainer(UserType.F_ASSIGNMENT).isIncomplete()).isTrue();
+
+        when("searchObjects is called with assignments excluded");
+        SearchResultList<UserType> users = searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_NAME).eqPoly(userName)
+                        .build(),
+                result, options);
+
+        then("found object is without assignments as well");
+        assertThat(users).singleElement()
+                .matches(u -> u.getAssignment().isEmpty())
+                .matches(u -> u.asPrismObject().findContainer(UserType.F_ASSIGNMENT).isIncomplete());
+
+        and("get without options still returns the assignments");
+        assertThat(repositoryService.getObject(UserType.class, userOid, null, result)
+                .asObjectable().getAssignment()).hasSize(2);
+
+        when("getObject is called with an item of the same local name from another namespace excluded");
+        PrismObject<UserType> object2 = repositoryService.getObject(UserType.class, userOid,
+                SchemaService.get().getOperationOptionsBuilder()
+                        .item(new ItemName("http://example.com/other", UserType.F_ASSIGNMENT.getLocalPart()))
+                        .dontRetrieve()
+                        .build(),
+                result);
+
+        then("assignments are returned, as the items are matched by qualified names");
+        assertThat(object2.asObjectable().getAssignment()).hasSize(2);
+        assertThat(object2.findContainer(UserType.F_ASSIGNMENT).isIncomplete()).isFalse();
+    }
+
     @Test
     public void test210GetVersion() throws Exception {
         OperationResult result = createOperationResult();
@@ -492,6 +668,73 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
         assertThat(entry.sql).startsWith("select u.oid, u.fullObject");
     }
 
+    @Test
+    public void test410EstimatedCount() throws Exception {
+        if (!SqlRecorder.LOGGER.isDebugEnabled()) {
+            throw new SkipException("We need debug on SqlRecorder logger for this test");
+        }
+
+        OperationResult result = createOperationResult();
+
+        when("estimated count of users is requested");
+        queryRecorder.clearBufferAndStartRecording();
+        int count = repositoryService.countObjects(UserType.class, null,
+                SelectorOptions.createCollection(GetOperationOptions.createEstimatedCount()), result);
+
+        then("the estimate is obtained from the plan, but small count is counted exactly");
+        assertThat(count).isEqualTo(repositoryService.countObjects(UserType.class, null, null, result));
+
+        Queue<SqlRecorder.QueryEntry> queryBuffer = queryRecorder.getQueryBuffer();
+        assertThat(queryBuffer).hasSizeGreaterThanOrEqualTo(2);
+        assertThat(queryBuffer.remove().sql).startsWith("EXPLAIN select 1");
+        assertThat(queryBuffer.remove().sql).startsWith("select count(*)");
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test411EstimatedCountOfManyObjects() throws Exception {
+        if (!SqlRecorder.LOGGER.isDebugEnabled()) {
+            throw new SkipException("We need debug on SqlRecorder logger for this test");
+        }
+
+        OperationResult result = createOperationResult();
+
+        given("more dashboards than the estimated count threshold with fresh planner statistics");
+        int dashboards = GetOperationOptions.ESTIMATED_COUNT_THRESHOLD + 2_000;
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("INSERT INTO m_dashboard (nameOrig, nameNorm)"
+                    + " SELECT 'estimate-' || i, 'estimate-' || i FROM generate_series(1, " + dashboards + ") i");
+            jdbcSession.commit();
+        }
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("ANALYZE m_dashboard");
+            jdbcSession.commit();
+        }
+
+        try {
+            when("estimated count of dashboards is requested");
+            queryRecorder.clearBufferAndStartRecording();
+            int count = repositoryService.countObjects(DashboardType.class, null,
+                    SelectorOptions.createCollection(GetOperationOptions.createEstimatedCount()), result);
+            queryRecorder.stopRecording();
+
+            then("the estimate is obtained from the plan only, without counting the rows");
+            assertThatOperationResult(result).isSuccess();
+            assertThat(count).isBetween(
+                    GetOperationOptions.ESTIMATED_COUNT_THRESHOLD, dashboards * 2);
+            Queue<SqlRecorder.QueryEntry> queryBuffer = queryRecorder.getQueryBuffer();
+            assertThat(queryBuffer).isNotEmpty();
+            assertThat(queryBuffer.peek().sql).startsWith("EXPLAIN select 1");
+            assertThat(queryBuffer).noneMatch(entry -> entry.sql.startsWith("select count"));
+        } finally {
+            try (JdbcSession jdbcSession = startTransaction()) {
+                jdbcSession.executeStatement("DELETE FROM m_dashboard WHERE nameNorm LIKE 'estimate-%'");
+                jdbcSession.executeStatement("ANALYZE m_dashboard");
+                jdbcSession.commit();
+            }
+        }
+    }
+
     @Test
     public void test500ExecuteQueryDiagnostics() throws Exception {
         // also known as "Query Playground"
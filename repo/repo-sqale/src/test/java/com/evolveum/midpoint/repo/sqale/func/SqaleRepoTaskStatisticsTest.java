@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.repo.api.RepoAddOptions;
+import com.evolveum.midpoint.repo.api.RepoModifyOptions;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTaskStatistics;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+public class SqaleRepoTaskStatisticsTest extends SqaleRepoBaseTest {
+
+    private static final ItemPath ACTIVITY_PROGRESS_PATH =
+            ItemPath.create(TaskType.F_ACTIVITY_STATE, TaskActivityStateType.F_ACTIVITY, ActivityStateType.F_PROGRESS);
+
+    private String taskOid;
+    private String taskVersion;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+
+        taskOid = repositoryService.addObject(
+                new TaskType()
+                        .name("task")
+                        .activityState(new TaskActivityStateType()
+                                .activity(new ActivityStateType()))
+                        .asPrismObject(),
+                null, result);
+        taskVersion = repositoryService.getVersion(TaskType.class, taskOid, result);
+
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test100StoreStatistics() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("progress of the task and its activity is stored");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(10L)
+                        .item(ACTIVITY_PROGRESS_PATH).replace(new ActivityProgressType().expectedTotal(100))
+                        .asItemDeltas(),
+                result);
+
+        then("the values are visible in the task, the task version is not changed");
+        assertThatOperationResult(result).isSuccess();
+        TaskType task = repositoryService.getObject(TaskType.class, taskOid, null, result).asObjectable();
+        assertThat(task.getProgress()).isEqualTo(10L);
+        assertThat(task.getActivityState().getActivity().getProgress().getExpectedTotal()).isEqualTo(100);
+        assertThat(task.getVersion()).isEqualTo(taskVersion);
+
+        QTaskStatistics tst = new QTaskStatistics();
+        assertCount(tst, 2, tst.ownerOid.eq(UUID.fromString(taskOid)));
+    }
+
+    @Test
+    public void test110StoreStatisticsAgain() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("progress of the task is stored again");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(20L)
+                        .asItemDeltas(),
+                result);
+
+        then("the last value is visible in the task, and it replaces the previous one in the table");
+        assertThatOperationResult(result).isSuccess();
+        TaskType task = repositoryService.getObject(TaskType.class, taskOid, null, result).asObjectable();
+        assertThat(task.getProgress()).isEqualTo(20L);
+        assertThat(task.getActivityState().getActivity().getProgress().getExpectedTotal()).isEqualTo(100);
+
+        QTaskStatistics tst = new QTaskStatistics();
+        assertCount(tst, 2, tst.ownerOid.eq(UUID.fromString(taskOid)));
+    }
+
+    @Test
+    public void test120RegularModificationFoldsStatistics() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("the task is modified in the regular way");
+        repositoryService.modifyObject(TaskType.class, taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_DESCRIPTION).replace("modified")
+                        .asItemDeltas(),
+                result);
+
+        then("the statistics are moved to the task object");
+        assertThatOperationResult(result).isSuccess();
+        QTaskStatistics tst = new QTaskStatistics();
+        assertCount(tst, 0, tst.ownerOid.eq(UUID.fromString(taskOid)));
+
+        TaskType task = repositoryService.getObject(TaskType.class, taskOid, null, result).asObjectable();
+        assertThat(task.getDescription()).isEqualTo("modified");
+        assertThat(task.getProgress()).isEqualTo(20L);
+        assertThat(task.getActivityState().getActivity().getProgress().getExpectedTotal()).isEqualTo(100);
+        assertThat(task.getVersion()).isNotEqualTo(taskVersion);
+    }
+
+    @Test
+    public void test130StoreNonReplaceDelta() {
+        expect("add delta is refused");
+        assertThatThrownBy(() -> repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_DEPENDENT).add("dependent")
+                        .asItemDeltas(),
+                createOperationResult()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test140StoreStatisticsOfNonExistingTask() {
+        expect("statistics of non-existing task are not stored");
+        assertThatThrownBy(() -> repositoryService.storeTaskStatistics(UUID.randomUUID().toString(),
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(1L)
+                        .asItemDeltas(),
+                createOperationResult()))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    public void test142OlderChildDoesNotOverwriteNewerParent() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("a child item is stored before its parent item");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(ACTIVITY_PROGRESS_PATH.append(ActivityProgressType.F_EXPECTED_TOTAL)).replace(5)
+                        .asItemDeltas(),
+                result);
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(ACTIVITY_PROGRESS_PATH).replace(new ActivityProgressType().expectedTotal(7))
+                        .asItemDeltas(),
+                result);
+
+        then("the newer (parent) value is visible");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(getExpectedTotal(taskOid, result)).isEqualTo(7);
+
+        when("the child item is stored again");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(ACTIVITY_PROGRESS_PATH.append(ActivityProgressType.F_EXPECTED_TOTAL)).replace(9)
+                        .asItemDeltas(),
+                result);
+
+        then("the newer (child) value is visible");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(getExpectedTotal(taskOid, result)).isEqualTo(9);
+    }
+
+    @Test
+    public void test144SearchTasksWithStatistics() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("two tasks with statistics stored separately");
+        String otherTaskOid = repositoryService.addObject(
+                new TaskType()
+                        .name("other task")
+                        .asPrismObject(),
+                null, result);
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(41L)
+                        .asItemDeltas(),
+                result);
+        repositoryService.storeTaskStatistics(otherTaskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(42L)
+                        .asItemDeltas(),
+                result);
+
+        when("the tasks are searched for");
+        SearchResultList<PrismObject<TaskType>> tasks = repositoryService.searchObjects(TaskType.class,
+                prismContext.queryFor(TaskType.class)
+                        .id(taskOid, otherTaskOid)
+                        .build(),
+                null, result);
+
+        then("the statistics are applied to each of them");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(tasks).hasSize(2);
+        for (PrismObject<TaskType> task : tasks) {
+            assertThat(task.asObjectable().getProgress())
+                    .as("progress of " + task)
+                    .isEqualTo(task.getOid().equals(taskOid) ? 41L : 42L);
+        }
+
+        repositoryService.deleteObject(TaskType.class, otherTaskOid, result);
+    }
+
+    @Test
+    public void test146ReindexFoldsStatistics() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("the task has statistics stored separately");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(43L)
+                        .asItemDeltas(),
+                result);
+
+        when("the task is reindexed");
+        repositoryService.modifyObject(TaskType.class, taskOid, List.of(),
+                RepoModifyOptions.createForceReindex(), result);
+
+        then("the statistics are moved to the task object");
+        assertThatOperationResult(result).isSuccess();
+        QTaskStatistics tst = new QTaskStatistics();
+        assertCount(tst, 0, tst.ownerOid.eq(UUID.fromString(taskOid)));
+        TaskType task = repositoryService.getObject(TaskType.class, taskOid, null, result).asObjectable();
+        assertThat(task.getProgress()).isEqualTo(43L);
+    }
+
+    @Test
+    public void test148OverwriteDropsStatistics() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("the task has statistics stored separately");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(44L)
+                        .asItemDeltas(),
+                result);
+
+        when("the task is overwritten by a task without progress");
+        repositoryService.addObject(
+                new TaskType()
+                        .oid(taskOid)
+                        .name("task")
+                        .activityState(new TaskActivityStateType()
+                                .activity(new ActivityStateType()))
+                        .asPrismObject(),
+                RepoAddOptions.createOverwrite(), result);
+
+        then("the statistics are gone");
+        assertThatOperationResult(result).isSuccess();
+        QTaskStatistics tst = new QTaskStatistics();
+        assertCount(tst, 0, tst.ownerOid.eq(UUID.fromString(taskOid)));
+        TaskType task = repositoryService.getObject(TaskType.class, taskOid, null, result).asObjectable();
+        assertThat(task.getProgress()).isNull();
+    }
+
+    private Integer getExpectedTotal(String oid, OperationResult result) throws Exception {
+        return repositoryService.getObject(TaskType.class, oid, null, result).asObjectable()
+                .getActivityState().getActivity().getProgress().getExpectedTotal();
+    }
+
+    @Test
+    public void test150DeleteTask() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("the task has statistics stored separately");
+        repositoryService.storeTaskStatistics(taskOid,
+                prismContext.deltaFor(TaskType.class)
+                        .item(TaskType.F_PROGRESS).replace(30L)
+                        .asItemDeltas(),
+                result);
+        QTaskStatistics tst = new QTaskStatistics();
+        assertCount(tst, 1, tst.ownerOid.eq(UUID.fromString(taskOid)));
+
+        when("the task is deleted");
+        repositoryService.deleteObject(TaskType.class, taskOid, result);
+
+        then("the statistics are deleted as well");
+        assertThatOperationResult(result).isSuccess();
+        assertCount(tst, 0, tst.ownerOid.eq(UUID.fromString(taskOid)));
+    }
+}
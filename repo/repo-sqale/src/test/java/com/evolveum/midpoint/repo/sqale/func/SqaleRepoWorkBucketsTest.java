@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.api.RepositoryService.WorkBucketsCreator;
+import com.evolveum.midpoint.repo.api.WorkBucketAllocationResult;
+import com.evolveum.midpoint.repo.api.WorkBucketAllocationResult.Situation;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTaskBucket;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.NumericIntervalWorkBucketContentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
+
+public class SqaleRepoWorkBucketsTest extends SqaleRepoBaseTest {
+
+    private static final ActivityPath ACTIVITY_PATH = ActivityPath.fromId("reconciliation", "resourceObjects");
+
+    private static final String WORKER_1_OID = UUID.randomUUID().toString();
+    private static final String WORKER_2_OID = UUID.randomUUID().toString();
+
+    private String coordinatorOid;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+
+        coordinatorOid = repositoryService.addObject(
+                new TaskType().name("coordinator").asPrismObject(), null, result);
+
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test100AllocateNewBuckets() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("worker 1 asks for a bucket for the first time");
+        WorkBucketAllocationResult allocation1 = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_1_OID, creator(3, 1), result);
+
+        then("new bucket is created and delegated to the worker");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(allocation1.situation()).isEqualTo(Situation.CREATED_NEW);
+        assertAllocatedBucket(allocation1.bucket(), 1, WORKER_1_OID);
+
+        when("worker 1 asks again");
+        WorkBucketAllocationResult allocation1again = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_1_OID, creator(3, 1), result);
+
+        then("the same bucket is returned");
+        assertThat(allocation1again.situation()).isEqualTo(Situation.FOUND_DELEGATED_TO_ME);
+        assertAllocatedBucket(allocation1again.bucket(), 1, WORKER_1_OID);
+        assertThat(allocation1again.bucket().getContent())
+                .isEqualTo(allocation1.bucket().getContent());
+
+        when("worker 2 asks for a bucket");
+        WorkBucketAllocationResult allocation2 = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_2_OID, creator(3, 1), result);
+
+        then("next bucket is created for it");
+        assertThat(allocation2.situation()).isEqualTo(Situation.CREATED_NEW);
+        assertAllocatedBucket(allocation2.bucket(), 2, WORKER_2_OID);
+
+        QTaskBucket tb = new QTaskBucket();
+        assertCount(tb, 2, tb.state.eq(WorkBucketStateType.DELEGATED));
+    }
+
+    @Test
+    public void test110CompleteBucket() {
+        OperationResult result = createOperationResult();
+
+        when("bucket delegated to worker 1 is completed");
+        Integer completed = repositoryService.completeWorkBucket(coordinatorOid, ACTIVITY_PATH, 1, result);
+
+        then("number of complete buckets is returned");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(completed).isEqualTo(1);
+
+        expect("non-existing bucket is not completed");
+        assertThat(repositoryService.completeWorkBucket(coordinatorOid, ACTIVITY_PATH, 99, result))
+                .isNull();
+
+        expect("already complete bucket cannot be completed again");
+        assertThatThrownBy(() -> repositoryService.completeWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, 1, createOperationResult()))
+                .isInstanceOf(SystemException.class);
+    }
+
+    @Test
+    public void test120ReleaseAndReclaimBuckets() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("buckets of worker 2 are released");
+        int released = repositoryService.releaseWorkBuckets(
+                coordinatorOid, ACTIVITY_PATH, WORKER_2_OID, null, result);
+
+        then("its bucket is ready again and worker 1 gets it");
+        assertThat(released).isEqualTo(1);
+        WorkBucketAllocationResult allocation = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_1_OID, creator(3, 1), result);
+        assertThat(allocation.situation()).isEqualTo(Situation.FOUND_READY);
+        assertAllocatedBucket(allocation.bucket(), 2, WORKER_1_OID);
+
+        when("buckets of workers other than worker 2 are reclaimed");
+        int reclaimed = repositoryService.reclaimWorkBuckets(
+                coordinatorOid, ACTIVITY_PATH, List.of(WORKER_2_OID), result);
+
+        then("bucket of worker 1 is ready again");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(reclaimed).isEqualTo(1);
+        QTaskBucket tb = new QTaskBucket();
+        assertCount(tb, 1, tb.state.eq(WorkBucketStateType.READY), tb.workerOid.isNull());
+    }
+
+    @Test
+    public void test130AllocateUntilNothingMore() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("worker 2 takes the ready bucket and completes it");
+        WorkBucketAllocationResult allocation = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_2_OID, creator(3, 1), result);
+        assertThat(allocation.situation()).isEqualTo(Situation.FOUND_READY);
+        repositoryService.completeWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, allocation.bucket().getSequentialNumber(), result);
+
+        when("worker 1 takes the last bucket");
+        allocation = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_1_OID, creator(3, 1), result);
+
+        then("the last bucket is created");
+        assertThat(allocation.situation()).isEqualTo(Situation.CREATED_NEW);
+        assertAllocatedBucket(allocation.bucket(), 3, WORKER_1_OID);
+
+        expect("worker 2 gets nothing, but some bucket is still being processed");
+        allocation = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_2_OID, creator(3, 1), result);
+        assertThat(allocation.situation()).isEqualTo(Situation.NOTHING_MORE_SOME_DELEGATED);
+        assertThat(allocation.bucket()).isNull();
+
+        when("the last bucket is completed");
+        Integer completed = repositoryService.completeWorkBucket(coordinatorOid, ACTIVITY_PATH, 3, result);
+
+        then("all buckets are complete and there's definitely nothing more");
+        assertThat(completed).isEqualTo(3);
+        allocation = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_2_OID, creator(3, 1), result);
+        assertThat(allocation.situation()).isEqualTo(Situation.NOTHING_MORE_DEFINITE);
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test140DeleteBuckets() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("buckets for the activity are deleted");
+        repositoryService.deleteWorkBuckets(coordinatorOid, ACTIVITY_PATH, result);
+
+        then("there are no buckets and the allocation starts from the beginning");
+        assertThatOperationResult(result).isSuccess();
+        QTaskBucket tb = new QTaskBucket();
+        assertCount(tb, 0, tb.ownerOid.eq(UUID.fromString(coordinatorOid)));
+
+        WorkBucketAllocationResult allocation = repositoryService.allocateWorkBucket(
+                coordinatorOid, ACTIVITY_PATH, WORKER_1_OID, creator(3, 1), result);
+        assertThat(allocation.situation()).isEqualTo(Situation.CREATED_NEW);
+        assertAllocatedBucket(allocation.bucket(), 1, WORKER_1_OID);
+
+        repositoryService.deleteWorkBuckets(coordinatorOid, null, result);
+        assertCount(tb, 0, tb.ownerOid.eq(UUID.fromString(coordinatorOid)));
+    }
+
+    @Test
+    public void test200ConcurrentWorkers() throws Exception {
+        given("fresh activity and multiple workers");
+        ActivityPath activityPath = ActivityPath.fromId("concurrent");
+        int buckets = 30;
+        int workers = 5;
+
+        when("workers allocate and complete buckets concurrently");
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            String workerOid = UUID.randomUUID().toString();
+            futures.add(executor.submit(() -> {
+                OperationResult result = createOperationResult();
+                List<Integer> processed = new ArrayList<>();
+                for (;;) {
+                    WorkBucketAllocationResult allocation = repositoryService.allocateWorkBucket(
+                            coordinatorOid, activityPath, workerOid, creator(buckets, 5), result);
+                    WorkBucketType bucket = allocation.bucket();
+                    if (bucket == null) {
+                        if (allocation.situation() == Situation.NOTHING_MORE_DEFINITE) {
+                            return processed;
+                        }
+                        Thread.sleep(10);
+                        continue;
+                    }
+                    processed.add(bucket.getSequentialNumber());
+                    repositoryService.completeWorkBucket(
+                            coordinatorOid, activityPath, bucket.getSequentialNumber(), result);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        then("each bucket is processed exactly once");
+        List<Integer> allProcessed = new ArrayList<>();
+        for (Future<List<Integer>> future : futures) {
+            allProcessed.addAll(future.get(1, TimeUnit.MINUTES));
+        }
+        assertThat(allProcessed)
+                .hasSize(buckets)
+                .doesNotHaveDuplicates()
+                .allMatch(n -> n >= 1 && n <= buckets);
+
+        QTaskBucket tb = new QTaskBucket();
+        assertCount(tb, buckets,
+                tb.activityPath.eq(activityPath.toString()), tb.state.eq(WorkBucketStateType.COMPLETE));
+    }
+
+    /** Creates up to `batchSize` numeric buckets following the last one, the last possible one being `max`. */
+    private WorkBucketsCreator creator(int max, int batchSize) {
+        return lastBucket -> {
+            int last = lastBucket != null ? lastBucket.getSequentialNumber() : 0;
+            List<WorkBucketType> newBuckets = new ArrayList<>();
+            for (int seq = last + 1; seq <= Math.min(max, last + batchSize); seq++) {
+                newBuckets.add(new WorkBucketType()
+                        .sequentialNumber(seq)
+                        .content(new NumericIntervalWorkBucketContentType()
+                                .from(BigInteger.valueOf((seq - 1) * 100L))
+                                .to(BigInteger.valueOf(seq * 100L))));
+            }
+            return newBuckets;
+        };
+    }
+
+    private void assertAllocatedBucket(WorkBucketType bucket, int sequentialNumber, String workerOid) {
+        assertThat(bucket).isNotNull();
+        assertThat(bucket.getSequentialNumber()).isEqualTo(sequentialNumber);
+        assertThat(bucket.getState()).isEqualTo(WorkBucketStateType.DELEGATED);
+        assertThat(bucket.getWorkerRef()).isNotNull();
+        assertThat(bucket.getWorkerRef().getOid()).isEqualTo(workerOid);
+        assertThat(bucket.getContent()).isInstanceOf(NumericIntervalWorkBucketContentType.class);
+    }
+}
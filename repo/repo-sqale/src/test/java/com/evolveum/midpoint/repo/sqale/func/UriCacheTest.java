@@ -11,6 +11,13 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import static com.evolveum.midpoint.repo.sqale.UriCache.UNKNOWN_ID;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -79,4 +86,46 @@ public class UriCacheTest extends SqaleRepoBaseTest {
         then("it when stored to cache, id from cache 1 will be obtained");
         assertThat(uriCache2.processCacheableUri(uriValue)).isEqualTo(uriId);
     }
+
+    @Test
+    public void test400UnknownIdPreloadsNewerRows() {
+        given("multiple URIs are stored in cache 1");
+        String uriValue = "test-uri-" + getTestNameShort();
+        Integer uriId1 = uriCache1.processCacheableUri(uriValue + "-1");
+        Integer uriId2 = uriCache1.processCacheableUri(uriValue + "-2");
+        long preloadedBefore = uriCache2.getStatistics().getPreloadedRows();
+
+        when("one of them is obtained by ID from cache 2");
+        assertThat(uriCache2.getUri(uriId1)).isEqualTo(uriValue + "-1");
+
+        then("the other one is loaded into cache 2 as well");
+        assertThat(uriCache2.getStatistics().getPreloadedRows()).isGreaterThan(preloadedBefore);
+        long missesBefore = uriCache2.getStatistics().getMisses();
+        assertThat(uriCache2.getUri(uriId2)).isEqualTo(uriValue + "-2");
+        assertThat(uriCache2.getStatistics().getMisses()).isEqualTo(missesBefore);
+    }
+
+    @Test
+    public void test500ConcurrentInsertOfTheSameUri() throws Exception {
+        given("multiple threads and a new URI");
+        String uriValue = "test-uri-" + getTestNameShort();
+        int threads = 5;
+
+        when("the URI is stored concurrently by both caches in all the threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            UriCache uriCache = i % 2 == 0 ? uriCache1 : uriCache2;
+            futures.add(executor.submit(() -> uriCache.processCacheableUri(uriValue)));
+        }
+        executor.shutdown();
+
+        then("all the threads get the same ID");
+        List<Integer> ids = new ArrayList<>();
+        for (Future<Integer> future : futures) {
+            ids.add(future.get(1, TimeUnit.MINUTES));
+        }
+        assertThat(ids).hasSize(threads)
+                .containsOnly(uriCache1.resolveUriToId(uriValue));
+    }
 }
@@ -411,6 +411,14 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
                 .fetchCount();
     }
 
+    /**
+     * Returns the estimated count, see {@link GetOperationOptions#isEstimatedCount}.
+     * By default, there is no cheap way to estimate the count, so the exact count is returned.
+     */
+    public int executeEstimatedCount(JdbcSession jdbcSession) {
+        return executeCount(jdbcSession);
+    }
+
     /**
      * Adds new LEFT JOIN to the query and returns {@link SqlQueryContext} for this join path.
      * The returned context still uses the same SQL query; any further filter processing will
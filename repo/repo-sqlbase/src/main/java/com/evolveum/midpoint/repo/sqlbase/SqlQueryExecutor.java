@@ -46,6 +46,9 @@ public class SqlQueryExecutor {
 
         context.beforeQuery();
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+            if (GetOperationOptions.isEstimatedCount(SelectorOptions.findRootOptions(options))) {
+                return context.executeEstimatedCount(jdbcSession);
+            }
             return context.executeCount(jdbcSession);
         }
     }
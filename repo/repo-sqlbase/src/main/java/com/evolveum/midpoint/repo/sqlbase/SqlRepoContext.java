@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.repo.sqlbase;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import javax.sql.DataSource;
@@ -166,6 +168,51 @@ public class SqlRepoContext {
         }
     }
 
+    /**
+     * Parses the serialized form directly from the stored bytes (UTF-8), avoiding the intermediate string.
+     * The language is detected from the first non-whitespace character, so that the rows stored
+     * before the change of the full object format are still readable; these are converted to the current
+     * format lazily when the object is modified.
+     */
+    public <T> RepositoryObjectParseResult<T> parsePrismObject(
+            byte[] serializedForm, Class<T> schemaType) throws SchemaException {
+        try {
+            PrismContext prismContext = schemaService.prismContext();
+            // "Postel mode", see the String version above
+            ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode();
+            T value = prismContext.parserFor(new ByteArrayInputStream(serializedForm))
+                    .language(detectLanguage(serializedForm))
+                    .context(parsingContext)
+                    .fastAddOperations()
+                    .parseRealValue(schemaType);
+            return new RepositoryObjectParseResult<>(parsingContext, value);
+        } catch (IOException e) {
+            throw new SystemException("Unexpected IO exception while parsing serialized form: " + e, e);
+        } catch (RuntimeException e) {
+            throw new SchemaException("Unexpected exception while parsing serialized form: " + e, e);
+        }
+    }
+
+    /**
+     * Returns the language of the serialized form based on its first non-whitespace character.
+     * Uses the configured full object format as a fallback, e.g. for empty input.
+     */
+    public String detectLanguage(byte[] serializedForm) {
+        for (byte b : serializedForm) {
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                continue;
+            }
+            if (b == '<') {
+                return PrismContext.LANG_XML;
+            } else if (b == '{' || b == '[') {
+                return PrismContext.LANG_JSON;
+            } else {
+                return PrismContext.LANG_YAML;
+            }
+        }
+        return getJdbcRepositoryConfiguration().getFullObjectFormat();
+    }
+
     @NotNull
     public PrismParserNoIO createStringParser(String serializedResult) {
         return schemaService.parserFor(serializedResult);
@@ -15,26 +15,90 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.RunningTask;
+import com.evolveum.midpoint.task.quartzimpl.util.VirtualThreads;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * Manages lightweight asynchronous tasks.
  *
+ * The handlers run on platform threads from a cached pool, or - if `virtualThreadsForLightweightTasks`
+ * is set in the task manager configuration and the JVM supports it - on virtual threads, one per handler.
+ * The latter is suitable for large numbers of worker threads that mostly wait for I/O (e.g. slow connectors).
+ *
  * TODO finish revision of this class
  */
 @Component
 public class LightweightTaskManager {
 
+    private static final Trace LOGGER = TraceManager.getTrace(LightweightTaskManager.class);
+
+    private static final String VIRTUAL_THREAD_NAME_PREFIX = "midpoint-lightweight-task-";
+
     @Autowired private LocalNodeState localNodeState;
+    @Autowired private TaskManagerConfiguration configuration;
 
     private final ExecutorService lightweightHandlersExecutor = Executors.newCachedThreadPool();
 
-    Future<?> submit(Runnable r) {
-        return lightweightHandlersExecutor.submit(r);
+    /** Created on first use, if configured. Guarded by `this`. */
+    private ExecutorService virtualThreadsExecutor;
+
+    /** True if virtual threads were requested but could not be used. Guarded by `this`. */
+    private boolean virtualThreadsUnavailable;
+
+    public LightweightTaskManager() {
+    }
+
+    /** For use outside Spring context, e.g. in benchmarks. */
+    @VisibleForTesting
+    public LightweightTaskManager(@NotNull TaskManagerConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Starts the runnable on a platform or virtual thread, according to the current configuration.
+     * Public only to allow benchmarking the executors; tasks should use {@link RunningLightweightTaskImpl#startLightweightHandler()}.
+     */
+    @VisibleForTesting
+    public Future<?> submit(Runnable r) {
+        return getExecutor().submit(r);
+    }
+
+    private ExecutorService getExecutor() {
+        if (!configuration.isVirtualThreadsForLightweightTasks()) {
+            return lightweightHandlersExecutor;
+        }
+        synchronized (this) {
+            if (virtualThreadsExecutor == null && !virtualThreadsUnavailable) {
+                virtualThreadsExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor(VIRTUAL_THREAD_NAME_PREFIX);
+                if (virtualThreadsExecutor != null) {
+                    LOGGER.info("Lightweight tasks will be executed on virtual threads");
+                } else {
+                    LOGGER.warn("Virtual threads for lightweight tasks were requested, but they are not supported"
+                            + " by this JVM (Java {}). Platform threads will be used.", Runtime.version().feature());
+                    virtualThreadsUnavailable = true;
+                }
+            }
+            return virtualThreadsExecutor != null ? virtualThreadsExecutor : lightweightHandlersExecutor;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lightweightHandlersExecutor.shutdown();
+        synchronized (this) {
+            if (virtualThreadsExecutor != null) {
+                virtualThreadsExecutor.shutdown();
+            }
+        }
     }
 
     public void waitForTransientChildrenAndCloseThem(RunningTask task, OperationResult result) {
@@ -21,6 +21,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskExecutionStateTy
 import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType;
 
 import org.jetbrains.annotations.NotNull;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
@@ -123,6 +124,7 @@ public class RunningLightweightTaskImpl extends RunningTaskQuartzImpl implements
                 LoggingUtils.logUnexpectedException(LOGGER, "Couldn't correctly close task {}", t, this);
                 setExecutionState(TaskExecutionStateType.CLOSED);
             }
+            clearThreadLocalState();
             LOGGER.debug("Lightweight task handler shell finishing; task = {}", this);
         };
 
@@ -130,6 +132,15 @@ public class RunningLightweightTaskImpl extends RunningTaskQuartzImpl implements
         LOGGER.debug("Lightweight task handler submitted to start; task = {}", this);
     }
 
+    /**
+     * Pooled platform threads would carry this state over to the next lightweight task; virtual threads are discarded
+     * after the task is done, so anything left here would only keep the referenced objects alive longer than needed.
+     */
+    private void clearThreadLocalState() {
+        OperationResult.unsetThreadLocalHandlingStrategy();
+        SecurityContextHolder.clearContext();
+    }
+
     private void setupSecurityContext(OperationResult result) {
         try {
             // Task owner is cloned because otherwise we get CMEs when recomputing the owner user during login process
@@ -243,7 +243,7 @@ public class RunningTaskQuartzImpl extends TaskQuartzImpl implements RunningTask
         addPendingModification(createPropertyDeltaIfPersistent(TaskType.F_EXPECTED_TOTAL, getExpectedTotal()));
         try {
             LOGGER.trace("Storing statistics into repository: {} pending modifications", getPendingModificationsCount());
-            flushPendingModifications(result);
+            flushPendingStatisticsModifications(result);
         } catch (ObjectAlreadyExistsException e) {
             throw new SystemException("Unexpected ObjectAlreadyExistsException: " + e.getMessage(), e);
         }
@@ -14,6 +14,7 @@ import com.google.common.base.Strings;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -85,6 +86,7 @@ public class TaskManagerConfiguration {
     private static final String SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY = "schedulerInitiallyStopped";
 
     private static final String LOCAL_NODE_CLUSTERING_ENABLED_CONFIG_ENTRY = "localNodeClusteringEnabled";
+    private static final String VIRTUAL_THREADS_FOR_LIGHTWEIGHT_TASKS_CONFIG_ENTRY = "virtualThreadsForLightweightTasks";
 
     // The following are deprecated.
     private static final String WORK_ALLOCATION_MAX_RETRIES_ENTRY = "workAllocationMaxRetries";
@@ -195,6 +197,12 @@ public class TaskManagerConfiguration {
     private boolean schedulerInitiallyStopped;
     private boolean localNodeClusteringEnabled;
 
+    /**
+     * Whether lightweight asynchronous tasks (e.g. worker threads of activities) should run on virtual threads.
+     * Requires Java 21 or later; otherwise platform threads are used.
+     */
+    private boolean virtualThreadsForLightweightTasks;
+
     private TaskExecutionLimitationsType taskExecutionLimitations;
 
     // quartz jdbc job store specific information
@@ -257,6 +265,7 @@ public class TaskManagerConfiguration {
             RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_CONFIG_ENTRY,
             SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY,
             LOCAL_NODE_CLUSTERING_ENABLED_CONFIG_ENTRY,
+            VIRTUAL_THREADS_FOR_LIGHTWEIGHT_TASKS_CONFIG_ENTRY,
             TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY,
             CHECK_FOR_TASK_CONCURRENT_EXECUTION_CONFIG_ENTRY,
             NODE_ALIVENESS_TIMEOUT_CONFIG_ENTRY,
@@ -369,6 +378,7 @@ public class TaskManagerConfiguration {
         runNowKeepsOriginalSchedule = c.getBoolean(RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_CONFIG_ENTRY, RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_DEFAULT);
         schedulerInitiallyStopped = c.getBoolean(SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY, false);
         localNodeClusteringEnabled = c.getBoolean(LOCAL_NODE_CLUSTERING_ENABLED_CONFIG_ENTRY, false);
+        virtualThreadsForLightweightTasks = c.getBoolean(VIRTUAL_THREADS_FOR_LIGHTWEIGHT_TASKS_CONFIG_ENTRY, false);
 
         if (c.containsKey(TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY)) {
             taskExecutionLimitations = parseExecutionLimitations(c.getString(TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY));
@@ -690,6 +700,15 @@ public class TaskManagerConfiguration {
         return schedulerInitiallyStopped;
     }
 
+    public boolean isVirtualThreadsForLightweightTasks() {
+        return virtualThreadsForLightweightTasks;
+    }
+
+    @VisibleForTesting
+    public void setVirtualThreadsForLightweightTasks(boolean virtualThreadsForLightweightTasks) {
+        this.virtualThreadsForLightweightTasks = virtualThreadsForLightweightTasks;
+    }
+
     @SuppressWarnings("WeakerAccess")
     public boolean isLocalNodeClusteringEnabled() {
         return localNodeClusteringEnabled;
@@ -391,6 +391,55 @@ public class TaskQuartzImpl implements Task {
         }
     }
 
+    /**
+     * Flushes pending modifications. If all of them are replacements of statistics or progress and the repository
+     * can store these separately, the task object itself is not rewritten. This keeps frequent statistics updates
+     * cheap even for large tasks. See {@link com.evolveum.midpoint.repo.api.RepositoryService#storeTaskStatistics}.
+     */
+    void flushPendingStatisticsModifications(OperationResult result)
+            throws ObjectNotFoundException, SchemaException, ObjectAlreadyExistsException {
+        if (isTransient() || recreateQuartzTrigger || !beans.repositoryService.supportsTaskStatisticsTable()) {
+            flushPendingModifications(result);
+            return;
+        }
+        List<ItemDelta<?, ?>> currentPendingModifications;
+        synchronized (pendingModifications) {
+            if (pendingModifications.stream().allMatch(TaskQuartzImpl::isStatisticsModification)) {
+                currentPendingModifications = new ArrayList<>(pendingModifications);
+                pendingModifications.clear();
+            } else {
+                currentPendingModifications = null;
+            }
+        }
+        if (currentPendingModifications == null) {
+            flushPendingModifications(result);
+        } else if (!currentPendingModifications.isEmpty()) {
+            beans.repositoryService.storeTaskStatistics(getOid(), currentPendingModifications, result);
+            beans.listenerRegistry.notifyTaskUpdated(this, result);
+        }
+    }
+
+    /** Legacy statistics and progress, and statistics and progress of activities; replace deltas only. */
+    private static boolean isStatisticsModification(ItemDelta<?, ?> delta) {
+        if (!delta.isReplace() || delta.isAdd() || delta.isDelete()) {
+            return false;
+        }
+        ItemPath path = delta.getPath();
+        if (path.equivalent(TaskType.F_OPERATION_STATS)
+                || path.equivalent(TaskType.F_PROGRESS)
+                || path.equivalent(TaskType.F_EXPECTED_TOTAL)) {
+            return true;
+        }
+        if (!path.startsWithName(TaskType.F_ACTIVITY_STATE)) {
+            return false;
+        }
+        ItemPath names = path.namedSegmentsOnly();
+        // .../activity/progress, .../activity/statistics or .../activity/statistics/xxx
+        return names.size() >= 3 && ActivityStateType.F_PROGRESS.matches(names.lastName())
+                || names.size() >= 3 && ActivityStateType.F_STATISTICS.matches(names.lastName())
+                || names.size() >= 4 && ActivityStateType.F_STATISTICS.matches(names.allExceptLast().lastName());
+    }
+
     int getPendingModificationsCount() {
         synchronized (pendingModifications) {
             return pendingModifications.size();
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.task.quartzimpl.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Access to virtual threads (Java 21+) from the code compiled for Java 17.
+ *
+ * The API is called reflectively; if it's not available, `null` is returned and the caller should use platform threads.
+ */
+public class VirtualThreads {
+
+    private static final Trace LOGGER = TraceManager.getTrace(VirtualThreads.class);
+
+    /** Are virtual threads supported by the current JVM? */
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /** Is the thread a virtual one? Always false if virtual threads are not supported. */
+    public static boolean isVirtual(@NotNull Thread thread) {
+        if (!isSupported()) {
+            return false;
+        }
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Couldn't determine whether " + thread + " is virtual: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each submitted task; or `null` if virtual threads
+     * are not supported. Virtual threads are not pooled, so the thread-local state does not survive the task.
+     */
+    public static @Nullable ExecutorService newVirtualThreadPerTaskExecutor(@NotNull String namePrefix) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("Couldn't create virtual threads executor, platform threads will be used: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+}
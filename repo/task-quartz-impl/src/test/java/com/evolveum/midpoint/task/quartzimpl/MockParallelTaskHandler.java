@@ -49,6 +49,7 @@ public class MockParallelTaskHandler implements TaskHandler {
     public static class MyLightweightTaskHandler implements LightweightTaskHandler {
         private boolean hasRun = false;
         private boolean hasExited = false;
+        private volatile Thread thread;
         private final long duration;
         private static final long STEP = 10;
 
@@ -60,6 +61,7 @@ public class MockParallelTaskHandler implements TaskHandler {
         public void run(RunningLightweightTask task) {
             LOGGER.trace("Handler for task {} running", task);
             hasRun = true;
+            thread = Thread.currentThread();
             long end = System.currentTimeMillis() + duration;
             RunningTask parentTask = task.getLightweightTaskParent();
             parentTask.setStatisticsRepoStoreInterval(1000L);
@@ -101,6 +103,9 @@ public class MockParallelTaskHandler implements TaskHandler {
         boolean hasExited() {
             return hasExited;
         }
+        Thread getThread() {
+            return thread;
+        }
     }
 
     private static boolean isAmongRunningChildren(RunningTask task, RunningTask parentTask) {
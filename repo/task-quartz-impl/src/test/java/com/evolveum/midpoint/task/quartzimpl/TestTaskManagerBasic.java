@@ -15,13 +15,18 @@ import static com.evolveum.midpoint.util.MiscUtil.extractSingleton;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import jakarta.annotation.PostConstruct;
 
 import com.evolveum.midpoint.schema.util.task.TaskTreeUtil;
 import com.evolveum.midpoint.task.api.RunningLightweightTask;
+import com.evolveum.midpoint.task.api.RunningTask;
 
 import com.evolveum.midpoint.util.exception.CommonException;
 
@@ -29,6 +34,8 @@ import org.jetbrains.annotations.NotNull;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.AssertJUnit;
@@ -54,6 +61,7 @@ import com.evolveum.midpoint.task.api.TaskConstants;
 import com.evolveum.midpoint.task.quartzimpl.cluster.ClusterManager;
 import com.evolveum.midpoint.task.quartzimpl.quartz.QuartzUtil;
 import com.evolveum.midpoint.task.quartzimpl.run.JobExecutor;
+import com.evolveum.midpoint.task.quartzimpl.util.VirtualThreads;
 import com.evolveum.midpoint.test.Checker;
 import com.evolveum.midpoint.test.IntegrationTestTools;
 import com.evolveum.midpoint.test.TestObject;
@@ -92,6 +100,7 @@ public class TestTaskManagerBasic extends AbstractTaskManagerTest {
     private static final TestObject<TaskType> TASK_TREE_CHILD_2 = TestObject.file(TEST_DIR, "task-tree-child-2.xml", "91919191-76e0-59e2-86d6-556655662021");
     private static final TestObject<TaskType> TASK_RUN_ON_DEMAND = TestObject.file(TEST_DIR, "task-run-on-demand.xml", "91919191-76e0-59e2-86d6-556655660022");
     private static final TestObject<TaskType> TASK_WITH_THREADS = TestObject.file(TEST_DIR, "task-with-threads.xml", "91919191-76e0-59e2-86d6-556655660100");
+    private static final TestObject<TaskType> TASK_WITH_THREADS_VIRTUAL = TestObject.file(TEST_DIR, "task-with-threads-virtual.xml", "91919191-76e0-59e2-86d6-556655660101");
     private static final TestObject<TaskType> TASK_WITH_THREADS_TO_SUSPEND = TestObject.file(TEST_DIR, "task-with-threads-to-suspend.xml", "91919191-76e0-59e2-86d6-556655660105");
     private static final TestObject<TaskType> TASK_SEC_GROUP_LIMIT_EXP_1 = TestObject.file(TEST_DIR, "task-sec-group-limit-exp-1.xml", "91919191-76e0-59e2-86d6-556655660108");
     private static final TestObject<TaskType> TASK_SEC_GROUP_LIMIT_EXP_1_RAM_1 = TestObject.file(TEST_DIR, "task-sec-group-limit-exp-1-ram-1.xml", "91919191-76e0-59e2-86d6-55665566a108");
@@ -109,6 +118,8 @@ public class TestTaskManagerBasic extends AbstractTaskManagerTest {
 
     private static final ItemName ITEM_SHIP_STATE = new ItemName(NS_EXT, "shipState");
 
+    @Autowired private LightweightTaskManager lightweightTaskManager;
+
     @BeforeSuite
     public void setup() throws SchemaException, SAXException, IOException {
         super.setup();
@@ -878,6 +889,84 @@ public class TestTaskManagerBasic extends AbstractTaskManagerTest {
         }
     }
 
+    /**
+     * Lightweight tasks from previous tests ran on pooled platform threads. These threads should have no thread-local
+     * state (security context, operation result handling strategy) left.
+     *
+     * All probes wait for each other, so they occupy all idle threads of the pool - including those used by the tasks.
+     */
+    @Test
+    public void test265ThreadLocalStateClearedAfterLightweightTasks() throws Exception {
+        given();
+        int probes = MockParallelTaskHandler.NUM_SUBTASKS;
+        CountDownLatch allStarted = new CountDownLatch(probes);
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+
+        when();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < probes; i++) {
+            futures.add(lightweightTaskManager.submit(() -> {
+                allStarted.countDown();
+                try {
+                    allStarted.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String thread = Thread.currentThread().getName();
+                if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                    problems.add("Security context left in " + thread);
+                }
+                if (OperationResult.getThreadLocalHandlingStrategyName() != null) {
+                    problems.add("Operation result handling strategy left in " + thread);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(20, TimeUnit.SECONDS);
+        }
+
+        then();
+        assertThat(problems).as("problems found").isEmpty();
+    }
+
+    /**
+     * Tests task with lightweight subtasks running on virtual threads (if supported by the JVM).
+     */
+    @Test
+    public void test270TaskWithThreadsOnVirtualThreads() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        taskManager.getConfiguration().setVirtualThreadsForLightweightTasks(true);
+        try {
+
+            when();
+            add(TASK_WITH_THREADS_VIRTUAL, result);
+            waitForTaskClose(TASK_WITH_THREADS_VIRTUAL.oid, result, 15000);
+
+            then();
+            Task task = getTaskWithResult(TASK_WITH_THREADS_VIRTUAL.oid, result);
+            displayDumpable("Task after", task);
+
+            RunningTask lastTaskExecuted = mockParallelTaskHandler.getLastTaskExecuted();
+            assertThat(lastTaskExecuted.getOid()).as("last task executed").isEqualTo(TASK_WITH_THREADS_VIRTUAL.oid);
+            Collection<? extends RunningLightweightTask> subtasks = lastTaskExecuted.getLightweightAsynchronousSubtasks();
+            assertEquals("Wrong number of subtasks", MockParallelTaskHandler.NUM_SUBTASKS, subtasks.size());
+            boolean virtualExpected = VirtualThreads.isSupported();
+            for (RunningLightweightTask subtask : subtasks) {
+                assertEquals("Wrong subtask state", TaskExecutionStateType.CLOSED, subtask.getExecutionState());
+                MockParallelTaskHandler.MyLightweightTaskHandler handler =
+                        (MockParallelTaskHandler.MyLightweightTaskHandler) subtask.getLightweightTaskHandler();
+                assertTrue("Handler has not run in " + subtask, handler.hasRun());
+                assertTrue("Handler has not exited in " + subtask, handler.hasExited());
+                assertThat(VirtualThreads.isVirtual(handler.getThread()))
+                        .as("handler thread " + handler.getThread() + " being virtual")
+                        .isEqualTo(virtualExpected);
+            }
+        } finally {
+            taskManager.getConfiguration().setVirtualThreadsForLightweightTasks(false);
+        }
+    }
+
     @NotNull
     private JobExecutionContext findJobForTask(TaskQuartzImpl task) throws SchedulerException {
         List<JobExecutionContext> jobExecutionContexts = localScheduler.getQuartzScheduler().getCurrentlyExecutingJobs();
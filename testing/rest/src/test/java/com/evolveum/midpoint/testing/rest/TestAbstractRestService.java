@@ -22,11 +22,13 @@ import org.apache.cxf.jaxrs.client.WebClient;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.Referencable;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.delta.ChangeType;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
@@ -631,6 +633,80 @@ public abstract class TestAbstractRestService extends RestServiceInitializer {
         getDummyAuditService().assertLoginLogout(SchemaConstants.CHANNEL_REST_URI);
     }
 
+    @Test
+    public void test210searchUsersStreaming() throws Exception {
+        List<String> allUserOids = getUserOidsOrderedByOid();
+        assertTrue("Not enough users for the test: " + allUserOids, allUserOids.size() >= 2);
+
+        WebClient client = prepareClient();
+        client.path("/users/search/stream");
+        client.query("limit", 2);
+
+        when();
+        Response response = client.post(new QueryType());
+
+        then();
+        assertStatus(response, 200);
+        String body = response.readEntity(String.class);
+        displayValue("Response body", body);
+        assertEquals("Wrong objects returned", allUserOids.subList(0, 2), getStreamedUserOids(body));
+
+        displayDumpable("Audit", getDummyAuditService());
+        getDummyAuditService().assertRecords(2);
+        getDummyAuditService().assertLoginLogout(SchemaConstants.CHANNEL_REST_URI);
+    }
+
+    @Test
+    public void test211searchUsersStreamingAfterOid() throws Exception {
+        List<String> allUserOids = getUserOidsOrderedByOid();
+
+        WebClient client = prepareClient();
+        client.path("/users/search/stream");
+        client.query("after", allUserOids.get(0));
+
+        when();
+        Response response = client.post(new QueryType());
+
+        then();
+        assertStatus(response, 200);
+        String body = response.readEntity(String.class);
+        displayValue("Response body", body);
+        assertEquals("Wrong objects returned", allUserOids.subList(1, allUserOids.size()), getStreamedUserOids(body));
+    }
+
+    /**
+     * Gets all the users in batches, each continuing after the last OID of the previous one.
+     * Each user must be returned exactly once, and the batch after the last user must be empty.
+     */
+    @Test
+    public void test212searchUsersStreamingContinuation() throws Exception {
+        List<String> allUserOids = getUserOidsOrderedByOid();
+
+        when();
+        List<String> streamedOids = new ArrayList<>();
+        String after = null;
+        for (int batch = 0; batch <= allUserOids.size(); batch++) {
+            WebClient client = prepareClient();
+            client.path("/users/search/stream");
+            client.query("limit", 2);
+            if (after != null) {
+                client.query("after", after);
+            }
+            Response response = client.post(new QueryType());
+            assertStatus(response, 200);
+            List<String> batchOids = getStreamedUserOids(response.readEntity(String.class));
+            if (batchOids.isEmpty()) {
+                break;
+            }
+            assertTrue("Batch larger than the limit: " + batchOids, batchOids.size() <= 2);
+            streamedOids.addAll(batchOids);
+            after = batchOids.get(batchOids.size() - 1);
+        }
+
+        then();
+        assertEquals("Wrong objects returned (duplicated or skipped)", allUserOids, streamedOids);
+    }
+
     @Test
     public void test401AddUserTemplateOverwrite() {
         WebClient client = prepareClient();
@@ -1652,6 +1728,29 @@ public abstract class TestAbstractRestService extends RestServiceInitializer {
         logger.info("response : {} ", response.getStatusInfo().getReasonPhrase());
     }
 
+    /** Returns OIDs of all users in the order used by the streaming search. */
+    private List<String> getUserOidsOrderedByOid() throws SchemaException {
+        ObjectQuery query = getPrismContext().queryFor(UserType.class)
+                .asc(PrismConstants.T_ID)
+                .build();
+        return repositoryService.searchObjects(UserType.class, query, null, new OperationResult("getUserOids"))
+                .stream()
+                .map(PrismObject::getOid)
+                .toList();
+    }
+
+    /** Parses the streamed objects (one JSON object per line), checks they are users and returns their OIDs. */
+    private List<String> getStreamedUserOids(String body) throws SchemaException {
+        List<String> oids = new ArrayList<>();
+        for (String line : body.lines().toList()) {
+            PrismObject<?> object = getPrismContext().parserFor(line).json().parse();
+            assertEquals("Wrong type of streamed object: " + line, UserType.class, object.getCompileTimeClass());
+            assertNotNull("No OID in streamed object: " + line, object.getOid());
+            oids.add(object.getOid());
+        }
+        return oids;
+    }
+
     protected <O extends ObjectType> PrismObject<O> getObjectRepo(Class<O> type, String oid) throws ObjectNotFoundException, SchemaException {
         OperationResult result = new OperationResult("getObjectRepo");
         return repositoryService.getObject(type, oid, null, result);
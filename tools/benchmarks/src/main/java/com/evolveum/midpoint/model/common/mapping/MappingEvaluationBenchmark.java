@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.common.mapping;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.common.Clock;
+import com.evolveum.midpoint.common.LocalizationTestUtil;
+import com.evolveum.midpoint.model.common.ModelCommonBeans;
+import com.evolveum.midpoint.model.common.expression.evaluator.path.PathExpressionEvaluatorFactory;
+import com.evolveum.midpoint.model.common.expression.functions.FunctionLibraryUtil;
+import com.evolveum.midpoint.model.common.expression.script.ScriptExpressionEvaluatorFactory;
+import com.evolveum.midpoint.model.common.expression.script.ScriptExpressionFactory;
+import com.evolveum.midpoint.model.common.expression.script.groovy.GroovyScriptEvaluator;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismObjectDefinition;
+import com.evolveum.midpoint.prism.PrismPropertyDefinition;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.prism.crypto.Protector;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.delta.PrismValueDeltaSetTriple;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.util.ObjectDeltaObject;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.repo.common.DirectoryFileObjectResolver;
+import com.evolveum.midpoint.repo.common.ObjectResolver;
+import com.evolveum.midpoint.repo.common.expression.ExpressionFactory;
+import com.evolveum.midpoint.repo.common.expression.evaluator.AsIsExpressionEvaluatorFactory;
+import com.evolveum.midpoint.repo.common.expression.evaluator.LiteralExpressionEvaluatorFactory;
+import com.evolveum.midpoint.schema.config.ConfigurationItemOrigin;
+import com.evolveum.midpoint.schema.constants.ExpressionConstants;
+import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.test.NullTaskImpl;
+import com.evolveum.midpoint.tools.benchmarks.BenchmarkUtil;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.MappingType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * Building and evaluation of a simple mapping (from user to user, as in focus mappings) with different expression evaluators.
+ * The setup is similar to the one in `MappingTestEvaluator` in model-common tests, only without Spring and test resources.
+ *
+ * This class is in the package of {@link MappingBuilder}, as the explicit expression profile can't be set from the outside
+ * (there's no archetype manager to determine it).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingEvaluationBenchmark {
+
+    private static final String OP_EVALUATE = MappingEvaluationBenchmark.class.getName() + ".evaluate";
+    private static final String USER_OID = "c0c010c0-d34d-b33f-f00d-111111111111";
+
+    @Param({ "asis", "value", "script" })
+    public String mapping;
+
+    private MappingFactory mappingFactory;
+    private MappingType mappingBean;
+    private ObjectDeltaObject<UserType> userOdo;
+    private PrismObjectDefinition<UserType> userDefinition;
+    private PrismPropertyDefinition<PolyString> targetDefinition;
+    private final Task task = new NullTaskImpl();
+
+    @Setup
+    public void setup() throws Exception {
+        PrismContext prismContext = BenchmarkUtil.initializePrismContext();
+        Protector protector = BenchmarkUtil.createProtector(prismContext);
+        ((PrismContextImpl) prismContext).setDefaultProtector(protector);
+
+        File objectsDir = Files.createTempDirectory("benchmark-objects").toFile();
+        objectsDir.deleteOnExit();
+        ObjectResolver resolver = new DirectoryFileObjectResolver(objectsDir);
+
+        ModelCommonBeans beans = new ModelCommonBeans();
+        beans.prismContext = prismContext;
+        beans.protector = protector;
+        beans.objectResolver = resolver;
+        beans.expressionFactory = createExpressionFactory(prismContext, protector, resolver);
+        beans.init();
+
+        mappingFactory = new MappingFactory();
+        mappingFactory.setBeans(beans);
+
+        mappingBean = prismContext.parserFor(BenchmarkUtil.readResource("mapping/mapping-" + mapping + ".xml"))
+                .xml()
+                .parseRealValue(MappingType.class);
+
+        userDefinition = prismContext.getSchemaRegistry().findObjectDefinitionByCompileTimeClass(UserType.class);
+        targetDefinition = userDefinition.findPropertyDefinition(UserType.F_FULL_NAME);
+
+        PrismObject<UserType> user = new UserType()
+                .oid(USER_OID)
+                .name(new PolyStringType("jack"))
+                .givenName(new PolyStringType("Jack"))
+                .familyName(new PolyStringType("Sparrow"))
+                .fullName(new PolyStringType("Jack Sparrow"))
+                .asPrismObject();
+        ObjectDelta<UserType> userDelta = prismContext.deltaFor(UserType.class)
+                .item(UserType.F_GIVEN_NAME).replace(PolyString.fromOrig("Jackie"))
+                .asObjectDelta(USER_OID);
+        userOdo = new ObjectDeltaObject<>(user, userDelta, null, userDefinition);
+        userOdo.recompute();
+    }
+
+    private static ExpressionFactory createExpressionFactory(
+            PrismContext prismContext, Protector protector, ObjectResolver resolver) {
+        ExpressionFactory expressionFactory = new ExpressionFactory(LocalizationTestUtil.getLocalizationService());
+        expressionFactory.setObjectResolver(resolver);
+
+        AsIsExpressionEvaluatorFactory asIsFactory = new AsIsExpressionEvaluatorFactory(protector);
+        expressionFactory.registerEvaluatorFactory(asIsFactory);
+        expressionFactory.setDefaultEvaluatorFactory(asIsFactory);
+        expressionFactory.registerEvaluatorFactory(new LiteralExpressionEvaluatorFactory(protector));
+
+        var pathFactory = new PathExpressionEvaluatorFactory(expressionFactory, protector);
+        pathFactory.setObjectResolver(resolver);
+        expressionFactory.registerEvaluatorFactory(pathFactory);
+
+        ScriptExpressionFactory scriptExpressionFactory = new ScriptExpressionFactory(
+                List.of(FunctionLibraryUtil.createBasicFunctionLibraryBinding(prismContext, protector, new Clock()),
+                        FunctionLibraryUtil.createLogFunctionLibraryBinding(prismContext)),
+                resolver);
+        scriptExpressionFactory.registerEvaluator(
+                new GroovyScriptEvaluator(prismContext, protector, LocalizationTestUtil.getLocalizationService()));
+        expressionFactory.registerEvaluatorFactory(new ScriptExpressionEvaluatorFactory(scriptExpressionFactory));
+
+        return expressionFactory;
+    }
+
+    @Benchmark
+    public PrismValueDeltaSetTriple<PrismPropertyValue<PolyString>> evaluate() throws CommonException {
+        MappingImpl<PrismPropertyValue<PolyString>, PrismPropertyDefinition<PolyString>> mappingImpl =
+                mappingFactory.<PrismPropertyValue<PolyString>, PrismPropertyDefinition<PolyString>>createMappingBuilder(
+                                mappingBean, ConfigurationItemOrigin.generated(), "benchmark")
+                        .sourceContext(userOdo)
+                        .addVariableDefinition(ExpressionConstants.VAR_FOCUS, userOdo)
+                        .addVariableDefinition(ExpressionConstants.VAR_USER, userOdo)
+                        .targetContext(userDefinition)
+                        .defaultTargetDefinition(targetDefinition)
+                        .now(XmlTypeConverter.createXMLGregorianCalendar())
+                        .explicitExpressionProfile(ExpressionProfile.full())
+                        .build();
+        mappingImpl.evaluate(task, new OperationResult(OP_EVALUATE));
+        return mappingImpl.getOutputTriple();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.mining.algorithm.cluster.mechanism;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.common.mining.objects.handler.RoleAnalysisProgressIncrement;
+
+/**
+ * Distance computation and neighbor search used by role mining clustering.
+ *
+ * The data are synthetic: each point (user) has roles of one "business role" (a group of roles) plus a few random
+ * roles. The data are generated with a fixed seed, so the runs are comparable.
+ *
+ * This class is in the package of the measured code because {@link JaccardNeighborIndex} is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JaccardDistancesMeasureBenchmark {
+
+    private static final int ROLES = 2000;
+    private static final int GROUP_SIZE = 15;
+    private static final int RANDOM_ROLES = 5;
+    private static final double EPS = 0.2;
+    private static final int MIN_POINTS = 5;
+    private static final int MIN_INTERSECTION = 5;
+
+    @Param({ "500", "2000" })
+    public int points;
+
+    private final JaccardDistancesMeasure measure = new JaccardDistancesMeasure(MIN_INTERSECTION);
+
+    private List<DataPoint> dataPoints;
+    private Set<String> setA;
+    private Set<String> setB;
+    private JaccardNeighborIndex index;
+    private int nextPoint;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        dataPoints = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            Set<String> roles = new HashSet<>();
+            int group = random.nextInt(ROLES / GROUP_SIZE);
+            for (int r = 0; r < GROUP_SIZE; r++) {
+                roles.add(roleOid(group * GROUP_SIZE + r));
+            }
+            for (int r = 0; r < RANDOM_ROLES; r++) {
+                roles.add(roleOid(random.nextInt(ROLES)));
+            }
+            dataPoints.add(new DataPoint(Set.of(userOid(i)), roles));
+        }
+        setA = dataPoints.get(0).getPoint();
+        setB = dataPoints.get(1).getPoint();
+        index = new JaccardNeighborIndex(dataPoints, MIN_INTERSECTION, EPS);
+    }
+
+    @Benchmark
+    public double compute() {
+        return measure.compute(setA, setB);
+    }
+
+    @Benchmark
+    public int[] findNeighborsIndexed() {
+        nextPoint = (nextPoint + 1) % points;
+        return index.findNeighbors(nextPoint);
+    }
+
+    @Benchmark
+    public JaccardNeighborIndex buildIndex() {
+        return new JaccardNeighborIndex(dataPoints, MIN_INTERSECTION, EPS);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public List<Cluster<DataPoint>> cluster() {
+        DensityBasedClustering<DataPoint> clustering =
+                new DensityBasedClustering<>(EPS, MIN_POINTS, measure, MIN_INTERSECTION);
+        return clustering.cluster(dataPoints, new RoleAnalysisProgressIncrement("benchmark", 1));
+    }
+
+    private static String roleOid(int i) {
+        return String.format("00000000-0000-0000-0000-1%011d", i);
+    }
+
+    private static String userOid(int i) {
+        return String.format("00000000-0000-0000-0000-2%011d", i);
+    }
+}
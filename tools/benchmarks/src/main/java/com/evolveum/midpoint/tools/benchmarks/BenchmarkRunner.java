@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Runs JMH benchmarks and writes the results as `PERF-benchmarks.txt` report,
+ * which is picked up by `tools/perf-test/perf-test-process.sh` (like the `PERF-*` reports from perf tests)
+ * and imported into `mst_benchmark` table of the perf results DB.
+ *
+ * All standard JMH command line options are supported, e.g. `java -jar benchmarks.jar QueryKey -f 1`.
+ * Benchmark mode and output time unit are declared by each benchmark (mostly average time in microseconds),
+ * these can be overridden by `-bm` and `-tu` options.
+ *
+ * The report file prefix can be changed by `mp.perf.report.prefix` system property (default is `target/PERF`),
+ * the same property is used by perf tests.
+ *
+ * Report format (section until the first empty line, the header line is skipped by the import):
+ *
+ * ----
+ * midPoint benchmarks 2024-03-01T12:00:00Z
+ *
+ * [benchmark]
+ * test,benchmark,mode,count,score,error,unit
+ * QueryKeyBenchmark,createAndHash,avgt,25,0.412,0.005,us/op
+ * MappingEvaluationBenchmark,evaluate[mapping=script],avgt,25,31.733,0.811,us/op
+ * ----
+ *
+ * Parameters of the benchmark are in brackets, separated by semicolon (commas are not allowed in the values).
+ * The first line is needed, the import script skips everything up to the section name starting from the second line.
+ */
+public class BenchmarkRunner {
+
+    public static final String REPORT_PREFIX_PROPERTY = "mp.perf.report.prefix";
+    public static final String DEFAULT_REPORT_PREFIX = "target/PERF";
+    public static final String REPORT_SECTION = "[benchmark]";
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        // Mode and time unit are not set here, as that would override the command line options
+        // and the annotations of the benchmarks (e.g. throughput of LightweightTaskExecutorBenchmark).
+        Collection<RunResult> results = new Runner(new CommandLineOptions(args)).run();
+
+        File reportFile = new File(System.getProperty(REPORT_PREFIX_PROPERTY, DEFAULT_REPORT_PREFIX) + "-benchmarks.txt");
+        writeReport(results, reportFile);
+        System.out.println("Benchmark report written to " + reportFile.getAbsolutePath());
+    }
+
+    static void writeReport(Collection<RunResult> results, File reportFile) throws IOException {
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Couldn't create directory " + parent);
+        }
+        try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.println("midPoint benchmarks " + Instant.now());
+            writer.println();
+            writer.println(REPORT_SECTION);
+            writer.println("test,benchmark,mode,count,score,error,unit");
+            for (RunResult runResult : results) {
+                BenchmarkParams params = runResult.getParams();
+                Result<?> result = runResult.getPrimaryResult();
+                writer.println(String.join(",",
+                        testName(params),
+                        benchmarkName(params),
+                        params.getMode().shortLabel(),
+                        String.valueOf(result.getSampleCount()),
+                        formatScore(result.getScore()),
+                        formatScore(result.getScoreError()),
+                        result.getScoreUnit()));
+            }
+            writer.println();
+        }
+    }
+
+    /** Simple name of the benchmark class. */
+    private static String testName(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        String className = benchmark.substring(0, benchmark.lastIndexOf('.'));
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /** Benchmark method with its parameters, e.g. `evaluate[mapping=script]`. */
+    private static String benchmarkName(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        String method = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+        if (params.getParamsKeys().isEmpty()) {
+            return method;
+        }
+        return params.getParamsKeys().stream()
+                .map(key -> key + "=" + params.getParam(key))
+                .collect(Collectors.joining(";", method + "[", "]"));
+    }
+
+    private static String formatScore(double score) {
+        return Double.isNaN(score) ? "NaN" : String.format(Locale.ROOT, "%.3f", score);
+    }
+}
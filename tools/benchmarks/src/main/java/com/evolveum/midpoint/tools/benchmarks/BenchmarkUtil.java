@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.xml.sax.SAXException;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.crypto.KeyStoreBasedProtectorBuilder;
+import com.evolveum.midpoint.prism.crypto.Protector;
+import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
+import com.evolveum.midpoint.schema.SchemaService;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Setup shared by the benchmarks. There's no Spring context, so the things are initialized manually,
+ * similarly to unit tests.
+ */
+public class BenchmarkUtil {
+
+    private static final String KEYSTORE_RESOURCE = "keystore.jceks";
+    private static final String KEYSTORE_PASSWORD = "changeit";
+
+    private static PrismContext prismContext;
+
+    /** Initializes prism context (once per JVM) along with {@link SchemaService} (matching rules only, no relation registry). */
+    public static synchronized PrismContext initializePrismContext() throws SchemaException, SAXException, IOException {
+        if (prismContext == null) {
+            PrismTestUtil.resetPrismContext(MidPointPrismContextFactory.FACTORY);
+            prismContext = PrismTestUtil.getPrismContext();
+            SchemaService.init(prismContext, null, MatchingRuleRegistryFactory.createRegistry());
+        }
+        return prismContext;
+    }
+
+    /** Creates protector with the test keystore (copied from the classpath, as the keystore must be a file). */
+    public static Protector createProtector(PrismContext prismContext) throws IOException {
+        File keystore = File.createTempFile("benchmark-keystore", ".jceks");
+        keystore.deleteOnExit();
+        try (InputStream stream = openResource(KEYSTORE_RESOURCE)) {
+            Files.copy(stream, keystore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return KeyStoreBasedProtectorBuilder.create(prismContext)
+                .keyStorePath(keystore.getPath())
+                .keyStorePassword(KEYSTORE_PASSWORD)
+                .initialize();
+    }
+
+    public static String readResource(String name) throws IOException {
+        try (InputStream stream = openResource(name)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static InputStream openResource(String name) throws IOException {
+        InputStream stream = BenchmarkUtil.class.getClassLoader().getResourceAsStream(name);
+        if (stream == null) {
+            throw new IOException("Resource " + name + " was not found on the classpath");
+        }
+        return stream;
+    }
+}
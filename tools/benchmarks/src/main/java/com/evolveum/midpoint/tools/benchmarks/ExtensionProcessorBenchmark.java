@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.xml.namespace.QName;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.MutablePrismPropertyDefinition;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismProperty;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.repo.sqale.ExtensionProcessor;
+import com.evolveum.midpoint.repo.sqale.jsonb.Jsonb;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItem;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemHolderType;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * Conversion of extension items to JSONB, as done by the native repository for each object (and shadow) write.
+ *
+ * Resolution of ext items (the `m_ext_item` catalog) requires the database, so the ext items are created here
+ * with fixed IDs and only value conversion and JSONB serialization (the same as in
+ * {@link ExtensionProcessor#processExtensions}) is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtensionProcessorBenchmark {
+
+    private static final String NS_EXT = "http://example.com/benchmark/extension";
+
+    /** Number of items of each type (string, multi-value int, PolyString and date-time). */
+    @Param({ "1", "10" })
+    public int items;
+
+    private final ExtensionProcessor extensionProcessor = new ExtensionProcessor(null);
+    private final List<PrismProperty<?>> properties = new ArrayList<>();
+    private final List<ExtensionProcessor.ExtItemInfo> infos = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        PrismContext prismContext = BenchmarkUtil.initializePrismContext();
+        int id = 1;
+        for (int i = 0; i < items; i++) {
+            addProperty(prismContext, id++, "string" + i, DOMUtil.XSD_STRING, 1,
+                    "Some string value " + i);
+            addProperty(prismContext, id++, "int" + i, DOMUtil.XSD_INT, -1,
+                    i, i + 1, i + 2, i + 3, i + 4);
+            addProperty(prismContext, id++, "poly" + i, PolyStringType.COMPLEX_TYPE, 1,
+                    PolyString.fromOrig("Jack Sparrow " + i));
+            addProperty(prismContext, id++, "dateTime" + i, DOMUtil.XSD_DATETIME, 1,
+                    XmlTypeConverter.createXMLGregorianCalendar());
+        }
+    }
+
+    @SafeVarargs
+    private <T> void addProperty(
+            PrismContext prismContext, int id, String name, QName type, int maxOccurs, T... values) throws SchemaException {
+        MutablePrismPropertyDefinition<T> definition =
+                prismContext.definitionFactory().createPropertyDefinition(new QName(NS_EXT, name), type);
+        definition.setMaxOccurs(maxOccurs);
+
+        PrismProperty<T> property = definition.instantiate();
+        property.addRealValues(values);
+        properties.add(property);
+
+        ExtensionProcessor.ExtItemInfo info = new ExtensionProcessor.ExtItemInfo();
+        info.item = MExtItem.of(id, MExtItem.keyFrom(definition, MExtItemHolderType.EXTENSION));
+        infos.add(info);
+    }
+
+    @Benchmark
+    public Jsonb convertToJsonb() {
+        Map<String, Object> extMap = new LinkedHashMap<>();
+        for (int i = 0; i < properties.size(); i++) {
+            ExtensionProcessor.ExtItemInfo info = infos.get(i);
+            extMap.put(info.getId(), extensionProcessor.extItemValue(properties.get(i), info));
+        }
+        return Jsonb.fromMap(extMap);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.SerializationOptions;
+import com.evolveum.midpoint.repo.sqale.SqaleRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sqlbase.SqlRepoContext;
+import com.evolveum.midpoint.schema.SchemaService;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Writing and reading of the full object in the formats supported by the native repository (`fullObjectFormat`).
+ *
+ * The serialization is done the same way as in `SqaleTableMapping.createFullObject` and the parsing is done
+ * by {@link SqlRepoContext}, just without the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FullObjectFormatBenchmark {
+
+    @Param({ "xml", "json" })
+    public String format;
+
+    /** Number of assignments of the user, to get small and large objects. */
+    @Param({ "1", "100" })
+    public int assignments;
+
+    private SqlRepoContext sqlRepoContext;
+    private UserType user;
+    private byte[] fullObject;
+
+    @Setup
+    public void setup() throws Exception {
+        PrismContext prismContext = BenchmarkUtil.initializePrismContext();
+
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(SqaleRepositoryConfiguration.PROPERTY_FULL_OBJECT_FORMAT, format);
+        SqaleRepositoryConfiguration repositoryConfiguration = new SqaleRepositoryConfiguration(configuration);
+        repositoryConfiguration.init();
+        sqlRepoContext = new SqlRepoContext(repositoryConfiguration, null, SchemaService.get(), null);
+
+        user = new UserType()
+                .oid("c0c010c0-d34d-b33f-f00d-111111111111")
+                .name("jack")
+                .fullName("Jack Sparrow")
+                .givenName("Jack")
+                .familyName("Sparrow")
+                .emailAddress("jack@example.com")
+                .description("Captain of the Black Pearl");
+        for (int i = 0; i < assignments; i++) {
+            user.assignment(new AssignmentType()
+                    .id((long) i + 1)
+                    .targetRef("c0c010c0-d34d-b33f-f00d-2222222" + String.format("%05d", i),
+                            RoleType.COMPLEX_TYPE, SchemaConstants.ORG_DEFAULT)
+                    .activation(new ActivationType()
+                            .effectiveStatus(ActivationStatusType.ENABLED)));
+        }
+        prismContext.adopt(user);
+        fullObject = serialize();
+    }
+
+    /** Serialization of the object to the form stored in the `fullObject` column. */
+    @Benchmark
+    public byte[] serialize() throws SchemaException {
+        return sqlRepoContext.createStringSerializer()
+                .options(SerializationOptions
+                        .createSerializeReferenceNamesForNullOids()
+                        .skipIndexOnly(true)
+                        .skipTransient(true)
+                        .skipWhitespaces(true))
+                .serialize(user.asPrismObject().getValue())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Parsing of the stored form, as done for each object read from the repository. */
+    @Benchmark
+    public UserType parse() throws SchemaException {
+        return sqlRepoContext.parsePrismObject(fullObject, UserType.class).prismValue;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.icf.dummy.resource.DummyAccount;
+import com.evolveum.icf.dummy.resource.DummyResource;
+import com.evolveum.midpoint.task.quartzimpl.LightweightTaskManager;
+import com.evolveum.midpoint.task.quartzimpl.TaskManagerConfiguration;
+import com.evolveum.midpoint.task.quartzimpl.util.VirtualThreads;
+
+/**
+ * Throughput of I/O-bound worker threads running on platform vs. virtual threads, as selected by
+ * `virtualThreadsForLightweightTasks` task manager configuration option.
+ *
+ * Workers are started by {@link LightweightTaskManager}, just like lightweight tasks (e.g. worker threads of activities) are.
+ * Each worker fetches accounts from a dummy resource with artificial latency (simulating a slow connector).
+ * A fixed number of items is split among the workers, so the results are comparable across the number of workers.
+ * Reported scores are items per second.
+ *
+ * Virtual threads require Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LightweightTaskExecutorBenchmark {
+
+    private static final String RESOURCE_INSTANCE_NAME = "benchmark";
+    private static final int ACCOUNTS = 100;
+    private static final int ITEMS = 1024;
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "8", "64", "512" })
+    public int workers;
+
+    @Param({ "1", "10" })
+    public int latency;
+
+    private DummyResource resource;
+    private LightweightTaskManager lightweightTaskManager;
+
+    @Setup
+    public void setup() throws Exception {
+        resource = DummyResource.getInstance(RESOURCE_INSTANCE_NAME);
+        resource.reset();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            resource.addAccount(new DummyAccount(accountName(i)));
+        }
+        resource.setOperationDelayOffset(latency);
+
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by this JVM");
+        }
+        TaskManagerConfiguration configuration = new TaskManagerConfiguration();
+        configuration.setVirtualThreadsForLightweightTasks(virtual);
+        lightweightTaskManager = new LightweightTaskManager(configuration);
+    }
+
+    @TearDown
+    public void tearDown() {
+        lightweightTaskManager.shutdown();
+        resource.setOperationDelayOffset(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int fetchAccounts() throws Exception {
+        AtomicInteger found = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            futures.add(lightweightTaskManager.submit(() -> fetchAccounts(worker, found)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return found.get();
+    }
+
+    private void fetchAccounts(int worker, AtomicInteger found) {
+        try {
+            for (int item = worker; item < ITEMS; item += workers) {
+                if (resource.getAccountByUsername(accountName(item % ACCOUNTS)) != null) {
+                    found.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String accountName(int i) {
+        return "user" + i;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+
+/**
+ * Creation of {@link OperationResult} trees (with typical parameters) and their closing and summarization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperationResultBenchmark {
+
+    private static final String OP_ROOT = OperationResultBenchmark.class.getName() + ".root";
+    private static final String OP_CHILD = OperationResultBenchmark.class.getName() + ".child";
+
+    @Param({ "10", "100", "1000" })
+    public int subresults;
+
+    @Benchmark
+    public OperationResult createAndComputeStatus() {
+        OperationResult result = createResultTree(false);
+        result.computeStatus();
+        return result;
+    }
+
+    @Benchmark
+    public OperationResult createAndSummarize() {
+        OperationResult result = createResultTree(false);
+        result.computeStatus();
+        result.summarize();
+        return result;
+    }
+
+    @Benchmark
+    public OperationResult createMinorAndCleanup() {
+        OperationResult result = createResultTree(true);
+        result.computeStatus();
+        result.cleanupResult();
+        return result;
+    }
+
+    private OperationResult createResultTree(boolean minor) {
+        OperationResult root = new OperationResult(OP_ROOT);
+        root.addParam("subresults", subresults);
+        for (int i = 0; i < subresults; i++) {
+            OperationResult child = minor ? root.createMinorSubresult(OP_CHILD) : root.createSubresult(OP_CHILD);
+            child.addParam("index", i);
+            child.addContext("benchmark", "operation-result");
+            child.recordSuccess();
+        }
+        return root;
+    }
+}
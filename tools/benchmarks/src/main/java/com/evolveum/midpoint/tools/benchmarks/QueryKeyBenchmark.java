@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.cache.local.QueryKey;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Creation, hashing and comparison of {@link QueryKey} - this is done for each search going through the repository cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryKeyBenchmark {
+
+    private ObjectQuery query;
+    private QueryKey<UserType> key;
+    private QueryKey<UserType> equalKey;
+
+    @Setup
+    public void setup() throws SchemaException, SAXException, IOException {
+        PrismContext prismContext = BenchmarkUtil.initializePrismContext();
+        query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly("jack").matchingOrig()
+                .or()
+                .item(UserType.F_SUBTYPE).eq("pirate", "captain")
+                .and()
+                .item(UserType.F_ASSIGNMENT, AssignmentType.F_TARGET_REF)
+                .ref(new ObjectReferenceType().oid("12345678-d34d-b33f-f00d-987987987988").type(RoleType.COMPLEX_TYPE).asReferenceValue())
+                .asc(UserType.F_NAME)
+                .offset(0)
+                .maxSize(100)
+                .build();
+        key = new QueryKey<>(UserType.class, query);
+        equalKey = new QueryKey<>(UserType.class, query);
+    }
+
+    /** Creating the key (includes cloning the query) and computing its hash code, as done on each cache lookup. */
+    @Benchmark
+    public int createAndHash() {
+        return new QueryKey<>(UserType.class, query).hashCode();
+    }
+
+    /** Comparing two equal keys (different instances), as done on each cache hit. */
+    @Benchmark
+    public boolean equalKeys() {
+        return key.equals(equalKey);
+    }
+}
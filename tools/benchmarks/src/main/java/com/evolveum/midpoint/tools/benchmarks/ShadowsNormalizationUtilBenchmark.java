@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.tools.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import javax.xml.namespace.QName;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.provisioning.impl.shadows.ShadowsNormalizationUtil;
+import com.evolveum.midpoint.schema.constants.MidPointConstants;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.processor.ResourceAttribute;
+import com.evolveum.midpoint.schema.processor.ResourceAttributeDefinition;
+import com.evolveum.midpoint.schema.processor.ResourceObjectDefinition;
+import com.evolveum.midpoint.schema.processor.ResourceSchemaFactory;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Normalization of attribute values (by matching rules) in shadow queries and attributes, as done by the provisioning
+ * for each search and each shadow lookup. The resource is defined in `resource-benchmark.xml`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShadowsNormalizationUtilBenchmark {
+
+    private static final QName ATTR_MAIL = new QName(MidPointConstants.NS_RI, "mail");
+    private static final QName ATTR_MEMBER_OF = new QName(MidPointConstants.NS_RI, "memberOf");
+
+    @Param({ "1", "50" })
+    public int values;
+
+    private ResourceObjectDefinition objectDefinition;
+    private ObjectQuery query;
+    private ResourceAttribute<String> memberOf;
+    private ResourceAttributeDefinition<String> memberOfDefinition;
+
+    @Setup
+    public void setup() throws Exception {
+        PrismContext prismContext = BenchmarkUtil.initializePrismContext();
+        ResourceType resource = prismContext.parserFor(BenchmarkUtil.readResource("resource-benchmark.xml"))
+                .xml()
+                .parseRealValue(ResourceType.class);
+        objectDefinition = ResourceSchemaFactory.getCompleteSchema(resource)
+                .findDefaultDefinitionForKindRequired(ShadowKindType.ACCOUNT);
+
+        var nameDef = objectDefinition.findAttributeDefinitionRequired(SchemaConstants.ICFS_NAME);
+        var mailDef = objectDefinition.findAttributeDefinitionRequired(ATTR_MAIL);
+        String[] mails = new String[values];
+        String[] groups = new String[values];
+        for (int i = 0; i < values; i++) {
+            mails[i] = "Jack.Sparrow" + i + "@Black-Pearl.example.COM";
+            groups[i] = "CN=Pirates" + i + ",OU=Groups,DC=Example,DC=COM";
+        }
+        query = prismContext.queryFor(ShadowType.class)
+                .itemWithDef(nameDef, ShadowType.F_ATTRIBUTES, nameDef.getItemName()).eq("JackSparrow")
+                .and().itemWithDef(mailDef, ShadowType.F_ATTRIBUTES, mailDef.getItemName()).eq((Object[]) mails)
+                .and().item(ShadowType.F_RESOURCE_REF).ref(resource.getOid())
+                .build();
+
+        //noinspection unchecked
+        memberOfDefinition = (ResourceAttributeDefinition<String>) objectDefinition.findAttributeDefinitionRequired(ATTR_MEMBER_OF);
+        memberOf = objectDefinition.instantiateAttribute(ATTR_MEMBER_OF, groups);
+    }
+
+    @Benchmark
+    public ObjectQuery normalizeQueryValues() {
+        return ShadowsNormalizationUtil.normalizeQueryValues(query, objectDefinition);
+    }
+
+    @Benchmark
+    public Collection<String> getNormalizedAttributeValues() throws Exception {
+        return ShadowsNormalizationUtil.getNormalizedAttributeValues(memberOf, memberOfDefinition);
+    }
+}
@@ -34,6 +34,8 @@ public class ExportOptions extends BaseImportExportOptions implements BasicExpor
     public static final String P_EXCLUDE_ITEMS = "-ei";
     public static final String P_EXCLUDE_ITEMS_LONG = "--exclude-item";
 
+    public static final String P_PARTITIONS_LONG = "--partitions";
+
     @Parameter(names = { P_OUTPUT, P_OUTPUT_LONG }, descriptionKey = "export.output")
     private File output;
 
@@ -47,6 +49,9 @@ public class ExportOptions extends BaseImportExportOptions implements BasicExpor
             validateWith = ItemPathConverter.class, converter = ItemPathConverter.class)
     private List<ItemPath> excludeItems = new ArrayList<>();
 
+    @Parameter(names = { P_PARTITIONS_LONG }, descriptionKey = "export.partitions")
+    private int partitions = 1;
+
     @Override
     public File getOutput() {
         return output;
@@ -83,4 +88,13 @@ public class ExportOptions extends BaseImportExportOptions implements BasicExpor
     public void setExcludeItems(List<ItemPath> excludeItems) {
         this.excludeItems = excludeItems;
     }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public ExportOptions setPartitions(int partitions) {
+        this.partitions = partitions;
+        return this;
+    }
 }
@@ -23,6 +23,83 @@ public class ExportRepositoryAction extends AbstractRepositorySearchAction<Expor
         return "export";
     }
 
+    @Override
+    public Void execute() throws Exception {
+        if (options.getPartitions() <= 1) {
+            return super.execute();
+        }
+
+        executePartitioned();
+        return null;
+    }
+
+    /**
+     * Each partition (OID range) is searched and serialized by its own {@link ExportPartitionWorker},
+     * running in as many threads as specified by multi-thread option. The manifest is written at the end.
+     */
+    private void executePartitioned() throws Exception {
+        File output = options.getOutput();
+        if (output == null || (output.exists() && !output.isDirectory())) {
+            throw new NinjaException("Output must be a directory for partitioned export");
+        }
+        if (options.getOid() != null) {
+            throw new NinjaException("Partitioned export can't be used when exporting object by OID");
+        }
+        if (!output.exists() && !output.mkdirs()) {
+            throw new NinjaException("Couldn't create output directory '" + output.getPath() + "'");
+        }
+        ExportManifest.delete(output);
+
+        OperationResult result = new OperationResult(getClass().getName());
+        OperationStatus operation = new OperationStatus(context, result);
+
+        List<ObjectTypes> types = NinjaUtils.getTypes(options.getType());
+        List<ExportManifest.Part> parts = ExportManifest.createParts(options.getPartitions());
+
+        // "+ 1" will be used for progress reporter
+        ExecutorService executor = Executors.newFixedThreadPool(options.getMultiThread() + 1);
+
+        operation.start();
+
+        executor.execute(new ProgressReporterWorker<>(context, options, new LinkedBlockingQueue<>(), operation));
+
+        List<Future<ExportManifest.Part>> futures = new ArrayList<>();
+        for (ExportManifest.Part part : parts) {
+            futures.add(executor.submit(new ExportPartitionWorker(context, options, operation, types, part)));
+        }
+
+        List<ExportManifest.Part> exportedParts = new ArrayList<>();
+        try {
+            for (Future<ExportManifest.Part> future : futures) {
+                try {
+                    exportedParts.add(future.get());
+                } catch (ExecutionException ex) {
+                    log.error("Couldn't export partition, reason: {}", ex.getCause(), ex.getCause().getMessage());
+                    result.recordFatalError(ex.getCause());
+                }
+            }
+        } finally {
+            if (!operation.isFinished()) {
+                operation.producerFinish();
+                operation.finish();
+            }
+
+            executor.shutdown();
+            boolean awaitResult = executor.awaitTermination(NinjaUtils.WAIT_FOR_EXECUTOR_FINISH, TimeUnit.DAYS);
+            if (!awaitResult) {
+                log.error("Executor did not finish before timeout");
+            }
+        }
+
+        if (exportedParts.size() == parts.size()) {
+            new ExportManifest(exportedParts).write(output);
+        } else {
+            log.error("Manifest was not written, because some partitions were not exported");
+        }
+
+        handleResultOnFinish(null, operation, "Finished " + getOperationName());
+    }
+
     @Override
     protected Callable<Void> createConsumer(BlockingQueue<ObjectType> queue, OperationStatus operation) {
         return () -> {
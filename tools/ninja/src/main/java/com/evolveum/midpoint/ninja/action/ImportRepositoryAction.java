@@ -43,6 +43,10 @@ public class ImportRepositoryAction extends RepositoryAction<ImportOptions, Void
         OperationResult result = new OperationResult(OPERATION_IMPORT);
         OperationStatus progress = new OperationStatus(context, result);
 
+        if (options.getBatchSize() > 1 && !context.getRepository().isNative()) {
+            log.warn("Batch size is ignored, it is supported only for the native repository");
+        }
+
         BlockingQueue<ObjectType> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * options.getMultiThread());
 
         // "+ 2" will be used for producer and progress reporter
@@ -88,7 +92,10 @@ public class ImportRepositoryAction extends RepositoryAction<ImportOptions, Void
 
     private ImportProducerWorker<ObjectType> importByFilter(ObjectFilter filter,
             boolean stopAfterFound, BlockingQueue<ObjectType> queue, OperationStatus status) {
-        return new ImportProducerWorker<>(context, options, queue, status, filter, stopAfterFound, options.isContinueOnInputError());
+        ImportProducerWorker<ObjectType> producer = new ImportProducerWorker<>(
+                context, options, queue, status, filter, stopAfterFound, options.isContinueOnInputError());
+        producer.setParseThreads(options.getParseThreads());
+        return producer;
     }
 
     private List<ImportRepositoryConsumerWorker> createConsumers(
@@ -20,7 +20,9 @@ import com.evolveum.midpoint.ninja.util.NinjaUtils;
 import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
 import com.evolveum.midpoint.prism.query.QueryFactory;
+import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.audit_3.AuditEventRecordType;
@@ -29,6 +31,10 @@ import com.evolveum.midpoint.xml.ns._public.common.audit_3.AuditEventRecordType;
  * Similar to normal repository {@link ExportRepositoryAction}, but not extended from
  * {@link AbstractRepositorySearchAction} because we need containers here and objects are quite
  * deeply embedded in the existing classes.
+ *
+ * With more threads (`-l`), the range of audit record IDs is split into the same number of sub-ranges,
+ * each searched by its own producer, so the records are read from the database in parallel.
+ * The records are written into a single output by a single consumer, so their order in the output is not defined.
  */
 public class ExportAuditRepositoryAction extends RepositoryAction<ExportAuditOptions, Void> {
 
@@ -109,10 +115,56 @@ public class ExportAuditRepositoryAction extends RepositoryAction<ExportAuditOpt
         List<ExportAuditProducerWorker> producers = new ArrayList<>();
 
         ObjectFilter filter = NinjaUtils.createObjectFilter(options.getFilter(), context, AuditEventRecordType.class);
-        ObjectQuery query = queryFactory.createQuery(filter);
 
-        producers.add(new ExportAuditProducerWorker(context, options, queue, operation, producers, query));
+        Long minId = options.getMultiThread() > 1 ? findBoundaryId(filter, OrderDirection.ASCENDING, operation) : null;
+        Long maxId = minId != null ? findBoundaryId(filter, OrderDirection.DESCENDING, operation) : null;
+        if (minId == null || maxId == null || maxId - minId < options.getMultiThread()) {
+            producers.add(new ExportAuditProducerWorker(
+                    context, options, queue, operation, producers, queryFactory.createQuery(filter)));
+            return producers;
+        }
+
+        long rangeSize = (maxId - minId) / options.getMultiThread() + 1;
+        for (int i = 0; i < options.getMultiThread(); i++) {
+            // The first and the last ranges are open, so that nothing is missed, e.g. records added during the export.
+            Long from = i > 0 ? minId + i * rangeSize : null;
+            Long to = i < options.getMultiThread() - 1 ? minId + (i + 1) * rangeSize : null;
+            ObjectFilter rangeFilter = createIdRangeFilter(from, to);
+            ObjectQuery query = queryFactory.createQuery(
+                    filter != null ? queryFactory.createAnd(filter, rangeFilter) : rangeFilter);
+            producers.add(new ExportAuditProducerWorker(context, options, queue, operation, producers, query));
+        }
+        log.info("Audit records with IDs {}-{} are exported by {} producers", minId, maxId, producers.size());
 
         return producers;
     }
+
+    /** Returns the lowest or the highest ID of the audit records matching the filter, or `null` if there are none. */
+    private Long findBoundaryId(ObjectFilter filter, OrderDirection direction, OperationStatus operation)
+            throws SchemaException {
+        QueryFactory queryFactory = context.getPrismContext().queryFactory();
+        ObjectQuery query = queryFactory.createQuery(filter);
+        query.setPaging(queryFactory.createPaging(0, 1, AuditEventRecordType.F_REPO_ID, direction));
+
+        SearchResultList<AuditEventRecordType> records =
+                context.getAuditService().searchObjects(query, null, operation.getResult());
+        return records.isEmpty() ? null : records.get(0).getRepoId();
+    }
+
+    /** Filter for IDs from the interval `[from, to)`, `null` meaning that the interval is not bounded. */
+    private ObjectFilter createIdRangeFilter(Long from, Long to) {
+        QueryFactory queryFactory = context.getPrismContext().queryFactory();
+        List<ObjectFilter> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add(context.getPrismContext().queryFor(AuditEventRecordType.class)
+                    .item(AuditEventRecordType.F_REPO_ID).ge(from)
+                    .buildFilter());
+        }
+        if (to != null) {
+            conditions.add(context.getPrismContext().queryFor(AuditEventRecordType.class)
+                    .item(AuditEventRecordType.F_REPO_ID).lt(to)
+                    .buildFilter());
+        }
+        return conditions.size() == 1 ? conditions.get(0) : queryFactory.createAnd(conditions);
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.ninja.action.worker;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.evolveum.midpoint.ninja.action.ExportOptions;
+import com.evolveum.midpoint.ninja.impl.NinjaContext;
+import com.evolveum.midpoint.ninja.impl.NinjaException;
+import com.evolveum.midpoint.ninja.util.ExportManifest;
+import com.evolveum.midpoint.ninja.util.NinjaUtils;
+import com.evolveum.midpoint.ninja.util.OperationStatus;
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.QueryFactory;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.GetOperationOptionsBuilder;
+import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Exports objects of one partition (OID range, see {@link ExportManifest}) to its own compressed part file.
+ *
+ * Unlike the usual export, the search and serialization is done in the same thread; the parallelism comes
+ * from running multiple partitions at once. Returns the part with the number of exported objects.
+ */
+public class ExportPartitionWorker implements Callable<ExportManifest.Part> {
+
+    private final NinjaContext context;
+    private final ExportOptions options;
+    private final OperationStatus operation;
+    private final List<ObjectTypes> types;
+    private final ExportManifest.Part part;
+
+    public ExportPartitionWorker(NinjaContext context, ExportOptions options, OperationStatus operation,
+            List<ObjectTypes> types, ExportManifest.Part part) {
+        this.context = context;
+        this.options = options;
+        this.operation = operation;
+        this.types = types;
+        this.part = part;
+    }
+
+    @Override
+    public ExportManifest.Part call() throws Exception {
+        PrismSerializer<String> serializer = context.getPrismContext()
+                .xmlSerializer()
+                .options(SerializationOptions.createSerializeForExport().skipContainerIds(options.isSkipContainerIds()));
+
+        File file = new File(options.getOutput(), part.file());
+        if (!options.isOverwrite() && file.exists()) {
+            throw new NinjaException("Export file '" + file.getPath() + "' already exists");
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(file)), context.getCharset()))) {
+            writer.write(NinjaUtils.XML_OBJECTS_PREFIX);
+
+            for (ObjectTypes type : types) {
+                if (operation.isFinished()) {
+                    break;
+                }
+                exportType(type, serializer, writer, count);
+            }
+
+            writer.write(NinjaUtils.XML_OBJECTS_SUFFIX);
+        }
+
+        return part.withObjects(count.get());
+    }
+
+    private void exportType(ObjectTypes type, PrismSerializer<String> serializer, Writer writer, AtomicInteger count)
+            throws SchemaException, IOException {
+        GetOperationOptionsBuilder optionsBuilder = context.getSchemaService().getOperationOptionsBuilder();
+        if (options.isRaw()) {
+            optionsBuilder = optionsBuilder.raw();
+        }
+        optionsBuilder = NinjaUtils.addIncludeOptionsForExport(optionsBuilder, type.getClassDefinition());
+
+        ResultHandler<?> handler = (object, parentResult) -> {
+            if (operation.isFinished()) {
+                return false;
+            }
+
+            try {
+                PrismObject<? extends ObjectType> prismObject = object.asObjectable().asPrismObject();
+                ExportConsumerWorker.removeItemPathsIfPresent(options.getExcludeItems(), prismObject);
+
+                writer.write(serializer.serialize(prismObject));
+
+                count.incrementAndGet();
+                operation.incrementTotal();
+            } catch (Exception ex) {
+                context.getLog().error("Couldn't store object {}, reason: {}", ex, object, ex.getMessage());
+                operation.incrementError();
+            }
+            return true;
+        };
+
+        RepositoryService repository = context.getRepository();
+        repository.searchObjectsIterative(type.getClassDefinition(), createQuery(type), handler,
+                optionsBuilder.build(), true, new OperationResult(ExportPartitionWorker.class.getName() + ".export"));
+    }
+
+    private ObjectQuery createQuery(ObjectTypes type) throws SchemaException, IOException {
+        PrismContext prismContext = context.getPrismContext();
+        QueryFactory queryFactory = prismContext.queryFactory();
+        Class<? extends ObjectType> clazz = type.getClassDefinition();
+
+        List<ObjectFilter> conditions = new ArrayList<>();
+        if (part.fromOid() != null) {
+            conditions.add(prismContext.queryFor(clazz)
+                    .item(PrismConstants.T_ID).ge(part.fromOid())
+                    .buildFilter());
+        }
+        if (part.toOid() != null) {
+            conditions.add(prismContext.queryFor(clazz)
+                    .item(PrismConstants.T_ID).lt(part.toOid())
+                    .buildFilter());
+        }
+        ObjectFilter filter = NinjaUtils.createObjectFilter(options.getFilter(), context, clazz);
+        if (filter != null) {
+            conditions.add(filter);
+        }
+
+        return queryFactory.createQuery(conditions.isEmpty() ? null : queryFactory.createAnd(conditions));
+    }
+}
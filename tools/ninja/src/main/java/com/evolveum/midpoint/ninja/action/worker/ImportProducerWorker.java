@@ -9,9 +9,12 @@ package com.evolveum.midpoint.ninja.action.worker;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.Collection;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.ReaderInputStream;
@@ -27,6 +30,8 @@ import com.evolveum.midpoint.ninja.action.BasicImportOptions;
 import com.evolveum.midpoint.ninja.impl.Log;
 import com.evolveum.midpoint.ninja.impl.NinjaContext;
 import com.evolveum.midpoint.ninja.impl.NinjaException;
+import com.evolveum.midpoint.ninja.util.ExportManifest;
+import com.evolveum.midpoint.ninja.util.NinjaUtils;
 import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.Containerable;
 import com.evolveum.midpoint.prism.PrismContext;
@@ -42,13 +47,17 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 public class ImportProducerWorker<T extends Containerable>
         extends BaseWorker<BasicImportOptions, T> {
 
+    private static final int ELEMENT_QUEUE_CAPACITY_PER_THREAD = 100;
+
     private final ObjectFilter filter;
     private final boolean stopAfterFound;
     private final boolean continueOnInputError;
 
-    private String currentOid = null;
+    /** OID of the object being parsed, per thread, as there can be more parsing threads; see {@link #parseThreads}. */
+    private final ThreadLocal<String> currentOid = new ThreadLocal<>();
     private boolean convertMissingType = false;
     private boolean compatMode = false;
+    private int parseThreads = 1;
 
     public ImportProducerWorker(
             NinjaContext context, BasicImportOptions options, BlockingQueue<T> queue,
@@ -68,6 +77,8 @@ public class ImportProducerWorker<T extends Containerable>
         try {
             if (!inputFile.exists()) {
                 context.getLog().error("Input file '{}' doesn't exist", inputFile.getPath());
+            } else if (inputFile.isDirectory() && ExportManifest.exists(inputFile)) {
+                importPartitions(inputFile);
             } else if (inputFile.isDirectory()) {
                 importDirectory(inputFile);
             } else {
@@ -125,6 +136,73 @@ public class ImportProducerWorker<T extends Containerable>
         }
     }
 
+    /**
+     * Imports the result of partitioned export (see {@link ExportManifest}), reading {@link #parseThreads} parts
+     * concurrently. Each part is parsed in a single thread.
+     */
+    private void importPartitions(File directory) {
+        Log log = context.getLog();
+
+        OperationResult result = operation.getResult();
+        ExportManifest manifest;
+        try {
+            manifest = ExportManifest.read(directory);
+            manifest.checkParts(directory);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Couldn't import partitioned export, reason: {}", ex.getMessage());
+            synchronized (result) {
+                result.recordFatalError(ex);
+            }
+            operation.incrementError();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parseThreads);
+        for (ExportManifest.Part part : manifest.getParts()) {
+            executor.execute(() -> importPart(directory, part, result));
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(NinjaUtils.WAIT_FOR_EXECUTOR_FINISH, TimeUnit.DAYS)) {
+                log.error("Executor did not finish before timeout");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Imports a single part, checking that it contains the number of objects listed in the manifest. */
+    private void importPart(File directory, ExportManifest.Part part, OperationResult result) {
+        if (operation.isFinished()) {
+            return;
+        }
+
+        Log log = context.getLog();
+        OperationResult partResult = new OperationResult(result.getOperation());
+        AtomicInteger objectsRead = new AtomicInteger();
+        try (InputStream is = new GZIPInputStream(new FileInputStream(new File(directory, part.file())))) {
+            log.info("Processing file {}", part.file());
+            processStream(is, partResult, false, objectsRead);
+            if (objectsRead.get() != part.objects() && !operation.isFinished()) {
+                String message = "Part file '" + part.file() + "' contains " + objectsRead.get()
+                        + " objects, but the export manifest lists " + part.objects();
+                log.error(message);
+                partResult.recordFatalError(message);
+                operation.incrementError();
+            }
+        } catch (Exception ex) {
+            log.error("Unexpected error occurred", ex);
+            partResult.recordFatalError(ex);
+        } finally {
+            partResult.close();
+            synchronized (result) {
+                result.addSubresult(partResult);
+                result.summarize();
+            }
+        }
+    }
+
     private InputStream openInputStream(File input) throws IOException {
         InputStream is;
         if (input != null) {
@@ -141,6 +219,12 @@ public class ImportProducerWorker<T extends Containerable>
     }
 
     private void processStream(InputStream input) {
+        processStream(input, operation.getResult(), parseThreads > 1, new AtomicInteger());
+    }
+
+    /** Object elements found in the input are counted in `objectsRead`; whether they are imported or not. */
+    private void processStream(
+            InputStream input, OperationResult result, boolean parallelParsing, AtomicInteger objectsRead) {
         ApplicationContext appContext = context.getApplicationContext();
         PrismContext prismContext = appContext.getBean(PrismContext.class);
         MatchingRuleRegistry matchingRuleRegistry = appContext.getBean(MatchingRuleRegistry.class);
@@ -149,7 +233,8 @@ public class ImportProducerWorker<T extends Containerable>
             @Override
             public EventResult preMarshall(Element objectElement, Node postValidationTree,
                     OperationResult objectResult) {
-                currentOid = objectElement.getAttribute("oid");
+                objectsRead.incrementAndGet();
+                currentOid.set(objectElement.getAttribute("oid"));
                 return EventResult.cont();
             }
 
@@ -181,7 +266,7 @@ public class ImportProducerWorker<T extends Containerable>
                 } catch (Exception ex) {
                     throw new NinjaException(getErrorMessage() + ", reason: " + ex.getMessage(), ex);
                 }
-                currentOid = null;
+                currentOid.remove();
                 return stopAfterFound ? EventResult.skipObject() : EventResult.cont();
             }
 
@@ -205,16 +290,87 @@ public class ImportProducerWorker<T extends Containerable>
             }
         };
 
+        Charset charset = context.getCharset();
+        Reader reader = new InputStreamReader(input, charset);
+        InputStream stream = new ReaderInputStream(reader, charset);
+        if (parallelParsing) {
+            processStreamInParallel(stream, prismContext, handler, result);
+        } else {
+            createValidator(prismContext, handler)
+                    .validate(stream, result, result.getOperation());
+        }
+    }
+
+    private LegacyValidator<T> createValidator(PrismContext prismContext, EventHandler<T> handler) {
         // FIXME: MID-5151: If validateSchema is false we are not validating unknown attributes on import
-        LegacyValidator<?> validator = new LegacyValidator<>(prismContext, handler);
+        LegacyValidator<T> validator = new LegacyValidator<>(prismContext, handler);
         validator.setValidateSchema(false);
         validator.setCompatMode(compatMode);
         validator.setConvertMissingType(isConvertMissingType());
-        OperationResult result = operation.getResult();
+        return validator;
+    }
 
-        Charset charset = context.getCharset();
-        Reader reader = new InputStreamReader(input, charset);
-        validator.validate(new ReaderInputStream(reader, charset), result, result.getOperation());
+    /**
+     * The input is only split to object elements in this thread. The elements are validated and parsed
+     * by {@link #parseThreads} threads, each one with its own validator. The order of the objects is not preserved.
+     *
+     * If the parsing threads can't keep up, the elements are parsed in this thread, which slows down the splitting.
+     */
+    private void processStreamInParallel(
+            InputStream input, PrismContext prismContext, EventHandler<T> handler, OperationResult result) {
+        ThreadLocal<LegacyValidator<T>> validators = ThreadLocal.withInitial(() -> createValidator(prismContext, handler));
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                parseThreads, parseThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parseThreads * ELEMENT_QUEUE_CAPACITY_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            LegacyValidator.readObjectElements(input, element -> {
+                if (operation.isFinished()) {
+                    return false;
+                }
+                executor.execute(() -> parseObjectElement(validators.get(), element, result));
+                return true;
+            });
+        } catch (XMLStreamException ex) {
+            synchronized (result) {
+                result.recordFatalError("XML parsing error: " + ex.getMessage(), ex);
+            }
+            handler.handleGlobalError(result, ex);
+        } finally {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(NinjaUtils.WAIT_FOR_EXECUTOR_FINISH, TimeUnit.DAYS)) {
+                    context.getLog().error("Parsing threads did not finish before timeout");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void parseObjectElement(LegacyValidator<T> validator, Element element, OperationResult result) {
+        if (operation.isFinished()) {
+            return;
+        }
+
+        OperationResult objectResult = new OperationResult(result.getOperation());
+        try {
+            validator.validateObject(element, objectResult);
+        } catch (RuntimeException ex) {
+            // Thrown by the event handler to stop the import, the error was already reported there.
+            if (!operation.isFinished()) {
+                context.getLog().error(getErrorMessage() + ", reason: {}", ex.getMessage());
+            }
+        } finally {
+            currentOid.remove();
+            objectResult.close();
+            objectResult.cleanupResult();
+            synchronized (result) {
+                result.addSubresult(objectResult);
+                result.summarize();
+            }
+        }
     }
 
     private boolean matchSelectedType(Class<?> clazz) {
@@ -232,8 +388,9 @@ public class ImportProducerWorker<T extends Containerable>
     }
 
     private String getErrorMessage() {
-        if (currentOid != null && !currentOid.isBlank()) {
-            return "Couldn't import object with oid '" + currentOid + "'";
+        String oid = currentOid.get();
+        if (oid != null && !oid.isBlank()) {
+            return "Couldn't import object with oid '" + oid + "'";
         } else {
             return "Couldn't import object";
         }
@@ -250,4 +407,8 @@ public class ImportProducerWorker<T extends Containerable>
     public void setCompatMode(boolean mode) {
         this.compatMode = mode;
     }
+
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = parseThreads;
+    }
 }
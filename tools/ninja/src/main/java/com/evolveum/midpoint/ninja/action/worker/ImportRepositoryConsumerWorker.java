@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.ninja.action.worker;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -17,11 +18,15 @@ import com.evolveum.midpoint.ninja.action.ImportOptions;
 import com.evolveum.midpoint.ninja.impl.NinjaContext;
 import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.repo.api.RepoAddOptions;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.sqale.SqaleRepositoryService;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.CommonException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
 
 /**
  * Created by Viliam Repan (lazyman).
@@ -39,6 +44,9 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
         ApplicationContext ctx = context.getApplicationContext();
         Protector protector = ctx.getBean(Protector.class);
 
+        RepositoryService repository = context.getRepository();
+        RepoAddOptions opts = createRepoAddOptions(options);
+
         try {
             while (!shouldConsumerStop()) {
                 ObjectType object = null;
@@ -47,18 +55,16 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
                     if (object == null) {
                         continue;
                     }
-                    PrismObject<? extends ObjectType> prismObject = object.asPrismObject();
 
-                    RepoAddOptions opts = createRepoAddOptions(options);
+                    if (options.getBatchSize() > 1 && repository instanceof SqaleRepositoryService sqaleRepository) {
+                        List<ObjectType> batch = new ArrayList<>();
+                        batch.add(object);
+                        queue.drainTo(batch, options.getBatchSize() - 1);
 
-                    if (!opts.isAllowUnencryptedValues()) {
-                        CryptoUtil.encryptValues(protector, prismObject);
+                        addObjects(sqaleRepository, batch, opts, protector);
+                    } else {
+                        addObject(repository, object, opts, protector);
                     }
-
-                    RepositoryService repository = context.getRepository();
-                    repository.addObject(prismObject, opts, new OperationResult("Import object"));
-
-                    operation.incrementTotal();
                 } catch (Exception ex) {
                     context.getLog().error("Couldn't add object {}, reason: {}", ex, object, ex.getMessage());
                     operation.incrementError();
@@ -77,6 +83,77 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
         }
     }
 
+    private void addObject(RepositoryService repository, ObjectType object, RepoAddOptions opts, Protector protector)
+            throws CommonException {
+        PrismObject<? extends ObjectType> prismObject = object.asPrismObject();
+
+        if (!opts.isAllowUnencryptedValues()) {
+            CryptoUtil.encryptValues(protector, prismObject);
+        }
+
+        repository.addObject(prismObject, opts, new OperationResult("Import object"));
+
+        operation.incrementTotal();
+    }
+
+    /**
+     * Adds the objects in a single transaction. If that fails, the objects are added one by one,
+     * so that only the problematic objects are reported as errors.
+     *
+     * Orgs are not batched: adding an org takes the lock that serializes org closure updates, which would be held until
+     * the whole batch is committed (see {@link SqaleRepositoryService#addObjects}). So each org is added in its own
+     * short transaction, and other consumers don't have to wait for the whole batch.
+     */
+    private void addObjects(SqaleRepositoryService repository, List<ObjectType> objects, RepoAddOptions opts,
+            Protector protector) {
+        List<PrismObject<? extends ObjectType>> prismObjects = new ArrayList<>();
+        for (ObjectType object : objects) {
+            if (object instanceof OrgType) {
+                try {
+                    addObject(repository, object, opts, protector);
+                } catch (Exception ex) {
+                    context.getLog().error("Couldn't add object {}, reason: {}", ex, object, ex.getMessage());
+                    operation.incrementError();
+                }
+                continue;
+            }
+            PrismObject<? extends ObjectType> prismObject = object.asPrismObject();
+            try {
+                if (!opts.isAllowUnencryptedValues()) {
+                    CryptoUtil.encryptValues(protector, prismObject);
+                }
+                prismObjects.add(prismObject);
+            } catch (EncryptionException ex) {
+                context.getLog().error("Couldn't add object {}, reason: {}", ex, prismObject, ex.getMessage());
+                operation.incrementError();
+            }
+        }
+
+        if (prismObjects.isEmpty()) {
+            return;
+        }
+
+        try {
+            repository.addObjects(prismObjects, opts, new OperationResult("Import objects"));
+
+            operation.incrementTotal(prismObjects.size());
+        } catch (Exception ex) {
+            context.getLog().debug("Couldn't add batch of {} objects, adding them one by one, reason: {}",
+                    prismObjects.size(), ex.getMessage());
+
+            for (PrismObject<? extends ObjectType> prismObject : prismObjects) {
+                try {
+                    repository.addObject(prismObject, opts, new OperationResult("Import object"));
+
+                    operation.incrementTotal();
+                } catch (Exception e) {
+                    context.getLog().error("Couldn't add object {}, reason: {}", e, prismObject, e.getMessage());
+                    operation.incrementError();
+                }
+            }
+        }
+    }
+
     private RepoAddOptions createRepoAddOptions(ImportOptions options) {
         RepoAddOptions opts = new RepoAddOptions();
         opts.setOverwrite(options.isOverwrite());
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.ninja.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.ninja.impl.NinjaException;
+
+/**
+ * Manifest of partitioned export, i.e. export split to multiple part files by OID ranges.
+ *
+ * The manifest is stored as {@link #FILE_NAME} in the output directory, along with the part files.
+ * It lists the part files along with their OID ranges and object counts, so that the import can read the parts
+ * concurrently and check that none is missing.
+ *
+ * The manifest is written only after all the parts are exported, and atomically (if the file system supports it).
+ * So its presence means that the export is complete.
+ */
+public class ExportManifest {
+
+    public static final String FILE_NAME = "manifest.properties";
+
+    public static final String PART_FILE_SUFFIX = ".xml.gz";
+
+    /** Number of OID prefix values the OID space is split by; this is also the max number of partitions. */
+    public static final int MAX_PARTITIONS = 256;
+
+    private static final String P_PARTS = "parts";
+    private static final String P_PART_PREFIX = "part.";
+    private static final String P_FILE = ".file";
+    private static final String P_FROM = ".from";
+    private static final String P_TO = ".to";
+    private static final String P_OBJECTS = ".objects";
+
+    /**
+     * Part of the export, containing objects with OID in the [from, to) interval; `null` means unbounded.
+     * Object count is `-1` if not known yet.
+     */
+    public record Part(@NotNull String file, @Nullable String fromOid, @Nullable String toOid, int objects) {
+
+        public Part withObjects(int objects) {
+            return new Part(file, fromOid, toOid, objects);
+        }
+    }
+
+    @NotNull private final List<Part> parts;
+
+    public ExportManifest(@NotNull List<Part> parts) {
+        this.parts = parts;
+    }
+
+    public @NotNull List<Part> getParts() {
+        return parts;
+    }
+
+    /**
+     * Splits the OID space to the specified number of intervals of (roughly) the same size,
+     * using the first two hexadecimal characters of the OID - similar to OID-based bucket segmentation.
+     */
+    public static @NotNull List<Part> createParts(int partitions) {
+        if (partitions < 1 || partitions > MAX_PARTITIONS) {
+            throw new NinjaException("Number of partitions must be between 1 and " + MAX_PARTITIONS + ", was " + partitions);
+        }
+
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            String from = i > 0 ? oidPrefix(i * MAX_PARTITIONS / partitions) : null;
+            String to = i < partitions - 1 ? oidPrefix((i + 1) * MAX_PARTITIONS / partitions) : null;
+            parts.add(new Part(String.format("part-%04d%s", i + 1, PART_FILE_SUFFIX), from, to, -1));
+        }
+        return parts;
+    }
+
+    private static String oidPrefix(int value) {
+        return String.format("%02x", value);
+    }
+
+    public static boolean exists(@NotNull File directory) {
+        return new File(directory, FILE_NAME).isFile();
+    }
+
+    /** Deletes the manifest (if there's any), so that an unfinished export to the same directory is not taken as complete. */
+    public static void delete(@NotNull File directory) throws IOException {
+        Files.deleteIfExists(new File(directory, FILE_NAME).toPath());
+    }
+
+    public static @NotNull ExportManifest read(@NotNull File directory) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(new File(directory, FILE_NAME)), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        int count = Integer.parseInt(properties.getProperty(P_PARTS, "0"));
+        List<Part> parts = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String file = properties.getProperty(P_PART_PREFIX + i + P_FILE);
+            if (file == null) {
+                throw new NinjaException("Export manifest in '" + directory.getPath() + "' has no file for part " + i);
+            }
+            parts.add(new Part(
+                    file,
+                    properties.getProperty(P_PART_PREFIX + i + P_FROM),
+                    properties.getProperty(P_PART_PREFIX + i + P_TO),
+                    Integer.parseInt(properties.getProperty(P_PART_PREFIX + i + P_OBJECTS, "-1"))));
+        }
+        return new ExportManifest(parts);
+    }
+
+    /**
+     * Checks that all the parts were exported completely and their files exist.
+     *
+     * @throws NinjaException describing all the problems found
+     */
+    public void checkParts(@NotNull File directory) {
+        List<String> problems = new ArrayList<>();
+        for (Part part : parts) {
+            if (part.objects() < 0) {
+                problems.add("part '" + part.file() + "' has unknown number of objects");
+            }
+            if (!new File(directory, part.file()).isFile()) {
+                problems.add("part file '" + part.file() + "' doesn't exist");
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new NinjaException("Export in '" + directory.getPath() + "' is not complete: " + String.join(", ", problems));
+        }
+    }
+
+    public void write(@NotNull File directory) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(P_PARTS, Integer.toString(parts.size()));
+        for (int i = 1; i <= parts.size(); i++) {
+            Part part = parts.get(i - 1);
+            properties.setProperty(P_PART_PREFIX + i + P_FILE, part.file());
+            if (part.fromOid() != null) {
+                properties.setProperty(P_PART_PREFIX + i + P_FROM, part.fromOid());
+            }
+            if (part.toOid() != null) {
+                properties.setProperty(P_PART_PREFIX + i + P_TO, part.toOid());
+            }
+            properties.setProperty(P_PART_PREFIX + i + P_OBJECTS, Integer.toString(part.objects()));
+        }
+
+        // Written to a temporary file first, so that the manifest is never seen incomplete.
+        Path manifest = new File(directory, FILE_NAME).toPath();
+        Path tempFile = new File(directory, FILE_NAME + ".tmp").toPath();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile.toFile()), StandardCharsets.UTF_8)) {
+            properties.store(writer, "midPoint ninja partitioned export");
+        }
+        try {
+            Files.move(tempFile, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, manifest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -35,7 +35,9 @@ public class OperationStatus {
     private long startTime;
     private long finishTime;
 
+    /** Total count and time of the last printout, used to compute the current throughput. */
     private int lastPrintoutCount;
+    private long lastPrintoutTime;
 
     private final OperationResult result;
 
@@ -60,6 +62,7 @@ public class OperationStatus {
         debug("Operation: started");
 
         startTime = System.currentTimeMillis();
+        lastPrintoutTime = startTime;
 
         state = State.STARTED;
     }
@@ -114,6 +117,10 @@ public class OperationStatus {
         totalCount.incrementAndGet();
     }
 
+    public void incrementTotal(int count) {
+        totalCount.addAndGet(count);
+    }
+
     public void incrementError() {
         errorCount.incrementAndGet();
     }
@@ -138,8 +145,18 @@ public class OperationStatus {
         return totalCount.get() / span;
     }
 
+    /** Throughput since the last printout, see {@link #print(Log)}. */
+    public double getCurrentRequestPerSecond() {
+        double span = (System.currentTimeMillis() - lastPrintoutTime) / 1000d;
+        if (span <= 0) {
+            return 0d;
+        }
+
+        return (totalCount.get() - lastPrintoutCount) / span;
+    }
+
     public String print() {
-        return "Processed: "
+        String message = "Processed: "
                 + totalCount.get()
                 + ", error: "
                 + errorCount.get()
@@ -148,6 +165,15 @@ public class OperationStatus {
                 + ", avg.: "
                 + NinjaUtils.DECIMAL_FORMAT.format(getAvgRequestPerSecond())
                 + "obj/s";
+
+        if (state == State.FINISHED) {
+            return message;
+        }
+
+        return message
+                + ", current: "
+                + NinjaUtils.DECIMAL_FORMAT.format(getCurrentRequestPerSecond())
+                + "obj/s";
     }
 
     public void print(Log log) {
@@ -159,7 +185,8 @@ public class OperationStatus {
     }
 
     public void lastPrintoutNow() {
-        this.lastPrintoutCount = totalCount.get() - lastPrintoutCount;
+        this.lastPrintoutCount = totalCount.get();
+        this.lastPrintoutTime = System.currentTimeMillis();
     }
 
     private void debug(String message) {
@@ -7,6 +7,8 @@
 package com.evolveum.midpoint.ninja;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.assertj.core.api.Assertions;
 import org.springframework.test.annotation.DirtiesContext;
@@ -16,12 +18,16 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.ninja.util.ExportManifest;
+import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.RepositoryDiag;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
 /**
  * Created by Viliam Repan (lazyman).
@@ -33,6 +39,9 @@ public class ImportRepositoryTest extends NinjaSpringTest {
 
     private static final String PATH_MONKEY_ISLAND_SIMPLE_ZIP = "./target/org-monkey-island-simple.zip";
 
+    /** Number of orgs that are (direct or indirect) children of F0001 in org-monkey-island-simple.xml. */
+    private static final int ORGS_UNDER_F0001 = 5;
+
     @BeforeClass(
             dependsOnMethods = {"springTestContextPrepareTestInstance"}
     )
@@ -168,4 +177,143 @@ public class ImportRepositoryTest extends NinjaSpringTest {
         role = repository.getObject(RoleType.class, ROLE_2_OID, null, result);
         Assertions.assertThat(role).isNotNull();
     }
+
+    @Test
+    public void test150ImportWithParseThreadsAndBatches() throws Exception {
+        given("empty repository");
+
+        clearMidpointTestDatabase(applicationContext);
+
+        when();
+
+        executeTest(
+                null,
+                EMPTY_STREAM_VALIDATOR,
+                "-m", getMidpointHome(), "import", "-i", PATH_MONKEY_ISLAND_SIMPLE_ZIP, "-z",
+                "-l", "2", "--parse-threads", "3", "--batch-size", "5");
+
+        then("all objects from the file are imported");
+
+        OperationResult result = new OperationResult("test150ImportWithParseThreadsAndBatches");
+
+        int count = repository.countObjects(OrgType.class, null, null, result);
+        Assertions.assertThat(count).isEqualTo(9);
+
+        count = repository.countObjects(UserType.class, null, null, result);
+        Assertions.assertThat(count).isEqualTo(8);
+
+        and("org closure is complete");
+
+        ObjectQuery query = PrismContext.get().queryFor(OrgType.class)
+                .isChildOf("00000000-8888-6666-0000-100000000001")
+                .build();
+        Assertions.assertThat(repository.countObjects(OrgType.class, query, null, result))
+                .as("orgs under F0001")
+                .isEqualTo(ORGS_UNDER_F0001);
+    }
+
+    @Test
+    public void test160PartitionedExportAndImport() throws Exception {
+        given();
+
+        File output = new File("./target/partitioned-export");
+
+        when("orgs are exported to partitions");
+
+        executeTest(
+                null,
+                EMPTY_STREAM_VALIDATOR,
+                "-m", getMidpointHome(), "export", "-t", "org", "-o", output.getPath(), "-O",
+                "-l", "2", "--partitions", "4");
+
+        then("manifest lists all the parts and objects, and the part files exist");
+
+        ExportManifest manifest = ExportManifest.read(output);
+        Assertions.assertThat(manifest.getParts()).hasSize(4);
+        Assertions.assertThat(manifest.getParts().stream().mapToInt(ExportManifest.Part::objects).sum()).isEqualTo(9);
+        for (ExportManifest.Part part : manifest.getParts()) {
+            Assertions.assertThat(new File(output, part.file())).isFile();
+        }
+
+        and("orgs are deleted from the repository");
+
+        OperationResult result = new OperationResult("test160PartitionedExportAndImport");
+        deleteAllOrgs(result);
+
+        when("the parts are imported");
+
+        executeTest(
+                null,
+                EMPTY_STREAM_VALIDATOR,
+                "-m", getMidpointHome(), "import", "-i", output.getPath(), "--parse-threads", "2");
+
+        then("all orgs are imported again");
+
+        Assertions.assertThat(repository.countObjects(OrgType.class, null, null, result)).isEqualTo(9);
+    }
+
+    /**
+     * A part file listed in the manifest is missing. Nothing is imported, as the export is not complete.
+     * Depends on the export done in {@link #test160PartitionedExportAndImport()}.
+     */
+    @Test
+    public void test165PartitionedImportWithMissingPart() throws Exception {
+        given("partitioned export with a part file missing");
+
+        File output = new File("./target/partitioned-export");
+        ExportManifest.Part missingPart = ExportManifest.read(output).getParts().stream()
+                .filter(part -> part.objects() > 0)
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertThat(new File(output, missingPart.file()).delete()).isTrue();
+
+        OperationResult result = new OperationResult("test165PartitionedImportWithMissingPart");
+        deleteAllOrgs(result);
+
+        when("the parts are imported");
+
+        List<String> messages = new ArrayList<>();
+        executeTest(messages::addAll, messages::addAll,
+                "-m", getMidpointHome(), "import", "-i", output.getPath(), "--parse-threads", "2");
+
+        then("the missing part is reported, and nothing is imported");
+
+        Assertions.assertThat(messages)
+                .anyMatch(line -> line.contains("part file '" + missingPart.file() + "' doesn't exist"));
+        Assertions.assertThat(repository.countObjects(OrgType.class, null, null, result)).isZero();
+    }
+
+    /**
+     * A batch with a conflicting object fails as a whole, then its objects are added one by one.
+     * So all the other objects are imported, and only the conflicting one is rejected.
+     */
+    @Test
+    public void test170FailedBatchIsImportedOneByOne() throws Exception {
+        given("empty repository");
+
+        clearMidpointTestDatabase(applicationContext);
+
+        when("roles are imported in batches, one of them conflicting with another one");
+
+        executeTest(
+                null,
+                null,
+                "-m", getMidpointHome(), "import", "-i", RESOURCES_DIRECTORY.getPath() + "/import-batch-with-conflict.xml",
+                "--batch-size", "10");
+
+        then("all roles except the conflicting one are imported");
+
+        OperationResult result = new OperationResult("test170FailedBatchIsImportedOneByOne");
+
+        Assertions.assertThat(repository.countObjects(RoleType.class, null, null, result)).isEqualTo(5);
+        PrismObject<RoleType> role = repository.getObject(RoleType.class, "7d3b2d6e-6c1e-4a59-9f0c-1d3f5f1b0a01", null, result);
+        Assertions.assertThat(role.getName().getOrig()).isEqualTo("batch-role-1");
+    }
+
+    private void deleteAllOrgs(OperationResult result) throws Exception {
+        for (PrismObject<OrgType> org : repository.searchObjects(OrgType.class, null, null, result)) {
+            repository.deleteObject(OrgType.class, org.getOid(), result);
+        }
+        Assertions.assertThat(repository.countObjects(OrgType.class, null, null, result)).isZero();
+    }
 }
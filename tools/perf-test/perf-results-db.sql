@@ -9,8 +9,8 @@
 -- mst_ prefix means: "MidScale Test"
 
 -- drop view v_stopwatch;
--- drop table mst_stopwatch; drop table mst_glob_perf_info; drop table mst_query; drop table mst_build;
--- delete from mst_glob_perf_info; delete from mst_query; delete from mst_stopwatch; delete from mst_build;
+-- drop table mst_stopwatch; drop table mst_glob_perf_info; drop table mst_query; drop table mst_benchmark; drop table mst_build;
+-- delete from mst_glob_perf_info; delete from mst_query; delete from mst_stopwatch; delete from mst_benchmark; delete from mst_build;
 
 create table mst_build (
     id SERIAL NOT NULL, -- surrogate PK
@@ -61,6 +61,20 @@ create table mst_query (
     PRIMARY KEY (build_id, test, metric)
 );
 
+-- JMH results from tools/benchmarks, benchmark contains also the parameters, e.g. evaluate[mapping=script]
+create table mst_benchmark (
+    build_id SERIAL NOT NULL REFERENCES mst_build(id),
+    test TEXT NOT NULL,
+    benchmark TEXT NOT NULL,
+    mode TEXT NOT NULL, -- JMH mode short label, e.g. avgt or thrpt
+    count INTEGER NOT NULL,
+    score NUMERIC NOT NULL,
+    error NUMERIC NOT NULL, -- NaN if there are not enough samples
+    unit TEXT NOT NULL,
+
+    PRIMARY KEY (build_id, test, benchmark, mode)
+);
+
 create or replace view v_stopwatch as
 select build_id, build, branch, commit_hash, date,
     test, monitor, count, total_us, avg_us, min_us, max_us
@@ -78,3 +92,9 @@ select build_id, build, branch, commit_hash, date,
     test, metric, count
 from mst_build b
     join mst_query m on b.id = m.build_id;
+
+create or replace view v_benchmark as
+select build_id, build, branch, commit_hash, date,
+    test, benchmark, mode, count, score, error, unit
+from mst_build b
+    join mst_benchmark m on b.id = m.build_id;
@@ -73,12 +73,15 @@ tar xzf "${TGZFILE}"
 echo "build_id,test,monitor,count,total_us,avg_us,min_us,max_us" >stopwatch.csv
 echo "build_id,test,operation,count,total_ms,min_ms,max_ms,avg_ms" >glob_perf_info.csv
 echo "build_id,test,metric,count" >query.csv
+echo "build_id,test,benchmark,mode,count,score,error,unit" >benchmark.csv
 
 for FILE in PERF-*; do
   # TODO: if quoting is changed, cut removing note may be removed
   sed -e '1,/\[stopwatch]/d;/^test,/d;/^$/,$d' -e 's/^/'${BUILD_ID}',/g' "${FILE}" | cut -d, -f 1-8 >>stopwatch.csv
   sed -e '1,/\[globalPerformanceInformation]/d;/^test,/d;/^$/,$d' -e 's/^/'${BUILD_ID}',/g' "${FILE}" >>glob_perf_info.csv
   sed -e '1,/\[query]/d;/^test,/d;/^$/,$d' -e 's/^/'${BUILD_ID}',/g' "${FILE}" >>query.csv
+  # only in PERF-benchmarks.txt produced by tools/benchmarks
+  sed -e '1,/\[benchmark]/d;/^test,/d;/^$/,$d' -e 's/^/'${BUILD_ID}',/g' "${FILE}" >>benchmark.csv
 done
 
 # import into DB
@@ -87,3 +90,4 @@ done
 "${PSQL}" -c "\copy mst_stopwatch FROM 'stopwatch.csv' WITH CSV HEADER DELIMITER ',' QUOTE E'\b';"
 "${PSQL}" -c "\copy mst_glob_perf_info FROM 'glob_perf_info.csv' WITH CSV HEADER DELIMITER ',' QUOTE E'\b';"
 "${PSQL}" -c "\copy mst_query FROM 'query.csv' WITH CSV HEADER DELIMITER ',' QUOTE E'\b';"
+"${PSQL}" -c "\copy mst_benchmark FROM 'benchmark.csv' WITH CSV HEADER DELIMITER ',' QUOTE E'\b';"